@@ -110,9 +110,9 @@ public class BrodbeckGirardin extends DefaultVisualModule implements Runnable
 	private int vectorIterations  = 5;
 	private double springForce = 0.7;
 	
-	// The thread that controls the running of the interpoaltion model
+	// The scheduled task that runs the interpolation
 	
-	private volatile Thread thread;
+	private transient volatile GraphScheduler.Task task;
 	private boolean bDeleted = false;
 	
 	// The seize of the full data set (interpolation items + items to be interpolated)
@@ -193,8 +193,7 @@ public class BrodbeckGirardin extends DefaultVisualModule implements Runnable
 			    starting.add(new String("start"));
 			    
 			    getOutPort(1).sendData(starting);
-			    thread = new Thread(this);
-			    thread.start();
+			    task = GraphScheduler.getInstance().schedule(this, this);
 			    bDeleted = false;
 			}
 		    }
@@ -203,13 +202,13 @@ public class BrodbeckGirardin extends DefaultVisualModule implements Runnable
 		    // Received the parent data; the points around which
 		    // we will interpolate the new data
 		    //		    System.out.println("Interp: in port 1: samplePos");
-		    thread = null;
+		    stopInterpolation();
 		}
 		else if (toPort.getKey().equals("i2")){
 		    // We have received the data that will be interpolated
 		    // around the parent points
 		    //		    System.out.println("Interp: in port 2: data-parents");
-		    thread = null;
+		    stopInterpolation();
 		}
 		else if (toPort.getKey().equals("i4")){
 		    int p = 5;
@@ -218,7 +217,7 @@ public class BrodbeckGirardin extends DefaultVisualModule implements Runnable
 	    else{
 		// Input module or link was deleted or reset
 			
-		thread = null;
+		stopInterpolation();
 		
 		sampleData =null;
 		dataItems = null;
@@ -416,6 +415,7 @@ public class BrodbeckGirardin extends DefaultVisualModule implements Runnable
 		Coordinate.setActiveDimensions(2);
 		int fullSize = dataSetSize;
 		int numTimes = subsetToInterp.size();
+		DistanceMetric metric = dataItems.getMetric();
 
 		//percentDone=new JLabel();
 		percentDone.setText("0%");
@@ -431,16 +431,18 @@ public class BrodbeckGirardin extends DefaultVisualModule implements Runnable
 		    if (!parentsProvided){ // use brute-force as default
 			minIndex = ((Integer)origSubset.get(0)).intValue();
 			
-			double minDist = dataItems.getDesiredDist(i, minIndex);
+			double minDist = metric.distance(i, minIndex);
 			// Find a suitable position (parent-finding)
 			
 			for( int j = 0 ; j < origSubset.size(); j++ ){
 			    int samp = ((Integer)origSubset.get(j)).intValue();
-			    if (samp != i)
-				if( dataItems.getDesiredDist(i, samp) < minDist ){
-				    minDist = dataItems.getDesiredDist(i, samp);
+			    if (samp != i){
+				double dist = metric.distance(i, samp);
+				if( dist < minDist ){
+				    minDist = dist;
 				    minIndex = samp;
 				}
+			    }
 			}
 		    } else{
 			minIndex = ((Integer)parentsList.get(q)).intValue();// q as an index, since list ordered 1..(n-rootN)
@@ -452,7 +454,7 @@ public class BrodbeckGirardin extends DefaultVisualModule implements Runnable
 		    for (int p=0; p<interpSubset.size(); p++)
 			{
 			    int ind = ((Integer)interpSubset.get(p)).intValue();
-			    sampCache[p]= dataItems.getDesiredDist(i,ind);
+			    sampCache[p]= metric.distance(i,ind);
 			}
 		    
 	    		placeNearToNearestNeighbour(i, minIndex, interpSubset, sampCache); // not orig subset
@@ -467,9 +469,6 @@ public class BrodbeckGirardin extends DefaultVisualModule implements Runnable
 	     }
 		Coordinate.setActiveDimensions(4);
 		percentDone.setText("100%");
-		// Stop the thread
-		
-		thread = null;
 	}
 	
     	/**
@@ -496,7 +495,7 @@ public class BrodbeckGirardin extends DefaultVisualModule implements Runnable
 				double desD;
 				
 				if (sampCache==null)
-					desD = dataItems.getDesiredDist(index, samp);
+					desD = dataItems.getMetric().distance(index, samp);
 				else // cache;
 					desD = sampCache[i];
 					
@@ -539,7 +538,7 @@ public class BrodbeckGirardin extends DefaultVisualModule implements Runnable
 			double realD = v.getLength();
 			double desD;
 			if (sampCache==null)
-			    desD= dataItems.getDesiredDist(index, samp);
+			    desD= dataItems.getMetric().distance(index, samp);
 			else//cache
 			    desD=sampCache[i];
 			
@@ -581,7 +580,7 @@ public class BrodbeckGirardin extends DefaultVisualModule implements Runnable
 			double realD = v.getLength();
 			double desD;
 			if (sampCache==null)
-			    desD= dataItems.getDesiredDist(index, samp);
+			    desD= dataItems.getMetric().distance(index, samp);
 			else//cache
 			    desD=sampCache[i];
 			
@@ -612,7 +611,7 @@ public class BrodbeckGirardin extends DefaultVisualModule implements Runnable
 	{
 		Coordinate pos = (Coordinate)position.get(parent);
 		
-		double radius = dataItems.getDesiredDist(index, parent);
+		double radius = dataItems.getMetric().distance(index, parent);
 		
 		double sumDist = Double.MAX_VALUE;
 		
@@ -742,6 +741,18 @@ public class BrodbeckGirardin extends DefaultVisualModule implements Runnable
 		return -1;
 	}
 	
+	/**
+	* Cancel an interpolation that is waiting to start
+	*/
+	
+	private void stopInterpolation()
+	{
+		if (task != null)
+			task.cancel();
+		
+		task = null;
+	}
+	
 	public void run()
 	{
 		loopInterpolateDataItems();
@@ -752,7 +763,7 @@ public class BrodbeckGirardin extends DefaultVisualModule implements Runnable
 		transferData.add(dataItems);
 		transferData.add(position);
 		
-		getOutPort(0).sendData(transferData);
+		getOutPort(0).sendPositions(transferData);
 		
 		// Send notification to output 2 that interpolation has finished
 		ArrayList converged= new ArrayList();
@@ -66,6 +66,10 @@ public class DataSource extends DefaultVisualModule implements ItemListener
 	
 	static final long serialVersionUID = 50L;
 	
+	// When the data are shown while loading, the number of items in each batch
+	
+	public final static int STREAM_BATCH_SIZE = 10000;
+	
 	// The parent MDI form
 	
 	private static Mdi mdiForm;
@@ -76,7 +80,7 @@ public class DataSource extends DefaultVisualModule implements ItemListener
 	
 	// The dimensions of the module
 	
-	private int height = 140;
+	private int height = 170;
 	private int width = 116;
 	
 	// Store CSV data
@@ -90,6 +94,7 @@ public class DataSource extends DefaultVisualModule implements ItemListener
 	private JLabel lblD;
 	
 	JButton loadData;
+	JButton saveData;
 	
 	private JPanel labelPane;
 	private JLabel lblBinary = null;
@@ -98,6 +103,15 @@ public class DataSource extends DefaultVisualModule implements ItemListener
 	
 	JCheckBox chkNormalise = null;
 	
+	// Checkbox for holding the numeric values and distances as floats
+	
+	JCheckBox chkSingle = null;
+	
+	// The path of the file that the data were loaded from, so that they can
+	// be read again when going back from single to double precision
+	
+	private String dataFile = null;
+	
 	public DataSource(Mdi mdiForm, DrawingCanvas drawPane)
 	{
 		super(mdiForm, drawPane);
@@ -151,7 +165,15 @@ public class DataSource extends DefaultVisualModule implements ItemListener
             		}
         	});
 		
+		// Add a button for saving the loaded data as a snapshot, which
+		// is much quicker to load again than the original file
+		
+		saveData = new JButton("Save data");
+		saveData.setEnabled(false);
+		addSaveListener();
+		
 		centrePane.add(loadData);
+		centrePane.add(saveData);
 		centrePane.setOpaque(false);
 		add(centrePane, "Center");
 		
@@ -174,17 +196,104 @@ public class DataSource extends DefaultVisualModule implements ItemListener
 		labelPane.add(lblN);
 		labelPane.add(lblD);
 		
+		chkSingle = new JCheckBox("single precision", false);
+		chkSingle.addItemListener(this);
+		labelPane.add(chkSingle);
+		
 		// Make the controls visible depending upon the context
 		// of the VisualModule
 		
 		setInterfaceVisibility();
 	}
 	
+	private void addSaveListener()
+	{
+		saveData.addActionListener(new ActionListener() 
+		{
+            		public void actionPerformed(ActionEvent e) 
+			{
+				saveSnapshot();
+            		}
+        	});
+	}
+	
+	/**
+	* Let the user choose a file and save the data to it as a snapshot
+	*/
+	
+	private void saveSnapshot()
+	{
+		if (csvData == null)
+			return;
+		
+		JFileChooser chooser = new JFileChooser(".");
+		chooser.setFileFilter(new ExampleFileFilter(SnapshotLoader.EXTENSION, "Data snapshot files"));
+		
+		if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION)
+			return;
+		
+		String fileName = chooser.getSelectedFile().getAbsolutePath();
+		
+		if (!SnapshotLoader.isSnapshot(fileName))
+			fileName = fileName + "." + SnapshotLoader.EXTENSION;
+		
+		try
+		{
+			SnapshotLoader.save(csvData, fileName);
+		}
+		catch (java.io.IOException e)
+		{
+			JOptionPane.showMessageDialog(null, "There was an error saving the file (" +
+				fileName + ")", "Alert", JOptionPane.ERROR_MESSAGE);
+		}
+	}
+	
+	/**
+	* Read the data file again and send its data on. Returns false if the
+	* file could not be read.
+	*/
+	
+	private boolean reloadData()
+	{
+		try
+		{
+			DataLoader loader;
+			
+			if (SnapshotLoader.isSnapshot(dataFile))
+				loader = new SnapshotLoader(dataFile);
+			else
+				loader = new CSVLoader(dataFile);
+			
+			loader.readData();
+			setCSVData(loader.getDataItemCollection());
+			return true;
+		}
+		catch (java.io.IOException e)
+		{
+			showReloadError();
+			return false;
+		}
+		catch (java.text.ParseException e)
+		{
+			showReloadError();
+			return false;
+		}
+	}
+	
+	private void showReloadError()
+	{
+		JOptionPane.showMessageDialog(null, "The file (" + dataFile + ") could not be read " +
+			"again, so values already rounded to single precision stay rounded", "Alert",
+			JOptionPane.ERROR_MESSAGE);
+	}
+	
 	public void setFileName(String fileName)
 	{
 		// Display the name of the data file
 		// This is called from DataFileLoaderFrame.handleFile()
 		
+		dataFile = fileName;
+		
 		int lastOBlique = 0;
 		lastOBlique = fileName.lastIndexOf("\\");
 		
@@ -206,6 +315,9 @@ public class DataSource extends DefaultVisualModule implements ItemListener
 		lblN.setText("N = " + (new Integer(csvData.getSize()).toString()));
 		lblD.setText("D = " + (new Integer(csvData.getFields().size()).toString()));
 		
+		if (saveData != null)
+			saveData.setEnabled(true);
+		
 		// Send this data to the output port
 		
 		ArrayList transferData = new ArrayList();
@@ -217,6 +329,9 @@ public class DataSource extends DefaultVisualModule implements ItemListener
 		
 		setDataInfo();
 		
+		if (chkSingle != null)
+			csvData.setSinglePrecision(chkSingle.isSelected());
+		
 		if (chkNormalise != null)
 			if (chkNormalise.isSelected())
 				csvData.setNormalised(true);
@@ -224,6 +339,25 @@ public class DataSource extends DefaultVisualModule implements ItemListener
 		getOutPort(0).sendData(transferData);
 	}
 	
+	/**
+	* Called from DataFileLoaderFrame with a snapshot of the items loaded so
+	* far when the data are shown while the file is loading. Each call brings
+	* a larger snapshot, and setCSVData() is called with the whole collection
+	* once the file is loaded.
+	*/
+	
+	public void setCSVBatch(DataItemCollection csvData)
+	{
+		this.csvData = csvData;
+		
+		lblN.setText("N = " + (new Integer(csvData.getSize()).toString()) + "...");
+		lblD.setText("D = " + (new Integer(csvData.getFields().size()).toString()));
+		
+		ArrayList transferData = new ArrayList();
+		transferData.add(csvData);
+		getOutPort(0).sendData(transferData);
+	}
+	
 	private void setDataInfo()
 	{
 		// If the data are binary then indicate this
@@ -306,6 +440,10 @@ public class DataSource extends DefaultVisualModule implements ItemListener
 	{
 		in.defaultReadObject();
 		
+		// Modules saved before the save button was added don't have one
+		
+		if (saveData != null)
+			addSaveListener();
 		loadData.addActionListener(new ActionListener() 
 		{
             		public void actionPerformed(ActionEvent e) 
@@ -321,7 +459,25 @@ public class DataSource extends DefaultVisualModule implements ItemListener
 	
 	public void itemStateChanged(ItemEvent e)
 	{
-		if (e.getSource() == chkNormalise)
+		if (e.getSource() == chkSingle)
+		{
+			if (csvData == null)
+				return;
+			
+			// Values rounded to single precision can't be widened again,
+			// so read the file afresh to go back to double precision
+			
+			if ((e.getStateChange() != ItemEvent.SELECTED) && csvData.isSinglePrecision() &&
+				(dataFile != null) && reloadData())
+				return;
+			
+			csvData.setSinglePrecision(e.getStateChange() == ItemEvent.SELECTED);
+			
+			ArrayList transferData = new ArrayList();
+			transferData.add(csvData);
+			getOutPort(0).sendData(transferData);
+		}
+		else if (e.getSource() == chkNormalise)
 		{
 			if (e.getStateChange() == ItemEvent.SELECTED)
 			{
@@ -171,6 +171,7 @@ public class DataSource_Triangle extends DefaultVisualModule
 	{
 		// Get the data
 		
+		DataItemCollection old = this.triData;
 		this.triData = triData;
 		
 		// Send this data to the output port
@@ -179,6 +180,12 @@ public class DataSource_Triangle extends DefaultVisualModule
 		transferData.add(triData);
 		
 		getOutPort(0).sendData(transferData);
+		
+		// Let go of the triangle that has been replaced, deleting its
+		// file if it was mapped
+		
+		if ((old != null) && (old != triData))
+			old.releaseLowerTriangle();
 	}
 	
 	public DataItemCollection getTriData()
@@ -304,10 +304,10 @@ public class DataTranspose extends DefaultVisualModule implements ItemListener
 			
 			for (i = 0; i < dataItems.getSize(); i++)
 			{
-				if (((DataItem)dataItems.getDataItem(i)).getValues()[j] instanceof Double)
-					val = ((Double)((DataItem)dataItems.getDataItem(i)).getValues()[j]).doubleValue();
+				if (((DataItem)dataItems.getDataItem(i)).getValue(j) instanceof Double)
+					val = ((Double)((DataItem)dataItems.getDataItem(i)).getValue(j)).doubleValue();
 				else
-					val = ((Integer)((DataItem)dataItems.getDataItem(i)).getValues()[j]).doubleValue();
+					val = ((Integer)((DataItem)dataItems.getDataItem(i)).getValue(j)).doubleValue();
 				
 				values.add(new Double(val));
 				sumOfVals[i] += val;
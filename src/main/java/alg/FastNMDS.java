@@ -59,6 +59,7 @@ import math.*;
 import alg.fast_NMDS.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Hashtable;
 import java.util.HashSet;
 import java.util.Collections;
@@ -92,9 +93,9 @@ public class FastNMDS extends DefaultVisualModule implements Runnable
 	
 	private ArrayList transferData;
 	
-	// The thread that controls the running of the routine
+	// The scheduled task that runs the routine
 	
-	private volatile Thread thread;
+	private transient volatile GraphScheduler.Task task;
 	
 	// Button to start MDS.
 	
@@ -113,13 +114,19 @@ public class FastNMDS extends DefaultVisualModule implements Runnable
 	
 	private DataItemCollection dataItems = null;
 	
-	// The N(N - 1)/2 proximities - upper right triangular matrix
-	// ranked in ascending order.
+	// The N(N - 1)/2 proximities, read from the collection's distance
+	// matrix and standardised to [0, 1] as they are read.
 	
-	private ArrayList proximities = null;
+	private DistanceMatrix proximities = null;
+	private double proxLow = 0;
+	private double proxRange = 1;
+	
+	// The standardised proximities in ascending order, built only for
+	// Shepard iterations.
+	
+	private double[] rankedProximities = null;
 	private ArrayList distances = null;
 	private ArrayList distKeys = null;
-	private ArrayList keys = null;
 	
 	// The positions of the points in (N-1)-d space
 	
@@ -332,7 +339,7 @@ public class FastNMDS extends DefaultVisualModule implements Runnable
 			create2DOutput();
 			transferData.add(positions);
 			
-			getOutPort(0).sendData(transferData);
+			getOutPort(0).sendPositions(transferData);
 		}
 		catch(java.lang.Exception e2)
 		{
@@ -367,7 +374,9 @@ public class FastNMDS extends DefaultVisualModule implements Runnable
 	private void stopRoutine()
 	{
 		start.setText("Start");
-		thread = null;
+		if (task != null)
+			task.cancel();
+		task = null;
 		
 		if (controlPanel != null)
 			controlPanel.enableDisableTriggerControls(true);
@@ -376,8 +385,7 @@ public class FastNMDS extends DefaultVisualModule implements Runnable
 	private void startRoutine()
 	{	
 		start.setText("Stop");
-		thread = new Thread(this);
-		thread.start();
+		task = GraphScheduler.getInstance().schedule(this, this, false);
 		
 		if (controlPanel != null)
 			controlPanel.enableDisableTriggerControls(false);
@@ -461,7 +469,7 @@ public class FastNMDS extends DefaultVisualModule implements Runnable
 							transferData.add(dataItems);
 							create2DOutput();
 							transferData.add(positions);
-							getOutPort(0).sendData(transferData);
+							getOutPort(0).sendPositions(transferData);
 							
 							// If the convergence trigger has not already been set
 							// make the default value = number of data items
@@ -528,10 +536,10 @@ public class FastNMDS extends DefaultVisualModule implements Runnable
 	public void run()
 	{
 		ArrayList transferData;
-		Thread thisThread = Thread.currentThread();
+		GraphScheduler.Task thisTask = GraphScheduler.currentTask();
 		double monoValue = 0;
 		boolean bSecondStage = false;
-		while (thread == thisThread)
+		while ((thisTask != null) && !thisTask.isCancelled())
 		{
 			try
 			{
@@ -561,7 +569,7 @@ public class FastNMDS extends DefaultVisualModule implements Runnable
 					transferData.add(dataItems);
 					create2DOutput();
 					transferData.add(positions);
-					getOutPort(0).sendData(transferData);
+					getOutPort(0).sendPositions(transferData);
 				}
 				
 				numIterations++;
@@ -591,7 +599,7 @@ public class FastNMDS extends DefaultVisualModule implements Runnable
 					}
 				}
 				
-				thread.yield();
+				Thread.yield();
 			}
 			catch(java.lang.Exception e2)
 			{
@@ -618,7 +626,7 @@ public class FastNMDS extends DefaultVisualModule implements Runnable
 		thisSampleDists = null;
 		hts = null;
 		proximities = null;
-		keys = null;
+		rankedProximities = null;
 	}
 	
 	/**
@@ -691,13 +699,12 @@ public class FastNMDS extends DefaultVisualModule implements Runnable
 			// Initialise distances - save computation later
 			// also set up hashtable
 			
-			int index, y;
+			int y;
 			
 			Hashtable ht = new Hashtable(neighbourSize);
 			for (y = 0; y < neighbourSize; y++)
 			{
-				index = getIndex(i,  ((Integer)neighbs.get(y)).intValue(), dataItems.getSize());
-				Double di = (Double)proximities.get(index);
+				Double di = new Double(getProximity(i, ((Integer)neighbs.get(y)).intValue()));
 				((ArrayList)cachedDistances.get(i)).add(di);
 				ht.put((Integer)neighbs.get(y), new Integer(y));
 			}
@@ -778,76 +785,85 @@ public class FastNMDS extends DefaultVisualModule implements Runnable
 	}
 	
 	/**
-	* If the input data are a set of N scalars or vectors, calculate
-	* the N(N - 1)/2 proximities.
+	* If the input data are a set of N scalars or vectors, get the
+	* N(N - 1)/2 proximities from the collection's distance matrix.
 	*/
 	
 	private void calcProximities()
 	{
-		int size = dataItems.getSize();
-		proximities = new ArrayList(((size * size) - size) / 2);
-		keys = new ArrayList(((size * size) - size) / 2);
-		int key = 0;
-		double prox;
-		
-		for (int i = 0; i < (size - 1); i++)
-		{
-			for (int j = i + 1; j < size; j++)
-			{
-				prox = dataItems.getDesiredDist(i, j);
-				proximities.add(new Double(prox));
-				keys.add(new Integer(key));
-				key++;
-			}
-		}
-		
-		// Standardise...
+		proximities = dataItems.getDistanceMatrix();
+		rankedProximities = null;
 		
 		standardiseProximities();
-		
-		// ...and sort in sort in ascending order.
-		
-		DistanceComparator distComp = new DistanceComparator(proximities, true);
-		Collections.sort(keys, distComp);
 	}
 	
 	/**
-	* Standardise proximities so that the largest measure is unity and
-	* the smallest measure is zero.
+	* Find the range of the proximities so that they can be standardised
+	* as they are read: the largest measure is unity and the smallest
+	* measure is zero. The shared matrix itself isn't changed.
 	*/
 	
 	private void standardiseProximities()
 	{
 		double low = Integer.MAX_VALUE;
 		double high = Integer.MIN_VALUE;
+		double sum = 0;
 		double val;
-		int i;
+		int size = dataItems.getSize();
 		
-		for (i = 0; i < proximities.size(); i++)
+		for (int i = 1; i < size; i++)
 		{
-			val = ((Double)proximities.get(i)).doubleValue();
-			
-			if (val > high)
-				high = val;
-			
-			if (val < low)
-				low = val;
+			for (int j = 0; j < i; j++)
+			{
+				val = proximities.get(i, j);
+				sum += val;
+				
+				if (val > high)
+					high = val;
+				
+				if (val < low)
+					low = val;
+			}
 		}
 		
-		high -= low;
-		averageProx = 0;
+		proxLow = low;
+		proxRange = high - low;
 		
-		for (i = 0; i < proximities.size(); i++)
+		averageProx = ((sum / (double)(((size * size) - size) / 2)) - low) / proxRange;
+	}
+	
+	/**
+	* Return the standardised proximity between items i and j
+	*/
+	
+	private double getProximity(int i, int j)
+	{
+		return (proximities.get(i, j) - proxLow) / proxRange;
+	}
+	
+	/**
+	* Return the standardised proximities in ascending order, so that the
+	* proximity at the rank of a distance can be found
+	*/
+	
+	private double[] getRankedProximities()
+	{
+		if (rankedProximities == null)
 		{
-			val = ((Double)proximities.get(i)).doubleValue();
-			val -= low;
-			val /= high;
-			averageProx += val;
-			proximities.set(i, new Double(val));
+			int size = dataItems.getSize();
+			rankedProximities = new double[((size * size) - size) / 2];
+			int key = 0;
+			
+			for (int i = 1; i < size; i++)
+			{
+				for (int j = 0; j < i; j++)
+					rankedProximities[key++] = getProximity(i, j);
+			}
+			
+			Arrays.sort(rankedProximities);
 		}
 		
-		int size = dataItems.getSize();
-		averageProx /= (double)(((size * size) - size) / 2);
+		return rankedProximities;
 	}
 	
 	/**
@@ -961,7 +977,7 @@ public class FastNMDS extends DefaultVisualModule implements Runnable
 				index = getIndex(i, ij, size);
 				distance = ((Double)distances.get(index)).doubleValue();
 				distRank = distKeys.indexOf(new Integer(index));
-				proximity = ((Double)proximities.get(index)).doubleValue();
+				proximity = getProximity(i, ij);
 				mono = monoVector(proximity, distance, distRank, i, ij); // O(N).
 				dim = dimVector(proximity, distance, i, ij);
 				
@@ -1071,14 +1087,13 @@ public class FastNMDS extends DefaultVisualModule implements Runnable
 	
 	private ArrayList getProxSubset(ArrayList s, ArrayList proxSubset, int item)
 	{
-		int id, dj, j;
+		int dj, j;
 		ArrayList proxSubsetKeys = new ArrayList(proxSubset.size());
 		
 		for (j = 0; j < s.size(); j++)
 		{
 			dj = ((Integer)s.get(j)).intValue();
-			id = getIndex(item, dj, dataItems.getSize());
-			proxSubset.add(proximities.get(id));
+			proxSubset.add(new Double(getProximity(item, dj)));
 			proxSubsetKeys.add(new Integer(j));
 		}
 		
@@ -1150,7 +1165,7 @@ public class FastNMDS extends DefaultVisualModule implements Runnable
 		double xi, xj;
 		double sd;
 		double[] result = new double[numDim];
-		sd = ((Double)(proximities.get(((Integer)keys.get(distRank)).intValue()))).doubleValue();
+		sd = getRankedProximities()[distRank];
 		
 		for (int a = 0; a < (numDim); a++)
 		{
@@ -1431,13 +1446,8 @@ public class FastNMDS extends DefaultVisualModule implements Runnable
 			dataItems.getSize(),
 			sampleSize);
 		
-		int id;
-		
 		for (int y = 0; y < sampleSize; y++)
-		{
-			id = getIndex(index, ((Integer)newSample.get(y)).intValue(), dataItems.getSize());
-			thisSampleDists.set(y, (Double)proximities.get(id));
-		}
+			thisSampleDists.set(y, new Double(getProximity(index, ((Integer)newSample.get(y)).intValue())));
 		
 		samples.set(index, newSample);
 	}
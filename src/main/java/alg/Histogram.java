@@ -55,6 +55,7 @@ import parent_gui.*;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.awt.Color;
 import java.awt.event.*;
 import java.awt.Dimension;
@@ -260,9 +261,10 @@ public class Histogram extends DefaultVisualModule
 	
 	public void sendSelection()
 	{	
-		// Get references to the selction handling objects
+		// Get references to the selction handling objects. The slider
+		// changes its selection in place, so send a copy
 		
-		selection = slider.getSelection();
+		selection = new HashSet(slider.getSelection());
 		
 		ArrayList transferData = new ArrayList(2);
 		transferData.add(dataItems);
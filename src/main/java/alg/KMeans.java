@@ -151,9 +151,9 @@ public class KMeans extends DefaultVisualModule implements Runnable, ActionListe
 	
 	private ValidateTriggerField integerDoc;
 	
-	// Thread of execution
+	// The scheduled task that runs the algorithm
 	
-	private Thread thread;
+	private transient volatile GraphScheduler.Task task;
 	
 	// Has the spring model converged one it's reached a certain
 	// number of iterations?
@@ -231,9 +231,9 @@ public class KMeans extends DefaultVisualModule implements Runnable, ActionListe
 		{
 			currentIteration = 0;
 			
-			// Make sure that the thread ends
+			// Make sure that the algorithm ends
 			
-			thread = null;
+			stopKMeans();
 			
 			// Disable the controls
 			
@@ -356,8 +356,7 @@ public class KMeans extends DefaultVisualModule implements Runnable, ActionListe
 			{ 	
 				currentIteration = 0;
 				
-				thread = new Thread(KMeans.this);
-				thread.start();
+				task = GraphScheduler.getInstance().schedule(KMeans.this, KMeans.this);
             		}
         	});
 	}
@@ -568,17 +567,17 @@ public class KMeans extends DefaultVisualModule implements Runnable, ActionListe
 		
 		for (int i = 0; i < numFieldsOriginal; i++)
 		{
-			if (((DataItem)dataItems.getDataItem(0)).getValues()[i] instanceof Date)
+			if (((DataItem)dataItems.getDataItem(0)).getValue(i) instanceof Date)
 			{
 				numNumericDims++;
 				numPositions.add(new Integer(i));
 			}
-			else if (((DataItem)dataItems.getDataItem(0)).getValues()[i] instanceof Integer)
+			else if (((DataItem)dataItems.getDataItem(0)).getValue(i) instanceof Integer)
 			{
 				numNumericDims++;
 				numPositions.add(new Integer(i));
 			}
-			else if (((DataItem)dataItems.getDataItem(0)).getValues()[i] instanceof Double)
+			else if (((DataItem)dataItems.getDataItem(0)).getValue(i) instanceof Double)
 			{
 				numNumericDims++;
 				numPositions.add(new Integer(i));
@@ -599,7 +598,7 @@ public class KMeans extends DefaultVisualModule implements Runnable, ActionListe
 			for (int j = 0; j < numNumericDims; j++)
 			{	
 				int iTemp = ((Integer)numPositions.get(j)).intValue();
-				Object dat = ((DataItem)dataItems.getDataItem(i)).getValues()[iTemp];
+				Object dat = ((DataItem)dataItems.getDataItem(i)).getValue(iTemp);
 				
 				if (dat instanceof Date)
 					dTemp = (double)((Date)dat).getTime();
@@ -657,7 +656,7 @@ public class KMeans extends DefaultVisualModule implements Runnable, ActionListe
 		{
 			for (int j = 0; j < numNumericDims; j++)
 			{
-				dTemp = ((DataItem)dataItems.getDataItem(i)).getTextValues()[j];
+				dTemp = ((DataItem)dataItems.getDataItem(i)).getTextValue(j);
 				
 				if (dTemp < Double.MAX_VALUE)
 				{
@@ -952,7 +951,9 @@ public class KMeans extends DefaultVisualModule implements Runnable, ActionListe
 	
 	private void runKmeans()
 	{
-		while ((kMeansConverged() == false) && (thread != null))
+		GraphScheduler.Task thisTask = GraphScheduler.currentTask();
+		
+		while ((kMeansConverged() == false) && (thisTask != null) && !thisTask.isCancelled())
 		{
 			// First reset the members (clusters) array
 			
@@ -982,8 +983,8 @@ public class KMeans extends DefaultVisualModule implements Runnable, ActionListe
 	
 	public void run()
 	{
-		Thread thisThread = Thread.currentThread();
-		while (thread == thisThread)
+		GraphScheduler.Task thisTask = GraphScheduler.currentTask();
+		if ((thisTask != null) && !thisTask.isCancelled())
 		{ 
 			try
 			{
@@ -991,7 +992,7 @@ public class KMeans extends DefaultVisualModule implements Runnable, ActionListe
 					if (!txtCentroids.getText().equals(""))
 						numCentroids = Integer.parseInt(txtCentroids.getText());
 				
-				if (((DataItem)dataItems.getDataItem(0)).getTextValues() == null)
+				if (!((DataItem)dataItems.getDataItem(0)).isText())
 					createInputs();
 				else
 					createInputsText();
@@ -1002,10 +1003,6 @@ public class KMeans extends DefaultVisualModule implements Runnable, ActionListe
 				
 				createTrueCentroids();
 				
-				// Ensure that this is only run once
-				
-				thread = null;
-				
 				// Send the data to the output
 				
 				ArrayList transferData;
@@ -1033,6 +1030,18 @@ public class KMeans extends DefaultVisualModule implements Runnable, ActionListe
 		}
 	}
 	
+	/**
+	* Cancel a run of the algorithm
+	*/
+	
+	private void stopKMeans()
+	{
+		if (task != null)
+			task.cancel();
+		
+		task = null;
+	}
+	
 	// Create the ports and append them to the module
 	
 	private void setPorts()
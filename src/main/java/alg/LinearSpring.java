@@ -17,8 +17,10 @@ import alg.springModel96.NeighbourComparator;
 import alg.springModel96.SpringModelControlPanel;
 import data.DataItem;
 import data.DataItemCollection;
+import data.DistanceMetric;
 import parent_gui.DefaultVisualModule;
 import parent_gui.DrawingCanvas;
+import parent_gui.GraphScheduler;
 import parent_gui.Mdi;
 import parent_gui.ModulePort;
 import parent_gui.ScriptModel;
@@ -63,8 +65,8 @@ public class LinearSpring extends DefaultVisualModule implements Runnable
 	// The array of data to be transferred to other linked modules
 	private ArrayList				transferData;
 	
-	// The thread that controls the running of the spring model
-	private volatile Thread			thread;
+	// The scheduled task that runs the spring model
+	private transient volatile GraphScheduler.Task	task;
 	
 	// Determine whether the high-D input has been removed
 	private boolean					bHigh_D_InputRemoved	= false;
@@ -185,6 +187,8 @@ public class LinearSpring extends DefaultVisualModule implements Runnable
 		distances = new ArrayList();
 		hts = new ArrayList();
 		
+		DistanceMetric metric = dataItems.getMetric(springVar);
+		
 		// init every element of neighbours and samples with a random list
 		for (int i = 0; i < dataItems.getSize(); i++)
 		{
@@ -201,8 +205,8 @@ public class LinearSpring extends DefaultVisualModule implements Runnable
 			Hashtable ht = new Hashtable(neighbourSize);
 			for (int y = 0; y < neighbourSize; y++)
 			{
-				Double di = new Double(dataItems.getDesiredDist(i, ((Integer) neighbs
-						.get(y)).intValue(), springVar));
+				Double di = new Double(metric.distance(i, ((Integer) neighbs
+						.get(y)).intValue()));
 			
 				((ArrayList) distances.get(i)).add(di);
 				ht.put((Integer) neighbs.get(y), new Integer(y));
@@ -234,7 +238,9 @@ public class LinearSpring extends DefaultVisualModule implements Runnable
 	private void stopSpringModel()
 	{
 		start.setText("Start");
-		thread = null;
+		if (task != null)
+			task.cancel();
+		task = null;
 		
 		// Only allow the user to modify the convergence triggering values while
 		// the spring model is not iterating
@@ -245,8 +251,7 @@ public class LinearSpring extends DefaultVisualModule implements Runnable
 	private void startSpringModel()
 	{
 		start.setText("Stop");
-		thread = new Thread(this);
-		thread.start();
+		task = GraphScheduler.getInstance().schedule(this, this, false);
 		
 		// Only allow the user to modify the convergence triggering values while
 		// the spring model is not iterating
@@ -348,7 +353,7 @@ public class LinearSpring extends DefaultVisualModule implements Runnable
 					{
 						setInitialPositions((ArrayList) arg.get(1),
 								(DataItemCollection) arg.get(0));
-						getOutPort(0).sendData(transferData);
+						getOutPort(0).sendPositions(transferData);
 					}
 				}
 			}
@@ -457,7 +462,7 @@ public class LinearSpring extends DefaultVisualModule implements Runnable
 		transferData = new ArrayList();
 		transferData.add(dataItems);
 		transferData.add(position);
-		getOutPort(0).sendData(transferData);
+		getOutPort(0).sendPositions(transferData);
 	}
 
 	/**
@@ -465,8 +470,8 @@ public class LinearSpring extends DefaultVisualModule implements Runnable
 	 */
 	public void run()
 	{
-		Thread thisThread = Thread.currentThread();
-		while (thread == thisThread)
+		GraphScheduler.Task thisTask = GraphScheduler.currentTask();
+		while ((thisTask != null) && !thisTask.isCancelled())
 		{
 			try
 			{
@@ -483,12 +488,12 @@ public class LinearSpring extends DefaultVisualModule implements Runnable
 			// Only pass the modified positions to the output
 			// Do this after every 10 iterations
 			if ((numIterations % 10) == 0)
-				getOutPort(0).sendData(transferData);
+				getOutPort(0).sendPositions(transferData);
 			
 			Thread.yield();
 		}
 		if (!bHigh_D_InputRemoved)
-			getOutPort(0).sendData(transferData);
+			getOutPort(0).sendPositions(transferData);
 		else
 			nullifyReferences();
 	}
@@ -518,11 +523,13 @@ public class LinearSpring extends DefaultVisualModule implements Runnable
 		if (startTime == 0)
 			startTime = System.currentTimeMillis();
 		
+		DistanceMetric metric = dataItems.getMetric(springVar);
+		
 		// Iterate over whole data set
 		for (int i = 0; i < dataItems.getSize(); i++)
 		{
 			// Calculate the forces that will be exerted on this object
-			calcForces(i);
+			calcForces(i, metric);
 		}
 		
 		for (int i = 0; i < dataItems.getSize(); i++)
@@ -548,11 +555,13 @@ public class LinearSpring extends DefaultVisualModule implements Runnable
 	 * 
 	 * @param index
 	 *            The index of the dataItem that forces are to be calculated on
+	 * @param metric
+	 *            The metric fetched for this iteration
 	 */
-	private void calcForces(int index)
+	private void calcForces(int index, DistanceMetric metric)
 	{
 		// First randomize the sample
-		randomizeSample(index);
+		randomizeSample(index, metric);
 		ArrayList neighbs = (ArrayList) neighbours.get(index);
 
 		// Iterate thro' neighbour set, calcing force based on sim &
@@ -683,8 +692,10 @@ public class LinearSpring extends DefaultVisualModule implements Runnable
 	 * 
 	 * @param index
 	 *            The index of the samples arrayList to store the result
+	 * @param metric
+	 *            The metric fetched for this iteration
 	 */
-	private void randomizeSample(int index)
+	private void randomizeSample(int index, DistanceMetric metric)
 	{
 		// The neighbours list, which is not wanted in this sample
 		HashSet exclude = new HashSet((ArrayList) neighbours.get(index));
@@ -694,8 +705,8 @@ public class LinearSpring extends DefaultVisualModule implements Runnable
 		
 		for (int y = 0; y < sampleSize; y++)
 		{
-			thisSampleDists.set(y, new Double(dataItems.getDesiredDist(index,
-					((Integer) newSample.get(y)).intValue(), springVar)));
+			thisSampleDists.set(y, new Double(metric.distance(index,
+					((Integer) newSample.get(y)).intValue())));
 		}
 		
 		samples.set(index, newSample);
@@ -831,6 +842,7 @@ public class LinearSpring extends DefaultVisualModule implements Runnable
 		int numComps = 0;
 		double lowDist = 0.0;
 		double highDist = 0.0;
+		DistanceMetric metric = dataItems.getMetric(springVar);
 		
 		for (int i = 1; i < sample.size(); i++)
 		{
@@ -841,7 +853,7 @@ public class LinearSpring extends DefaultVisualModule implements Runnable
 				Vect v = new Vect((Coordinate) position.get(obj1), (Coordinate) position
 						.get(obj2));
 				lowDist = v.getLength();
-				highDist = dataItems.getDesiredDist(obj1, obj2, springVar);
+				highDist = metric.distance(obj1, obj2);
 				error += (lowDist - highDist);
 				numComps++;
 			}
@@ -859,6 +871,7 @@ public class LinearSpring extends DefaultVisualModule implements Runnable
 	{
 		double error = 0.0;
 		int numComps = 0;
+		DistanceMetric metric = dataItems.getMetric(springVar);
 		
 		for (int i = 1; i < dataItems.getSize(); i++)
 		{
@@ -867,7 +880,7 @@ public class LinearSpring extends DefaultVisualModule implements Runnable
 				Vect v = new Vect((Coordinate) position.get(i), (Coordinate) position
 						.get(j));
 				double lowDist = v.getLength();
-				double highDist = dataItems.getDesiredDist(i, j, springVar);
+				double highDist = metric.distance(i, j);
 				error += (lowDist - highDist);
 				numComps++;
 			}
@@ -923,6 +936,7 @@ public class LinearSpring extends DefaultVisualModule implements Runnable
 		double totalLowDist = 0.0;
 		int numComps = 0;
 		double stress = 0.0;
+		DistanceMetric metric = dataItems.getMetric(springVar);
 		
 		for (int i = 1; i < dataItems.getSize(); i++)
 		{
@@ -931,7 +945,7 @@ public class LinearSpring extends DefaultVisualModule implements Runnable
 				Vect v = new Vect((Coordinate) position.get(i), (Coordinate) position
 						.get(j));
 				lowDist = v.getLength();
-				highDist = dataItems.getDesiredDist(i, j, springVar);
+				highDist = metric.distance(i, j);
 				stress += (lowDist - highDist) * (lowDist - highDist);
 				totalLowDist += (lowDist * lowDist);
 				numComps++;
@@ -954,6 +968,7 @@ public class LinearSpring extends DefaultVisualModule implements Runnable
 		double lowDist = 0.0;
 		double highDist = 0.0;
 		double totalLowDist = 0.0;
+		DistanceMetric metric = dataItems.getMetric(springVar);
 		
 		for (int i = 1; i < sample.size(); i++)
 		{
@@ -964,7 +979,7 @@ public class LinearSpring extends DefaultVisualModule implements Runnable
 				Vect v = new Vect((Coordinate) position.get(obj1), (Coordinate) position
 						.get(obj2));
 				lowDist = v.getLength();
-				highDist = dataItems.getDesiredDist(obj1, obj2, springVar);
+				highDist = metric.distance(obj1, obj2);
 				stress += (lowDist - highDist) * (lowDist - highDist);
 				totalLowDist += (lowDist * lowDist);
 				numComps++;
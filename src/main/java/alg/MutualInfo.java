@@ -18,6 +18,7 @@ import java.awt.Dimension;
 import java.awt.GridBagLayout;
 import java.awt.GridBagConstraints;
 import java.util.ArrayList;
+import java.util.List;
 import javax.swing.JRadioButton;
 import javax.swing.JLabel;
 import javax.swing.ButtonGroup;
@@ -900,7 +901,7 @@ public class MutualInfo extends DefaultVisualModule  {
     }
 
 
-    private ArrayList getProbDist(ArrayList dim, int dimNum, int numBuckets){
+    private ArrayList getProbDist(List dim, int dimNum, int numBuckets){
 	// get probability distribution of variable dim
 	//returns arraylist--  
 	// 0:ArrayList of distribution (proportion of pts in each bucket)
@@ -967,7 +968,7 @@ public class MutualInfo extends DefaultVisualModule  {
     }
 
 
-    private ArrayList getConditionalProbDists(ArrayList xDim, ArrayList yBucket, int numBuckets, double bucketWidth, double thisMin, double thisMax){
+    private ArrayList getConditionalProbDists(List xDim, ArrayList yBucket, int numBuckets, double bucketWidth, double thisMin, double thisMax){
 	//returns dist of xVars for yBucket - when y values are in yBucket
 
 	ArrayList values=new ArrayList();  ArrayList distrib = new ArrayList();
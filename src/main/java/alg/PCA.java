@@ -150,9 +150,9 @@ public class PCA extends DefaultVisualModule implements DocumentListener, Runnab
 	private ValidateTriggerField doubleDoc;
 	private ValidateTriggerField integerDoc;
 	
-	// The thread that controls the running of the PCA model
+	// The scheduled task that runs the PCA model
 	
-	private volatile Thread thread;
+	private transient volatile GraphScheduler.Task task;
 	private boolean bDeleted = false;
 	private boolean bTrain = true;
 	
@@ -348,8 +348,7 @@ public class PCA extends DefaultVisualModule implements DocumentListener, Runnab
             		public void actionPerformed(ActionEvent e) 
 			{
 				bTrain = false;
-				thread = new Thread(PCA.this);
-				thread.start();
+				task = GraphScheduler.getInstance().schedule(PCA.this, PCA.this);
             		}
         	});
 		
@@ -360,8 +359,7 @@ public class PCA extends DefaultVisualModule implements DocumentListener, Runnab
             		public void actionPerformed(ActionEvent e) 
 			{
 				bTrain = true;
-				thread = new Thread(PCA.this);
-				thread.start();
+				task = GraphScheduler.getInstance().schedule(PCA.this, PCA.this);
             		}
         	});
 	}
@@ -396,7 +394,7 @@ public class PCA extends DefaultVisualModule implements DocumentListener, Runnab
 				
 				Coordinate.setActiveDimensions(2);
 				
-				if (((DataItem)dataOriginal.getDataItem(0)).getTextValues() == null)
+				if (!((DataItem)dataOriginal.getDataItem(0)).isText())
 					createPCAInputs();
 				else
 					createPCAInputsText();
@@ -430,7 +428,7 @@ public class PCA extends DefaultVisualModule implements DocumentListener, Runnab
 			// Input module was deleted
 			
 			getOutPort(0).sendData(null);
-			thread = null;
+			stopPCA();
 		}
 	}
 	
@@ -478,17 +476,17 @@ public class PCA extends DefaultVisualModule implements DocumentListener, Runnab
 		
 		for (int i = 0; i < numFieldsOriginal; i++)
 		{
-			if (((DataItem)dataOriginal.getDataItem(0)).getValues()[i] instanceof Date)
+			if (((DataItem)dataOriginal.getDataItem(0)).getValue(i) instanceof Date)
 			{
 				pcaInputElementCount++;
 				numPositions.add(new Integer(i));
 			}
-			else if (((DataItem)dataOriginal.getDataItem(0)).getValues()[i] instanceof Integer)
+			else if (((DataItem)dataOriginal.getDataItem(0)).getValue(i) instanceof Integer)
 			{
 				pcaInputElementCount++;
 				numPositions.add(new Integer(i));
 			}
-			else if (((DataItem)dataOriginal.getDataItem(0)).getValues()[i] instanceof Double)
+			else if (((DataItem)dataOriginal.getDataItem(0)).getValue(i) instanceof Double)
 			{
 				pcaInputElementCount++;
 				numPositions.add(new Integer(i));
@@ -509,7 +507,7 @@ public class PCA extends DefaultVisualModule implements DocumentListener, Runnab
 			for (int j = 0; j < pcaInputElementCount; j++)
 			{	
 				int iTemp = ((Integer)numPositions.get(j)).intValue();
-				Object dat = ((DataItem)dataOriginal.getDataItem(i)).getValues()[iTemp];
+				Object dat = ((DataItem)dataOriginal.getDataItem(i)).getValue(iTemp);
 				
 				if (dat instanceof Date)
 					dTemp = (double)((Date)dat).getTime();
@@ -563,7 +561,7 @@ public class PCA extends DefaultVisualModule implements DocumentListener, Runnab
 		{
 			for (int j = 0; j < pcaInputElementCount; j++)
 			{
-				dTemp = ((DataItem)dataOriginal.getDataItem(i)).getTextValues()[j];
+				dTemp = ((DataItem)dataOriginal.getDataItem(i)).getTextValue(j);
 				
 				if (dTemp < Double.MAX_VALUE)
 				{
@@ -747,21 +745,30 @@ public class PCA extends DefaultVisualModule implements DocumentListener, Runnab
 	
 	public void run()
 	{
-		Thread thisThread = Thread.currentThread();
+		GraphScheduler.Task thisTask = GraphScheduler.currentTask();
 		
 		run.setEnabled(false);
 		train.setEnabled(false);
 		
-		while (thread == thisThread)
-		{ 
+		if ((thisTask != null) && !thisTask.isCancelled())
 			RunOrTrain(bTrain);
-			thread = null;
-		}
 		
 		run.setEnabled(true);
 		train.setEnabled(true);
 	}
 	
+	/**
+	* Cancel a run of the model that is waiting to start
+	*/
+	
+	private void stopPCA()
+	{
+		if (task != null)
+			task.cancel();
+		
+		task = null;
+	}
+	
 	/**
 	* Overriding the method in DefaultVisualModule, this allows the module to tighten the
 	* constraints upon inter-port (module) connections
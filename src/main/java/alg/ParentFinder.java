@@ -188,6 +188,18 @@ public class ParentFinder extends DefaultVisualModule implements ActionListener
 	System.out.print("getParents");
 	int minIndex=0, c1, c2;
 	double minDist, maxDist, dist;
+	DistanceMetric metric = dataItems.getMetric();
+
+	// Re-send the parents found earlier for the same data and method
+	int method = pivots.isSelected() ? 2 : (sampSearch.isSelected() ? 1 : 0);
+	ResultCache.Key key = getCacheKey(new Object[] {dataItems, sample, remainder}, 
+				 new Object[] {new Integer(method), new Integer(method == 2 ? numPivots : 0)});
+	ArrayList[] cached = getCachedOutputs(key);
+	if (cached != null){
+	    parents = new ArrayList((ArrayList)cached[0].get(0));
+	    sendData();
+	    return;
+	}
 
 	//pivots
 	if (pivots.isSelected()){
@@ -230,7 +242,7 @@ public class ParentFinder extends DefaultVisualModule implements ActionListener
 		for (int i =0; i< sample.size(); i++) {
 		    c2 = ((Integer)sample.get(i)).intValue();
 		    if (c1!=c2) {
-			dist = dataItems.getDesiredDist(c1,c2);
+			dist = metric.distance(c1,c2);
 			if (dist>maxDist) 
 			    maxDist = dist;
 			fullDists[i][j]=dist;
@@ -267,7 +279,7 @@ public class ParentFinder extends DefaultVisualModule implements ActionListener
 		    comp = ((Integer)sample.get(((Integer)pivotIDs.get(p)).intValue())).intValue();
 		    bucketWidth = ((Double)bucketWidths.get(p)).doubleValue();
 		    if (comp != i) {
-			dist = dataItems.getDesiredDist(i, comp);  //dist calc to get bucket
+			dist = metric.distance(i, comp);  //dist calc to get bucket
 			bNum = (int)((dist-0.0001)/bucketWidth);
 			if (bNum >= numBuckets)
 			    bNum = numBuckets-1;
@@ -276,7 +288,7 @@ public class ParentFinder extends DefaultVisualModule implements ActionListener
 			for (int w=0; w <  bucketContents.size(); w++) { //for all pts in bucket
 			    c1=((Integer)bucketContents.get(w)).intValue();
 			    if (c1!=i) {
-				dist = dataItems.getDesiredDist(c1,i); // main dist calcs - number of which limited by pre-proc
+				dist = metric.distance(c1,i); // main dist calcs - number of which limited by pre-proc
 				if (dist < clDist) {
 				    clDist = dist;
 				    minIndex = ((Integer)bucketContents.get(w)).intValue();
@@ -295,15 +307,17 @@ public class ParentFinder extends DefaultVisualModule implements ActionListener
 		int i = ((Integer)remainder.get(r)).intValue();
 		minIndex = ((Integer)sample.get(0)).intValue();
 		
-		minDist = dataItems.getDesiredDist(i, minIndex);
+		minDist = metric.distance(i, minIndex);
 		
 		for( int j = 0 ; j < sample.size(); j++ ){
 		    int samp = ((Integer)sample.get(j)).intValue();
-		    if (samp != i)
-			if( dataItems.getDesiredDist(i, samp) < minDist ){
-			    minDist = dataItems.getDesiredDist(i, samp);
+		    if (samp != i){
+			dist = metric.distance(i, samp);
+			if( dist < minDist ){
+			    minDist = dist;
 			    minIndex = samp;
 			}
+		    }
 		}
 		parents.add(new Integer(minIndex));
 	    }
@@ -324,16 +338,17 @@ public class ParentFinder extends DefaultVisualModule implements ActionListener
 	    for (int r=0; r< remainder.size(); r++){    
 		int i = ((Integer)remainder.get(r)).intValue();
 		minIndex = ((Integer)interpSubset.get(0)).intValue();
-		minDist = dataItems.getDesiredDist(i, minIndex);
+		minDist = metric.distance(i, minIndex);
 		
 		for( int j = 0 ; j < interpSubset.size(); j++ ) {
 		    int samp = ((Integer)interpSubset.get(j)).intValue();
-		    if (samp !=i)
-			if( dataItems.getDesiredDist(i, samp) < minDist ) {
-			    
-			    minDist = dataItems.getDesiredDist(i, samp);
+		    if (samp !=i){
+			dist = metric.distance(i, samp);
+			if( dist < minDist ) {
+			    minDist = dist;
 			    minIndex = samp;
-			}    
+			}
+		    }
 		}
 		parents.add(new Integer(minIndex));
 		if ((r%5000)==0) System.out.print(" "+r);
@@ -343,6 +358,11 @@ public class ParentFinder extends DefaultVisualModule implements ActionListener
 	
 	//	printNeighbOrder();
 	//	printParents2();// ver 2: see comments in procedures
+	if (key != null){
+	    ArrayList parentsOut = new ArrayList(1);
+	    parentsOut.add(new ArrayList(parents));
+	    cacheOutputs(key, new ArrayList[] {parentsOut});
+	}
 	sendData();
     }
 
@@ -817,12 +837,13 @@ public class ParentFinder extends DefaultVisualModule implements ActionListener
 	//  FOR LIST OF BEST NEIGHBOURS:
 
  	int sz = dataItems.getSize();
+ 	DistanceMetric metric = dataItems.getMetric();
  	double[][] distAr = new double[sz][sz];
  	int[][] numAr = new int[sz][sz];//row i, left to right, will be other objs is order of proximity to i
  	for (int i=0;i<sz;i++) {
  	    for (int j=0;j<sz;j++) {
  		if (i!=j){
- 		    distAr[i][j]=dataItems.getDesiredDist(i, j);
+ 		    distAr[i][j]=metric.distance(i, j);
  		    numAr[i][j]=j;
  		}
  		else {
@@ -110,9 +110,9 @@ public class RadialInterpolation extends DefaultVisualModule implements Runnable
 	private int vectorIterations  = 20;
 	private double springForce = 0.7;
 	
-	// The thread that controls the running of the interpoaltion model
+	// The scheduled task that runs the interpolation
 	
-	private volatile Thread thread;
+	private transient volatile GraphScheduler.Task task;
 	private boolean bDeleted = false;
 	
 	// The seize of the full data set (interpolation items + items to be interpolated)
@@ -193,8 +193,7 @@ public class RadialInterpolation extends DefaultVisualModule implements Runnable
 			    starting.add(new String("start"));
 			    
 			    getOutPort(1).sendData(starting);
-			    thread = new Thread(this);
-			    thread.start();
+			    task = GraphScheduler.getInstance().schedule(this, this);
 			    bDeleted = false;
 			}
 		    }
@@ -203,13 +202,13 @@ public class RadialInterpolation extends DefaultVisualModule implements Runnable
 		    // Received the parent data; the points around which
 		    // we will interpolate the new data
 		    //		    System.out.println("Interp: in port 1: samplePos");
-		    thread = null;
+		    stopInterpolation();
 		}
 		else if (toPort.getKey().equals("i2")){
 		    // We have received the data that will be interpolated
 		    // around the parent points
 		    //		    System.out.println("Interp: in port 2: data-parents");
-		    thread = null;
+		    stopInterpolation();
 		}
 		else if (toPort.getKey().equals("i4")){
 		    int p = 5;
@@ -218,7 +217,7 @@ public class RadialInterpolation extends DefaultVisualModule implements Runnable
 	    else{
 		// Input module or link was deleted or reset
 			
-		thread = null;
+		stopInterpolation();
 		
 		sampleData =null;
 		dataItems = null;
@@ -421,6 +420,7 @@ public class RadialInterpolation extends DefaultVisualModule implements Runnable
 		percentDone.setText("0%");
 		if (parentsProvided)
 		    System.out.println("parents supplied: "+parentsList.size());
+		DistanceMetric metric = dataItems.getMetric();
 		for (int q=0; q<numTimes; q++)
 		{
 		    int i = ((Integer)subsetToInterp.get(q)).intValue();
@@ -431,16 +431,18 @@ public class RadialInterpolation extends DefaultVisualModule implements Runnable
 		    if (!parentsProvided){ // use brute-force as default
 			minIndex = ((Integer)origSubset.get(0)).intValue();
 			
-			double minDist = dataItems.getDesiredDist(i, minIndex);
+			double minDist = metric.distance(i, minIndex);
 			// Find a suitable position (parent-finding)
 			
 			for( int j = 0 ; j < origSubset.size(); j++ ){
 			    int samp = ((Integer)origSubset.get(j)).intValue();
-			    if (samp != i)
-				if( dataItems.getDesiredDist(i, samp) < minDist ){
-				    minDist = dataItems.getDesiredDist(i, samp);
+			    if (samp != i){
+				double d = metric.distance(i, samp);
+				if( d < minDist ){
+				    minDist = d;
 				    minIndex = samp;
 				}
+			    }
 			}
 		    } else{
 			minIndex = ((Integer)parentsList.get(q)).intValue();// q as an index, since list ordered 1..(n-rootN)
@@ -452,10 +454,10 @@ public class RadialInterpolation extends DefaultVisualModule implements Runnable
 		    for (int p=0; p<interpSubset.size(); p++)
 			{
 			    int ind = ((Integer)interpSubset.get(p)).intValue();
-			    sampCache[p]= dataItems.getDesiredDist(i,ind);
+			    sampCache[p]= metric.distance(i,ind);
 			}
 		    
-	    		placeNearToNearestNeighbour(i, minIndex, interpSubset, sampCache); // not orig subset
+	    		placeNearToNearestNeighbour(i, minIndex, interpSubset, sampCache, metric); // not orig subset
 			
 	    		// Add this point to the subset
 			
@@ -467,9 +469,6 @@ public class RadialInterpolation extends DefaultVisualModule implements Runnable
 	     }
 		Coordinate.setActiveDimensions(4);
 		percentDone.setText("100%");
-		// Stop the thread
-		
-		thread = null;
 	}
 	
     	/**
@@ -485,6 +484,7 @@ public class RadialInterpolation extends DefaultVisualModule implements Runnable
 	protected double sumDistToSample(int index, Coordinate p, ArrayList sample, double[] sampCache)
 	{
 		double total = 0.0;
+		DistanceMetric metric = dataItems.getMetric();
 		
 		for( int i = 0 ; i < sample.size() ;  i++ ) 
 		{
@@ -496,7 +496,7 @@ public class RadialInterpolation extends DefaultVisualModule implements Runnable
 				double desD;
 				
 				if (sampCache==null)
-					desD = dataItems.getDesiredDist(index, samp);
+					desD = metric.distance(index, samp);
 				else // cache;
 					desD = sampCache[i];
 					
@@ -521,6 +521,7 @@ public class RadialInterpolation extends DefaultVisualModule implements Runnable
 	protected Vect sumForcesToSample(int index, ArrayList sample, double[] sampCache) 
 	{
 	    Vect f = new Vect();
+	    DistanceMetric metric = dataItems.getMetric();
 	    
 	    for( int i = 0 ; i < sample.size() ; i++ ) 
 		{
@@ -539,7 +540,7 @@ public class RadialInterpolation extends DefaultVisualModule implements Runnable
 			double realD = v.getLength();
 			double desD;
 			if (sampCache==null)
-			    desD= dataItems.getDesiredDist(index, samp);
+			    desD= metric.distance(index, samp);
 			else//cache
 			    desD=sampCache[i];
 			
@@ -566,13 +567,14 @@ public class RadialInterpolation extends DefaultVisualModule implements Runnable
 	* @param parent Index of the (probable) nearest neighbour.
 	* @param sample Sample on which to perform calculations 
 	* @param sampCache cache of neighbour distances
+	* @param metric The metric fetched for this pass
 	*
 	*/
-	private void placeNearToNearestNeighbour(int index, int parent, ArrayList sample, double[] sampCache)
+	private void placeNearToNearestNeighbour(int index, int parent, ArrayList sample, double[] sampCache, DistanceMetric metric)
 	{
 		Coordinate pos = (Coordinate)position.get(parent);
 		
-		double radius = dataItems.getDesiredDist(index, parent);
+		double radius = metric.distance(index, parent);
 		
 		double sumDist = Double.MAX_VALUE;
 		
@@ -745,6 +747,18 @@ public class RadialInterpolation extends DefaultVisualModule implements Runnable
 		return -1;
 	}
 	
+	/**
+	* Cancel an interpolation that is waiting to start
+	*/
+	
+	private void stopInterpolation()
+	{
+		if (task != null)
+			task.cancel();
+		
+		task = null;
+	}
+	
 	public void run()
 	{
 		loopInterpolateDataItems();
@@ -755,7 +769,7 @@ public class RadialInterpolation extends DefaultVisualModule implements Runnable
 		transferData.add(dataItems);
 		transferData.add(position);
 		
-		getOutPort(0).sendData(transferData);
+		getOutPort(0).sendPositions(transferData);
 		
 		// Send notification to output 2 that interpolation has finished
 		ArrayList converged= new ArrayList();
@@ -243,17 +243,17 @@ public class RandomMap extends DefaultVisualModule
 		
 		for (int i = 0; i < numFieldsOriginal; i++)
 		{
-			if (((DataItem)dataItems.getDataItem(0)).getValues()[i] instanceof Date)
+			if (((DataItem)dataItems.getDataItem(0)).getValue(i) instanceof Date)
 			{
 				numNumericDims++;
 				numPositions.add(new Integer(i));
 			}
-			else if (((DataItem)dataItems.getDataItem(0)).getValues()[i] instanceof Integer)
+			else if (((DataItem)dataItems.getDataItem(0)).getValue(i) instanceof Integer)
 			{
 				numNumericDims++;
 				numPositions.add(new Integer(i));
 			}
-			else if (((DataItem)dataItems.getDataItem(0)).getValues()[i] instanceof Double)
+			else if (((DataItem)dataItems.getDataItem(0)).getValue(i) instanceof Double)
 			{
 				numNumericDims++;
 				numPositions.add(new Integer(i));
@@ -274,7 +274,7 @@ public class RandomMap extends DefaultVisualModule
 			for (int j = 0; j < numNumericDims; j++)
 			{	
 				int iTemp = ((Integer)numPositions.get(j)).intValue();
-				Object dat = ((DataItem)dataItems.getDataItem(i)).getValues()[iTemp];
+				Object dat = ((DataItem)dataItems.getDataItem(i)).getValue(iTemp);
 				
 				if (dat instanceof Date)
 					dTemp = (double)((Date)dat).getTime();
@@ -326,7 +326,7 @@ public class RandomMap extends DefaultVisualModule
 		{
 			for (int j = 0; j < numNumericDims; j++)
 			{
-				dTemp = ((DataItem)dataItems.getDataItem(i)).getTextValues()[j];
+				dTemp = ((DataItem)dataItems.getDataItem(i)).getTextValue(j);
 				
 				if (dTemp < Double.MAX_VALUE)
 				{
@@ -382,7 +382,7 @@ public class RandomMap extends DefaultVisualModule
 			{
 				setFocus();
 				
-				if (((DataItem)dataItems.getDataItem(0)).getTextValues() == null)
+				if (!((DataItem)dataItems.getDataItem(0)).isText())
 					createInputs();
 				else
 					createInputsText();
@@ -300,7 +300,7 @@ public class SSA extends DefaultVisualModule
 		transferData.add(dataItems);
 		transferData.add(positions);
 		
-		getOutPort(0).sendData(transferData);
+		getOutPort(0).sendPositions(transferData);
 	}
 	
 	/** 
@@ -367,10 +367,10 @@ public class SSA extends DefaultVisualModule
 			
 			for (i = 0; i < dataItems.getSize(); i++)
 			{
-				if (((DataItem)dataItems.getDataItem(i)).getValues()[j] instanceof Double)
-					val = ((Double)((DataItem)dataItems.getDataItem(i)).getValues()[j]).doubleValue();
+				if (((DataItem)dataItems.getDataItem(i)).getValue(j) instanceof Double)
+					val = ((Double)((DataItem)dataItems.getDataItem(i)).getValue(j)).doubleValue();
 				else
-					val = ((Integer)((DataItem)dataItems.getDataItem(i)).getValues()[j]).doubleValue();
+					val = ((Integer)((DataItem)dataItems.getDataItem(i)).getValue(j)).doubleValue();
 				
 				values.add(new Double(val));
 				sumOfVals[i] += val;
@@ -566,9 +566,9 @@ public class SSA extends DefaultVisualModule
 					item = (DataItem)transposedSet.getDataItem(i);
 					
 					if (j == (transposedSet.getFields().size() - 1))
-						pw.print(item.getValues()[j]);
+						pw.print(item.getValue(j));
 					else
-						pw.print(item.getValues()[j] + " ");
+						pw.print(item.getValue(j) + " ");
 				}
 				pw.println("");
 			}
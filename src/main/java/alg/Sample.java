@@ -417,6 +417,23 @@ public class Sample extends DefaultVisualModule implements ActionListener
 	
 	private void createDataSets(int sampleSize)
 	{	
+		// If the same data have been sampled at this size before then
+		// re-send the earlier sample. Downstream modules may alter what
+		// they are sent, so they get views onto the cached collections
+		
+		ResultCache.Key key = getCacheKey(new Object[] {dataItems}, new Object[] {new Integer(sampleSize)});
+		ArrayList[] cached = getCachedOutputs(key);
+		
+		if (cached != null)
+		{
+			sampleData = ((DataItemCollection)cached[0].get(0)).snapshot();
+			sample = new ArrayList((ArrayList)cached[0].get(1));
+			remainderData = ((DataItemCollection)cached[1].get(0)).snapshot();
+			remainder = new ArrayList((ArrayList)cached[1].get(1));
+			sendData();
+			return;
+		}
+		
 		sample = Utils.createRandomSample(null, null, dataItems.getSize(), sampleSize);
 		
 		int remainderSize = dataItems.getSize() - sample.size();
@@ -450,6 +467,19 @@ public class Sample extends DefaultVisualModule implements ActionListener
 		
 		remainderData = dataItems.createNewCollection(itemIndices);
 		
+		if (key != null)
+		{
+			ArrayList sampleOut = new ArrayList(2);
+			sampleOut.add(sampleData.snapshot());
+			sampleOut.add(new ArrayList(sample));
+			
+			ArrayList remainderOut = new ArrayList(2);
+			remainderOut.add(remainderData.snapshot());
+			remainderOut.add(new ArrayList(remainder));
+			
+			cacheOutputs(key, new ArrayList[] {sampleOut, remainderOut});
+		}
+		
 		// Send the data to the output ports and beyond
 		
 		sendData();
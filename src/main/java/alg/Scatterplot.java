@@ -281,7 +281,10 @@ public class Scatterplot extends HybridAdaptor implements ActionListener
 					
 					if (arg.size() > 1)
 						if (arg.get(1) instanceof ArrayList)
+						{
 							positions = (ArrayList)arg.get(1);
+							scatterPanel.setPositionBuffer(fromPort.getPositionBuffer());
+						}
 					
 					// If the CSV data being passed in is the same as the existing
 					// data set, then we need only take notice of the positions data
@@ -406,6 +409,7 @@ public class Scatterplot extends HybridAdaptor implements ActionListener
 			
 			dataItems = null;
 			positions = null;
+			scatterPanel.setPositionBuffer(null);
 			
 			jbReset.setEnabled(false);
 			jbReset.setForeground(Color.gray);
@@ -58,6 +58,7 @@ import math.*;
 import alg.Shepard_NMDS.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Hashtable;
 import java.util.HashSet;
 import java.util.Collections;
@@ -91,9 +92,9 @@ public class ShepardNMDS extends DefaultVisualModule implements Runnable
 	
 	private ArrayList transferData;
 	
-	// The thread that controls the running of the routine
+	// The scheduled task that runs the routine
 	
-	private volatile Thread thread;
+	private transient volatile GraphScheduler.Task task;
 	
 	// Button to start MDS.
 	
@@ -112,15 +113,17 @@ public class ShepardNMDS extends DefaultVisualModule implements Runnable
 	
 	private DataItemCollection dataItems = null;
 	
-	// The N(N - 1)/2 proximities - upper right triangular matrix
-	// ranked in ascending order.
+	// The N(N - 1)/2 proximities, read from the collection's distance
+	// matrix and standardised to [0, 1] as they are read.
 	
-	private ArrayList proximities = null;
+	private DistanceMatrix proximities = null;
+	private double proxLow = 0;
+	private double proxRange = 1;
 	
-	// Arraylist of keys so we can retrieve the ranks of proximities
-	// after they've been sorted.
+	// The standardised proximities in ascending order, so we can
+	// retrieve the proximity at a given rank.
 	
-	private ArrayList keys = null;
+	private double[] rankedProximities = null;
 	
 	// The positions of the points in (N-1)-d space
 	
@@ -344,7 +347,9 @@ public class ShepardNMDS extends DefaultVisualModule implements Runnable
 			getOutPort(0).sendData(transferData);
 		}
 		
-		thread = null;
+		if (task != null)
+			task.cancel();
+		task = null;
 		
 		if (controlPanel != null)
 			controlPanel.enableDisableTriggerControls(true);
@@ -353,8 +358,7 @@ public class ShepardNMDS extends DefaultVisualModule implements Runnable
 	private void startRoutine()
 	{	
 		start.setText("Stop");
-		thread = new Thread(this);
-		thread.start();
+		task = GraphScheduler.getInstance().schedule(this, this, false);
 		
 		if (controlPanel != null)
 			controlPanel.enableDisableTriggerControls(false);
@@ -494,8 +498,8 @@ public class ShepardNMDS extends DefaultVisualModule implements Runnable
 	{
 		double monoValue = 0;
 		ArrayList transferData;
-		Thread thisThread = Thread.currentThread();
-		while (thread == thisThread)
+		GraphScheduler.Task thisTask = GraphScheduler.currentTask();
+		while ((thisTask != null) && !thisTask.isCancelled())
 		{
 			try
 			{
@@ -542,7 +546,7 @@ public class ShepardNMDS extends DefaultVisualModule implements Runnable
 					}
 				}
 				
-				thread.yield();
+				Thread.yield();
 			}
 			catch(java.lang.Exception e2)
 			{
@@ -562,6 +566,8 @@ public class ShepardNMDS extends DefaultVisualModule implements Runnable
 	private void nullifyReferences()
 	{
 		dataItems = null;
+		proximities = null;
+		rankedProximities = null;
 	}
 	
 	/**
@@ -630,26 +636,13 @@ public class ShepardNMDS extends DefaultVisualModule implements Runnable
 	}
 	
 	/**
-	* If the input data are a set of N scalars or vectors, calculate
-	* the N(N - 1)/2 proximities.
+	* If the input data are a set of N scalars or vectors, get the
+	* N(N - 1)/2 proximities from the collection's distance matrix.
 	*/
 	
 	private void calcProximities()
 	{
-		int size = dataItems.getSize();
-		proximities = new ArrayList(((size * size) - size) / 2);
-		keys = new ArrayList(((size * size) - size) / 2);
-		int key = 0;
-		
-		for (int i = 0; i < (size - 1); i++)
-		{
-			for (int j = i + 1; j < size; j++)
-			{
-				proximities.add(new Double(dataItems.getDesiredDist(i, j)));
-				keys.add(new Integer(key));
-				key++;
-			}
-		}
+		proximities = dataItems.getDistanceMatrix();
 		
 		// Standardise...
 		
@@ -657,47 +650,61 @@ public class ShepardNMDS extends DefaultVisualModule implements Runnable
 		
 		// ...and sort in sort in ascending order.
 		
-		DistanceComparator distComp = new DistanceComparator(proximities, true);
-		Collections.sort(keys, distComp);
+		int size = dataItems.getSize();
+		rankedProximities = new double[((size * size) - size) / 2];
+		int key = 0;
+		
+		for (int i = 1; i < size; i++)
+		{
+			for (int j = 0; j < i; j++)
+				rankedProximities[key++] = getProximity(i, j);
+		}
+		
+		Arrays.sort(rankedProximities);
 	}
 	
 	/**
-	* Standardise proximities so that the largest measure is unity and
-	* the smallest measure is zero.
+	* Find the range of the proximities so that they can be standardised
+	* as they are read: the largest measure is unity and the smallest
+	* measure is zero. The shared matrix itself isn't changed.
 	*/
 	
 	private void standardiseProximities()
 	{
 		double low = Integer.MAX_VALUE;
 		double high = Integer.MIN_VALUE;
+		double sum = 0;
 		double val;
-		int i;
+		int size = dataItems.getSize();
 		
-		for (i = 0; i < proximities.size(); i++)
+		for (int i = 1; i < size; i++)
 		{
-			val = ((Double)proximities.get(i)).doubleValue();
-			
-			if (val > high)
-				high = val;
-			
-			if (val < low)
-				low = val;
+			for (int j = 0; j < i; j++)
+			{
+				val = proximities.get(i, j);
+				sum += val;
+				
+				if (val > high)
+					high = val;
+				
+				if (val < low)
+					low = val;
+			}
 		}
 		
-		high -= low;
-		averageProx = 0;
-		
-		for (i = 0; i < proximities.size(); i++)
-		{
-			val = ((Double)proximities.get(i)).doubleValue();
-			val -= low;
-			val /= high;
-			averageProx += val;
-			proximities.set(i, new Double(val));
-		}
+		proxLow = low;
+		proxRange = high - low;
 		
-		int size = dataItems.getSize();
-		averageProx /= (double)(((size * size) - size) / 2);
+		averageProx = ((sum / (double)(((size * size) - size) / 2)) - low) / proxRange;
+	}
+	
+	/**
+	* Return the standardised proximity between items i and j
+	*/
+	
+	private double getProximity(int i, int j)
+	{
+		return (proximities.get(i, j) - proxLow) / proxRange;
 	}
 	
 	/**
@@ -731,7 +738,7 @@ public class ShepardNMDS extends DefaultVisualModule implements Runnable
 				{
 					index = getIndex(i, j, size);
 					distance = ((Double)distances.get(index)).doubleValue();
-					proximity = ((Double)proximities.get(index)).doubleValue();
+					proximity = getProximity(i, j);
 					mono = monoVector(proximity, distance, distKeys.indexOf(new Integer(index)), i, j);
 					dim = dimVector(proximity, distance, i, j);
 					
@@ -849,7 +856,7 @@ public class ShepardNMDS extends DefaultVisualModule implements Runnable
 		double xi, xj;
 		double sd;
 		double[] result = new double[n - 1];
-		sd = ((Double)(proximities.get(((Integer)keys.get(distRank)).intValue()))).doubleValue();
+		sd = rankedProximities[distRank];
 		
 		for (int a = 0; a < (n - 1); a++)
 		{
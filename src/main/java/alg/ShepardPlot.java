@@ -148,9 +148,9 @@ public class ShepardPlot extends DefaultVisualModule implements ActionListener,
 	
 	int sqrtVal = 0;
 	
-	// The thread on which the plotting takes place
+	// The scheduled task in which the plotting takes place
 	
-	private Thread thread = null;
+	private transient volatile GraphScheduler.Task task = null;
 	
 	// If the chart is plotting and the data changes, stop plotting without
 	// causing an error
@@ -624,8 +624,7 @@ public class ShepardPlot extends DefaultVisualModule implements ActionListener,
 				createDataSets(xSize);
 			}
 			
-			thread = new Thread(this);
-			thread.start();
+			task = GraphScheduler.getInstance().schedule(this, this);
 		}
 		else if (e.getSource() == cmdCancel)
 		{
@@ -666,6 +665,7 @@ public class ShepardPlot extends DefaultVisualModule implements ActionListener,
 		{
 			dataItems1 = new ArrayList();
 			dataItems2 = new ArrayList();
+			DistanceMetric metric = sampleData.getMetric();
 			
 			for (int i = 0; i < (sampleLowD.size() - 1); i++)
 			{
@@ -683,7 +683,7 @@ public class ShepardPlot extends DefaultVisualModule implements ActionListener,
 					}
 					
 					lowDist = getLowDist((Coordinate)sampleLowD.get(i), (Coordinate)sampleLowD.get(j));
-					highDist = sampleData.getDesiredDist(i, j);
+					highDist = metric.distance(i, j);
 					
 					s.add(lowDist, highDist);
 					
@@ -838,16 +838,16 @@ public class ShepardPlot extends DefaultVisualModule implements ActionListener,
 	{
 		chartPane.remove(chtPanel);
 		
-		// Don't serialise until the main threaad has stopped
+		// Don't serialise until the plotting has finished
 		
 		try
 		{
-			if (thread != null)
-				while (thread.isAlive()){}
+			if (task != null)
+				task.waitFor();
 		}
 		catch (Exception e){}
 		
-		thread = null;
+		task = null;
 	}
 	
 	/**
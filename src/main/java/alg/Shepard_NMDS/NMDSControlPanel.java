@@ -51,6 +51,7 @@
 
 package alg.Shepard_NMDS;
 import alg.ShepardNMDS;
+import parent_gui.GraphScheduler;
 
 import javax.swing.JPanel;
 import javax.swing.event.*;
@@ -102,11 +103,6 @@ public class NMDSControlPanel extends JPanel implements ChangeListener,
 	
     	private ShepardNMDS NMDS_Module;
 	
-    	// The thread that controls the sizing and animation of
-	// the module
-	
-    	private Thread thread;
-	
     	// Are we enlarging the module or shrinking it
 	
     	private static final int ENLARGE = 0;
@@ -147,8 +143,7 @@ public class NMDSControlPanel extends JPanel implements ChangeListener,
 		setVisible(false);
 		resizeMode = ENLARGE;
 		this.NMDS_Module = NMDS_Module;
-		thread = new Thread(this);
-		thread.start();
+		GraphScheduler.getInstance().execute(this);
 		
 	    	this.setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
 		this.setBorder(new EmptyBorder(5,5,5,5));
@@ -328,7 +323,7 @@ public class NMDSControlPanel extends JPanel implements ChangeListener,
 					
 				// Delay to set the speed of animation
 				
-				try {thread.sleep(1);}
+				try {Thread.sleep(1);}
 				catch(InterruptedException e){}
 				
 				NMDS_Module.validate();
@@ -419,7 +414,7 @@ public class NMDSControlPanel extends JPanel implements ChangeListener,
 				
 				// Delay to set the speed of animation
 				
-				try {thread.sleep(1);}
+				try {Thread.sleep(1);}
 				catch(InterruptedException e){}
 				
 				NMDS_Module.validate();
@@ -436,9 +431,8 @@ public class NMDSControlPanel extends JPanel implements ChangeListener,
 	
 	public void restore()
 	{
-		thread = new Thread(this);
 		resizeMode = SHRINK;
-		thread.start();
+		GraphScheduler.getInstance().execute(this);
 	}
 	
    	 public void run()
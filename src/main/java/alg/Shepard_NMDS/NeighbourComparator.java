@@ -118,8 +118,8 @@ public class NeighbourComparator implements Comparator, java.io.Serializable
 
         if (noDists) 
 	{
-            d1 = dataItems.getDesiredDist(index, obj1);
-            d2 = dataItems.getDesiredDist(index, obj2);
+            d1 = dataItems.getMetric().distance(index, obj1);
+            d2 = dataItems.getMetric().distance(index, obj2);
             if (  d1 == d2) 
                 return 0;
             else if ( d1 < d2) 
@@ -99,9 +99,9 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 	
     private ArrayList transferData;
 	
-    // The thread that controls the running of the spring model
+    // The scheduled task that runs the spring model
 	
-    private volatile Thread thread;
+    private transient volatile GraphScheduler.Task task;
 	
     // Determine whether the high-D input has been removed
 	
@@ -168,7 +168,7 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
     private int posCounter=0;
 
     protected int dataSize;
-    protected ArrayList fullDists;
+    protected DistanceMatrix fullDists;
 
     protected boolean bombing=false;
     protected Coordinate bombSite;
@@ -463,6 +463,7 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 	samples = new ArrayList();
 	distances = new ArrayList();
 	hts = new ArrayList();
+	DistanceMetric metric = dataItems.getMetric();
 	
 	// init every element of neighbours and samples with a random list
 	
@@ -480,7 +481,7 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 			
 	    Hashtable ht = new Hashtable(neighbourSize);
 	    for (int y=0; y< neighbourSize; y++){
-		Double di = new Double(dataItems.getDesiredDist(i, ((Integer)neighbs.get(y)).intValue()));
+		Double di = new Double(metric.distance(i, ((Integer)neighbs.get(y)).intValue()));
 		((ArrayList)distances.get(i)).add(di);
 		ht.put((Integer)neighbs.get(y), new Integer(y));
 	    }
@@ -524,7 +525,7 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 	transferData.add(position);
 
 	//	System.out.println("Spring: OutPort 0: posns");
-	getOutPort(0).sendData(transferData);
+	sendPositions();
     }
 	
 
@@ -533,7 +534,9 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 	splitUpBox.setEnabled(true);
 	initPos.setEnabled(splitUpBox.isSelected());
 	preCalc.setEnabled(true);
-	thread = null;
+	if (task != null)
+	    task.cancel();
+	task = null;
 	running=false;
 	// Only allow the user to modify the convergence triggering values while
 	// the spring model is not iterating
@@ -551,24 +554,12 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 	//	firstTwenty();
 	if (preCalc.isSelected()){// pre-calculate all distances
 	    dataSize = dataItems.getSize();
-	    fullDists = new ArrayList(); 
-	    ArrayList thisD;
-	    for (int i = 0; i< dataSize; i++){
-		thisD = new ArrayList();
-		for (int j=0; j<=i; j++){
-		    if (i==j)
-			thisD.add(new Double(0.0));
-		    else
-			thisD.add(new Double(dataItems.getDesiredDist(i, j)));
-		}
-		fullDists.add(thisD);
-	    }
+	    fullDists = dataItems.getDistanceMatrix();
 	}
 	hasRun=true;
 	running = true;
 	    
-	thread = new Thread(this);
-	thread.start();
+	task = GraphScheduler.getInstance().schedule(this, this, false);
 	
 	// Only allow the user to modify the convergence triggering values while
 	// the spring model is not iterating
@@ -643,10 +634,11 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 	// Find the object that is furthest away from this.
 	double maxDist = 0.0d;
 	double dist;
+	DistanceMetric metric = dataItems.getMetric();
 
 	for (int i = 0; i < dataItems.getSize(); i++) {
 	    if (secondAnchorIndex != i) {
-		dist = dataItems.getDesiredDist(i, secondAnchorIndex);
+		dist = metric.distance(i, secondAnchorIndex);
 		if (dist > maxDist) {
 		    maxDist = dist;
 
@@ -661,7 +653,7 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 	maxDist = 0.0d;
 	for (int i = 0; i < dataItems.getSize(); i++){
 	    if (firstAnchorIndex != i){
-		dist = dataItems.getDesiredDist(i, firstAnchorIndex);
+		dist = metric.distance(i, firstAnchorIndex);
 		if (dist > maxDist){
 		    maxDist = dist;
 
@@ -688,10 +680,11 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 	Coordinate midPt = new Coordinate(((((Coordinate)position.get(firstAnchorIndex)).getX() + ((Coordinate)position.get(secondAnchorIndex)).getX()) / 2), ((((Coordinate)position.get(firstAnchorIndex)).getY() + ((Coordinate)position.get(secondAnchorIndex)).getY()) / 2));
 	Coordinate p1;
 	double maxDist = 0.0d, dist=0.0;
+	DistanceMetric metric = dataItems.getMetric();
 	for (int i = 0; i < dataItems.getSize(); i++){
 	    if (firstAnchorIndex != i && secondAnchorIndex != i){
-		dist = dataItems.getDesiredDist(i, firstAnchorIndex);
-		dist += dataItems.getDesiredDist(i, secondAnchorIndex);
+		dist = metric.distance(i, firstAnchorIndex);
+		dist += metric.distance(i, secondAnchorIndex);
 		p1 = (Coordinate)position.get(i);
 		Vect v = new Vect(p1, midPt);		
 		dist += v.getLength(); //mid-pt
@@ -772,6 +765,7 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 	samples = new ArrayList();
 	distances = new ArrayList();
 	hts = new ArrayList();
+	DistanceMetric metric = dataItems.getMetric();
 	    
 	// init every element of neighbours and samples with a random list
 	for ( int i = 0 ; i < dataItems.getSize() ; i++ ) {
@@ -794,7 +788,7 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 	    
 	    //	    System.out.print("initialise neighbs for "+i+": ");
 	    for (int y=0; y< neighbourSize; y++){
-		Double di = new Double(dataItems.getDesiredDist(i, ((Integer)neighbs.get(y)).intValue()));
+		Double di = new Double(metric.distance(i, ((Integer)neighbs.get(y)).intValue()));
 		((ArrayList)distances.get(i)).add(di);
 		ht.put((Integer)neighbs.get(y), new Integer(y));
 		//System.out.print(" "+((Integer)neighbs.get(y)).intValue());
@@ -850,7 +844,7 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 	transferData.add(position);
 
 	//	System.out.println("Spring: OutPort 0: posns");
-	getOutPort(0).sendData(transferData);
+	sendPositions();
     }
 
 
@@ -939,11 +933,11 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 	    }
 	    else if (toPort.getKey().equals("i1")){
 
-		fullDists = (ArrayList)arg.get(0);
-		if (fullDists == null) System.out.println("null fullDists");
+		if (arg.get(0) == null) System.out.println("null fullDists");
 		else{
+		    fullDists = DistanceMatrix.fromRows((ArrayList)arg.get(0));
 		    useDistInput = true;
-		    System.out.println("fullDist in"+fullDists.size());
+		    System.out.println("fullDist in"+fullDists.getSize());
 		}
 
 	    }
@@ -1010,7 +1004,7 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 			if (dataItems != null){
 			    setInitialPositions((ArrayList)arg.get(1), (DataItemCollection)arg.get(0));
 			    System.out.println("Spring: OutPort 0: posns");	
-			    getOutPort(0).sendData(transferData);
+			    sendPositions();
 			}
 		    }
 		}
@@ -1193,8 +1187,8 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
      */
 	
     public void run(){
-	Thread thisThread = Thread.currentThread();
-	while (thread == thisThread) {
+	GraphScheduler.Task thisTask = GraphScheduler.currentTask();
+	while ((thisTask != null) && !thisTask.isCancelled()) {
 	    try{
 		//System.out.println(getAvgStress()+" ");
 		doIteration();
@@ -1248,7 +1242,7 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 				anchSend.add(new String("NextSet"));
 				//				System.out.println("Spring: OutPort 0: anchs");
 				getOutPort(0).sendData(anchSend);
-				getOutPort(0).sendData(transferData);
+				sendPositions();
 				ArrayList converged= new ArrayList();
 				converged.add(new String("startNextMod"));
 				//				System.out.println("Spring: OutPort 1: StartNextMod");
@@ -1285,14 +1279,14 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 	    
 	    if (((numIterations % scatterUpdate) == 0) && running){
 		//		System.out.println("Spring: OutPort 0: posns");	
-		getOutPort(0).sendData(transferData);
+		sendPositions();
 	    }
-	    thread.yield();
+	    Thread.yield();
 	}
 	if (!bHigh_D_InputRemoved){
 	    if (running){
 		//		System.out.println("Spring: OutPort 0: positions");	
-		getOutPort(0).sendData(transferData);
+		sendPositions();
 	    }
 	}
 	else
@@ -1302,6 +1296,15 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
     }
 	    
     
+    /**
+     * Send the current layout to the linked modules. The low-D out-port
+     * copies it into its position buffer for views to read whilst the
+     * layout carries on iterating
+     */
+    private void sendPositions(){
+	getOutPort(0).sendPositions(transferData);
+    }
+    
     // initialise positions of objects in currentSet to be on top of their
     // best neighbour
     private void initPos(){
@@ -1316,10 +1319,11 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 	// morrisaj : 30.6.03
 	// 1st 20 'iterations' just update neighb sets - don't move objs
 	System.out.println("firstTwenty");
+	DistanceMetric metric = dataItems.getMetric();
 	if (!splitUpBox.isSelected()){
 	    for (int i=0; i<20; i++){
 		for (int index = 0; index < dataItems.getSize(); index++) {
-		    randomiseSample(index, false);
+		    randomiseSample(index, false, metric);
 		    findNewNeighbours(index);   
 		}
 	    }
@@ -1337,9 +1341,9 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 
 		    // 1st set, give best within-set neighbs. Thereafter, only neighbs from static (completed) sublayout.  At moment, just 1st sublayout, although could do from all (eg if on layout 4 of 5, pick neighbs from layouts 1-3, not just 1)
 		    if (currentLayout==0)
-			randomiseSample(((Integer)currentSet.get(index)).intValue(), false);
+			randomiseSample(((Integer)currentSet.get(index)).intValue(), false, metric);
 		    else
-			randomiseSample(((Integer)currentSet.get(index)).intValue(), true);
+			randomiseSample(((Integer)currentSet.get(index)).intValue(), true, metric);
 		    findNewNeighbours(((Integer)currentSet.get(index)).intValue());   
 		   
 		}
@@ -1416,12 +1420,14 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 
 	// decay bomb energy here?
 
+	DistanceMetric metric = dataItems.getMetric();
+
 	if (!splitUpBox.isSelected()){
 	    // Iterate over whole data set
 	    for (int i = 0 ; i < dataItems.getSize() ; i++) {
 		// Calculate the forces that will be exerted on this object
 
-		calcForces(i);
+		calcForces(i, metric);
 		calcNeighbForces(i);
 	    }
 	    for (int i = 0 ; i < dataItems.getSize() ; i++) {  
@@ -1441,7 +1447,7 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 	    //iterate over whole section of data set
 	    for ( int i = 0 ; i < currentSet.size() ; i++ ) {
 		//calculate the forces that will be exerted on this object
-		calcForces(((Integer)currentSet.get(i)).intValue());
+		calcForces(((Integer)currentSet.get(i)).intValue(), metric);
 		calcNeighbForces(((Integer)currentSet.get(i)).intValue());
 	    }
 	    for (int i = 0 ; i < currentSet.size() ; i++) {  
@@ -1496,12 +1502,13 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
      *
      * @param index The index of the dataItem that forces are to be calculated 
      * on
+     * @param metric The metric fetched for this iteration
      */
-    private void calcForces(int index)
+    private void calcForces(int index, DistanceMetric metric)
     {	
 	// First randomise the sample
 		
-	randomiseSample(index, false);
+	randomiseSample(index, false, metric);
 	ArrayList sample = (ArrayList)samples.get(index);
 		
 	// Iterate thro' sample , calcing force based on sim & eucldiean dist
@@ -1647,7 +1654,7 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 	* @param pickFrom (morrisaj) constrain sample to be picked from 1st (completed) subset (else from current subset)
 	*/
 	
-    private void randomiseSample(int index, boolean pickFrom)
+    private void randomiseSample(int index, boolean pickFrom, DistanceMetric metric)
 	{
 	    // The neighbours list, which is not wanted in this sample
 	    HashSet exclude = new HashSet((ArrayList)neighbours.get(index));
@@ -1663,18 +1670,10 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 		newSample = Utils.createRandomSample(include, exclude, dataItems.getSize(), sampleSize);
 	    }
 	    for (int y=0; y< sampleSize; y++){
-		if(preCalc.isSelected() || useDistInput){
-			
-		    if (index> ((Integer)newSample.get(y)).intValue())
-			try{
-			    thisSampleDists.set(y, (Double)((ArrayList)fullDists.get(index)).get(((Integer)newSample.get(y)).intValue()));
-			}catch(Exception e){if (thisSampleDists==null)System.out.print("A");if(fullDists==null)System.out.print("B");if(newSample==null)System.out.print("C");//System.out.println(y+","+thisSampleDists.size()+" "+index+","+fullDists.size()+" "+y+","+newSample.size());
-			}
-		    else 
-			thisSampleDists.set(y, (Double)((ArrayList)fullDists.get(((Integer)newSample.get(y)).intValue())).get(index));
-		}
+		if(preCalc.isSelected() || useDistInput)
+		    thisSampleDists.set(y, new Double(fullDists.get(index, ((Integer)newSample.get(y)).intValue())));
 		else
-		    thisSampleDists.set(y, new Double(dataItems.getDesiredDist(index, ((Integer)newSample.get(y)).intValue())));
+		    thisSampleDists.set(y, new Double(metric.distance(index, ((Integer)newSample.get(y)).intValue())));
 		
 		samples.set(index, newSample);
 	    }
@@ -1830,6 +1829,7 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 		int numComps = 0;
 		double lowDist = 0.0;
 		double highDist = 0.0;
+		DistanceMetric metric = dataItems.getMetric();
 		
 		for (int i = 1 ; i < sample.size() ; i++)
 		{
@@ -1843,7 +1843,7 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 				(Coordinate)position.get(obj2));
 				
 				lowDist = v.getLength();
-				highDist = dataItems.getDesiredDist(obj1, obj2);
+				highDist = metric.distance(obj1, obj2);
 				error += (lowDist - highDist);
 				numComps++;
 			}
@@ -1861,6 +1861,7 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 	{
 		double error = 0.0;
 		int numComps = 0;
+		DistanceMetric metric = dataItems.getMetric();
 		
 		for (int i = 1 ; i < dataItems.getSize() ; i++ ) 
 		{    
@@ -1870,7 +1871,7 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 				(Coordinate)position.get(j));
 				
 				double lowDist = v.getLength();
-				double highDist = dataItems.getDesiredDist(i, j);
+				double highDist = metric.distance(i, j);
 				error += (lowDist - highDist);
 				numComps++;
 			}
@@ -1935,7 +1936,7 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 		double totalLowDist = 0.0;
 		int numComps = 0;
 		double stress = 0.0;
-		
+		DistanceMetric metric = dataItems.getMetric();
 		
 		for (int i = 1 ; i < dataItems.getSize() ; i++) 
 		{
@@ -1945,7 +1946,7 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 				(Coordinate)position.get(j));
 				
 				lowDist = v.getLength();
-				highDist = dataItems.getDesiredDist(i, j);
+				highDist = metric.distance(i, j);
 				stress += (lowDist - highDist) * (lowDist - highDist);
 				totalLowDist += (lowDist * lowDist);
 				numComps++;
@@ -1976,6 +1977,7 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 		double lowDist = 0.0;
 		double highDist = 0.0;
 		double totalLowDist = 0.0;
+		DistanceMetric metric = dataItems.getMetric();
 		
 		for (int i = 1 ; i < sample.size() ; i++) 
 		{
@@ -1989,7 +1991,7 @@ public class SpringModel extends DefaultVisualModule implements Runnable{
 				(Coordinate)position.get(obj2));
 				
 				lowDist = v.getLength();
-				highDist = dataItems.getDesiredDist(obj1, obj2);
+				highDist = metric.distance(obj1, obj2);
 				stress += (lowDist - highDist) * (lowDist - highDist);
 				totalLowDist += (lowDist * lowDist);
 				numComps++;
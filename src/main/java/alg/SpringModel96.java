@@ -132,9 +132,9 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 	
 	private ArrayList transferData;
 	
-	// The thread that controls the running of the spring model
+	// The scheduled task that runs the spring model
 	
-	private volatile Thread thread;
+	private transient volatile GraphScheduler.Task task;
 	
 	// Determine whether the high-D input has been removed
 	
@@ -473,6 +473,7 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 		samples = new ArrayList();
 		distances = new ArrayList();
 		hts = new ArrayList();
+		DistanceMetric metric = dataItems.getMetric(springVar);
 		
 		// init every element of neighbours and samples with a random list
 		
@@ -495,7 +496,7 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 			Hashtable ht = new Hashtable(neighbourSize);
 			for (int y = 0; y < neighbourSize; y++)
 			{
-				Double di = new Double(dataItems.getDesiredDist(i, ((Integer)neighbs.get(y)).intValue(), springVar));
+				Double di = new Double(metric.distance(i, ((Integer)neighbs.get(y)).intValue()));
 				((ArrayList)distances.get(i)).add(di);
 				ht.put((Integer)neighbs.get(y), new Integer(y));
 			}
@@ -543,7 +544,9 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 	private void stopSpringModel()
 	{
 		start.setText("Start");
-		thread = null;
+		if (task != null)
+			task.cancel();
+		task = null;
 		
 		// Only allow the user to modify the convergence triggering values while
 		// the spring model is not iterating
@@ -555,8 +558,7 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 	private void startSpringModel()
 	{	
 		start.setText("Stop");
-		thread = new Thread(this);
-		thread.start();
+		task = GraphScheduler.getInstance().schedule(this, this, false);
 		
 		// Only allow the user to modify the convergence triggering values while
 		// the spring model is not iterating
@@ -695,7 +697,7 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 					if (dataItems != null)
 					{
 						setInitialPositions((ArrayList)arg.get(1), (DataItemCollection)arg.get(0));
-						getOutPort(0).sendData(transferData);
+						getOutPort(0).sendPositions(transferData);
 					}
 				}
 			}
@@ -834,7 +836,7 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 		transferData.add(dataItems);
 		transferData.add(position);
 		
-		getOutPort(0).sendData(transferData);
+		getOutPort(0).sendPositions(transferData);
 	}
 	
 	/**
@@ -843,8 +845,8 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 	
 	public void run()
 	{
-		Thread thisThread = Thread.currentThread();
-		while (thread == thisThread) 
+		GraphScheduler.Task thisTask = GraphScheduler.currentTask();
+		while ((thisTask != null) && !thisTask.isCancelled())
 		{
 			try
 			{
@@ -888,7 +890,7 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 						}
 					}
 				}
-				thread.yield();
+				Thread.yield();
 			}
 			catch(java.lang.Exception e2)
 			{
@@ -900,13 +902,13 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 			// Do this after every 10 iterations
 			
 			if ((numIterations % 10) == 0)
-				getOutPort(0).sendData(transferData);
+				getOutPort(0).sendPositions(transferData);
 				
-			thread.yield();
+			Thread.yield();
 		}
 		
 		if (!bHigh_D_InputRemoved)
-			getOutPort(0).sendData(transferData);
+			getOutPort(0).sendPositions(transferData);
 		else
 			nullifyReferences();
 	}
@@ -937,6 +939,8 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 	{
 		if (startTime == 0)
 			startTime = System.currentTimeMillis();
+		
+		DistanceMetric metric = dataItems.getMetric(springVar);
 			
 		// Iterate over whole data set
 			
@@ -944,7 +948,7 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 		{
 			// Calculate the forces that will be exerted on this object
 			
-			calcForces(i);
+			calcForces(i, metric);
 		}
 		
 		for (int i = 0 ; i < dataItems.getSize() ; i++) 
@@ -971,13 +975,14 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 	*
 	* @param index The index of the dataItem that forces are to be calculated 
 	* on
+	* @param metric The metric fetched for this iteration
 	*/
 	
-	private void calcForces(int index)
+	private void calcForces(int index, DistanceMetric metric)
 	{	
 		// First randomize the sample
 		
-		randomizeSample(index);
+		randomizeSample(index, metric);
 		
 		ArrayList neighbs = (ArrayList)neighbours.get(index);
 		
@@ -1141,9 +1146,10 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 	* stored in samples[index].
 	* 
 	* @param index The index of the samples arrayList to store the result
+	* @param metric The metric fetched for this iteration
 	*/
 	
-	private void randomizeSample(int index)
+	private void randomizeSample(int index, DistanceMetric metric)
 	{
 		// The neighbours list, which is not wanted in this sample
 		
@@ -1156,7 +1162,7 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 		sampleSize);
 		for (int y=0; y< sampleSize; y++)
 		{
-			thisSampleDists.set(y, new Double(dataItems.getDesiredDist(index, ((Integer)newSample.get(y)).intValue(), springVar)));
+			thisSampleDists.set(y, new Double(metric.distance(index, ((Integer)newSample.get(y)).intValue())));
 		}
 		samples.set(index, newSample);
 	}
@@ -1308,6 +1314,7 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 		int numComps = 0;
 		double lowDist = 0.0;
 		double highDist = 0.0;
+		DistanceMetric metric = dataItems.getMetric(springVar);
 		
 		for (int i = 1 ; i < sample.size() ; i++)
 		{
@@ -1321,7 +1328,7 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 				(Coordinate)position.get(obj2));
 				
 				lowDist = v.getLength();
-				highDist = dataItems.getDesiredDist(obj1, obj2, springVar);
+				highDist = metric.distance(obj1, obj2);
 				error += (lowDist - highDist);
 				numComps++;
 			}
@@ -1339,6 +1346,7 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 	{
 		double error = 0.0;
 		int numComps = 0;
+		DistanceMetric metric = dataItems.getMetric(springVar);
 		
 		for (int i = 1 ; i < dataItems.getSize() ; i++ ) 
 		{    
@@ -1348,7 +1356,7 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 				(Coordinate)position.get(j));
 				
 				double lowDist = v.getLength();
-				double highDist = dataItems.getDesiredDist(i, j, springVar);
+				double highDist = metric.distance(i, j);
 				error += (lowDist - highDist);
 				numComps++;
 			}
@@ -1409,6 +1417,7 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 		double totalLowDist = 0.0;
 		int numComps = 0;
 		double stress = 0.0;
+		DistanceMetric metric = dataItems.getMetric(springVar);
 		
 		for (int i = 1 ; i < dataItems.getSize() ; i++) 
 		{
@@ -1418,7 +1427,7 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 				(Coordinate)position.get(j));
 				
 				lowDist = v.getLength();
-				highDist = dataItems.getDesiredDist(i, j, springVar);
+				highDist = metric.distance(i, j);
 				stress += (lowDist - highDist) * (lowDist - highDist);
 				totalLowDist += (lowDist * lowDist);
 				numComps++;
@@ -1443,6 +1452,7 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 		double lowDist = 0.0;
 		double highDist = 0.0;
 		double totalLowDist = 0.0;
+		DistanceMetric metric = dataItems.getMetric(springVar);
 		
 		for (int i = 1 ; i < sample.size() ; i++) 
 		{
@@ -1456,7 +1466,7 @@ public class SpringModel96 extends DefaultVisualModule implements Runnable, Acti
 				(Coordinate)position.get(obj2));
 				
 				lowDist = v.getLength();
-				highDist = dataItems.getDesiredDist(obj1, obj2, springVar);
+				highDist = metric.distance(obj1, obj2);
 				stress += (lowDist - highDist) * (lowDist - highDist);
 				totalLowDist += (lowDist * lowDist);
 				numComps++;
@@ -95,6 +95,10 @@ public class Stress extends DefaultVisualModule implements ActionListener{
 
     private ArrayList stresses = new ArrayList(); // all stress values from multiple runs
     private ArrayList positionsBatch;
+    
+    // Primitive copy of the current positions, if the sender provides one
+    
+    private transient PositionBuffer positionBuffer;
     private boolean receivedBatch;
 
 
@@ -279,6 +283,7 @@ public class Stress extends DefaultVisualModule implements ActionListener{
 	else {
 	    // Input module or link was deleted or reset
 	    position = null;
+	    positionBuffer = null;
 	    dataItems=null;
 	    start.setEnabled(false);
 	    System.gc();
@@ -314,6 +319,7 @@ public class Stress extends DefaultVisualModule implements ActionListener{
 					start.setEnabled(true);
 					dataItems =  (DataItemCollection)port.getData().get(0);
 					position = (ArrayList)port.getData().get(1);
+					positionBuffer = port.getPositionBuffer();
 				}
 				else if (port.getData() != null && port.getData().get(0) instanceof ArrayList)
 				{
@@ -348,6 +354,7 @@ public class Stress extends DefaultVisualModule implements ActionListener{
 			if (port.getData() != null)
 			{
 				position =  (ArrayList)port.getData().get(1);
+				positionBuffer = port.getPositionBuffer();
 				bLowD = true;
 			}
 		}
@@ -368,7 +375,22 @@ public class Stress extends DefaultVisualModule implements ActionListener{
        if (dataItems==null)
 	   queryInPorts();
        if (dataItems!=null){
+	   
+	   // Read the current positions from the sender's buffer, so that a
+	   // layout that is still running cannot move points part way through
+	   
+	   PositionBuffer buffer = (pos == position) ? positionBuffer : null;
+	   PositionBuffer.Snapshot snapshot = null;
+	   if (buffer != null){
+	       snapshot = buffer.acquire();
+	       if ((snapshot != null) && (snapshot.size() != dataItems.getSize())){
+		   buffer.release(snapshot);
+		   snapshot = null;
+	       }
+	   }
+	   
 	   if (sampleStress){
+	       DistanceMetric metric = dataItems.getMetric();
 	       ArrayList sampleSet = Utils.createRandomSample(null, null, dataItems.getSize(), (int)Math.sqrt(dataItems.getSize()));
 	       
 	       lowDistTot=0.0;
@@ -377,11 +399,8 @@ public class Stress extends DefaultVisualModule implements ActionListener{
 		   
 		   for (int x=0; ((x<z)&&( x!=z)); x++) {
 		       int j = ((Integer)sampleSet.get(x)).intValue();
-		       Vect v = new Vect((Coordinate)pos.get(i),
-					 (Coordinate)pos.get(j));
-		       
-		       lowDist = v.getLength(2); //System.out.print(lowDist+"  ");
-		       highDist = dataItems.getDesiredDist(i, j);lowDistTot+=lowDist;// for profiling// System.out.println(lowDist);
+		       lowDist = layoutDistance(pos, snapshot, i, j); //System.out.print(lowDist+"  ");
+		       highDist = metric.distance(i, j);lowDistTot+=lowDist;// for profiling// System.out.println(lowDist);
 		       stress += (lowDist - highDist) * (lowDist - highDist);
 		       totalLowDist += (lowDist * lowDist);
 		       totalHighDist += (highDist * highDist);
@@ -395,14 +414,14 @@ public class Stress extends DefaultVisualModule implements ActionListener{
 	       int i, j, count = 0;
 	       double[] highD = new double[((dataItems.getSize() * dataItems.getSize()) - dataItems.getSize()) / 2];
 	       double[] lowD = new double[highD.length];
+	       DistanceMatrix matrix = dataItems.getDistanceMatrix();
 	       
 	       for (i = 0; i < (dataItems.getSize() - 1); i++)
 	       {
 		   for (j = (i + 1) ; j < dataItems.getSize() ; j++ )
 		   {
-			Vect v = new Vect((Coordinate)pos.get(i), (Coordinate)pos.get(j));
-			lowDist = v.getLength(2);
-			highDist = dataItems.getDesiredDist(i, j);
+			lowDist = layoutDistance(pos, snapshot, i, j);
+			highDist = matrix.get(i, j);
 			highD[count] = highDist;
 			lowD[count] = lowDist;
 			count++;
@@ -427,6 +446,9 @@ public class Stress extends DefaultVisualModule implements ActionListener{
 		   }
 	       }
 	   }
+	   if (snapshot != null)
+	       buffer.release(snapshot);
+	   
 	   if (!divideByHigh){
 	       stressDisplay.setText((new Double(stress/totalLowDist)).toString());
 	       return (stress / totalLowDist);
@@ -438,6 +460,31 @@ public class Stress extends DefaultVisualModule implements ActionListener{
        return 0.0; // if dataItems==null
    }
    
+   /**
+    * The 2D layout distance between two items, read from the snapshot
+    * if there is one and otherwise from the list of Coordinates
+    */
+   
+   private double layoutDistance(ArrayList pos, PositionBuffer.Snapshot snapshot, int i, int j)
+   {
+	double dx, dy;
+	
+	if (snapshot != null)
+	{
+		dx = snapshot.getX(j) - snapshot.getX(i);
+		dy = snapshot.getY(j) - snapshot.getY(i);
+	}
+	else
+	{
+		Coordinate c1 = (Coordinate)pos.get(i);
+		Coordinate c2 = (Coordinate)pos.get(j);
+		dx = c2.getX() - c1.getX();
+		dy = c2.getY() - c1.getY();
+	}
+	
+	return Math.sqrt((dx * dx) + (dy * dy));
+   }
+   
    private double[] standardizeValues(double[] values)
    {
 	double low = Integer.MAX_VALUE;
@@ -124,9 +124,9 @@ public class TextDisplay extends DefaultVisualModule implements
 	String newline = "\n";
 	
 	// Sometimes it can take a while for the text to load. Put this
-	// procedure into a thread so that the user can abort
+	// procedure into a scheduled task so that the user can abort
 	
-	Thread thread = null;
+	transient volatile GraphScheduler.Task task = null;
 	
 	// A label to indicate the number of documents being displayed
 	
@@ -267,23 +267,24 @@ public class TextDisplay extends DefaultVisualModule implements
 					}
 					
 					bStopThread = true;
-					if (thread != null)
+					if (task != null)
 					{
+						task.cancel();
+						
 						try
 						{
-							thread.join();
+							task.waitFor();
 						}
 						catch (InterruptedException ie){}
 					}
-					thread = null;
+					task = null;
 					textPane.setText("");
 					bStopThread = false;
 					
 					jlHighCaption.setText(" ");
 					jlHighTerms.setText(" ");
 					
-					thread = new Thread(this);
-					thread.start();
+					task = GraphScheduler.getInstance().schedule(this, this);
 				}
 				
 				if (arg.size() > 1)
@@ -304,16 +305,18 @@ public class TextDisplay extends DefaultVisualModule implements
 			// Exit from the thread
 			
 			bStopThread = true;
-			if (thread != null)
+			if (task != null)
 			{
+				task.cancel();
+				
 				try
 				{
-					thread.join();
+					task.waitFor();
 				}
 				catch (InterruptedException ie){}
 			}
 			bStopThread = false;
-			thread = null;
+			task = null;
 			
 			// Clear all text
 			
@@ -365,7 +368,7 @@ public class TextDisplay extends DefaultVisualModule implements
 			
 			words = new ArrayList();
 			freq = new ArrayList();
-			wrds = new HashMap(dataItems.getDataItem(0).getTextValues().length);
+			wrds = new HashMap(dataItems.getDataItem(0).getNumTextValues());
 			
 			int count = 0;
 			String sTemp = "";
@@ -777,7 +780,7 @@ public class TextDisplay extends DefaultVisualModule implements
 			int count = 0;
 			while (!b && count < originalData.getSize())
 			{
-				weight = originalData.getDataItem(count).getTextValues()[index];
+				weight = originalData.getDataItem(count).getTextValue(index);
 				if (weight > 0)
 					b = true;
 				count++;
@@ -813,6 +816,18 @@ public class TextDisplay extends DefaultVisualModule implements
 				for (int i = 0; i < originalData.getSize(); i++)
 				{
 					item = originalData.getDataItem(i);
+					
+					if (item.getSparseValues() != null)
+					{
+						// Sparse vectors may be shared with subsets of the
+						// collection, so change a copy
+						
+						SparseVector vector = item.getSparseValues().copy();
+						vector.setExisting(index, newVal);
+						item.setSparseValues(vector);
+						continue;
+					}
+					
 					values = item.getTextValues();
 					
 					if (values[index] > 0)
@@ -896,6 +911,13 @@ public class TextDisplay extends DefaultVisualModule implements
 			for (int i = 0; i < originalData.getSize(); i++)
 			{
 				item = originalData.getDataItem(i);
+				
+				if (item.getSparseValues() != null)
+				{
+					item.setSparseValues(item.getSparseValues().removeDimension(delIndex));
+					continue;
+				}
+				
 				values = item.getTextValues();
 				
 				double[] newValues = new double[values.length - 1];
@@ -913,6 +935,10 @@ public class TextDisplay extends DefaultVisualModule implements
 				
 				item.setTextValues(newValues);
 			}
+			
+			// The cached vector lengths are now out of date
+			
+			originalData.invalidateMetric();
 		}
 	}
 	
@@ -947,6 +973,13 @@ public class TextDisplay extends DefaultVisualModule implements
 					// Get a data item
 					
 					item = originalData.getDataItem(i);
+					
+					if (item.getSparseValues() != null)
+					{
+						item.setSparseValues(item.getSparseValues().appendDimension(0));
+						continue;
+					}
+					
 					values = item.getTextValues();
 					
 					// Recreate the original feature vector but with one new
@@ -969,11 +1002,22 @@ public class TextDisplay extends DefaultVisualModule implements
 				{
 					item = originalData.getDataItemByID(matchingDocs[k]);
 					
-					if (item != null)
+					if ((item != null) && (item.getSparseValues() != null))
+					{
+						// Replace the empty element added above with one of weight 1
+						
+						SparseVector vector = item.getSparseValues();
+						item.setSparseValues(vector.removeDimension(vector.getDimensions() - 1).appendDimension(1));
+					}
+					else if (item != null)
 						item.getTextValues()[item.getTextValues().length - 1] = 1;
 				}
 			}
 		}
+		
+		// The cached vector lengths are now out of date
+		
+		originalData.invalidateMetric();
 	}
 	
 	/**
@@ -1062,7 +1106,7 @@ public class TextDisplay extends DefaultVisualModule implements
 	
 	private String getHighestFrequencyTerms()
 	{
-		int numHighTerms = Math.min(HIGH_WEIGHT_COUNT, dataItems.getDataItem(0).getTextValues().length);
+		int numHighTerms = Math.min(HIGH_WEIGHT_COUNT, dataItems.getDataItem(0).getNumTextValues());
 		String sTerm = "";
 		int index;
 		
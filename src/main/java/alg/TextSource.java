@@ -107,6 +107,10 @@ public class TextSource extends DefaultVisualModule
 	// A button to export a term-document matrix showing term frequencies.
 	
 	JButton cmdExportExcel;
+	
+	// Checkbox for holding the distances between documents as floats
+	
+	JCheckBox chkSingle;
 		
 	public TextSource(Mdi mdiForm, DrawingCanvas drawPane)
 	{
@@ -214,12 +218,34 @@ public class TextSource extends DefaultVisualModule
 		labelPane.add(lblN);
 		labelPane.add(lblD);
 		
+		chkSingle = new JCheckBox("single precision", false);
+		addSingleListener();
+		labelPane.add(chkSingle);
+		
 		// Make the controls visible depending upon the context
 		// of the VisualModule
 		
 		setInterfaceVisibility();
 	}
 	
+	private void addSingleListener()
+	{
+		chkSingle.addActionListener(new ActionListener() 
+		{
+            		public void actionPerformed(ActionEvent e) 
+			{
+				if (txtData == null)
+					return;
+				
+				txtData.setSinglePrecision(chkSingle.isSelected());
+				
+				ArrayList transferData = new ArrayList();
+				transferData.add(txtData);
+				getOutPort(0).sendData(transferData);
+            		}
+        	});
+	}
+	
 	public void setFileName(String fileName)
 	{
 		// Display the name of the data file
@@ -247,6 +273,9 @@ public class TextSource extends DefaultVisualModule
 		lblN.setText("N = " + (new Integer(txtData.getSize()).toString()));
 		lblD.setText("D = " + (new Integer(txtData.getFields().size()).toString()));
 		
+		if (chkSingle != null)
+			txtData.setSinglePrecision(chkSingle.isSelected());
+		
 		// Send this data to the output port
 		
 		ArrayList transferData = new ArrayList();
@@ -309,5 +338,10 @@ public class TextSource extends DefaultVisualModule
 				TextFileLoaderFrame.getTxtLoader().exportTDM(fileName);
             		}
         	});
+		
+		// Modules saved before the precision option was added don't have one
+		
+		if (chkSingle != null)
+			addSingleListener();
 	}
 }
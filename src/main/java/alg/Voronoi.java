@@ -52,6 +52,7 @@
 package alg;
 
 import math.Coordinate;
+import math.PositionBuffer;
 import alg.voronoi.*;
 import data.*;
 import parent_gui.*;
@@ -92,6 +93,10 @@ public class Voronoi extends HybridAdaptor implements ItemListener,
 	
 	private ArrayList positions;
 	
+	// The same positions in primitive arrays, if the sender provides them
+	
+	private transient PositionBuffer positionBuffer;
+	
 	// The above positions but normalised to lie in the interval
 	// [0, 1]
 	
@@ -110,9 +115,9 @@ public class Voronoi extends HybridAdaptor implements ItemListener,
 	
 	private VoronoiPane voronoiPane;
 	
-	// The thread through which this module runs
+	// The scheduled task through which this module runs
 	
-	private volatile Thread thread;
+	private transient volatile GraphScheduler.Task task;
 	
 	// Control panel that also holds the main graph
 	
@@ -197,7 +202,10 @@ public class Voronoi extends HybridAdaptor implements ItemListener,
 					
 					if (arg.size() > 1)
 						if (arg.get(1) instanceof ArrayList)
+						{
 							positions = (ArrayList)arg.get(1);
+							positionBuffer = fromPort.getPositionBuffer();
+						}
 					
 					// If the CSV data being passed in is the same as the existing
 					// data set, then we need only take notice of the positions data
@@ -259,22 +267,24 @@ public class Voronoi extends HybridAdaptor implements ItemListener,
 			voronoiPane.init();
 			dataItems = null;
 			positions = null;
+			positionBuffer = null;
 		}
 	}
 	
 	public void startAlg()
 	{
-		// Wait for the current thread to die before
-		// starting another
+		// Wait for the current task to finish before
+		// starting another. One that has not started yet
+		// is dropped, since it may be waiting for the caller
 		
 		try
 		{
-			thread.join();
+			task.cancel();
+			task.waitFor();
 		}
 		catch (Exception e){}
 		
-		thread = new Thread(Voronoi.this);
-		thread.start();
+		task = GraphScheduler.getInstance().schedule(Voronoi.this, Voronoi.this);
 	}
 	
 	private void addControls()
@@ -506,23 +516,52 @@ public class Voronoi extends HybridAdaptor implements ItemListener,
 		
 		Coordinate c, newC;
 		int i;
+		int size = positions.size();
 		
-		normPositions = new ArrayList();
+		normPositions = new ArrayList(size);
 		
-		for (i = 0; i < positions.size(); i++)
+		// Read the positions from the sender's buffer if there is one, so
+		// that both passes below see the same layout
+		
+		PositionBuffer buffer = positionBuffer;
+		PositionBuffer.Snapshot snapshot = null;
+		if (buffer != null)
 		{
-			c = (Coordinate)positions.get(i);
-			if (c.getX() > highestX)
-				highestX = c.getX();
+			snapshot = buffer.acquire();
+			if ((snapshot != null) && (snapshot.size() != size))
+			{
+				buffer.release(snapshot);
+				snapshot = null;
+			}
+		}
+		
+		double x, y;
+		
+		for (i = 0; i < size; i++)
+		{
+			if (snapshot != null)
+			{
+				x = snapshot.getX(i);
+				y = snapshot.getY(i);
+			}
+			else
+			{
+				c = (Coordinate)positions.get(i);
+				x = c.getX();
+				y = c.getY();
+			}
 			
-			if (c.getY() > highestY)
-				highestY = c.getY();
+			if (x > highestX)
+				highestX = x;
 			
-			if (c.getX() < lowestX)
-				lowestX = c.getX();
+			if (y > highestY)
+				highestY = y;
 			
-			if (c.getY() < lowestY)
-				lowestY = c.getY();
+			if (x < lowestX)
+				lowestX = x;
+			
+			if (y < lowestY)
+				lowestY = y;
 		}
 		
 		double newX, newY;
@@ -554,24 +593,37 @@ public class Voronoi extends HybridAdaptor implements ItemListener,
 		
 		double diffValX = 0 - lowestX;
 		double diffValY = 0 - lowestY;
-		for (i = 0; i < positions.size(); i++)
+		for (i = 0; i < size; i++)
 		{
-			c = (Coordinate)positions.get(i);
+			if (snapshot != null)
+			{
+				x = snapshot.getX(i);
+				y = snapshot.getY(i);
+			}
+			else
+			{
+				c = (Coordinate)positions.get(i);
+				x = c.getX();
+				y = c.getY();
+			}
 			
-			if (c.getX() == lowestX)
+			if (x == lowestX)
 				newX = 0;
 			else
-				newX = (diffValX + c.getX()) / (highestX + diffValX);
+				newX = (diffValX + x) / (highestX + diffValX);
 			
-			if (c.getY() == lowestY)
+			if (y == lowestY)
 				newY = 0;
 			else
-				newY = (diffValY + c.getY()) / (highestY + diffValY);
+				newY = (diffValY + y) / (highestY + diffValY);
 			
 			newC = new Coord(newX, newY);
 			
 			normPositions.add(newC);
 		}
+		
+		if (snapshot != null)
+			buffer.release(snapshot);
 	}
 	
 	public void run()
@@ -582,8 +634,8 @@ public class Voronoi extends HybridAdaptor implements ItemListener,
 		
 		if (bHybridInPlace)
 		{
-			Thread thisThread = Thread.currentThread();
-			while (thread == thisThread)
+			GraphScheduler.Task thisTask = GraphScheduler.currentTask();
+			if ((thisTask != null) && !thisTask.isCancelled())
 			{
 				clusterSlider.setEnabled(false);
 				chkCluster.setEnabled(false);
@@ -595,7 +647,6 @@ public class Voronoi extends HybridAdaptor implements ItemListener,
 				normalisePositions();
 				voronoiPane.renderVoronoi(normPositions, dataItems);
 				selectionHandler = voronoiPane.getSelectionHandler();
-				thread = null;
 				
 				chkCluster.setEnabled(true);
 				
@@ -815,12 +866,12 @@ public class Voronoi extends HybridAdaptor implements ItemListener,
 	
 	public void beforeSerialise()
 	{
-		// Don't serialise until the main thread has stopped
+		// Don't serialise until the main task has finished
 		
 		try
 		{
-			if (thread != null)
-				while (thread.isAlive()){}
+			if (task != null)
+				task.waitFor();
 		}
 		catch (Exception e){}
 		
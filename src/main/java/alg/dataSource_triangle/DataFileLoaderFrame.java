@@ -61,6 +61,9 @@ import java.io.FileNotFoundException;
 import javax.swing.JFileChooser;
 import java.text.ParseException;
 import javax.swing.JOptionPane;
+import javax.swing.JCheckBox;
+import javax.swing.JPanel;
+import java.awt.BorderLayout;
 
 public class DataFileLoaderFrame extends FileHandlerFrame
 {
@@ -75,6 +78,12 @@ public class DataFileLoaderFrame extends FileHandlerFrame
     
     private DataSource_Triangle dataSource;
     
+    // If selected, the matrix is held in a memory mapped file rather than on
+    // the heap, optionally as floats
+    
+    private JCheckBox chkMapped;
+    private JCheckBox chkFloat;
+    
     /**
      * Constructor for DataFileLoaderFrame
      * @param DataSource The calling visual module
@@ -90,6 +99,14 @@ public class DataFileLoaderFrame extends FileHandlerFrame
 	filter.setDescription("lower triangular matrix files");
 	chooser.addChoosableFileFilter(filter);
 	this.dataSource = dataSource;
+	
+	chkMapped = new JCheckBox("Keep the matrix on disk", false);
+	chkFloat = new JCheckBox("Single precision", false);
+	JPanel optionPane = new JPanel();
+	optionPane.add(chkMapped);
+	optionPane.add(chkFloat);
+	getContentPane().add(optionPane, BorderLayout.SOUTH);
+	pack();
     }
     
     /**
@@ -136,6 +153,7 @@ public class DataFileLoaderFrame extends FileHandlerFrame
 		    return;
 	    
 	    loader = new TriLoader(fileName);
+	    loader.setMapped(chkMapped.isSelected(), chkFloat.isSelected());
 	    loader.readData();
 	    
 	    // Display the file name on the visual module
@@ -53,8 +53,8 @@ package alg.dataSource_triangle;
 import alg.*;
 import data.*;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.BufferedInputStream;
+import java.io.InputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.FileNotFoundException;
@@ -74,10 +74,29 @@ public class TriLoader
     protected DataItemCollection dataItemColl;
     protected int                numDataItems;
     protected String             fileName;
-    protected BufferedReader     triFile;
+    protected InputStream        triFile;
     protected String           	 delim = " ";
     protected String           	 undef;
     
+    // If true then the triangle is held in a memory mapped file, as
+    // floats if bFloat is true
+    
+    protected boolean bMapped = false;
+    protected boolean bFloat = false;
+    
+    private final static int BUFFER_SIZE = 1 << 16;
+    
+    // The largest triangle that can be held in an array. Larger ones are
+    // always held in a mapped file.
+    
+    private final static long MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+    
+    // The characters of the current token and the character that ended it
+    
+    private char[] token = new char[32];
+    private int lastChar = 0;
+    private boolean atLineEnd = false;
+    
     /**
      * Constructor for TriLoader, takes a filename as param.
      * @param fileName The file to be loaded
@@ -100,89 +119,211 @@ public class TriLoader
 	dataItemColl.setDataPath(fileName);
     }
     
+    /**
+     * Hold the triangle in a memory mapped temporary file rather than on
+     * the heap, so that matrices larger than the heap can be loaded
+     *
+     * @param bMapped If true then map the triangle
+     * @param bFloat If true then store the distances as floats
+     */
+    public void setMapped(boolean bMapped, boolean bFloat)
+    {
+	this.bMapped = bMapped;
+	this.bFloat = bFloat;
+    }
+    
     /**
      * Reads from the data source and parses its contents to create a 
-     * DataItemCollection
+     * DataItemCollection. The first line holds the labels and each following
+     * line one more distance than the line before. The distances are written
+     * straight into a triangle sized from the number of labels, which is
+     * either an array or, if setMapped() was called or there are too many
+     * distances for an array (more than 65535 labels), a memory mapped file.
      */
     public void readData() throws IOException, ParseException
     {
-        // If the file is not ready to be read, throw an IOException
-	
-	triFile = new BufferedReader(new FileReader(fileName));
-	 
-        if (!triFile.ready())
-		throw new IOException();
-	
-        String line = triFile.readLine();
-	StringTokenizer tok;
-	String val;
-	ArrayList values = new ArrayList();
-	int numRows = 0, numCols = 0, lastColCount;
-	DataItem dataItem = null;
-	dataItemColl.setLowerTriangular(true);
-	ArrayList labels = new ArrayList();
+	triFile = new BufferedInputStream(new FileInputStream(fileName), BUFFER_SIZE);
+	MappedTriangle mapped = null;
 	
-        while(line != null)
+	try
 	{
-		tok = new StringTokenizer(line, delim, false);
-		lastColCount = numCols;
-		numCols = 0;
+		dataItemColl.setLowerTriangular(true);
+		ArrayList labels = new ArrayList();
 		
-		// Take the first line as the labels.
+		// Read the labels
 		
-		while(tok.hasMoreTokens())
+		String token = nextToken(triFile);
+		while (token != null)
 		{
-			val = tok.nextToken();
+			labels.add(token);
+			token = nextToken(triFile);
+		}
+		
+		if (labels.size() == 0)
+			throw new IOException();
+		
+		int n = labels.size();
+		long length = ((long)n * (n + 1)) / 2;
+		double[] triangle = null;
+		boolean bMap = bMapped || (length > MAX_ARRAY_LENGTH);
+		
+		if (bMap)
+			mapped = new MappedTriangle(length, bFloat);
+		else
+			triangle = new double[(int)length];
+		
+		long count = 0;
+		int numRows = 0, numCols = 0, lastColCount;
+		double val;
+		
+		// Each remaining line is a row of the triangle
+		
+		while (lastChar != -1)
+		{
+			lastColCount = numCols;
+			numCols = 0;
+			token = nextToken(triFile);
 			
-			if (numRows == 0)
-			{
-				labels.add(val);
-			}
-			else
+			// Don't count an empty last line
+			
+			if ((token == null) && (lastChar == -1))
+				break;
+			
+			while (token != null)
 			{
-				if (val.equals(undef))
-				{
-					values.add(null);
-				}
+				if (token.equals(undef))
+					val = Double.NaN;
 				else
+					val = Double.parseDouble(token);
+				
+				// Make room if there are more rows than labels
+				
+				if (count == length)
 				{
-					values.add(Double.valueOf(val));
+					length = Math.max(length * 2, 16);
+					
+					if (!bMap && (length > MAX_ARRAY_LENGTH))
+					{
+						// Too many rows for an array, so move to a mapped file
+						
+						mapped = new MappedTriangle(length, bFloat);
+						for (long i = 0; i < count; i++)
+							mapped.set(i, triangle[(int)i]);
+						
+						triangle = null;
+						bMap = true;
+					}
+					else if (bMap)
+						mapped.ensureLength(length);
+					else
+						triangle = copyOf(triangle, (int)length);
 				}
+				
+				if (bMap)
+					mapped.set(count, val);
+				else
+					triangle[(int)count] = val;
+				
+				count++;
 				numCols++;
+				token = nextToken(triFile);
 			}
-		}
-		
-		// If the matrix is lower triangular then the number of columns
-		// should increase by one in each row.
-		
-		if (numRows > 0)
-		{
+			
+			// If the matrix is lower triangular then the number of columns
+			// should increase by one in each row.
+			
 			if ((numCols - lastColCount) != 1)
 				throw new IOException();
 			
-			// Read in the next line of the file
+			dataItemColl.addItem(new DataItem(numRows));
+			numRows++;
+		}
+		
+		if (bMap)
+		{
+			dataItemColl.setLowerTriangleData(mapped);
+			mapped = null;
+		}
+		else
+		{
+			if (count < triangle.length)
+				triangle = copyOf(triangle, (int)count);
 			
-			dataItem = new DataItem(numRows - 1);
-			dataItemColl.addItem(dataItem);
+			dataItemColl.setLowerTriangleData(triangle);
 		}
-		numRows++;
-		line = triFile.readLine();
-        }
+		dataItemColl.setRowLabels(labels);
+	}
+	finally
+	{
+		// Finished with the file, close it
+		
+		triFile.close();
+		
+		// Delete the temporary file of a triangle that wasn't finished
+		
+		if (mapped != null)
+			mapped.close();
+	}
         
-        // Finished with the file, close it
+        // Trim the dataItemColl to size, prolly overkill but just making sure
+	
+        dataItemColl.getDataItems().trimToSize();
+    }
+    
+    /**
+     * Return the next space separated token of the current line, or null
+     * once the line has no more. lastChar is then the character that ended
+     * the line, -1 at the end of the file.
+     */
+    private String nextToken(InputStream in) throws IOException
+    {
+	if (atLineEnd)
+	{
+		atLineEnd = false;
+		return null;
+	}
 	
-        triFile.close();
-	double[] triangleValues = new double[values.size()];
+	int c = in.read();
 	
-	for (int i = 0; i < values.size(); i++)
-		triangleValues[i] = ((Double)values.get(i)).doubleValue();
+	while ((c == ' ') || (c == '\t') || (c == '\r'))
+		c = in.read();
 	
-	dataItemColl.setLowerTriangleData(triangleValues);
-	dataItemColl.setRowLabels(labels);
-        
-        // Trim the dataItemColl to size, prolly overkill but just making sure
+	int len = 0;
 	
-        dataItemColl.getDataItems().trimToSize();
+	while ((c != -1) && (c != '\n') && (c != ' ') && (c != '\t') && (c != '\r'))
+	{
+		if (len == token.length)
+			token = copyOf(token, len * 2);
+		
+		token[len++] = (char)c;
+		c = in.read();
+	}
+	
+	lastChar = c;
+	
+	if (len == 0)
+		return null;
+	
+	// The token ends the line, so report the end of the line next time
+	
+	if ((c == '\n') || (c == -1))
+		atLineEnd = true;
+	
+	return new String(token, 0, len);
+    }
+    
+    private static double[] copyOf(double[] a, int len)
+    {
+	double[] b = new double[len];
+	System.arraycopy(a, 0, b, 0, Math.min(a.length, len));
+	return b;
+    }
+    
+    private static char[] copyOf(char[] a, int len)
+    {
+	char[] b = new char[len];
+	System.arraycopy(a, 0, b, 0, Math.min(a.length, len));
+	return b;
     }
     
     /**
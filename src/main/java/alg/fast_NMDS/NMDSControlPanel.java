@@ -52,6 +52,7 @@
 package alg.fast_NMDS;
 
 import alg.FastNMDS;
+import parent_gui.GraphScheduler;
 
 import javax.swing.JPanel;
 import javax.swing.event.*;
@@ -103,11 +104,6 @@ public class NMDSControlPanel extends JPanel implements ChangeListener,
 	
     	private FastNMDS NMDS_Module;
 	
-    	// The thread that controls the sizing and animation of
-	// the module
-	
-    	private Thread thread;
-	
     	// Are we enlarging the module or shrinking it
 	
     	private static final int ENLARGE = 0;
@@ -148,8 +144,7 @@ public class NMDSControlPanel extends JPanel implements ChangeListener,
 		setVisible(false);
 		resizeMode = ENLARGE;
 		this.NMDS_Module = NMDS_Module;
-		thread = new Thread(this);
-		thread.start();
+		GraphScheduler.getInstance().execute(this);
 		
 	    	this.setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
 		this.setBorder(new EmptyBorder(5,5,5,5));
@@ -329,7 +324,7 @@ public class NMDSControlPanel extends JPanel implements ChangeListener,
 					
 				// Delay to set the speed of animation
 				
-				try {thread.sleep(1);}
+				try {Thread.sleep(1);}
 				catch(InterruptedException e){}
 				
 				NMDS_Module.validate();
@@ -420,7 +415,7 @@ public class NMDSControlPanel extends JPanel implements ChangeListener,
 				
 				// Delay to set the speed of animation
 				
-				try {thread.sleep(1);}
+				try {Thread.sleep(1);}
 				catch(InterruptedException e){}
 				
 				NMDS_Module.validate();
@@ -437,9 +432,8 @@ public class NMDSControlPanel extends JPanel implements ChangeListener,
 	
 	public void restore()
 	{
-		thread = new Thread(this);
 		resizeMode = SHRINK;
-		thread.start();
+		GraphScheduler.getInstance().execute(this);
 	}
 	
    	 public void run()
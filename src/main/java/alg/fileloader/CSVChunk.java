@@ -0,0 +1,564 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic test bed
+ * 
+ * CSVChunk
+ * Parses a range of whole lines of a csv file. The range is memory mapped and
+ * fields are found by scanning the bytes directly, so that many chunks of a
+ * large file can be parsed at the same time by a fork/join pool. Values are
+ * parsed straight into one primitive array per column, which CSVLoader
+ * copies into the collection's column store. Each chunk keeps its own
+ * normalisation sums, which CSVLoader adds together once the chunk is
+ * finished.
+ * 
+ * @author Greg Ross
+ */
+
+package alg.fileloader;
+
+import data.*;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.concurrent.RecursiveAction;
+
+class CSVChunk extends RecursiveAction
+{
+	// Versioning for serialisation
+	
+	static final long serialVersionUID = 50L;
+	
+	private FileChannel channel;
+	private long start;
+	private long end;
+	private int[] types;
+	private SimpleDateFormat dateF;
+	private byte delim;
+	private byte[] undef;
+	private Charset charset;
+	
+	// The values of the lines that could be made into data items, held by
+	// column: a double[], int[], long[] (dates) or String[] according to
+	// the column's type
+	
+	private Object[] columns;
+	
+	// For each column, one bit per row set where the value is missing
+	
+	private long[][] nullBits;
+	
+	private int capacity = 0;
+	private int numRows = 0;
+	
+	// The position in the chunk of the line that each row came from,
+	// and the number of lines, including those that were rejected
+	
+	private int[] lineNumbers;
+	private int numLines = 0;
+	
+	protected double[] sumOfVals;
+	protected double[] sumOfSquares;
+	
+	// Set if the chunk could not be read or parsed
+	
+	private Exception error = null;
+	
+	// Bytes of the field being decoded
+	
+	private byte[] fieldBytes = new byte[64];
+	
+	// For each STRING column, the strings already decoded in this chunk,
+	// looked up by their bytes so that a repeated category is decoded once
+	// and every row holds the same String, ready for the column store's
+	// dictionary
+	
+	private StringTable[] stringTables;
+	
+	/**
+	* @param channel The open csv file
+	* @param start Offset of the first byte of the first line
+	* @param end Offset one past the last byte of the chunk
+	* @param types The type of each column
+	* @param dateF Date format, a private copy is taken
+	* @param delim The field delimiter
+	* @param undef The string that marks an undefined value
+	* @param charset Character set used to decode strings
+	*/
+	
+	public CSVChunk(FileChannel channel, long start, long end, int[] types, SimpleDateFormat dateF,
+		byte delim, String undef, Charset charset)
+	{
+		this.channel = channel;
+		this.start = start;
+		this.end = end;
+		this.types = types;
+		this.dateF = (SimpleDateFormat)dateF.clone();
+		this.delim = delim;
+		this.undef = undef.getBytes(charset);
+		this.charset = charset;
+		
+		sumOfVals = new double[types.length];
+		sumOfSquares = new double[types.length];
+		stringTables = new StringTable[types.length];
+		columns = new Object[types.length];
+		nullBits = new long[types.length][];
+		
+		for (int i = 0; i < types.length; i++)
+			if (types[i] == DataItemCollection.STRING)
+				stringTables[i] = new StringTable();
+	}
+	
+	protected void compute()
+	{
+		try
+		{
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+			int len = (int)(end - start);
+			int lineStart = 0;
+			int pos = 0;
+			byte b;
+			
+			// Lines end with \n, \r or \r\n as for BufferedReader.readLine()
+			
+			while (pos < len)
+			{
+				b = buffer.get(pos);
+				
+				if ((b == '\n') || (b == '\r'))
+				{
+					parseLine(buffer, lineStart, pos);
+					
+					if ((b == '\r') && ((pos + 1) < len) && (buffer.get(pos + 1) == '\n'))
+						pos++;
+					
+					lineStart = pos + 1;
+				}
+				
+				pos++;
+			}
+			
+			if (lineStart < len)
+				parseLine(buffer, lineStart, len);
+		}
+		catch (Exception e)
+		{
+			error = e;
+		}
+	}
+	
+	/**
+	* Grow the column arrays so that they can hold at least minCapacity rows
+	*/
+	
+	private void ensureCapacity(int minCapacity)
+	{
+		if (minCapacity <= capacity)
+			return;
+		
+		int newCapacity = Math.max(Math.max(capacity * 2, minCapacity), 1024);
+		
+		for (int col = 0; col < types.length; col++)
+		{
+			Object newColumn;
+			
+			switch (types[col])
+			{
+				case DataItemCollection.STRING:
+					newColumn = new String[newCapacity];
+					break;
+				case DataItemCollection.DATE:
+					newColumn = new long[newCapacity];
+					break;
+				case DataItemCollection.INTEGER:
+					newColumn = new int[newCapacity];
+					break;
+				default:
+					newColumn = new double[newCapacity];
+			}
+			
+			if (columns[col] != null)
+				System.arraycopy(columns[col], 0, newColumn, 0, numRows);
+			
+			columns[col] = newColumn;
+			
+			long[] newBits = new long[(newCapacity + 63) >> 6];
+			if (nullBits[col] != null)
+				System.arraycopy(nullBits[col], 0, newBits, 0, nullBits[col].length);
+			
+			nullBits[col] = newBits;
+		}
+		
+		int[] newLines = new int[newCapacity];
+		if (lineNumbers != null)
+			System.arraycopy(lineNumbers, 0, newLines, 0, numRows);
+		
+		lineNumbers = newLines;
+		capacity = newCapacity;
+	}
+	
+	private void setNull(int col, int row, boolean bNull)
+	{
+		if (bNull)
+			nullBits[col][row >> 6] |= (1L << row);
+		else
+			nullBits[col][row >> 6] &= ~(1L << row);
+	}
+	
+	/**
+	* Parse the line between two offsets of the buffer into the next row of
+	* the columns, following the same rules as CSVLoader.parseDataItem(). The
+	* row is kept only if the line has one value for each column.
+	*/
+	
+	private void parseLine(MappedByteBuffer buffer, int lineStart, int lineEnd) throws ParseException
+	{
+		ensureCapacity(numRows + 1);
+		int row = numRows;
+		
+		// Count the fields
+		
+		int numFields = 1;
+		int pos;
+		
+		for (pos = lineStart; pos < lineEnd; pos++)
+			if (buffer.get(pos) == delim)
+				numFields++;
+		
+		// An empty final field is recorded as a null but not counted as a column
+		
+		int numCols = numFields;
+		if ((lineEnd == lineStart) || (buffer.get(lineEnd - 1) == delim))
+			numCols--;
+		
+		int fieldStart = lineStart;
+		int fieldEnd;
+		
+		for (int col = 0; col < numFields; col++)
+		{
+			fieldEnd = fieldStart;
+			while ((fieldEnd < lineEnd) && (buffer.get(fieldEnd) != delim))
+				fieldEnd++;
+			
+			if (col < types.length)
+			{
+				if ((fieldEnd > fieldStart) && !isUndefined(buffer, fieldStart, fieldEnd))
+					parseValue(buffer, fieldStart, fieldEnd, col, row);
+				else
+					setNull(col, row, true);
+			}
+			
+			fieldStart = fieldEnd + 1;
+		}
+		
+		if (numCols == types.length)
+			lineNumbers[numRows++] = numLines;
+		
+		numLines++;
+	}
+	
+	/**
+	* Convert a single field to its column type, store it in the given row
+	* and add it to the normalisation sums
+	*/
+	
+	private void parseValue(MappedByteBuffer buffer, int fieldStart, int fieldEnd, int col, int row) throws ParseException
+	{
+		setNull(col, row, false);
+		
+		switch (types[col])
+		{
+			case DataItemCollection.STRING:
+				((String[])columns[col])[row] = stringTables[col].get(buffer, fieldStart, fieldEnd);
+				break;
+			case DataItemCollection.DATE:
+				long time = dateF.parse(decode(buffer, fieldStart, fieldEnd)).getTime();
+				((long[])columns[col])[row] = time;
+				sumOfVals[col]    += (double)time;
+				sumOfSquares[col] += (double)time * (double)time;
+				break;
+			case DataItemCollection.INTEGER:
+				int intVal = parseInt(buffer, fieldStart, fieldEnd);
+				((int[])columns[col])[row] = intVal;
+				sumOfVals[col]    += (double)intVal;
+				sumOfSquares[col] += (double)(intVal * intVal);
+				break;
+			case DataItemCollection.DOUBLE:
+				double dblVal = Double.parseDouble(decode(buffer, fieldStart, fieldEnd));
+				((double[])columns[col])[row] = dblVal;
+				sumOfVals[col]    += dblVal;
+				sumOfSquares[col] += dblVal * dblVal;
+				break;
+			default:
+				setNull(col, row, true);
+		}
+	}
+	
+	/**
+	* Parse an integer straight from the bytes. Anything other than an
+	* optional sign and up to nine digits is left to Integer.parseInt()
+	*/
+	
+	private int parseInt(MappedByteBuffer buffer, int fieldStart, int fieldEnd)
+	{
+		int pos = fieldStart;
+		boolean bNegative = false;
+		byte b = buffer.get(pos);
+		
+		if ((b == '-') || (b == '+'))
+		{
+			bNegative = (b == '-');
+			pos++;
+		}
+		
+		if ((pos == fieldEnd) || ((fieldEnd - pos) > 9))
+			return Integer.parseInt(decode(buffer, fieldStart, fieldEnd));
+		
+		int val = 0;
+		
+		for (; pos < fieldEnd; pos++)
+		{
+			b = buffer.get(pos);
+			
+			if ((b < '0') || (b > '9'))
+				return Integer.parseInt(decode(buffer, fieldStart, fieldEnd));
+			
+			val = (val * 10) + (b - '0');
+		}
+		
+		return bNegative ? -val : val;
+	}
+	
+	private boolean isUndefined(MappedByteBuffer buffer, int fieldStart, int fieldEnd)
+	{
+		if ((fieldEnd - fieldStart) != undef.length)
+			return false;
+		
+		for (int i = 0; i < undef.length; i++)
+			if (buffer.get(fieldStart + i) != undef[i])
+				return false;
+		
+		return true;
+	}
+	
+	/**
+	* Decode the bytes of a field into a string
+	*/
+	
+	private String decode(MappedByteBuffer buffer, int fieldStart, int fieldEnd)
+	{
+		int len = fieldEnd - fieldStart;
+		
+		if (len > fieldBytes.length)
+			fieldBytes = new byte[Math.max(len, fieldBytes.length * 2)];
+		
+		for (int i = 0; i < len; i++)
+			fieldBytes[i] = buffer.get(fieldStart + i);
+		
+		return new String(fieldBytes, 0, len, charset);
+	}
+	
+	/**
+	* Return the values of the accepted lines, one array per column
+	*/
+	
+	public Object[] getColumns()
+	{
+		return columns;
+	}
+	
+	/**
+	* Return, for each column, the bits marking the missing values
+	*/
+	
+	public long[][] getNullBits()
+	{
+		return nullBits;
+	}
+	
+	/**
+	* Return the number of lines that were made into rows
+	*/
+	
+	public int getNumRows()
+	{
+		return numRows;
+	}
+	
+	/**
+	* Return the position in the chunk of the line that each row came from
+	*/
+	
+	public int[] getLineNumbers()
+	{
+		return lineNumbers;
+	}
+	
+	/**
+	* Return the number of lines in the chunk, including rejected ones
+	*/
+	
+	public int getNumLines()
+	{
+		return numLines;
+	}
+	
+	/**
+	* Throw any exception that occurred while the chunk was parsed
+	*/
+	
+	public void checkError() throws IOException, ParseException
+	{
+		if (error instanceof IOException)
+			throw (IOException)error;
+		else if (error instanceof ParseException)
+			throw (ParseException)error;
+		else if (error instanceof RuntimeException)
+			throw (RuntimeException)error;
+	}
+	
+	/**
+	* Release the parsed rows once they have been handed on
+	*/
+	
+	public void clear()
+	{
+		columns = null;
+		nullBits = null;
+		lineNumbers = null;
+		stringTables = null;
+	}
+	
+	/**
+	* Open addressing table of the strings of one column, keyed on their
+	* bytes. Once it is full, strings are decoded without being remembered
+	* so that columns of unique values don't use up memory
+	*/
+	
+	private class StringTable
+	{
+		private final static int MAX_ENTRIES = 1 << 16;
+		
+		private byte[][] keys = new byte[64][];
+		private String[] strings = new String[64];
+		private int[] hashes = new int[64];
+		private int count = 0;
+		
+		String get(MappedByteBuffer buffer, int fieldStart, int fieldEnd)
+		{
+			int hash = 1;
+			int i;
+			
+			for (i = fieldStart; i < fieldEnd; i++)
+				hash = (31 * hash) + buffer.get(i);
+			
+			int mask = keys.length - 1;
+			int slot = hash & mask;
+			
+			while (keys[slot] != null)
+			{
+				if ((hashes[slot] == hash) && matches(keys[slot], buffer, fieldStart, fieldEnd))
+					return strings[slot];
+				
+				slot = (slot + 1) & mask;
+			}
+			
+			String s = decode(buffer, fieldStart, fieldEnd);
+			
+			if (count < MAX_ENTRIES)
+			{
+				byte[] key = new byte[fieldEnd - fieldStart];
+				for (i = 0; i < key.length; i++)
+					key[i] = buffer.get(fieldStart + i);
+				
+				keys[slot] = key;
+				strings[slot] = s;
+				hashes[slot] = hash;
+				
+				if (++count > (keys.length >> 1))
+					grow();
+			}
+			return s;
+		}
+		
+		private boolean matches(byte[] key, MappedByteBuffer buffer, int fieldStart, int fieldEnd)
+		{
+			if (key.length != (fieldEnd - fieldStart))
+				return false;
+			
+			for (int i = 0; i < key.length; i++)
+				if (key[i] != buffer.get(fieldStart + i))
+					return false;
+			
+			return true;
+		}
+		
+		private void grow()
+		{
+			byte[][] oldKeys = keys;
+			String[] oldStrings = strings;
+			int[] oldHashes = hashes;
+			keys = new byte[oldKeys.length * 2][];
+			strings = new String[keys.length];
+			hashes = new int[keys.length];
+			int mask = keys.length - 1;
+			int slot;
+			
+			for (int i = 0; i < oldKeys.length; i++)
+			{
+				if (oldKeys[i] != null)
+				{
+					slot = oldHashes[i] & mask;
+					while (keys[slot] != null)
+						slot = (slot + 1) & mask;
+					
+					keys[slot] = oldKeys[i];
+					strings[slot] = oldStrings[i];
+					hashes[slot] = oldHashes[i];
+				}
+			}
+		}
+	}
+}
@@ -44,7 +44,8 @@
  * CSVLoader
  * abstract class to load in a Collection of DataItems from a csv file
  * File is assumed to have field names on the first line followed
- * by types on the second line.
+ * by types on the second line. The data lines are memory mapped and
+ * parsed in chunks on several threads.
  *  
  *  @author Andrew Didsbury, Greg Ross
  */ 
@@ -59,14 +60,20 @@ import java.io.FileReader;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.FileNotFoundException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.text.SimpleDateFormat;
 import java.text.ParseException;
 import java.util.StringTokenizer;
 import java.util.Date;
 import java.util.Collection;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
 
 public class CSVLoader implements DataLoader
 {
@@ -85,6 +92,12 @@ public class CSVLoader implements DataLoader
     protected double[]           sumOfVals;
     protected double[]           sumOfSquares;
 
+    // If set, told about each batch of items as the file is loaded
+    
+    protected DataBatchListener batchListener = null;
+    protected int               batchSize;
+    private int                 lastBatch = 0;
+
     protected SimpleDateFormat dateF;
     protected String           delim;
     protected String           undef;
@@ -96,6 +109,15 @@ public class CSVLoader implements DataLoader
     public final static String DEFAULT_DELIMITER   = ",";
     public final static String DEFAULT_DATE_FORMAT = "dd/MM/yyyy";  // e.g. 18/07/2003
     
+    // Files are split into chunks of at least this many bytes for parsing
+    // in parallel, so small files are parsed as a single chunk
+    
+    public final static long MIN_CHUNK_SIZE = 1 << 20;
+    
+    // The largest chunk that is mapped at once
+    
+    public final static long MAX_CHUNK_SIZE = 1 << 28;
+    
     /**
      * Constructor for CSVLoader, takes a csv filename as param
      * @param fileName The csv file to be loaded
@@ -140,6 +162,21 @@ public class CSVLoader implements DataLoader
 	dataItemColl.setDataPath(fileName);
     }
     
+    /**
+     * Ask to be told each time at least batchSize further items have been
+     * loaded, so that the data can be used before the whole file is read.
+     * When the file is parsed in chunks, batches are reported as whole
+     * chunks are added.
+     *
+     * @param batchListener The object to be told about batches
+     * @param batchSize The number of items in each batch
+     */
+    public void setBatchListener(DataBatchListener batchListener, int batchSize)
+    {
+	this.batchListener = batchListener;
+	this.batchSize = batchSize;
+    }
+    
     /**
      * Reads the field names from the first line of the csv file
      * Assumes the input pointer is ready at the start of the file
@@ -214,6 +251,42 @@ public class CSVLoader implements DataLoader
 	
 	dataItemColl.intiNormalArrays(sumOfVals, sumOfSquares);
 	
+	// The chunked parser splits fields on a single byte
+	
+	if (delim.length() == 1)
+	{
+		csvFile.close();
+		readChunks();
+	}
+	else
+		readLines();
+        
+        //trim the dataItemColl to size, prolly overkill but just making sure
+	
+        dataItemColl.trimToSize();
+	
+        //normalize the data
+	
+        dataItemColl.setNormalizeData(sumOfVals, sumOfSquares);
+	
+	// Determine whether the data are binary
+	
+	dataItemColl.determineBinary();
+	
+	// Determine whether the data are genetic sequences
+	
+	dataItemColl.determineSequenceData();
+	
+	// If the data are binary, determine the frequency of each variables
+	
+	dataItemColl.setVariableFrequencies();
+    }
+    
+    /**
+     * Read the remaining lines of the file one at a time
+     */
+    private void readLines() throws IOException, ParseException
+    {
         String line = csvFile.readLine();
         int count  =0;
         while( line != null ) 
@@ -223,6 +296,8 @@ public class CSVLoader implements DataLoader
             DataItem item = parseDataItem(line, dataItemColl, count);
             if (item != null)
 		    dataItemColl.addItem(item);
+	    
+	    checkBatch();
             
             // read in the next line of the csv file
 	    
@@ -233,26 +308,195 @@ public class CSVLoader implements DataLoader
         // finished with the file, close it
 	
         csvFile.close();
-        
-        //trim the dataItemColl to size, prolly overkill but just making sure
-	
-        dataItemColl.getDataItems().trimToSize();
-	
-        //normalize the data
-	
-        dataItemColl.setNormalizeData(sumOfVals, sumOfSquares);
-	
-	// Determine whether the data are binary
+    }
+    
+    /**
+     * Memory map the data lines of the file (everything after the fields and
+     * types lines) and parse them in chunks on the fork/join pool. The chunks
+     * are added to the collection in file order as each one finishes, so IDs
+     * are the same as when the file is read line by line. Only a bounded
+     * number of chunks are parsed ahead of the one being merged, so at most
+     * that many chunks' columns are held outside the collection.
+     */
+    private void readChunks() throws IOException, ParseException
+    {
+	RandomAccessFile file = new RandomAccessFile(fileName, "r");
 	
-	dataItemColl.determineBinary();
+	try
+	{
+		FileChannel channel = file.getChannel();
+		long size = channel.size();
+		long dataStart = skipLines(channel, 0, 2);
+		
+		// Choose the chunk boundaries, each moved on to the start of a line
+		
+		int threads = Runtime.getRuntime().availableProcessors();
+		long chunkSize = Math.max(MIN_CHUNK_SIZE, (size - dataStart) / (threads * 4));
+		chunkSize = Math.min(chunkSize, MAX_CHUNK_SIZE);
+		
+		// Batches can only be reported between chunks, so keep them small
+		
+		if (batchListener != null)
+			chunkSize = MIN_CHUNK_SIZE;
+		
+		int[] colTypes = new int[types.size()];
+		for (int i = 0; i < colTypes.length; i++)
+			colTypes[i] = ((Integer)types.get(i)).intValue();
+		
+		Charset charset = Charset.defaultCharset();
+		byte delimByte = delim.getBytes(charset)[0];
+		int maxInFlight = threads * 2;
+		LinkedList chunks = new LinkedList();
+		long chunkStart = dataStart;
+		long chunkEnd;
+		int count = 0;
+		int j;
+		
+		while ((chunkStart < size) || !chunks.isEmpty())
+		{
+			// Keep up to maxInFlight chunks parsing ahead of the merge
+			
+			while ((chunkStart < size) && (chunks.size() < maxInFlight))
+			{
+				chunkEnd = size;
+				
+				if ((size - chunkStart) > chunkSize)
+					chunkEnd = nextLineStart(channel, chunkStart + chunkSize);
+				
+				CSVChunk chunk = new CSVChunk(channel, chunkStart, chunkEnd, colTypes, dateF,
+					delimByte, undef, charset);
+				chunk.fork();
+				chunks.add(chunk);
+				chunkStart = chunkEnd;
+			}
+			
+			// Merge the oldest chunk, numbering its rows by their line in the file
+			
+			CSVChunk chunk = (CSVChunk)chunks.removeFirst();
+			chunk.join();
+			chunk.checkError();
+			
+			int numRows = chunk.getNumRows();
+			int[] IDs = chunk.getLineNumbers();
+			for (j = 0; j < numRows; j++)
+				IDs[j] += count;
+			
+			if (numRows > 0)
+				dataItemColl.addColumns(chunk.getColumns(), chunk.getNullBits(), IDs, numRows);
+			
+			count += chunk.getNumLines();
+			
+			for (j = 0; j < sumOfVals.length; j++)
+			{
+				sumOfVals[j] += chunk.sumOfVals[j];
+				sumOfSquares[j] += chunk.sumOfSquares[j];
+			}
+			
+			chunk.clear();
+			checkBatch();
+		}
+	}
+	finally
+	{
+		file.close();
+	}
+    }
+    
+    /**
+     * If a full batch of items has been added since the last one, pass the
+     * collection to the batch listener. The normalisation data are set for
+     * the first batch only; after that the collection keeps its statistics
+     * up to date as items are appended, and setting them again would make
+     * it seed them afresh from every item.
+     */
+    private void checkBatch()
+    {
+	if ((batchListener != null) && ((dataItemColl.getSize() - lastBatch) >= batchSize))
+	{
+		if (lastBatch == 0)
+			dataItemColl.setNormalizeData(sumOfVals, sumOfSquares);
+		
+		lastBatch = dataItemColl.getSize();
+		batchListener.batchLoaded(dataItemColl);
+	}
+    }
+    
+    /**
+     * Return the offset of the first byte after a number of lines, starting
+     * from the given offset. Lines end with \n, \r or \r\n.
+     */
+    private long skipLines(FileChannel channel, long pos, int numLines) throws IOException
+    {
+	ByteBuffer buf = ByteBuffer.allocate(4096);
+	long size = channel.size();
+	int n;
+	byte b;
 	
-	// Determine whether the data are genetic sequences
+	while ((numLines > 0) && (pos < size))
+	{
+		buf.clear();
+		n = channel.read(buf, pos);
+		
+		for (int i = 0; (i < n) && (numLines > 0); i++)
+		{
+			b = buf.get(i);
+			pos++;
+			
+			if (b == '\n')
+				numLines--;
+			else if (b == '\r')
+			{
+				numLines--;
+				
+				// Step over the \n of a \r\n pair
+				
+				if ((i + 1) < n)
+				{
+					if (buf.get(i + 1) == '\n')
+					{
+						pos++;
+						i++;
+					}
+				}
+				else
+				{
+					buf.clear();
+					buf.limit(1);
+					if ((channel.read(buf, pos) == 1) && (buf.get(0) == '\n'))
+						pos++;
+				}
+			}
+		}
+	}
 	
-	dataItemColl.determineSequenceData();
+	return pos;
+    }
+    
+    /**
+     * Return the offset just after the first \n at or after the given offset,
+     * or the end of the file
+     */
+    private long nextLineStart(FileChannel channel, long pos) throws IOException
+    {
+	ByteBuffer buf = ByteBuffer.allocate(4096);
+	long size = channel.size();
+	int n;
 	
-	// If the data are binary, determine the frequency of each variables
+	while (pos < size)
+	{
+		buf.clear();
+		n = channel.read(buf, pos);
+		
+		for (int i = 0; i < n; i++)
+		{
+			pos++;
+			
+			if (buf.get(i) == '\n')
+				return pos;
+		}
+	}
 	
-	dataItemColl.setVariableFrequencies();
+	return size;
     }
     
     /**
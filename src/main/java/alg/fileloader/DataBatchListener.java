@@ -0,0 +1,68 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/** 
+ * Algorthmic test bed
+ *  
+ * DataBatchListener
+ * Interface for objects that want to see a data set while it is still being
+ * loaded. The loader calls batchLoaded() each time a further batch of items
+ * has been added to its DataItemCollection, and waits for the call to return
+ * before adding any more.
+ *  
+ *  @author Greg Ross
+ */ 
+
+package alg.fileloader;
+
+import data.*;
+
+public interface DataBatchListener
+{
+    /**
+     * Called when a further batch of items has been loaded. The averages
+     * and standard deviations of the collection are up to date for the
+     * items loaded so far. The collection goes on growing once this
+     * returns, so take a snapshot() of it to pass it on.
+     *
+     * @param dataItems The collection that is being loaded
+     */
+    public void batchLoaded(DataItemCollection dataItems);
+}
@@ -58,9 +58,13 @@ import data.*;
 import java.io.File;
 import java.io.IOException;
 import java.io.FileNotFoundException;
+import java.lang.reflect.InvocationTargetException;
 import javax.swing.JFileChooser;
 import java.text.ParseException;
 import javax.swing.JOptionPane;
+import javax.swing.JCheckBox;
+import javax.swing.SwingUtilities;
+import java.awt.BorderLayout;
 
 public class DataFileLoaderFrame extends FileHandlerFrame
 {    
@@ -75,6 +79,10 @@ public class DataFileLoaderFrame extends FileHandlerFrame
     
     private DataSource dataSource;
     
+    // If selected, the data are passed on in batches while the file is loading
+    
+    private JCheckBox chkStream;
+    
     /**
      * Constructor for DataFileLoaderFrame
      * @param DataSource The calling visual module
@@ -89,7 +97,17 @@ public class DataFileLoaderFrame extends FileHandlerFrame
 	filter.addExtension("csv");
 	filter.setDescription("Comma Seperated Var files");
 	chooser.addChoosableFileFilter(filter);
+	
+	ExampleFileFilter snapshotFilter = new ExampleFileFilter();
+	snapshotFilter.addExtension(SnapshotLoader.EXTENSION);
+	snapshotFilter.setDescription("Data snapshot files");
+	chooser.addChoosableFileFilter(snapshotFilter);
+	chooser.setFileFilter(filter);
 	this.dataSource = dataSource;
+	
+	chkStream = new JCheckBox("Show the data while loading", false);
+	getContentPane().add(chkStream, BorderLayout.SOUTH);
+	pack();
     }
     
     /**
@@ -135,7 +153,19 @@ public class DataFileLoaderFrame extends FileHandlerFrame
 	    if (!f.exists() || !f.canRead())
 		    return;
 	    
-	    loader = new CSVLoader(fileName);
+	    // Snapshots are read whole, only csv files can be streamed
+	    
+	    if (SnapshotLoader.isSnapshot(fileName))
+		    loader = new SnapshotLoader(fileName);
+	    else
+		    loader = new CSVLoader(fileName);
+	    
+	    if (chkStream.isSelected() && (loader instanceof CSVLoader))
+	    {
+		    streamFile(fileName);
+		    return;
+	    }
+	    
 	    loader.readData();	    
 	    
 	    // Display the file name on the visual module
@@ -170,5 +200,91 @@ public class DataFileLoaderFrame extends FileHandlerFrame
 	   JOptionPane.showMessageDialog(null, "There was an error loading the file (" +
 	    fileName + ")", "Alert", JOptionPane.ERROR_MESSAGE);
 	}
-    }  
+    }
+    
+    /**
+     * Load the file on a separate thread, passing a snapshot of the items
+     * loaded so far to the DataSource after each batch. The loader keeps
+     * appending to its own collection, so the modules are never handed a
+     * collection that is still growing. The loader waits while a batch is
+     * being handled, so snapshots don't queue up on the event thread.
+     */
+    private void streamFile(final String fileName)
+    {
+	final DataSource source = dataSource;
+	final CSVLoader csvLoader = (CSVLoader)loader;
+	
+	source.setFileName(fileName);
+	
+	csvLoader.setBatchListener(new DataBatchListener()
+	{
+		public void batchLoaded(DataItemCollection dataItems)
+		{
+			final DataItemCollection snapshot = dataItems.snapshot();
+			
+			try
+			{
+				SwingUtilities.invokeAndWait(new Runnable()
+				{
+					public void run()
+					{
+						source.setCSVBatch(snapshot);
+					}
+				});
+			}
+			catch (InterruptedException e)
+			{
+				// Abandon the load if the thread is interrupted
+				
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+			catch (InvocationTargetException e)
+			{
+				// The modules failed with this batch, so stop loading
+				
+				throw new RuntimeException(e.getCause());
+			}
+		}
+	}, DataSource.STREAM_BATCH_SIZE);
+	
+	Thread loadThread = new Thread(new Runnable()
+	{
+		public void run()
+		{
+			try
+			{
+				csvLoader.readData();
+				
+				SwingUtilities.invokeLater(new Runnable()
+				{
+					public void run()
+					{
+						source.setCSVData(csvLoader.getDataItemCollection());
+					}
+				});
+			}
+			catch (Exception e)
+			{
+				e.printStackTrace();
+				
+				SwingUtilities.invokeLater(new Runnable()
+				{
+					public void run()
+					{
+						JOptionPane.showMessageDialog(null, "There was an error loading the file (" +
+							fileName + ")", "Alert", JOptionPane.ERROR_MESSAGE);
+					}
+				});
+			}
+		}
+	});
+	
+	loadThread.start();
+	
+	this.setVisible(false);
+	dataSource = null;
+	instance = null;
+	this.dispose();
+    }
 }
@@ -0,0 +1,592 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic test bed
+ * 
+ * SnapshotLoader
+ * Saves a DataItemCollection to, and loads it from, a binary snapshot file.
+ * A snapshot holds the columns of the collection as they are held in its
+ * column store, so re-opening a data set maps the file and copies each column
+ * straight into its array with no parsing or normalisation pass.
+ * 
+ * The file is laid out as follows, with numbers little-endian:
+ * 
+ *	header		magic, version, flags, rows, columns (ints),
+ *			meta-data length (int), triangle length (long)
+ *	meta-data	serialised fields, types, maximums, minimums, storage
+ *			kinds, dictionaries, boxed columns, normalisation
+ *			sums, averages, sigmas, row labels and paths
+ *	IDs		int per row
+ *	columns		for each column, its null bitmap (longs) then its
+ *			values (double, int or long per row)
+ *	triangle	the lower triangular matrix, if any (doubles)
+ * 
+ * Each section starts on an eight byte boundary.
+ * 
+ * @author Greg Ross
+ */
+
+package alg.fileloader;
+
+import data.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.text.ParseException;
+import java.util.ArrayList;
+
+public class SnapshotLoader implements DataLoader
+{
+	// Versioning for serialisation
+	
+	static final long serialVersionUID = 50L;
+	
+	// The file name extension of snapshots
+	
+	public final static String EXTENSION = "hds";
+	
+	// Identifies a snapshot file and the version of its layout
+	
+	public final static int MAGIC = 0x48445331;
+	public final static int VERSION = 1;
+	
+	private final static int HEADER_SIZE = 32;
+	
+	// Bits of the flags in the header
+	
+	private final static int LOWER_TRIANGULAR = 1;
+	private final static int BINARY = 2;
+	private final static int SEQUENCE = 4;
+	private final static int TRANSPOSED = 8;
+	
+	// The number of values mapped at a time when reading or writing arrays
+	
+	private final static int SLICE = 1 << 24;
+	
+	// The largest array that can be allocated
+	
+	private final static long MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+	
+	private DataItemCollection dataItemColl;
+	private String fileName;
+	
+	/**
+	 * Constructor for SnapshotLoader, takes a snapshot filename as param
+	 * @param fileName The snapshot file to be loaded
+	 */
+	public SnapshotLoader(String fileName)
+	{
+		this.fileName = fileName;
+		dataItemColl = new DataItemCollection();
+	}
+	
+	/**
+	* Return true if the named file is a snapshot
+	*/
+	
+	public static boolean isSnapshot(String fileName)
+	{
+		return fileName.toLowerCase().endsWith("." + EXTENSION);
+	}
+	
+	/**
+	 * Reads the snapshot file and rebuilds the DataItemCollection it holds
+	 */
+	public void readData() throws IOException, ParseException
+	{
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
+		FileChannel channel = file.getChannel();
+		
+		try
+		{
+			ByteBuffer header = map(channel, 0, HEADER_SIZE, FileChannel.MapMode.READ_ONLY);
+			
+			if (header.getInt() != MAGIC)
+				throw new IOException("Not a snapshot file: " + fileName);
+			
+			int version = header.getInt();
+			if (version > VERSION)
+				throw new IOException("Unsupported snapshot version: " + version);
+			
+			int flags = header.getInt();
+			int numRows = header.getInt();
+			int numCols = header.getInt();
+			int metaLength = header.getInt();
+			long triangleLength = header.getLong();
+			long offset = HEADER_SIZE;
+			
+			// Meta-data
+			
+			byte[] meta = new byte[metaLength];
+			map(channel, offset, metaLength, FileChannel.MapMode.READ_ONLY).get(meta);
+			offset = align(offset + metaLength);
+			
+			ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(meta));
+			ArrayList fields, types, maximums, minimums, rowLabels;
+			int[] kinds;
+			ArrayList[] dictionaries;
+			Object[] objectCols;
+			double[] sumOfVals, sumOfSquares, average, sigma;
+			String dataPath, indexPath;
+			
+			try
+			{
+				fields = (ArrayList)in.readObject();
+				types = (ArrayList)in.readObject();
+				maximums = (ArrayList)in.readObject();
+				minimums = (ArrayList)in.readObject();
+				kinds = (int[])in.readObject();
+				dictionaries = (ArrayList[])in.readObject();
+				objectCols = (Object[])in.readObject();
+				sumOfVals = (double[])in.readObject();
+				sumOfSquares = (double[])in.readObject();
+				average = (double[])in.readObject();
+				sigma = (double[])in.readObject();
+				rowLabels = (ArrayList)in.readObject();
+				dataPath = (String)in.readObject();
+				indexPath = (String)in.readObject();
+			}
+			catch (ClassNotFoundException e)
+			{
+				throw new IOException("Corrupt snapshot file: " + fileName);
+			}
+			
+			int[] IDs = new int[numRows];
+			readInts(channel, offset, IDs, numRows);
+			offset = align(offset + 4L * numRows);
+			
+			if ((flags & LOWER_TRIANGULAR) != 0)
+			{
+				dataItemColl.setLowerTriangular(true);
+				
+				for (int i = 0; i < numRows; i++)
+					dataItemColl.addItem(new DataItem(IDs[i]));
+				
+				if (triangleLength > MAX_ARRAY_LENGTH)
+				{
+					// Too many values for an array, so map the triangle
+					
+					MappedTriangle mapped = new MappedTriangle(triangleLength, false);
+					double[] slice = new double[SLICE];
+					
+					for (long j = 0; j < triangleLength; j += SLICE)
+					{
+						int len = (int)Math.min(SLICE, triangleLength - j);
+						map(channel, offset + 8L * j, 8L * len, FileChannel.MapMode.READ_ONLY).asDoubleBuffer().get(slice, 0, len);
+						
+						for (int k = 0; k < len; k++)
+							mapped.set(j + k, slice[k]);
+					}
+					dataItemColl.setLowerTriangleData(mapped);
+				}
+				else
+				{
+					double[] triangle = new double[(int)triangleLength];
+					readDoubles(channel, offset, triangle, triangle.length);
+					dataItemColl.setLowerTriangleData(triangle);
+				}
+				dataItemColl.getDataItems().trimToSize();
+			}
+			else
+			{
+				// Columns
+				
+				int capacity = Math.max(numRows, 1);
+				int words = (capacity + 63) >> 6;
+				Object[] columns = new Object[numCols];
+				long[][] nullBits = new long[numCols][];
+				
+				for (int i = 0; i < numCols; i++)
+				{
+					nullBits[i] = new long[words];
+					readLongs(channel, offset, nullBits[i], words);
+					offset += 8L * words;
+					
+					switch (kinds[i])
+					{
+						case DataItemCollection.DOUBLE:
+							double[] d = new double[capacity];
+							readDoubles(channel, offset, d, numRows);
+							offset += 8L * numRows;
+							columns[i] = d;
+							break;
+						case DataItemCollection.INTEGER:
+						case DataItemCollection.STRING:
+							int[] n = new int[capacity];
+							readInts(channel, offset, n, numRows);
+							offset += 4L * numRows;
+							columns[i] = n;
+							break;
+						case DataItemCollection.DATE:
+							long[] l = new long[capacity];
+							readLongs(channel, offset, l, numRows);
+							offset += 8L * numRows;
+							columns[i] = l;
+							break;
+						default:
+							Object[] o = new Object[capacity];
+							System.arraycopy((Object[])objectCols[i], 0, o, 0, numRows);
+							columns[i] = o;
+					}
+					offset = align(offset);
+				}
+				
+				dataItemColl.setFields(fields);
+				dataItemColl.setTypes(types);
+				dataItemColl.setMaxima(maximums);
+				dataItemColl.setMinima(minimums);
+				dataItemColl.setColumnStore(new ColumnStore(kinds, columns, nullBits, dictionaries, numRows), IDs);
+				
+				// The averages and sigmas aren't saved for normalised data
+				
+				dataItemColl.intiNormalArrays(sumOfVals, sumOfSquares);
+				
+				if (average != null)
+				{
+					dataItemColl.setSumOfVals(sumOfVals);
+					dataItemColl.setSumOfSquares(sumOfSquares);
+					dataItemColl.setAverage(average);
+					dataItemColl.setSigma(sigma);
+				}
+				else
+					dataItemColl.setNormalizeData(sumOfVals, sumOfSquares);
+			}
+			
+			dataItemColl.setRowLabels(rowLabels);
+			dataItemColl.setIndexPath(indexPath);
+			dataItemColl.setDataPath(dataPath);
+			dataItemColl.setBinary((flags & BINARY) != 0);
+			dataItemColl.setSequenceData((flags & SEQUENCE) != 0);
+			dataItemColl.setTransposed((flags & TRANSPOSED) != 0);
+			
+			if ((flags & LOWER_TRIANGULAR) == 0)
+				dataItemColl.setVariableFrequencies();
+		}
+		finally
+		{
+			file.close();
+		}
+	}
+	
+	/**
+	* Save a collection as a snapshot file. If the collection has been
+	* normalised to [0, 1], the data are saved as they were before normalising.
+	*
+	* @param dataItems The collection to be saved
+	* @param fileName The name of the snapshot file
+	*/
+	
+	public static void save(DataItemCollection dataItems, String fileName) throws IOException
+	{
+		if ((dataItems.getSize() > 0) && dataItems.getDataItem(0).isText())
+			throw new IOException("Text corpora cannot be saved as snapshots");
+		
+		boolean bTriangle = dataItems.getLowerTriangular();
+		ColumnStore store = dataItems.getOriginalColumnStore();
+		int numRows = dataItems.getSize();
+		int numCols = bTriangle ? 0 : store.getNumColumns();
+		int[] kinds = new int[numCols];
+		ArrayList[] dictionaries = new ArrayList[numCols];
+		Object[] objectCols = new Object[numCols];
+		int i;
+		
+		for (i = 0; i < numCols; i++)
+		{
+			kinds[i] = store.getKind(i);
+			
+			if (kinds[i] == DataItemCollection.STRING)
+				dictionaries[i] = new ArrayList(store.getDictionary(i));
+			else if (kinds[i] == ColumnStore.OBJECT)
+			{
+				Object[] o = new Object[numRows];
+				System.arraycopy(store.getObjectColumn(i), 0, o, 0, numRows);
+				objectCols[i] = o;
+			}
+		}
+		
+		long triangleLength = bTriangle ? DistanceMatrix.getPackedLength(numRows) : 0;
+		
+		// Meta-data
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(new ArrayList(dataItems.getFields()));
+		out.writeObject(new ArrayList(dataItems.getOriginalTypes()));
+		out.writeObject(new ArrayList(dataItems.getOriginalMaximums()));
+		out.writeObject(new ArrayList(dataItems.getOriginalMinimums()));
+		out.writeObject(kinds);
+		out.writeObject(dictionaries);
+		out.writeObject(objectCols);
+		out.writeObject(dataItems.getSumOfVals());
+		out.writeObject(dataItems.getSumOfSquares());
+		out.writeObject(dataItems.getNormalised() ? null : dataItems.average());
+		out.writeObject(dataItems.getNormalised() ? null : dataItems.sigma());
+		out.writeObject(dataItems.getRowLabels());
+		out.writeObject(dataItems.getDataPath());
+		out.writeObject(dataItems.getIndexPath());
+		out.close();
+		byte[] meta = bytes.toByteArray();
+		
+		int flags = 0;
+		if (bTriangle)
+			flags |= LOWER_TRIANGULAR;
+		if (dataItems.getBinary())
+			flags |= BINARY;
+		if (dataItems.isSequenceData())
+			flags |= SEQUENCE;
+		if (dataItems.getTransposed())
+			flags |= TRANSPOSED;
+		
+		int[] IDs = new int[numRows];
+		for (i = 0; i < numRows; i++)
+			IDs[i] = dataItems.getDataItem(i).getID();
+		
+		File f = new File(fileName);
+		f.delete();
+		RandomAccessFile file = new RandomAccessFile(f, "rw");
+		FileChannel channel = file.getChannel();
+		
+		try
+		{
+			ByteBuffer header = map(channel, 0, HEADER_SIZE, FileChannel.MapMode.READ_WRITE);
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			header.putInt(flags);
+			header.putInt(numRows);
+			header.putInt(numCols);
+			header.putInt(meta.length);
+			header.putLong(triangleLength);
+			
+			long offset = HEADER_SIZE;
+			map(channel, offset, meta.length, FileChannel.MapMode.READ_WRITE).put(meta);
+			offset = align(offset + meta.length);
+			
+			writeInts(channel, offset, IDs, numRows);
+			offset = align(offset + 4L * numRows);
+			
+			if (bTriangle)
+			{
+				// Copy a slice at a time so that a mapped triangle isn't
+				// brought onto the heap as a whole
+				
+				double[] slice = new double[(int)Math.min(SLICE, triangleLength)];
+				
+				for (long j = 0; j < triangleLength; j += SLICE)
+				{
+					int len = (int)Math.min(SLICE, triangleLength - j);
+					dataItems.getLowerTriangleData(j, slice, len);
+					map(channel, offset + 8L * j, 8L * len, FileChannel.MapMode.READ_WRITE).asDoubleBuffer().put(slice, 0, len);
+				}
+			}
+			else
+			{
+				int words = (Math.max(numRows, 1) + 63) >> 6;
+				
+				for (i = 0; i < numCols; i++)
+				{
+					writeLongs(channel, offset, store.getNullBits(i), words);
+					offset += 8L * words;
+					
+					switch (kinds[i])
+					{
+						case DataItemCollection.DOUBLE:
+							if (store.isFloatColumn(i))
+								writeDoubles(channel, offset, toDoubles(store.getFloatColumn(i), numRows), numRows);
+							else
+								writeDoubles(channel, offset, store.getDoubleColumn(i), numRows);
+							offset += 8L * numRows;
+							break;
+						case DataItemCollection.INTEGER:
+						case DataItemCollection.STRING:
+							writeInts(channel, offset, store.getIntColumn(i), numRows);
+							offset += 4L * numRows;
+							break;
+						case DataItemCollection.DATE:
+							writeLongs(channel, offset, store.getDateColumn(i), numRows);
+							offset += 8L * numRows;
+							break;
+						default:
+					}
+					offset = align(offset);
+				}
+			}
+		}
+		finally
+		{
+			file.close();
+		}
+	}
+	
+	/**
+	* Round an offset up to the next eight byte boundary
+	*/
+	
+	private static long align(long offset)
+	{
+		return (offset + 7) & ~7L;
+	}
+	
+	private static ByteBuffer map(FileChannel channel, long offset, long length, FileChannel.MapMode mode) throws IOException
+	{
+		ByteBuffer buffer = channel.map(mode, offset, length);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+	
+	/**
+	* The following copy the first n values of an array from or to the file,
+	* mapping at most SLICE values at a time
+	*/
+	
+	private static void readDoubles(FileChannel channel, long offset, double[] a, int n) throws IOException
+	{
+		for (int i = 0; i < n; i += SLICE)
+		{
+			int len = Math.min(SLICE, n - i);
+			map(channel, offset + 8L * i, 8L * len, FileChannel.MapMode.READ_ONLY).asDoubleBuffer().get(a, i, len);
+		}
+	}
+	
+	private static void readInts(FileChannel channel, long offset, int[] a, int n) throws IOException
+	{
+		for (int i = 0; i < n; i += SLICE)
+		{
+			int len = Math.min(SLICE, n - i);
+			map(channel, offset + 4L * i, 4L * len, FileChannel.MapMode.READ_ONLY).asIntBuffer().get(a, i, len);
+		}
+	}
+	
+	private static void readLongs(FileChannel channel, long offset, long[] a, int n) throws IOException
+	{
+		for (int i = 0; i < n; i += SLICE)
+		{
+			int len = Math.min(SLICE, n - i);
+			map(channel, offset + 8L * i, 8L * len, FileChannel.MapMode.READ_ONLY).asLongBuffer().get(a, i, len);
+		}
+	}
+	
+	private static void writeDoubles(FileChannel channel, long offset, double[] a, int n) throws IOException
+	{
+		for (int i = 0; i < n; i += SLICE)
+		{
+			int len = Math.min(SLICE, n - i);
+			map(channel, offset + 8L * i, 8L * len, FileChannel.MapMode.READ_WRITE).asDoubleBuffer().put(a, i, len);
+		}
+	}
+	
+	/**
+	* Widen a single precision column so that snapshots are always written
+	* in double precision
+	*/
+	
+	private static double[] toDoubles(float[] a, int n)
+	{
+		double[] d = new double[n];
+		
+		for (int i = 0; i < n; i++)
+			d[i] = a[i];
+		
+		return d;
+	}
+	
+	private static void writeInts(FileChannel channel, long offset, int[] a, int n) throws IOException
+	{
+		for (int i = 0; i < n; i += SLICE)
+		{
+			int len = Math.min(SLICE, n - i);
+			map(channel, offset + 4L * i, 4L * len, FileChannel.MapMode.READ_WRITE).asIntBuffer().put(a, i, len);
+		}
+	}
+	
+	private static void writeLongs(FileChannel channel, long offset, long[] a, int n) throws IOException
+	{
+		for (int i = 0; i < n; i += SLICE)
+		{
+			int len = Math.min(SLICE, n - i);
+			map(channel, offset + 8L * i, 8L * len, FileChannel.MapMode.READ_WRITE).asLongBuffer().put(a, i, len);
+		}
+	}
+	
+	/**
+	 * Snapshots hold whole columns rather than lines of text, so there is
+	 * nothing to parse
+	 */
+	public DataItem parseDataItem(String line, DataItemCollection parentCollection, int ID) throws ParseException
+	{
+		return null;
+	}
+	
+	/**
+	 * Returns a DataItemCollection object containing the data in the
+	 * snapshot file
+	 * @return The DataItemCollection containing all the data.
+	 */
+	public DataItemCollection getDataItemCollection()
+	{
+		return dataItemColl;
+	}
+	
+	/**
+	 * gets the field names in the snapshot
+	 * @return The field names in the snapshot
+	 */
+	public ArrayList getFields()
+	{
+		return dataItemColl.getFields();
+	}
+	
+	/**
+	 * Gets the types that correspond to the field names,
+	 * @return The types of each field name in the snapshot
+	 */
+	public ArrayList getTypes()
+	{
+		return dataItemColl.getTypes();
+	}
+}
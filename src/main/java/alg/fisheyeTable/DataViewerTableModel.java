@@ -54,6 +54,7 @@ package alg.fisheyeTable;
 import data.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 
 public class DataViewerTableModel extends javax.swing.table.AbstractTableModel implements java.io.Serializable
@@ -120,15 +121,15 @@ public class DataViewerTableModel extends javax.swing.table.AbstractTableModel i
 				{
 					dTemp = (DataItem)column_array[j];
 					
-					if (dTemp.getTextValues() == null)
+					if (!dTemp.isText())
 					{
-						values[j][i] = dTemp.getValues()[i];
-						origValues[j][i] = dTemp.getValues()[i];
+						values[j][i] = dTemp.getValue(i);
+						origValues[j][i] = dTemp.getValue(i);
 					}
 					else
 					{
-						values[j][i] = new Double(dTemp.getTextValues()[i]);
-						origValues[j][i] = new Double(dTemp.getTextValues()[i]);
+						values[j][i] = new Double(dTemp.getTextValue(i));
+						origValues[j][i] = new Double(dTemp.getTextValue(i));
 					}
 				}
 				else // Add the index column
@@ -253,11 +254,59 @@ public class DataViewerTableModel extends javax.swing.table.AbstractTableModel i
 		try
 		{
 			resetValuesArray();
-			QuickSort(values, 0, rows-1, column, dataType, sortDirection);
+			
+			// String attributes held as dictionary codes are sorted on the rank
+			// of each code rather than by comparing the strings
+			
+			int[] ranks = null;
+			if ((dataType == DataItemCollection.STRING) && (column < (columns-1)))
+				ranks = dataItems.getStringRanks(column);
+			
+			if (ranks != null)
+				sortByRank(column, ranks, sortDirection);
+			else
+				QuickSort(values, 0, rows-1, column, dataType, sortDirection);
 		}
 		catch (Exception e) {e.printStackTrace();}
 	}
 	
+	/**
+	*Sort the table by a dictionary encoded string column. Each row is given
+	*a key made of the rank of its string and its original position, so a
+	*single sort of primitives puts the rows in order. Missing values come first
+	*@param column the column number
+	*@param ranks the rank of each dictionary code of the column
+	*/
+	
+	private void sortByRank(int column, int[] ranks, int sortDirection)
+	{
+		long[] keys = new long[rows];
+		long rank;
+		int code;
+		int j;
+		
+		// After resetValuesArray() row j holds the values of the j'th item
+		
+		for (j = 0; j < rows; j++)
+		{
+			code = dataItems.getStringCode(j, column);
+			rank = (code < 0) ? -1 : ranks[code];
+			
+			if (sortDirection == SORT_DESCENDING)
+				rank = ranks.length - rank;
+			
+			keys[j] = ((rank + 1) << 32) | j;
+		}
+		
+		Arrays.sort(keys);
+		
+		Object[][] sorted = new Object[rows][];
+		for (j = 0; j < rows; j++)
+			sorted[j] = values[(int)(keys[j] & 0xFFFFFFFFL)];
+		
+		System.arraycopy(sorted, 0, values, 0, rows);
+	}
+	
 	/**
 	*Quicksort routine to sort the table.
 	*@param a the values in the table
@@ -72,10 +72,7 @@ import javax.swing.Box.Filler;
 import java.util.Collection;
 import java.util.Set;
 import java.util.HashSet;
-import java.util.List;
-import java.util.LinkedList;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
 import java.text.SimpleDateFormat;
 import javax.swing.JTextField;
@@ -95,17 +92,25 @@ public class DoubleSliderPanel extends JPanel
     protected MiniHistogram      hist;
     protected DoubleSlider       slider;
     
-    protected List               sortedIndices;
-    protected List               allIndices;
+    protected SortedIndex        sortedIndex;
     
     protected SelectionHandler   selectionHandler;
     protected Set                theSelection;
     protected Set                deselected;
     
-    // The collection of selected ordinal indices matching theSelection
+    // The collection of selected ordinal indices matching theSelection.
+    // Built on request
     
     private ArrayList selectionData;
     
+    // The slice of the sorted index that was selected by the last drag of
+    // the slider, so that the next drag need only visit the rows that enter
+    // or leave it. sliceFirst is -1 while the selection doesn't follow from
+    // the slider and has to be rebuilt
+    
+    private int sliceFirst = -1;
+    private int sliceLast = -1;
+    
     // The previous slider values
     
     protected double             oldMin, oldMax;
@@ -320,8 +325,7 @@ public class DoubleSliderPanel extends JPanel
 		    slider = null;
 		    sliderAndLabels = null;
 		    labels = null;
-		    sortedIndices = null;
-		    allIndices = null;
+		    sortedIndex = null;
 		    
 		    int col = dataItems.getFields().indexOf(cmbDimension.getSelectedItem());
 		    int selIndex = cmbDimension.getSelectedIndex();
@@ -346,161 +350,94 @@ public class DoubleSliderPanel extends JPanel
     }
     
     /**
-     * initialises the data structures used to optimise the selection controls
-     * Creates an array of indices ordered in ascending order by their contents
+     * initialises the data structures used to optimise the selection controls.
+     * The rows of the column in ascending order of value are held by the
+     * collection, so only its index is fetched here
      */
      
     protected void initData()
     {
-	sortedIndices = new ArrayList();
-	allIndices    = new LinkedList();
-	
-	for ( int i = 0 ; i < dataItems.getSize() ; i++ ) 
-	{
-	    // If this is not a null value add this to the sorted indices
-	    
-	    if ( dataItems.getColumn(column).get(i) != null ) 
-	    {
-		sortedIndices.add(new Integer(i));
-		allIndices.add(new Integer(i));
-	    }
-	}
-	
-	Collections.sort(sortedIndices, new IndicesComparator(dataItems.getColumn(column)));
-	   
+	sortedIndex = dataItems.getSortedIndex(column);
 	deselected = new HashSet();
+	sliceFirst = -1;
     }
     
     /**
-     * Called whenever a double ended slider is dragged
+     * Called whenever a double ended slider is dragged. The items within the
+     * selected range are a contiguous slice of the sorted index, found by two
+     * binary searches; those either side of it are deselected. Only the rows
+     * that have entered or left the slice since the last drag are visited.
      */
      
     public void adjustmentValueChanged (DoubleSlider ds)
     {
-	ArrayList col = dataItems.getColumn(column);
-	
-	// Reset the selection status
-	
-	deselected = new HashSet();
-	theSelection = new HashSet();
-	
-	// Used for storing index in sorted index that was reached
-	
-	int min = 0 , max = 0;
+	int n = sortedIndex.size();
+	int first = sortedIndex.lowerBound(ds.getSelectedMinimum());
+	int last = sortedIndex.upperBound(ds.getSelectedMaximum()) - 1;
 	
-	// Remove point deselected to left of min
-	
-	for ( int i = 0 ; i < sortedIndices.size() &&
-		  ds.getSelectedMinimum() >  getColSortedIndex(col, i) ; i++) 
+	if (n > 0)
 	{
-	    deselected.add(sortedIndices.get(i));
-	    min = i;
+	    ds.setHilitedMinimum(sortedIndex.getValue(Math.min(first, n - 1)));
+	    ds.setHilitedMaximum(sortedIndex.getValue(Math.max(last, 0)));
 	}
 	
-	// Remove points selected to the right of min
+	// Start from every item selected if the selection has been changed
+	// elsewhere. Items without a value are never deselected
 	
-	for ( int i = sortedIndices.size() - 1 ; i >= 0 &&
-		  ds.getSelectedMaximum() < getColSortedIndex(col, i) ; i-- ) 
-	{ 
-	    deselected.add(sortedIndices.get(i));
-	    max = i;
-	}
+	if (sliceFirst < 0)
+	{
+	    deselected = new HashSet();
+	    theSelection = new HashSet();
 	    
-	min++;
-	max--;
-	
-	if ( ds.getSelectedMinimum() ==  getColSortedIndex(col, 0) )
-	    min = 0;
-	
-	if ( ds.getSelectedMaximum() ==
-	                   getColSortedIndex(col, sortedIndices.size()-1) )
-	    max = sortedIndices.size() - 1;
-	
-	ds.setHilitedMinimum(getColSortedIndex(col, min));
-	ds.setHilitedMaximum(getColSortedIndex(col, max));
+	    for (int i = 0; i < dataItems.getSize(); i++)
+		theSelection.add(new Integer(dataItems.getDataItem(i).getID()));
+	    
+	    sliceFirst = 0;
+	    sliceLast = n - 1;
+	}
 	
-	for (int i = 0 ; i < dataItems.getSize() ; i++) 
-		theSelection.add(new Integer(i));
+	// Deselect the rows that have left the slice and select those that
+	// have entered it
 	
-	selectionData = new ArrayList(theSelection);
-	selectionData.removeAll(deselected);
+	setSliceSelected(sliceFirst, Math.min(sliceLast, first - 1), false);
+	setSliceSelected(Math.max(sliceFirst, last + 1), sliceLast, false);
+	setSliceSelected(first, Math.min(last, sliceFirst - 1), true);
+	setSliceSelected(Math.max(first, sliceLast + 1), last, true);
 	
-	conditionDeselection();
-	conditionSelection();
+	sliceFirst = first;
+	sliceLast = last;
+	selectionData = null;
 	
-	theSelection.removeAll(deselected);
 	selectionHandler.updateSelection();
 	visMod.sendSelection();
 	
 	enableDisableExportButon();
     }
     
-	private void conditionSelection()
-	{
-		try
-		{
-			Object[] indices = theSelection.toArray();
-			int index;
-			int key;
-			DataItem item;
-			HashSet newCol = new HashSet();
-			
-			for (int i = 0; i < indices.length; i++)
-			{
-				index = ((Integer)indices[i]).intValue();
-				item = (DataItem)dataItems.getDataItem(index);
-				key = item.getID();
-				newCol.add(new Integer(key));
-			}
-			
-			theSelection = newCol;
-		}
-		catch (Exception e){}
-	}
-	
-	private void conditionDeselection()
-	{
-		try
-		{
-			Object[] indices = deselected.toArray();
-			int index;
-			int key;
-			DataItem item;
-			HashSet newCol = new HashSet();
-			
-			for (int i = 0; i < indices.length; i++)
-			{
-				index = ((Integer)indices[i]).intValue();
-				item = (DataItem)dataItems.getDataItem(index);
-				key = item.getID();
-				newCol.add(new Integer(key));
-			}
-			
-			deselected = newCol;
-		}
-		catch (Exception e){}
-	}
-    
     /**
-     * Returns the value stored at the sorted index position i. Always returns
-     * the result as a double so that it can be compared with a double slider
+     * Select or deselect the rows at positions from to to (inclusive) of the
+     * sorted index
      */
-     
-    protected double getColSortedIndex(ArrayList col, int i)
+    
+    private void setSliceSelected(int from, int to, boolean bSelected)
     {
-	Object o = col.get(((Integer)sortedIndices.get(i)).intValue());
-	
-	if ( o instanceof Integer )
-	{ 
-	    return (double)((Integer)o).intValue();
-	}
+	Integer key;
 	
-	else if ( o instanceof Date ) 
+	for (int i = from; i <= to; i++)
 	{
-	    return (double)((Date)o).getTime();
+	    key = new Integer(dataItems.getDataItem(sortedIndex.getRow(i)).getID());
+	    
+	    if (bSelected)
+	    {
+		deselected.remove(key);
+		theSelection.add(key);
+	    }
+	    else
+	    {
+		theSelection.remove(key);
+		deselected.add(key);
+	    }
 	}
-	else 
-	    return ((Double)o).doubleValue();
     }
     
     // Selectable interface methods
@@ -526,12 +463,22 @@ public class DoubleSliderPanel extends JPanel
     
     public ArrayList getSelectionData()
     {
+	if (selectionData == null)
+	{
+	    selectionData = new ArrayList();
+	    
+	    for (int i = 0; i < dataItems.getSize(); i++)
+		if (theSelection.contains(new Integer(dataItems.getDataItem(i).getID())))
+		    selectionData.add(new Integer(i));
+	}
 	return selectionData;
     }
     
     public void setSelection(Collection selection)
     {
 	theSelection = 	(HashSet)selection;
+	selectionData = null;
+	sliceFirst = -1;
 	selectionHandler.updateSelection();
 	enableDisableExportButon();
     }
@@ -563,9 +510,11 @@ public class DoubleSliderPanel extends JPanel
 	{
 		key = dataItems.getDataItem(i).getID();
 		theSelection.add(new Integer(key));
-		selectionData.add(new Integer(i));
 	}
 	
+	selectionData = null;
+	sliceFirst = -1;
+	
 	reset();
 	repaint();
 	enableDisableExportButon();
@@ -53,6 +53,7 @@
 package alg.histogram;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Comparator;
 
 public class IndicesComparator implements Comparator, java.io.Serializable
@@ -61,7 +62,7 @@ public class IndicesComparator implements Comparator, java.io.Serializable
     
     static final long serialVersionUID = 50L;
     
-    private ArrayList values;
+    private List values;
     
     /**
      * constructor:
@@ -72,7 +73,7 @@ public class IndicesComparator implements Comparator, java.io.Serializable
      * @param values
      */
      
-    public IndicesComparator( ArrayList values)
+    public IndicesComparator( List values)
     {
 	this.values = values;
     }
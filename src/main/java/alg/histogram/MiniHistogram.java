@@ -76,7 +76,7 @@ public class MiniHistogram extends JPanel implements SelectionChangedListener
     
     static final long serialVersionUID = 50L;
     
-    protected ArrayList data;
+    protected List data;
     protected ArrayList bins;
     protected ArrayList binStates;
     protected ArrayList binContentsCache;
@@ -112,7 +112,7 @@ public class MiniHistogram extends JPanel implements SelectionChangedListener
      * @param max maximum value, same type as min
      */
      
-    public MiniHistogram(ArrayList data, Object min, Object max, DoubleSliderPanel sliderPanel, DataItemCollection dataItems)
+    public MiniHistogram(List data, Object min, Object max, DoubleSliderPanel sliderPanel, DataItemCollection dataItems)
     {
 	this(data, min, max, HORIZONTAL, sliderPanel, dataItems);
     }
@@ -128,7 +128,7 @@ public class MiniHistogram extends JPanel implements SelectionChangedListener
      * @param orientation The orientation of the histogram
      */
      
-    public MiniHistogram(ArrayList data,
+    public MiniHistogram(List data,
 			 Object min, Object max,
 			 int orientation, DoubleSliderPanel sliderPanel, DataItemCollection dataItems)
     {
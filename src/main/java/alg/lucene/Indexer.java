@@ -3,10 +3,15 @@ package alg.lucene;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class Indexer 
 {
@@ -25,18 +30,55 @@ public class Indexer
 		}
 	}
 	
+	/**
+	* Index the .txt files beneath dataDir into indexDir. The files are
+	* split into contiguous runs of about the same total size, and each run
+	* is read, analysed and indexed into its own in-memory segment on a
+	* separate thread. The segments are then merged into the index in the
+	* order of the runs, so documents are numbered in the order that the
+	* directory tree is walked, as they were when indexing one file at a time.
+	*/
+	
 	public static void index(File indexDir, File dataDir) throws IOException
 	{
 		if (!dataDir.exists() || !dataDir.isDirectory())
 		{
 		    throw new IOException(dataDir + " does not exist or is not a directory");
 		}
+		
+		ArrayList files = new ArrayList();
+		collectFiles(dataDir, files);
+		
+		int numSegments = Math.max(1, Math.min(files.size(), ForkJoinPool.commonPool().getParallelism()));
+		SegmentTask[] tasks = new SegmentTask[numSegments];
+		int[] bounds = splitFiles(files, numSegments);
+		
+		for (int i = 0; i < numSegments; i++)
+			tasks[i] = new SegmentTask(files, bounds[i], bounds[i + 1]);
+		
+		ForkJoinPool.commonPool().invoke(new SegmentsTask(tasks));
+		
+		Directory[] segments = new Directory[numSegments];
+		
+		for (int i = 0; i < numSegments; i++)
+		{
+			if (tasks[i].error != null)
+				throw tasks[i].error;
+			
+			segments[i] = tasks[i].directory;
+		}
+		
 		IndexWriter writer = new IndexWriter(indexDir, new StemAnalyzer(), true);
-		indexDirectory(writer, dataDir);
+		writer.addIndexes(segments);
 		writer.close();
 	}
 	
-	private static void indexDirectory(IndexWriter writer, File dir) throws IOException
+	/**
+	* Add the .txt files beneath dir to the list, in the order that the
+	* tree is walked
+	*/
+	
+	private static void collectFiles(File dir, ArrayList list)
 	{
 		File[] files = dir.listFiles();
 		
@@ -45,21 +87,119 @@ public class Indexer
 			File f = files[i];
 			if (f.isDirectory())
 			{
-				indexDirectory(writer, f);  // recurse
+				collectFiles(f, list);  // recurse
 			} 
 			else if (f.getName().endsWith(".txt"))
 			{
-				indexFile(writer, f);
+				list.add(f);
 			}
 		}
 	}
 	
+	/**
+	* Return the boundaries of numSegments contiguous runs of files whose
+	* total sizes are about the same
+	*/
+	
+	private static int[] splitFiles(ArrayList files, int numSegments)
+	{
+		int[] bounds = new int[numSegments + 1];
+		long total = 0, sum = 0;
+		int i, s;
+		
+		for (i = 0; i < files.size(); i++)
+			total += ((File)files.get(i)).length();
+		
+		for (i = 0, s = 1; (i < files.size()) && (s < numSegments); i++)
+		{
+			sum += ((File)files.get(i)).length();
+			
+			if (sum >= (total * s) / numSegments)
+				bounds[s++] = i + 1;
+		}
+		
+		while (s <= numSegments)
+			bounds[s++] = files.size();
+		
+		return bounds;
+	}
+	
 	private static void indexFile(IndexWriter writer, File f) throws IOException
 	{
-		Document doc = new Document();
-		doc.add(Field.Text("contents", new FileReader(f)));
-		doc.add(Field.UnIndexed("filename", f.getCanonicalPath()));
-		writer.addDocument(doc);
+		FileReader reader = new FileReader(f);
+		
+		try
+		{
+			Document doc = new Document();
+			doc.add(Field.Text("contents", reader));
+			doc.add(Field.UnIndexed("filename", f.getCanonicalPath()));
+			writer.addDocument(doc);
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+	
+	/**
+	* Fork/join task that indexes a run of files into an in-memory segment,
+	* with its own writer and analyser
+	*/
+	
+	private static class SegmentTask extends RecursiveAction
+	{
+		static final long serialVersionUID = 50L;
+		
+		private ArrayList files;
+		private int first;
+		private int last;
+		
+		RAMDirectory directory = new RAMDirectory();
+		IOException error = null;
+		
+		public SegmentTask(ArrayList files, int first, int last)
+		{
+			this.files = files;
+			this.first = first;
+			this.last = last;
+		}
+		
+		protected void compute()
+		{
+			try
+			{
+				IndexWriter writer = new IndexWriter(directory, new StemAnalyzer(), true);
+				
+				for (int i = first; i < last; i++)
+					indexFile(writer, (File)files.get(i));
+				
+				writer.close();
+			}
+			catch (IOException e)
+			{
+				error = e;
+			}
+		}
+	}
+	
+	/**
+	* Fork/join task that runs the segment tasks together
+	*/
+	
+	private static class SegmentsTask extends RecursiveAction
+	{
+		static final long serialVersionUID = 50L;
+		
+		private SegmentTask[] tasks;
+		
+		public SegmentsTask(SegmentTask[] tasks)
+		{
+			this.tasks = tasks;
+		}
+		
+		protected void compute()
+		{
+			invokeAll(tasks);
+		}
 	}
 }
-
@@ -10,10 +10,12 @@ package alg.parCoords;
 
 import data.DataItemCollection;
 import data.DataItem;
+import data.SortedIndex;
 import parent_gui.*;
 import alg.ParallelCoords;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Collection;
 import java.util.Set;
 import java.util.HashSet;
@@ -309,11 +311,11 @@ public class ParCoordsDrawer extends JPanel implements Selectable, SelectionChan
 
 	for (int i =0; i<types.size(); i++)
 	    if (((Boolean)numericDims.get(i)).booleanValue())
-		drawValues.add(processDimension((ArrayList)dataItems.getColumn(i), ((Integer)types.get(i)).intValue(), maxVals.get(i), minVals.get(i)));
+		drawValues.add(processDimension(dataItems.getColumn(i), ((Integer)types.get(i)).intValue(), maxVals.get(i), minVals.get(i)));
 	
     }
     
-    private ArrayList processDimension(ArrayList values, int type, Object max, Object min){
+    private ArrayList processDimension(List values, int type, Object max, Object min){
 	// get values 0..1 on each dimension for drawing lines
 	// keep this process separate from drawing, so won't have to recompute this at repaint
 
@@ -410,44 +412,56 @@ public class ParCoordsDrawer extends JPanel implements Selectable, SelectionChan
     }
 
     private Collection getDeselectedObjs(int type, int dim, Object top,Object bottom){
-	Collection c = new ArrayList();
-	fullSet = new HashSet();
 	HashSet deselected = new HashSet();
+	double dtop, dbottom;
 
 	switch(type){
 	case DataItemCollection.DOUBLE:
-	    double dtop = ((Double)top).doubleValue();
-	    double dbottom = ((Double)bottom).doubleValue();
-	    double dthisVal; 
-	    for (int i=0; i< numObjs; i++){
-		dthisVal = ((Double)((DataItem)dataItems.getDataItem(i)).getValue(dim)).doubleValue(); 
-		if (dthisVal>=dbottom && dthisVal<=dtop)
-		    c.add(new Integer(((DataItem)dataItems.getDataItem(i)).getID()));
-		fullSet.add(new Integer(((DataItem)dataItems.getDataItem(i)).getID()));
-		deselected.add(new Integer(((DataItem)dataItems.getDataItem(i)).getID()));
-	    }
+	    dtop = ((Double)top).doubleValue();
+	    dbottom = ((Double)bottom).doubleValue();
 	    break;
 	case DataItemCollection.INTEGER:
-	    int itop = ((Integer)top).intValue();
-	    int ibottom = ((Integer)bottom).intValue();
-	    int ithisVal;
-	    for (int i=0; i< numObjs; i++){
-		ithisVal = ((Integer)((DataItem)dataItems.getDataItem(i)).getValue(dim)).intValue();
-		if (ithisVal>=ibottom && ithisVal<=itop)
-		    c.add(new Integer(((DataItem)dataItems.getDataItem(i)).getID()));
-		fullSet.add(new Integer(((DataItem)dataItems.getDataItem(i)).getID()));
-		deselected.add(new Integer(((DataItem)dataItems.getDataItem(i)).getID()));
-	    }
+	    dtop = (double)((Integer)top).intValue();
+	    dbottom = (double)((Integer)bottom).intValue();
 	    break;
 	default:
-	    break;
-	} 
-	deselected.removeAll(c);
+	    fullSet = new HashSet();
+	    return deselected;
+	}
+
+	// The IDs of all items only need to be found once
+
+	if ((fullSet == null) || (fullSet.size() != numObjs)){
+	    fullSet = new HashSet();
+	    for (int i=0; i< numObjs; i++)
+		fullSet.add(new Integer(((DataItem)dataItems.getDataItem(i)).getID()));
+	}
+
+	// The items within [bottom, top] are a slice of the column's sorted
+	// index, so only those either side of the slice are visited
+
+	SortedIndex index = dataItems.getSortedIndex(dim);
+	int first = index.lowerBound(dbottom);
+	int last = index.upperBound(dtop);
+
+	for (int i=0; i< first; i++)
+	    deselected.add(new Integer(((DataItem)dataItems.getDataItem(index.getRow(i))).getID()));
+	for (int i=last; i< index.size(); i++)
+	    deselected.add(new Integer(((DataItem)dataItems.getDataItem(index.getRow(i))).getID()));
+
+	// Items with a missing value can't fall within the range
+
+	if (index.size() < numObjs){
+	    boolean[] hasValue = new boolean[numObjs];
+	    index.markRows(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, hasValue);
+	    for (int i=0; i< numObjs; i++)
+		if (!hasValue[i])
+		    deselected.add(new Integer(((DataItem)dataItems.getDataItem(i)).getID()));
+	}
 	return deselected;
     }
     
 
-
     public void handleSelection(int dim, int bottom, int top)	{
 	altered.set(draggingAxis,new Boolean(true)); //draggingAxis rather than dim
 	int typeID  = ((Integer)dataItems.getTypes().get(dim)).intValue();
@@ -130,6 +130,11 @@ public class ScatterPanel extends JPanel implements Selectable,
 	
 	private ArrayList positions;
 	
+	// The same positions in primitive arrays, if the module that sends them
+	// provides a buffer
+	
+	private transient PositionBuffer positionBuffer = null;
+	
 	// The reference to the parent visual object
 	
 	private Scatterplot visMod;
@@ -470,6 +475,16 @@ public class ScatterPanel extends JPanel implements Selectable,
 		this.positions = positions;
 	}
 	
+	/**
+	* Read the positions from a buffer when painting, so that the points
+	* are not drawn part way through a layout update
+	*/
+	
+	public void setPositionBuffer(PositionBuffer positionBuffer)
+	{
+		this.positionBuffer = positionBuffer;
+	}
+	
 	/**
 	* Method that should be called whenever an screen update is required.
 	*/
@@ -912,12 +927,9 @@ public class ScatterPanel extends JPanel implements Selectable,
 		
 		if (bFreqSurface || bDensSurface)
 		{
-			if ((((DataItem)dataItems.getDataItem(0)).getTextValues() == null) && (!bColourToFreq) && (!bColourToNumVars))
+			if ((!((DataItem)dataItems.getDataItem(0)).isText()) && (!bColourToFreq) && (!bColourToNumVars))
 			{
-				max = convToDouble(dataItems.getMaximum(colorField));
-				min = convToDouble(dataItems.getMinimum(colorField));
-				val = convToDouble(dataItems.getDataItem(index).getValues()[colorField]);
-				i = (int)(((val-min)/(max-min))*(colorScheme.length-40)) + 20;
+				i = (int)(getColourFieldPosition(index)*(colorScheme.length-40)) + 20;
 				return colorScheme[255 - i];
 			}
 			else if (bColourToFreq)
@@ -933,12 +945,9 @@ public class ScatterPanel extends JPanel implements Selectable,
 		}
 		else
 		{
-			if ((((DataItem)dataItems.getDataItem(0)).getTextValues() == null) && (!bColourToFreq) && (!bColourToNumVars))
+			if ((!((DataItem)dataItems.getDataItem(0)).isText()) && (!bColourToFreq) && (!bColourToNumVars))
 			{
-				max = convToDouble(dataItems.getMaximum(colorField));
-				min = convToDouble(dataItems.getMinimum(colorField));
-				val = convToDouble(dataItems.getDataItem(index).getValues()[colorField]);
-				i = (int)(((val-min)/(max-min))*(colorScheme.length-40)) + 20;
+				i = (int)(getColourFieldPosition(index)*(colorScheme.length-40)) + 20;
 				return colorScheme[i];
 			}
 			else if (bColourToFreq)
@@ -962,6 +971,32 @@ public class ScatterPanel extends JPanel implements Selectable,
 		}
 	}
 	
+	/**
+	* Return the position of a dot's value of the colour field between the
+	* minimum and maximum of the field. String fields are placed by the
+	* alphabetical rank of their dictionary code.
+	*/
+	
+	private double getColourFieldPosition(int index)
+	{
+		int[] ranks = dataItems.getStringRanks(colorField);
+		
+		if (ranks != null)
+		{
+			int code = dataItems.getStringCode(index, colorField);
+			
+			if ((code < 0) || (ranks.length < 2))
+				return 0;
+			
+			return (double)ranks[code] / (double)(ranks.length - 1);
+		}
+		
+		double max = convToDouble(dataItems.getMaximum(colorField));
+		double min = convToDouble(dataItems.getMinimum(colorField));
+		double val = convToDouble(dataItems.getDataItem(index).getValue(colorField));
+		return (val-min)/(max-min);
+	}
+	
 	/**
 	* private method to convert an object which is known to be of type Integer
 	* Double or Date then into a double primitive
@@ -1069,7 +1104,7 @@ public class ScatterPanel extends JPanel implements Selectable,
 		{
 			ArrayList pos = new ArrayList();
 			theSelection.removeAll(getRectContents(rect, pos, false));
-			selectionData.removeAll(pos);
+			selectionData.removeAll(new HashSet(pos));
 			selected.updateSelection();
 			
 			enableDisableExportButon();
@@ -1466,7 +1501,7 @@ public class ScatterPanel extends JPanel implements Selectable,
 		
 		// Get the value in selectedCol of the data collection
 		
-		Object val = dataItems.getDataItem(((Integer)indices.get(0)).intValue() ).getValues()[selectedCol];
+		Object val = dataItems.getDataItem(((Integer)indices.get(0)).intValue() ).getValue(selectedCol);
 		
 		if ( val == null )
 			return "no data";
@@ -2248,34 +2283,63 @@ public class ScatterPanel extends JPanel implements Selectable,
 	{
 		int i;
 		double x, y;
-		Coordinate c;
 		int numItems = dataItems.getSize();
-		coords = new double[numItems][2];
+		
+		if ((coords == null) || (coords.length != numItems))
+			coords = new double[numItems][2];
 		
 		minX = Double.MAX_VALUE;
 		maxX = Double.MIN_VALUE;
 		minY = minX;
 		maxY = maxX;
 		
-		for (i = 0; i < numItems; i++)
+		PositionBuffer buffer = positionBuffer;
+		PositionBuffer.Snapshot snapshot = null;
+		if (buffer != null)
+			snapshot = buffer.acquire();
+		
+		try
+		{
+			if ((snapshot != null) && (snapshot.size() != numItems))
+			{
+				buffer.release(snapshot);
+				snapshot = null;
+			}
+			
+			for (i = 0; i < numItems; i++)
+			{
+				if (snapshot != null)
+				{
+					x = snapshot.getX(i);
+					y = snapshot.getY(i);
+				}
+				else
+				{
+					Coordinate c = ((Coordinate)positions.get(i));
+					x = c.getX();
+					y = c.getY();
+				}
+				
+				coords[i][0] = calcPosX(x);
+				coords[i][1] = calcPosY(y);
+				
+				// Get the min and max coordinate values.
+				// Use these to determine the extent of the rendering region.
+				
+				if (x < minX)
+					minX = x;
+				if (x > maxX)
+					maxX = x;
+				if (y < minY)
+					minY = y;
+				if (y > maxY)
+					maxY = y;
+			}
+		}
+		finally
 		{
-			c = ((Coordinate)positions.get(i));
-			x = calcPosX(c.getX());
-			y = calcPosY(c.getY());
-			coords[i][0] = x;
-			coords[i][1] = y;
-			
-			// Get the min and max coordinate values.
-			// Use these to determine the extent of the rendering region.
-			
-			if (c.getX() < minX)
-				minX = c.getX();
-			if (c.getX() > maxX)
-				maxX = c.getX();
-			if (c.getY() < minY)
-				minY = c.getY();
-			if (c.getY() > maxY)
-				maxY = c.getY();
+			if (snapshot != null)
+				buffer.release(snapshot);
 		}
 	}
 	
@@ -426,7 +426,7 @@ public class ScatterPanel extends JPanel implements Selectable,
 			
 		double min = convToDouble(dataItems.getMinimum(colorField));
 			
-		double val = convToDouble(dataItems.getDataItem(index).getValues()[colorField]);
+		double val = convToDouble(dataItems.getDataItem(index).getValue(colorField));
 			
 		int i = (int)(((val-min)/(max-min))*(colorScheme.length-40)) + 20;
 		if (doAnchors && anchorSet.contains(new Integer(index))){
@@ -848,7 +848,7 @@ public class ScatterPanel extends JPanel implements Selectable,
 		
 		// Get the value in selectedCol of the data collection
 		
-		Object val = dataItems.getDataItem(((Integer)indices.get(0)).intValue() ).getValues()[selectedCol];
+		Object val = dataItems.getDataItem(((Integer)indices.get(0)).intValue() ).getValue(selectedCol);
 		
 		if ( val == null )
 			return "no data";
@@ -14,6 +14,7 @@
 package alg.springModel;
 
 import alg.SpringModel;
+import parent_gui.GraphScheduler;
 //import source.alg.PivotSpringModel;
 
 import javax.swing.event.*;
@@ -76,11 +77,6 @@ public class SpringModelControlPanel extends JPanel implements ChangeListener,
     	private SpringModel springModel;
         //private PivotSpringModel pivotSpringModel;
 
-    	// The thread that controls the sizing and animation of
-	// the spring model module
-	
-    	private Thread thread;
-	
     	// Are we enlarging the module or shrinking it
 	
     	private static final int ENLARGE = 0;
@@ -122,8 +118,7 @@ public class SpringModelControlPanel extends JPanel implements ChangeListener,
 		
 		setVisible(false);
 		resizeMode = ENLARGE;
-		thread = new Thread(this);
-		thread.start();
+		GraphScheduler.getInstance().execute(this);
 		
 	    	this.setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
 		this.setBorder(new EmptyBorder(5,5,5,5));
@@ -678,7 +673,7 @@ public class SpringModelControlPanel extends JPanel implements ChangeListener,
 					
 				    // Delay to set the speed of animation
 				
-				    try {thread.sleep(1);}
+				    try {Thread.sleep(1);}
 				    catch(InterruptedException e){}
 				    
 				    pivotSpringModel.validate();
@@ -688,7 +683,7 @@ public class SpringModelControlPanel extends JPanel implements ChangeListener,
 					
 				    // Delay to set the speed of animation
 				
-				    try {thread.sleep(1);}
+				    try {Thread.sleep(1);}
 				    catch(InterruptedException e){}
 				    
 				    springModel.validate();
@@ -800,7 +795,7 @@ public class SpringModelControlPanel extends JPanel implements ChangeListener,
 				    
 				    // Delay to set the speed of animation
 				    
-				    try {thread.sleep(1);}
+				    try {Thread.sleep(1);}
 				    catch(InterruptedException e){}
 				    
 				    pivotSpringModel.validate();
@@ -810,7 +805,7 @@ public class SpringModelControlPanel extends JPanel implements ChangeListener,
 				    
 				    // Delay to set the speed of animation
 				    
-				    try {thread.sleep(1);}
+				    try {Thread.sleep(1);}
 				    catch(InterruptedException e){}
 				    
 				    springModel.validate();
@@ -837,9 +832,8 @@ public class SpringModelControlPanel extends JPanel implements ChangeListener,
 	
 	public void restore()
 	{
-		thread = new Thread(this);
 		resizeMode = SHRINK;
-		thread.start();
+		GraphScheduler.getInstance().execute(this);
 	}
 	
    	 public void run()
@@ -54,6 +54,7 @@
 package alg.springModel96;
 
 import alg.SpringModel96;
+import parent_gui.GraphScheduler;
 
 import javax.swing.event.*;
 import javax.swing.JPanel;
@@ -114,11 +115,6 @@ public class SpringModelControlPanel extends JPanel implements ChangeListener,
 	
     	private SpringModel96 springModel;
 	
-    	// The thread that controls the sizing and animation of
-	// the spring model module
-	
-    	private Thread thread;
-	
     	// Are we enlarging the module or shrinking it
 	
     	private static final int ENLARGE = 0;
@@ -147,8 +143,7 @@ public class SpringModelControlPanel extends JPanel implements ChangeListener,
 		setVisible(false);
 		resizeMode = ENLARGE;
 		this.springModel = springModel;
-		thread = new Thread(this);
-		thread.start();
+		GraphScheduler.getInstance().execute(this);
 		
 	    	this.setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
 		this.setBorder(new EmptyBorder(5,5,5,5));
@@ -585,7 +580,7 @@ public class SpringModelControlPanel extends JPanel implements ChangeListener,
 					
 				// Delay to set the speed of animation
 				
-				try {thread.sleep(1);}
+				try {Thread.sleep(1);}
 				catch(InterruptedException e){}
 				
 				springModel.validate();
@@ -676,7 +671,7 @@ public class SpringModelControlPanel extends JPanel implements ChangeListener,
 				
 				// Delay to set the speed of animation
 				
-				try {thread.sleep(1);}
+				try {Thread.sleep(1);}
 				catch(InterruptedException e){}
 				
 				springModel.validate();
@@ -693,9 +688,8 @@ public class SpringModelControlPanel extends JPanel implements ChangeListener,
 	
 	public void restore()
 	{
-		thread = new Thread(this);
 		resizeMode = SHRINK;
-		thread.start();
+		GraphScheduler.getInstance().execute(this);
 	}
 	
    	 public void run()
@@ -0,0 +1,260 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic test bed
+ * 
+ * TermPairs
+ * The number of documents in which each pair of terms occurs together,
+ * found from the postings list (the ascending document numbers) of each
+ * term rather than by testing every pair of terms against every document.
+ * For each term, the lower numbered terms that share a document with it
+ * are held with their counts, so only the pairs that actually co-occur
+ * take any memory. The terms are shared among fork/join tasks.
+ * 
+ * @author Greg Ross
+ */
+
+package alg.textLoader;
+
+import data.SparseVector;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+class TermPairs
+{
+	// The number of terms counted by each fork/join task
+	
+	private final static int TERMS_PER_TASK = 64;
+	
+	private SparseVector[] patterns;
+	private int numTerms;
+	
+	// The documents that contain each term, in ascending order
+	
+	private int[][] postings;
+	
+	// For each term, the lower numbered terms that occur with it in at
+	// least one document, in ascending order, and the number of such documents
+	
+	private int[][] coTerms;
+	private int[][] coCounts;
+	
+	/**
+	* Count the co-occurrences of the terms of a term-document matrix
+	*
+	* @param patterns One sparse term vector per document
+	* @param numTerms The number of terms
+	*/
+	
+	TermPairs(SparseVector[] patterns, int numTerms)
+	{
+		this.patterns = patterns;
+		this.numTerms = numTerms;
+		
+		buildPostings();
+		
+		coTerms = new int[numTerms][];
+		coCounts = new int[numTerms][];
+		ForkJoinPool.commonPool().invoke(new CountTask(0, numTerms));
+	}
+	
+	/**
+	* Invert the term-document matrix into a postings list per term
+	*/
+	
+	private void buildPostings()
+	{
+		int[] counts = new int[numTerms];
+		int[] terms;
+		int doc, i;
+		
+		for (doc = 0; doc < patterns.length; doc++)
+		{
+			terms = patterns[doc].getTerms();
+			
+			for (i = 0; i < terms.length; i++)
+				counts[terms[i]]++;
+		}
+		
+		postings = new int[numTerms][];
+		
+		for (i = 0; i < numTerms; i++)
+		{
+			postings[i] = new int[counts[i]];
+			counts[i] = 0;
+		}
+		
+		for (doc = 0; doc < patterns.length; doc++)
+		{
+			terms = patterns[doc].getTerms();
+			
+			for (i = 0; i < terms.length; i++)
+				postings[terms[i]][counts[terms[i]]++] = doc;
+		}
+	}
+	
+	/**
+	* Return the number of documents that contain both terms. Only pairs in
+	* which term1 is the lower numbered term are held, so 0 is returned if
+	* term1 >= term2.
+	*/
+	
+	int get(int term1, int term2)
+	{
+		if (term1 >= term2)
+			return 0;
+		
+		int pos = Arrays.binarySearch(coTerms[term2], term1);
+		return (pos >= 0) ? coCounts[term2][pos] : 0;
+	}
+	
+	/**
+	* Return the number of documents that contain both terms, in either order,
+	* by intersecting their postings lists
+	*/
+	
+	int intersect(int term1, int term2)
+	{
+		int[] docs1 = postings[term1];
+		int[] docs2 = postings[term2];
+		int i = 0, j = 0, count = 0;
+		
+		while ((i < docs1.length) && (j < docs2.length))
+		{
+			if (docs1[i] < docs2[j])
+				i++;
+			else if (docs1[i] > docs2[j])
+				j++;
+			else
+			{
+				count++;
+				i++;
+				j++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	* Return the lower numbered terms that occur with the given term, in
+	* ascending order
+	*/
+	
+	int[] getCoTerms(int term)
+	{
+		return coTerms[term];
+	}
+	
+	/**
+	* Return the number of documents shared with each of getCoTerms(term)
+	*/
+	
+	int[] getCoCounts(int term)
+	{
+		return coCounts[term];
+	}
+	
+	/**
+	* Fork/join task that counts the co-occurrences of a range of terms. For
+	* each term, the documents in its postings list are visited and the
+	* lower numbered terms of each are counted.
+	*/
+	
+	private class CountTask extends RecursiveAction
+	{
+		static final long serialVersionUID = 50L;
+		
+		private int first;
+		private int last;
+		
+		public CountTask(int first, int last)
+		{
+			this.first = first;
+			this.last = last;
+		}
+		
+		protected void compute()
+		{
+			if ((last - first) > TERMS_PER_TASK)
+			{
+				int mid = (first + last) >>> 1;
+				invokeAll(new CountTask(first, mid), new CountTask(mid, last));
+				return;
+			}
+			
+			int[] counts = new int[numTerms];
+			int[] touched = new int[numTerms];
+			int numTouched, i, k;
+			int[] terms;
+			
+			for (int term = first; term < last; term++)
+			{
+				numTouched = 0;
+				
+				for (k = 0; k < postings[term].length; k++)
+				{
+					// The terms of a document are in ascending order
+					
+					terms = patterns[postings[term][k]].getTerms();
+					
+					for (i = 0; (i < terms.length) && (terms[i] < term); i++)
+					{
+						if (counts[terms[i]]++ == 0)
+							touched[numTouched++] = terms[i];
+					}
+				}
+				
+				Arrays.sort(touched, 0, numTouched);
+				coTerms[term] = new int[numTouched];
+				coCounts[term] = new int[numTouched];
+				
+				for (i = 0; i < numTouched; i++)
+				{
+					coTerms[term][i] = touched[i];
+					coCounts[term][i] = counts[touched[i]];
+					counts[touched[i]] = 0;
+				}
+			}
+		}
+	}
+}
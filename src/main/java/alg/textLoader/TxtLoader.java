@@ -62,10 +62,11 @@ import java.util.Properties;
 import java.io.RandomAccessFile;
 import java.io.IOException;
 import java.io.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.index.*;
-import org.apache.lucene.search.DefaultSimilarity;
 
 public class TxtLoader
 {
@@ -85,15 +86,19 @@ public class TxtLoader
     private int numTerms = 0; // The total number of dimension terms
     private int numCrossTerms = 0; // The number of terms used to indicate context
     
+    // The number of documents conditioned by each fork/join task
+    
+    private final static int DOCS_PER_TASK = 32;
+    
     HashMap filePaths;
     
-    // The number of documents that conatain both terms 1 and 2 (termPairs[term1][term2])
+    // The number of documents that conatain both terms 1 and 2 (termPairs.get(term1, term2))
     
-    double[][] termPairs;
+    TermPairs termPairs;
     
     // The number of documents that contain a given term
     
-    HashMap docFreqs;
+    int[] docFreqs;
     
     /**
      * Constructor for TxtLoader, takes a csv filename as param
@@ -115,9 +120,9 @@ public class TxtLoader
      */
 	public void readData() throws java.io.FileNotFoundException, java.io.IOException
 	{
-		// Get the term-document matrix[docs][terms]
+		// Get the term-document matrix, one sparse term vector per document
 		
-		double matrix[][] = termDocumentMatrix(fileName);
+		SparseVector[] matrix = termDocumentMatrix(fileName);
 		int i = 0;
 		int j = 0;
 		
@@ -153,21 +158,23 @@ public class TxtLoader
 		
 		for (i = 0; i < numDocs; i++)
 		{
-			double[] values = new double[numTerms];
+			// Only the non-zero weights of the document are visited
+			
+			int[] terms = matrix[i].getTerms();
+			float[] values = matrix[i].getWeights();
 			double dblVal = 0d;
 			int sum = 0;
 			double length = 0d;
 			
-			for (j = 0; j < numTerms; j++)
+			for (j = 0; j < terms.length; j++)
 			{
-				dblVal = matrix[i][j];
-				values[j] = dblVal;
+				dblVal = values[j];
 				
 				if (dblVal > 0.0)
 					sum += 1;
 				
-				sumOfVals[j] += dblVal;
-				sumOfSquares[j] += (dblVal * dblVal);
+				sumOfVals[terms[j]] += dblVal;
+				sumOfSquares[terms[j]] += (dblVal * dblVal);
 				length += (dblVal * dblVal);
 			}
 			
@@ -178,11 +185,11 @@ public class TxtLoader
 				// Normalise the vector of values to a unit vector (magnitude = 1)
 				
 				length = Math.sqrt(length);
-				for (j = 0; j < numTerms; j++)
-					values[j] = (values[j] / length);
+				for (j = 0; j < values.length; j++)
+					values[j] = (float)(values[j] / length);
 			}
 			
-			DataItem item = new DataItem(values, i);
+			DataItem item = new DataItem(matrix[i], i);
 			item.setPath((String)filePaths.get(new Integer(i)));
 			dataItemColl.addItem(item, true);
 		}
@@ -260,12 +267,13 @@ public class TxtLoader
 	}
     
     /**
-    * Create and return a term-document matrix
+    * Create and return a term-document matrix, as one sparse term vector
+    * per document
     */
     
-    private double[][] termDocumentMatrix(String sPath) throws java.io.FileNotFoundException, java.io.IOException
+    private SparseVector[] termDocumentMatrix(String sPath) throws java.io.FileNotFoundException, java.io.IOException
     {
-	    	double[][] patterns;
+	    	SparseVector[] patterns;
 	    	
 	    	// Get the index
 	    	
@@ -299,95 +307,74 @@ public class TxtLoader
 		
 		dataItemColl.setRowLabels(rowLabels);
 		
-		// Get enumeration of all the terms in the index
+		// Read the postings of every term once, noting the most frequent term.
+		// A term that falls below the threshold for significance relative to
+		// the most frequent term so far will stay below it, so its postings
+		// are dropped straight away.
 		
-		TermEnum terms;
+		TermEnum terms = reader.terms();
 		TermDocs docs;
-		terms = reader.terms();
-		
-		// Determine the most frequent terms
-		
-		HashMap b = new HashMap();
-		ArrayList crossTerms = new ArrayList();
-		int absFreq = 0;
+		ArrayList candidates = new ArrayList();
+		TermPostings postings;
 		int mostFrequent = 0;
+		
 		while (terms.next())
 		{
+			postings = new TermPostings(terms.term(), terms.docFreq());
 			docs = reader.termDocs(terms.term());
 			
-			absFreq = 0;
 			while (docs.next())
-			{
-				absFreq += docs.freq();
-			}
+				postings.add(docs.doc(), docs.freq());
 			
-			if (absFreq > mostFrequent)
-				mostFrequent = absFreq;
+			if (postings.absFreq > mostFrequent)
+				mostFrequent = postings.absFreq;
+			
+			if (postings.absFreq > (0.05 * mostFrequent))
+				candidates.add(postings);
 		}
 		
 		// Determine the statistically significant terms
 		
-		terms = reader.terms();
-		while (terms.next())
+		ArrayList selected = new ArrayList(candidates.size());
+		ArrayList crossTerms = new ArrayList();
+		
+		for (i = 0; i < candidates.size(); i++)
 		{
-			docs = reader.termDocs(terms.term());
-			absFreq = 0;
-			while (docs.next())
-			{
-				absFreq += docs.freq();
-			}
+			postings = (TermPostings)candidates.get(i);
 			
-			if ((absFreq > (0.05 * mostFrequent)) && (absFreq < (0.6 * mostFrequent)))
-			{
-				b.put(terms.term().text(), new Integer(1));
-				numTerms++;
-			}
-			else if ((absFreq >= (0.6 * mostFrequent)))
+			if (postings.absFreq > (0.05 * mostFrequent))
 			{
-				b.put(terms.term().text(), new Integer(1));
-				crossTerms.add(terms.term());
+				selected.add(postings);
 				numTerms++;
-				numCrossTerms++;
-			}
-			else
-			{
-				b.put(terms.term().text(), null);
+				
+				if (postings.absFreq >= (0.6 * mostFrequent))
+				{
+					crossTerms.add(postings.term);
+					numCrossTerms++;
+				}
 			}
 		}
+		candidates = null;
 		
-		// Build the term matrix
-		
-		terms = reader.terms();
-		int termCount = 0;
-		patterns = new double[numDocs][numTerms];
 		Term[] termList = new Term[numTerms];
+		TermPostings[] termPostings = new TermPostings[numTerms];
+		docFreqs = new int[numTerms];
 		
-		DefaultSimilarity ds = new DefaultSimilarity();
-		double tf = 0d;
-		double idf = 0d;
-		
-		while (terms.next())
+		for (i = 0; i < numTerms; i++)
 		{
-			if (b.get(terms.term().text()) != null)
-			{
-				docs = reader.termDocs(terms.term());
-				idf = ds.idf(terms.docFreq(), numDocs);
-				
-				fields.add(terms.term().text());
-				types.add(new Integer(DataItemCollection.DOUBLE));
-				
-				while (docs.next())
-				{
-					tf = docs.freq();
-					patterns[docs.doc()][termCount] = tf;
-				}
-				
-				termList[termCount] = terms.term();
-				termCount++;
-			}
+			termPostings[i] = (TermPostings)selected.get(i);
+			termList[i] = termPostings[i].term;
+			docFreqs[i] = termPostings[i].docFreq;
+			
+			fields.add(termList[i].text());
+			types.add(new Integer(DataItemCollection.DOUBLE));
 		}
+		selected = null;
 		
-		b = null;
+		// Build the term matrix
+		
+		patterns = buildMatrix(termPostings);
+		termPostings = null;
 		
 		/*for (i = 0; i < crossTerms.size(); i++)
 		{
@@ -407,9 +394,6 @@ public class TxtLoader
 			termCount++;
 		}*/
 		
-		docFreqs = new HashMap(numTerms);
-		getDocFreqs(reader, termList);
-		termPairs = new double[numTerms][numTerms];
 		getPairwiseDocsEntries(patterns);
 		
 		//buildAssociationMatrix(termList, reader, patterns);
@@ -418,52 +402,310 @@ public class TxtLoader
 		//return patterns; // Analyse with no conditional probabilities
    	}
 	
-	private double[][] conditionVectors(IndexReader reader, double[][] patterns, Term[] terms)
+	/**
+	* Build the term-document matrix, one sparse term vector per document,
+	* from the postings of the selected terms. The terms are split into
+	* contiguous ranges with about the same number of postings, one per
+	* thread. Each range first counts its entries per document, so that it
+	* knows where in each document's vector to write, then fills them in.
+	* The entries of each vector are therefore in ascending term order.
+	*/
+	
+	private SparseVector[] buildMatrix(TermPostings[] termPostings)
 	{
-		double[][] newPatterns = new double[numDocs][numTerms];
-		double cond;
+		int numParts = Math.max(1, Math.min(numTerms, ForkJoinPool.commonPool().getParallelism()));
+		int[] bounds = new int[numParts + 1];
+		long total = 0, sum = 0;
+		int i, p, d;
+		
+		for (i = 0; i < numTerms; i++)
+			total += termPostings[i].count;
+		
+		for (i = 0, p = 1; (i < numTerms) && (p < numParts); i++)
+		{
+			sum += termPostings[i].count;
+			
+			if (sum >= (total * p) / numParts)
+				bounds[p++] = i + 1;
+		}
+		
+		while (p <= numParts)
+			bounds[p++] = numTerms;
+		
+		// Count the entries of each range, then turn the counts into the
+		// offset at which each range starts within each document's vector
+		
+		int[][] offsets = new int[numParts][numDocs];
+		ForkJoinPool.commonPool().invoke(new MatrixTask(termPostings, bounds, offsets, null, null, 0, numParts));
+		
+		int[][] docTerms = new int[numDocs][];
+		float[][] docWeights = new float[numDocs][];
+		int count, running;
+		
+		for (d = 0; d < numDocs; d++)
+		{
+			running = 0;
+			
+			for (p = 0; p < numParts; p++)
+			{
+				count = offsets[p][d];
+				offsets[p][d] = running;
+				running += count;
+			}
+			
+			docTerms[d] = new int[running];
+			docWeights[d] = new float[running];
+		}
+		
+		ForkJoinPool.commonPool().invoke(new MatrixTask(termPostings, bounds, offsets, docTerms, docWeights, 0, numParts));
+		
+		SparseVector[] patterns = new SparseVector[numDocs];
+		
+		for (d = 0; d < numDocs; d++)
+			patterns[d] = new SparseVector(docTerms[d], docWeights[d], numTerms);
+		
+		return patterns;
+	}
+	
+	/**
+	* Fork/join task that either counts or writes the matrix entries of a
+	* range of the term partitions. Entries are counted if docTerms is null.
+	*/
+	
+	private class MatrixTask extends RecursiveAction
+	{
+		static final long serialVersionUID = 50L;
 		
-		for (int n = 0; n < numDocs; n++)
+		private TermPostings[] termPostings;
+		private int[] bounds;
+		private int[][] offsets;
+		private int[][] docTerms;
+		private float[][] docWeights;
+		private int first;
+		private int last;
+		
+		public MatrixTask(TermPostings[] termPostings, int[] bounds, int[][] offsets, int[][] docTerms, float[][] docWeights, int first, int last)
 		{
-			for (int i = 0; i < numTerms; i++)
+			this.termPostings = termPostings;
+			this.bounds = bounds;
+			this.offsets = offsets;
+			this.docTerms = docTerms;
+			this.docWeights = docWeights;
+			this.first = first;
+			this.last = last;
+		}
+		
+		protected void compute()
+		{
+			if ((last - first) > 1)
+			{
+				int mid = (first + last) >>> 1;
+				invokeAll(new MatrixTask(termPostings, bounds, offsets, docTerms, docWeights, first, mid),
+					new MatrixTask(termPostings, bounds, offsets, docTerms, docWeights, mid, last));
+				return;
+			}
+			
+			int[] docOffsets = offsets[first];
+			TermPostings postings;
+			int d, pos;
+			
+			for (int t = bounds[first]; t < bounds[first + 1]; t++)
 			{
-				for (int j = 0; j < numTerms; j++)
+				postings = termPostings[t];
+				
+				for (int k = 0; k < postings.count; k++)
 				{
-					if ((i != j) && (patterns[n][j] > 0))
+					d = postings.docs[k];
+					
+					if (docTerms == null)
+						docOffsets[d]++;
+					else
 					{
-						cond = Math.pow(condProbability(i, j, reader, patterns, terms), 2d);
-						if (patterns[n][i] > 0)
-						{
-							newPatterns[n][i] += (cond * patterns[n][i]);
-						}
-						else
-							newPatterns[n][i] += (cond);
+						pos = docOffsets[d]++;
+						docTerms[d][pos] = t;
+						docWeights[d][pos] = (float)postings.freqs[k];
 					}
 				}
 			}
 		}
+	}
+	
+	/**
+	* The documents containing a term, with the frequency of the term in
+	* each, read from the index in a single pass
+	*/
+	
+	private static class TermPostings
+	{
+		Term term;
+		int docFreq;
+		int[] docs;
+		int[] freqs;
+		int count = 0;
 		
+		// The total number of occurrences of the term
+		
+		int absFreq = 0;
+		
+		TermPostings(Term term, int docFreq)
+		{
+			this.term = term;
+			this.docFreq = docFreq;
+			docs = new int[Math.max(docFreq, 1)];
+			freqs = new int[docs.length];
+		}
+		
+		void add(int doc, int freq)
+		{
+			if (count == docs.length)
+			{
+				int[] newDocs = new int[count * 2];
+				int[] newFreqs = new int[count * 2];
+				System.arraycopy(docs, 0, newDocs, 0, count);
+				System.arraycopy(freqs, 0, newFreqs, 0, count);
+				docs = newDocs;
+				freqs = newFreqs;
+			}
+			
+			docs[count] = doc;
+			freqs[count] = freq;
+			count++;
+			absFreq += freq;
+		}
+	}
+	
+	/**
+	* Weight every term of each document by its conditional probability given
+	* the terms that the document contains. Only the terms present in a document
+	* and the terms that co-occur with them are visited for the inner sum. The
+	* documents are shared among fork/join tasks.
+	*/
+	
+	private SparseVector[] conditionVectors(IndexReader reader, SparseVector[] patterns, Term[] terms)
+	{
+		SparseVector[] newPatterns = new SparseVector[numDocs];
+		ForkJoinPool.commonPool().invoke(new ConditionTask(patterns, newPatterns, 0, numDocs));
 		return newPatterns;
 	}
 	
+	/**
+	* Condition the vectors of a range of documents
+	*/
+	
+	private void conditionVectors(SparseVector[] patterns, SparseVector[] newPatterns, int first, int last)
+	{
+		double[] newValues = new double[numTerms];
+		double[] weights = new double[numTerms];
+		double cond;
+		double weight;
+		int[] docTerms;
+		float[] docWeights;
+		int[] coTerms;
+		int[] coCounts;
+		int i, j, k, m;
+		
+		for (int n = first; n < last; n++)
+		{
+			docTerms = patterns[n].getTerms();
+			docWeights = patterns[n].getWeights();
+			Arrays.fill(newValues, 0);
+			
+			for (k = 0; k < docTerms.length; k++)
+				weights[docTerms[k]] = docWeights[k];
+			
+			// Term i gains from each term j of the document that it occurs
+			// with. Only pairs with i < j are counted, and the terms j are
+			// taken in ascending order so the sums are formed in the same
+			// order as when every term i was tested against every term j.
+			
+			for (k = 0; k < docTerms.length; k++)
+			{
+				j = docTerms[k];
+				coTerms = termPairs.getCoTerms(j);
+				coCounts = termPairs.getCoCounts(j);
+				
+				for (m = 0; m < coTerms.length; m++)
+				{
+					i = coTerms[m];
+					cond = Math.pow(countProbability(coCounts[m], j), 2d);
+					weight = weights[i];
+					
+					if (weight > 0)
+						newValues[i] += (cond * weight);
+					else
+						newValues[i] += (cond);
+				}
+			}
+			
+			for (k = 0; k < docTerms.length; k++)
+				weights[docTerms[k]] = 0;
+			
+			newPatterns[n] = SparseVector.fromDense(newValues);
+		}
+	}
+	
+	/**
+	* Fork/join task that conditions the vectors of a range of documents
+	*/
+	
+	private class ConditionTask extends RecursiveAction
+	{
+		static final long serialVersionUID = 50L;
+		
+		private SparseVector[] patterns;
+		private SparseVector[] newPatterns;
+		private int first;
+		private int last;
+		
+		public ConditionTask(SparseVector[] patterns, SparseVector[] newPatterns, int first, int last)
+		{
+			this.patterns = patterns;
+			this.newPatterns = newPatterns;
+			this.first = first;
+			this.last = last;
+		}
+		
+		protected void compute()
+		{
+			if ((last - first) > DOCS_PER_TASK)
+			{
+				int mid = (first + last) >>> 1;
+				invokeAll(new ConditionTask(patterns, newPatterns, first, mid),
+					new ConditionTask(patterns, newPatterns, mid, last));
+				return;
+			}
+			
+			conditionVectors(patterns, newPatterns, first, last);
+		}
+	}
+	
 	/**
 	* Given two terms return the conditional probability of term 1 occurring given term 2
 	*/
 	
-	private double condProbability(int term1, int term2, IndexReader reader, double[][] patterns, Term[] terms)
+	private double condProbability(int term1, int term2)
+	{
+		return countProbability(termPairs.get(term1, term2), term2);
+	}
+	
+	/**
+	* As above, given the number of documents that contain both terms
+	*/
+	
+	private double countProbability(int pairCount, int term2)
 	{
 		double p_t2 = 0;
 		double p_t2_and_t1 = 0;
 		double p_t1_given_t2 = 0;
 		
-		p_t2 = ((Integer)docFreqs.get(terms[term2])).intValue()  / ((double)numDocs);
-		p_t2_and_t1 = termPairs[term1][term2] / ((double)numDocs);
+		p_t2 = docFreqs[term2] / ((double)numDocs);
+		p_t2_and_t1 = pairCount / ((double)numDocs);
 		p_t1_given_t2 = p_t2_and_t1 / p_t2;
 		
 		return p_t1_given_t2;
 	}
 	
-	private void buildAssociationMatrix(Term[] terms, IndexReader reader, double[][] patterns)
+	private void buildAssociationMatrix(Term[] terms, IndexReader reader, SparseVector[] patterns)
 	{
 		int i, j;
 		double[][] prob = new double[numTerms - numCrossTerms][numTerms];
@@ -475,7 +717,7 @@ public class TxtLoader
 		{
 			for (j = (i + 1); j < numTerms; j++)
 			{
-				prob[i][j] = condProbability(i, j, reader, patterns, terms);
+				prob[i][j] = condProbability(i, j);
 				
 				// Store reference to terms with high conditional probability
 				
@@ -503,11 +745,11 @@ public class TxtLoader
 					
 					dProb = ((Double)coProp.get(j / 2)).doubleValue();
 					
-					if ((patterns[i][ind] > 0) && (patterns[i][ind] < (dProb * 100)))
-						patterns[i][ind] = dProb * 100;
+					if ((patterns[i].get(ind) > 0) && (patterns[i].get(ind) < (dProb * 100)))
+						patterns[i].setExisting(ind, dProb * 100);
 					
-					if ((patterns[i][ind2] > 0) && (patterns[i][ind2] < (dProb * 100)))
-						patterns[i][ind2] = dProb * 100;
+					if ((patterns[i].get(ind2) > 0) && (patterns[i].get(ind2) < (dProb * 100)))
+						patterns[i].setExisting(ind2, dProb * 100);
 				}
 			}
 		
@@ -548,50 +790,20 @@ public class TxtLoader
 	* Return the number of documents that contain both terms A and B
 	*/
 	
-	private int docFreq(int term1, int term2, double[][] patterns)
+	private int docFreq(int term1, int term2)
 	{
-		int sharedCount = 0;
-		
-		for (int i = 0; i < numDocs; i++)
-		{
-			if ((patterns[i][term1] > 0) && (patterns[i][term2] > 0))
-				sharedCount++;
-		}
-		
-		return sharedCount;
+		return termPairs.intersect(term1, term2);
 	}
 	
 	/**
-	* Calculate and return a square array where the rows and cols are for term indices
-	* and the value in each cell represents the number of docs that contain terms
-	* indicated by the row and column
+	* Count the number of documents that contain each pair of terms. Rather than
+	* testing every pair against every document, the documents containing each
+	* term are visited and the other terms in them counted.
 	*/
 	
-	private void getPairwiseDocsEntries(double[][] patterns)
+	private void getPairwiseDocsEntries(SparseVector[] patterns)
 	{
-		for (int i = 0; i < numTerms; i++)
-		{
-			for (int j = i + 1; j < numTerms; j++)
-			{
-				termPairs[i][j] = docFreq(i, j, patterns);
-			}
-		}
-	}
-	
-	/**
-	* Load a HasMap with the document frequencies for individual terms
-	*/
-	
-	private void getDocFreqs(IndexReader reader, Term[] terms)
-	{
-		try
-		{
-			for (int i = 0; i < numTerms; i++)
-			{
-				docFreqs.put(terms[i], new Integer(reader.docFreq(terms[i])));
-			}
-		}
-		catch (java.io.IOException e){}
+		termPairs = new TermPairs(patterns, numTerms);
 	}
 	
 	/**
@@ -14,6 +14,7 @@ import parent_gui.*;
 import alg.TimeSeries;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Collection;
 import java.util.Set;
 import java.util.HashSet;
@@ -62,7 +63,6 @@ public class TimeSeriesDrawer extends JPanel implements Selectable, SelectionCha
 
     private ArrowXs arrowPosns;
 
-    private HashSet fullSet;
     //    private ArrayList altered;
 
     private ArrayList yAxis;
@@ -678,12 +678,12 @@ public class TimeSeriesDrawer extends JPanel implements Selectable, SelectionCha
 	for (int i =0; i<types.size(); i++){
 	    nullValues.add(new ArrayList());
 	    if (((Boolean)numericDims.get(i)).booleanValue()){ 
-		processedValues.add(processDimension(i,(ArrayList)dataItems.getColumn(i), ((Integer)types.get(i)).intValue(), new Double(overallMax), new Double(overallMin))); }
+		processedValues.add(processDimension(i,dataItems.getColumn(i), ((Integer)types.get(i)).intValue(), new Double(overallMax), new Double(overallMin))); }
 	}
 	    
     }
     
-    private ArrayList processDimension(int dimNum, ArrayList values, int type, Object max, Object min){
+    private ArrayList processDimension(int dimNum, List values, int type, Object max, Object min){
 	// get values 0..1 on each dimension for drawing lines
 	// keep this process separate from drawing, so won't have to recompute this at repaint
 
@@ -984,13 +984,9 @@ public class TimeSeriesDrawer extends JPanel implements Selectable, SelectionCha
 	int leftVal = (left-axisHeight-borderSpace)/spacing;
 	int rightVal = (right-axisHeight-borderSpace)/spacing;
 
-	theSelection = new HashSet();
-	ArrayList desels = new ArrayList();
-	selectedAL = new ArrayList();
-	
-	fullSet = new HashSet();
-		
 	int leftMarker, rightMarker;
+	DataItemCollection items;
+	int n;
 	if (miConnected){
 	    if (miDisjoint){
 		
@@ -1012,43 +1008,34 @@ public class TimeSeriesDrawer extends JPanel implements Selectable, SelectionCha
 		if (rightMarker<leftMarker) rightMarker = leftMarker;
 	    }
 	    miSelected=new ArrayList();
-	    for (int i=0; i< leftMarker; i++){
-		//miSelected.add(new Boolean(false));
-		desels.add(new Integer(((DataItem)miDataItems.getDataItem(i)).getID()));
-		fullSet.add(new Integer(((DataItem)miDataItems.getDataItem(i)).getID()));
-	    }
-	    
-	    for (int i=leftMarker; i<rightMarker; i++){
-		//		    miSelected.add(new Boolean(true));
-		fullSet.add(new Integer(((DataItem)miDataItems.getDataItem(i)).getID()));
-		selectedAL.add(new Integer(((DataItem)miDataItems.getDataItem(i)).getID()));
-	    }
-	    for (int i=rightMarker; i< miObjs; i++){
-		//		    miSelected.add(new Boolean(false));		
-		desels.add(new Integer(((DataItem)miDataItems.getDataItem(i)).getID()));
-		fullSet.add(new Integer(((DataItem)miDataItems.getDataItem(i)).getID()));
-	    }
+	    items = miDataItems;
+	    n = miObjs;
 	}else{
 	    leftMarker = leftVal*stepSize;
 	    rightMarker = rightVal*stepSize;
-	
-	    for (int i=0; i< leftMarker; i++){
-		desels.add(new Integer(((DataItem)dataItems.getDataItem(i)).getID()));
-		fullSet.add(new Integer(((DataItem)dataItems.getDataItem(i)).getID()));
-	    }
-	    for (int i=leftMarker; i<rightMarker; i++){
-		fullSet.add(new Integer(((DataItem)dataItems.getDataItem(i)).getID()));
-		selectedAL.add(new Integer(((DataItem)dataItems.getDataItem(i)).getID()));
-	    }
-	    for (int i=rightMarker; i< numObjs; i++){
-		desels.add(new Integer(((DataItem)dataItems.getDataItem(i)).getID()));
-		fullSet.add(new Integer(((DataItem)dataItems.getDataItem(i)).getID()));
-	    }
-	}   
-	deselect = new HashSet(desels);
-	
-	theSelection.addAll(fullSet);//add everything
-	theSelection.removeAll(deselect);
+	    items = dataItems;
+	    n = numObjs;
+	}
+
+	// The selection is the contiguous run of items between the markers,
+	// so each item is visited once and its ID boxed once
+
+	leftMarker = Math.max(0, Math.min(leftMarker, n));
+	rightMarker = Math.max(leftMarker, Math.min(rightMarker, n));
+
+	theSelection = new HashSet();
+	selectedAL = new ArrayList(rightMarker - leftMarker);
+	deselect = new HashSet();
+	Integer key;
+
+	for (int i=0; i< n; i++){
+	    key = new Integer(((DataItem)items.getDataItem(i)).getID());
+	    if ((i >= leftMarker) && (i < rightMarker)){
+		theSelection.add(key);
+		selectedAL.add(key);
+	    }else
+		deselect.add(key);
+	}
 	
 	selected.updateSelection();
 
@@ -2534,11 +2534,11 @@ public class VoronoiPane extends JPanel implements Selectable,
 		if (dataItems.getLowerTriangular())
 			return Color.yellow;
 		
-		if (((DataItem)dataItems.getDataItem(0)).getTextValues() == null)
+		if (!((DataItem)dataItems.getDataItem(0)).isText())
 		{
 			double max = convToDouble(dataItems.getMaximum(colorField));
 			double min = convToDouble(dataItems.getMinimum(colorField));
-			double val = convToDouble(dataItems.getDataItem(index).getValues()[colorField]);
+			double val = convToDouble(dataItems.getDataItem(index).getValue(colorField));
 			int i = (int)(((val-min)/(max-min))*(colorScheme.length-40)) + 20;
 			return colorScheme[i];
 		}
@@ -0,0 +1,119 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic test bed
+ *
+ * BatchRunner
+ *
+ * Runs workflow files from the command line without opening any windows.
+ * The workflows are independent, so several are run at once:
+ *
+ *	java batch.BatchRunner [-threads n] workflow...
+ *
+ * @author Greg Ross
+ */
+
+package batch;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+
+public class BatchRunner
+{
+	public static void main(String[] args) throws InterruptedException
+	{
+		System.setProperty("java.awt.headless", "true");
+		
+		int threads = Runtime.getRuntime().availableProcessors();
+		ArrayList workflows = new ArrayList();
+		
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("-threads") && (i + 1 < args.length))
+				threads = Integer.parseInt(args[++i]);
+			else
+				workflows.add(new File(args[i]));
+		}
+		
+		if (workflows.size() == 0)
+		{
+			System.out.println("Usage: java batch.BatchRunner [-threads n] workflow...");
+			System.exit(2);
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, workflows.size())));
+		ArrayList results = new ArrayList();
+		
+		for (int i = 0; i < workflows.size(); i++)
+		{
+			final File file = (File)workflows.get(i);
+			results.add(executor.submit(new Callable()
+			{
+				public Object call() throws Exception
+				{
+					return new Workflow(file).run();
+				}
+			}));
+		}
+		
+		executor.shutdown();
+		
+		// Report in the order given, whatever order they finish in
+		
+		int failed = 0;
+		for (int i = 0; i < results.size(); i++)
+		{
+			String name = ((File)workflows.get(i)).getPath();
+			try
+			{
+				System.out.println(name + ": " + ((Future)results.get(i)).get());
+			}
+			catch (ExecutionException e)
+			{
+				failed++;
+				System.out.println(name + ": failed: " + e.getCause());
+			}
+		}
+		
+		System.exit((failed == 0) ? 0 : 1);
+	}
+}
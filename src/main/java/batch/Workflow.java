@@ -0,0 +1,499 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic test bed
+ *
+ * Workflow
+ *
+ * A graph of modules to be run without the user interface, described in a
+ * properties file. The graph is either one saved from HIVE:
+ *
+ *	graph = iris.atb
+ *
+ * or is built from the classes of its modules and the links between their
+ * ports, in the same way as when they are dragged onto the canvas:
+ *
+ *	modules = data, spring, stress
+ *	data.class = alg.DataSource
+ *	spring.class = alg.SpringModel
+ *	stress.class = alg.Stress
+ *	links = data.o0 > spring.i0, spring.o0 > stress.i0, spring.o1 > stress.i1
+ *
+ * A module is named by its key in a saved graph. The file of a DataSource
+ * is given by <name>.file, and is normalised if <name>.normalise is true.
+ *
+ * The graph is then run as the Multiple Runs module would run it. Its
+ * parameter and start trigger ports are linked to the given in-ports, the
+ * parameters are sent, followed by "first" and "startNextMod", and the run
+ * is complete when a "startNextMod" or "restart" trigger arrives from one
+ * of the done ports:
+ *
+ *	parameters = spring.i2
+ *	parameters.SpringModel = 0, 300, 0, 0, 0
+ *	start = spring.i4
+ *	done = stress.o0
+ *	runs = 1
+ *	timeout = 600
+ *
+ * The parameters of a module are a comma separated list, as in the command
+ * line of Multiple Runs. The layout and metrics sent from the given out-ports
+ * are written to files once the runs are complete:
+ *
+ *	positions = spring.o0
+ *	positions.file = iris_positions.csv
+ *	metrics = stress.o2
+ *	metrics.file = iris_metrics.txt
+ *
+ * Relative paths are resolved against the directory of the workflow file.
+ * The timeout is in seconds. Files that the modules write themselves, such
+ * as Stress.dat, are written to the working directory as in HIVE.
+ *
+ * @author Greg Ross
+ */
+
+package batch;
+
+import alg.DataSource;
+import alg.fileloader.CSVLoader;
+import alg.fileloader.DataLoader;
+import alg.fileloader.SnapshotLoader;
+import data.*;
+import parent_gui.*;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.StringTokenizer;
+
+public class Workflow
+{
+	private File file;
+	private Properties prop = new Properties();
+	
+	// The modules of the graph, keyed by name
+	
+	private HashMap modules;
+	
+	// The module that sends the parameters and triggers
+	
+	private WorkflowDriver driver;
+	
+	public Workflow(File file) throws IOException
+	{
+		this.file = file;
+		
+		InputStream input = new FileInputStream(file);
+		try
+		{
+			prop.load(input);
+		}
+		finally
+		{
+			input.close();
+		}
+	}
+	
+	/**
+	* Run the graph, returning a one line summary of the result
+	*/
+	
+	public String run() throws Exception
+	{
+		long start = System.currentTimeMillis();
+		
+		if (prop.getProperty("graph") != null)
+			loadGraph(getFile("graph", true));
+		else
+			buildGraph();
+		
+		if (prop.getProperty("start") == null)
+			throw new IllegalArgumentException("No start port given");
+		
+		if (prop.getProperty("done") == null)
+			throw new IllegalArgumentException("No done port given");
+		
+		driver = new WorkflowDriver();
+		linkDriver("parameters", driver.getOutPort(0), true);
+		linkDriver("start", driver.getOutPort(1), true);
+		linkDriver("done", driver.getInPort(0), false);
+		linkDriver("positions", driver.getInPort(1), false);
+		linkDriver("metrics", driver.getInPort(2), false);
+		
+		HashMap sources = loadSources();
+		ArrayList parameters = getParameters();
+		int runs = Math.max(1, getInt("runs", 1));
+		long timeout = getInt("timeout", 0) * 1000L;
+		ArrayList metrics = new ArrayList();
+		
+		try
+		{
+			for (int run = 0; run < runs; run++)
+			{
+				if (parameters.size() > 0)
+					driver.sendParameters(parameters);
+				
+				// Each run starts from the data, as in Multiple Runs
+				
+				sendSources(sources);
+				
+				if (!driver.startRun(run == 0, timeout))
+					throw new IllegalStateException("Run " + (run + 1) + " did not complete within " + 
+						getInt("timeout", 0) + " s");
+				
+				metrics.add(driver.getMetrics());
+			}
+			
+			if (prop.getProperty("positions") != null)
+				writePositions(getFile("positions.file", true));
+			
+			if (prop.getProperty("metrics") != null)
+				writeMetrics(getFile("metrics.file", true), metrics);
+		}
+		finally
+		{
+			// Remove the data, which stops the modules downstream as if
+			// the sources had been deleted
+			
+			Iterator iter = sources.keySet().iterator();
+			while (iter.hasNext())
+				((DataSource)iter.next()).getOutPort(0).sendData(null);
+		}
+		
+		StringBuffer summary = new StringBuffer();
+		summary.append("runs=" + runs + ", ");
+		
+		ArrayList last = (ArrayList)metrics.get(metrics.size() - 1);
+		if (last.size() > 0)
+			summary.append("metrics=" + last + ", ");
+		
+		return summary.toString() + (System.currentTimeMillis() - start) + " ms";
+	}
+	
+	/**
+	* Read a graph saved from HIVE. The links between the ports of its
+	* modules are restored as the modules are read.
+	*/
+	
+	private void loadGraph(File graph) throws IOException, ClassNotFoundException
+	{
+		ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(graph)));
+		
+		try
+		{
+			modules = ((SerialClass)in.readObject()).getModules();
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+	
+	/**
+	* Create the modules named in the workflow and link their ports
+	*/
+	
+	private void buildGraph() throws Exception
+	{
+		String names = prop.getProperty("modules");
+		if (names == null)
+			throw new IllegalArgumentException("No graph or modules given");
+		
+		modules = new HashMap();
+		
+		StringTokenizer tokens = new StringTokenizer(names, ",");
+		while (tokens.hasMoreTokens())
+		{
+			String name = tokens.nextToken().trim();
+			String className = prop.getProperty(name + ".class");
+			
+			if (className == null)
+				throw new IllegalArgumentException("No " + name + ".class given");
+			
+			// Modules are created as the toolbar creates them
+			
+			Class c = Class.forName(className.trim());
+			VisualModule module = (VisualModule)c.getConstructor(new Class[]{Mdi.class, 
+				DrawingCanvas.class}).newInstance(new Object[]{null, null});
+			
+			module.setKey(name);
+			modules.put(name, module);
+		}
+		
+		String links = prop.getProperty("links");
+		if (links == null)
+			return;
+		
+		tokens = new StringTokenizer(links, ",");
+		while (tokens.hasMoreTokens())
+		{
+			String link = tokens.nextToken();
+			int arrow = link.indexOf('>');
+			
+			if (arrow < 0)
+				throw new IllegalArgumentException("Link " + link.trim() + " has no '>'");
+			
+			addLink(getPort(link.substring(0, arrow)), getPort(link.substring(arrow + 1)));
+		}
+	}
+	
+	/**
+	* Link the driver's port to each of the ports listed under the key. The
+	* driver's out-ports feed the listed in-ports, and its in-ports are fed
+	* by the listed out-ports.
+	*/
+	
+	private void linkDriver(String key, ModulePort driverPort, boolean bOut)
+	{
+		String ports = prop.getProperty(key);
+		if (ports == null)
+			return;
+		
+		StringTokenizer tokens = new StringTokenizer(ports, ",");
+		while (tokens.hasMoreTokens())
+		{
+			ModulePort port = getPort(tokens.nextToken());
+			
+			if (bOut)
+				addLink(driverPort, port);
+			else
+				addLink(port, driverPort);
+		}
+	}
+	
+	/**
+	* Link two ports as DrawingCanvas.addLink() does, each observing the other
+	*/
+	
+	private void addLink(ModulePort fromPort, ModulePort toPort)
+	{
+		fromPort.addObservablePort(toPort);
+		toPort.addObservablePort(fromPort);
+	}
+	
+	/**
+	* Return the port given as <module>.<port>, e.g. spring.i0
+	*/
+	
+	private ModulePort getPort(String ref)
+	{
+		ref = ref.trim();
+		int dot = ref.lastIndexOf('.');
+		
+		if (dot < 0)
+			throw new IllegalArgumentException("Port " + ref + " should be <module>.<port>");
+		
+		VisualModule module = (VisualModule)modules.get(ref.substring(0, dot));
+		if (module == null)
+			throw new IllegalArgumentException("Unknown module in " + ref);
+		
+		ModulePort port = (ModulePort)module.getPorts().get(ref.substring(dot + 1));
+		if (port == null)
+			throw new IllegalArgumentException("Unknown port " + ref);
+		
+		return port;
+	}
+	
+	/**
+	* Read the file of each DataSource that has one, returning the data
+	* keyed by module
+	*/
+	
+	private HashMap loadSources() throws Exception
+	{
+		HashMap sources = new HashMap();
+		Iterator iter = modules.keySet().iterator();
+		
+		while (iter.hasNext())
+		{
+			String name = (String)iter.next();
+			File data = getFile(name + ".file", false);
+			
+			if (data == null)
+				continue;
+			
+			if (!(modules.get(name) instanceof DataSource))
+				throw new IllegalArgumentException("Module " + name + " is not a DataSource");
+			
+			DataLoader loader;
+			
+			if (SnapshotLoader.isSnapshot(data.getPath()))
+				loader = new SnapshotLoader(data.getPath());
+			else
+				loader = new CSVLoader(data.getPath());
+			
+			loader.readData();
+			DataItemCollection dataItems = loader.getDataItemCollection();
+			
+			if (getBoolean(name + ".normalise", false))
+				dataItems.setNormalised(true);
+			
+			DataSource source = (DataSource)modules.get(name);
+			source.setFileName(data.getPath());
+			sources.put(source, dataItems);
+		}
+		
+		return sources;
+	}
+	
+	private void sendSources(HashMap sources)
+	{
+		Iterator iter = sources.keySet().iterator();
+		
+		while (iter.hasNext())
+		{
+			DataSource source = (DataSource)iter.next();
+			source.setCSVData((DataItemCollection)sources.get(source));
+		}
+	}
+	
+	/**
+	* Return the parameters for the modules in the form that Multiple Runs
+	* sends them: a list for each module, starting with its name
+	*/
+	
+	private ArrayList getParameters()
+	{
+		ArrayList parameters = new ArrayList();
+		Iterator iter = prop.keySet().iterator();
+		
+		while (iter.hasNext())
+		{
+			String key = (String)iter.next();
+			
+			if (!key.startsWith("parameters."))
+				continue;
+			
+			ArrayList params = new ArrayList();
+			params.add(key.substring("parameters.".length()));
+			
+			StringTokenizer tokens = new StringTokenizer(prop.getProperty(key), ",");
+			while (tokens.hasMoreTokens())
+				params.add(tokens.nextToken().trim());
+			
+			parameters.add(params);
+		}
+		
+		return parameters;
+	}
+	
+	/**
+	* Write the 2D layout as a CSV file that can be loaded by a DataSource
+	*/
+	
+	private void writePositions(File out) throws IOException
+	{
+		double[][] xy = driver.getPositions();
+		if (xy == null)
+			throw new IllegalStateException("No positions were sent to the workflow");
+		
+		PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(out)));
+		pw.println("X,Y");
+		pw.println(CSVLoader.DEFAULT_DOUBLE + "," + CSVLoader.DEFAULT_DOUBLE);
+		
+		for (int i = 0; i < xy.length; i++)
+			pw.println(xy[i][0] + "," + xy[i][1]);
+		
+		pw.close();
+	}
+	
+	/**
+	* Write the metrics sent during each run, one line per run
+	*/
+	
+	private void writeMetrics(File out, ArrayList metrics) throws IOException
+	{
+		PrintWriter pw = new PrintWriter(new FileWriter(out));
+		
+		for (int i = 0; i < metrics.size(); i++)
+		{
+			ArrayList run = (ArrayList)metrics.get(i);
+			StringBuffer line = new StringBuffer();
+			
+			for (int j = 0; j < run.size(); j++)
+			{
+				if (j > 0)
+					line.append(",");
+				
+				line.append(run.get(j));
+			}
+			
+			pw.println(line);
+		}
+		
+		pw.close();
+	}
+	
+	/**
+	* Return the file named by a property, relative to the workflow file
+	*/
+	
+	private File getFile(String key, boolean bRequired)
+	{
+		String fileName = prop.getProperty(key);
+		if (fileName == null)
+		{
+			if (bRequired)
+				throw new IllegalArgumentException("No " + key + " given");
+			
+			return null;
+		}
+		
+		File f = new File(fileName.trim());
+		if (!f.isAbsolute())
+			f = new File(file.getAbsoluteFile().getParentFile(), fileName.trim());
+		
+		return f;
+	}
+	
+	private int getInt(String key, int def)
+	{
+		String s = prop.getProperty(key);
+		return (s == null) ? def : Integer.parseInt(s.trim());
+	}
+	
+	private boolean getBoolean(String key, boolean def)
+	{
+		String s = prop.getProperty(key);
+		return (s == null) ? def : Boolean.valueOf(s.trim()).booleanValue();
+	}
+}
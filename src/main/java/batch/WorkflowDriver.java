@@ -0,0 +1,279 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic test bed
+ *
+ * WorkflowDriver
+ *
+ * Stands in for the user when a workflow is run without the user
+ * interface. Like the Multiple Runs module, it sends parameters and start
+ * triggers to the modules it is linked to and waits for the trigger that
+ * says a run is complete. It also keeps the latest positions and the
+ * metrics sent to it so that they can be written out.
+ *
+ * @author Greg Ross
+ */
+
+package batch;
+
+import math.Coordinate;
+import math.PositionBuffer;
+import parent_gui.*;
+
+import java.util.ArrayList;
+
+public class WorkflowDriver extends DefaultVisualModule
+{
+	// Versioning for serialisation
+	
+	static final long serialVersionUID = 50L;
+	
+	// Number of runs completed so far
+	
+	private int runsComplete = 0;
+	
+	// The latest positions sent to the positions port, and the port that
+	// sent them
+	
+	private ArrayList positions = null;
+	private ModulePort positionPort = null;
+	
+	// The metrics sent to the metrics port during the current run
+	
+	private ArrayList metrics = new ArrayList();
+	
+	public WorkflowDriver()
+	{
+		super(null, null);
+		
+		setName("Workflow");
+		setKey("Workflow");
+		setMode(DefaultVisualModule.ALGORITHM_MODE);
+		setPorts();
+	}
+	
+	private void setPorts()
+	{
+		int numInPorts = 3;
+		int numOutPorts = 2;
+		ArrayList ports = new ArrayList(numInPorts + numOutPorts);
+		ModulePort port;
+		
+		// Add 'in' ports
+		
+		port = new ModulePort(this, ScriptModel.TRIGGER_PORT_IN, 0);
+		port.setPortLabel("Run complete");
+		ports.add(port);
+		
+		port = new ModulePort(this, ScriptModel.INPUT_PORT, 1);
+		port.setPortLabel("Positions");
+		ports.add(port);
+		
+		port = new ModulePort(this, ScriptModel.INPUT_PORT, 2);
+		port.setPortLabel("Metrics");
+		ports.add(port);
+		
+		// Add 'out' ports
+		
+		port = new ModulePort(this, ScriptModel.OUTPUT_PORT, 0);
+		port.setPortLabel("Parameters");
+		ports.add(port);
+		
+		port = new ModulePort(this, ScriptModel.TRIGGER_PORT_OUT, 1);
+		port.setPortLabel("Start trigger");
+		ports.add(port);
+		
+		addPorts(ports);
+	}
+	
+	/**
+	*  This is called when a connected module wants to notify this
+	*  module of a change
+	*/
+	
+	public void update(ModulePort fromPort, ModulePort toPort, ArrayList arg)
+	{
+		if (arg == null)
+			return;
+		
+		if (toPort.getKey().equals("i0"))
+		{
+			// As for Multiple Runs, a layout sends "startNextMod" when it
+			// has converged and the Stress module sends "restart" once it
+			// has recorded the stress of the layout
+			
+			if ((arg.get(0) instanceof String) && (((String)arg.get(0)).equals("startNextMod") || 
+				((String)arg.get(0)).equals("restart")))
+			{
+				synchronized (this)
+				{
+					runsComplete++;
+					notifyAll();
+				}
+			}
+		}
+		else if (toPort.getKey().equals("i1"))
+		{
+			if ((arg.size() > 1) && (arg.get(1) instanceof ArrayList))
+			{
+				synchronized (this)
+				{
+					positions = (ArrayList)arg.get(1);
+					positionPort = fromPort;
+				}
+			}
+		}
+		else if (toPort.getKey().equals("i2"))
+		{
+			// Metrics are sent as the Stress module sends them: a list
+			// of values after the collection that they describe
+			
+			if ((arg.size() > 1) && (arg.get(1) instanceof ArrayList))
+			{
+				synchronized (this)
+				{
+					metrics.addAll((ArrayList)arg.get(1));
+				}
+			}
+		}
+	}
+	
+	/**
+	* Send the parameters for the modules, each list starting with the name
+	* of the module that it is meant for
+	*/
+	
+	public void sendParameters(ArrayList parameters)
+	{
+		getOutPort(0).sendData(parameters);
+	}
+	
+	/**
+	* Start a run and wait for it to complete, returning false if it didn't
+	* within the given number of milliseconds (no limit if zero)
+	*/
+	
+	public boolean startRun(boolean bFirst, long timeout) throws InterruptedException
+	{
+		int target;
+		
+		synchronized (this)
+		{
+			metrics.clear();
+			target = runsComplete + 1;
+		}
+		
+		ArrayList go = new ArrayList();
+		
+		if (bFirst)
+		{
+			go.add(new String("first"));
+			getOutPort(1).sendData(go);
+			go = new ArrayList();
+		}
+		
+		go.add(new String("startNextMod"));
+		getOutPort(1).sendData(go);
+		
+		long end = System.currentTimeMillis() + timeout;
+		
+		synchronized (this)
+		{
+			while (runsComplete < target)
+			{
+				if (timeout == 0)
+					wait();
+				else if (System.currentTimeMillis() < end)
+					wait(end - System.currentTimeMillis());
+				else
+					return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	* Return the x and y coordinates of the latest positions, reading them
+	* from the sender's position buffer if it has one
+	*/
+	
+	public synchronized double[][] getPositions()
+	{
+		if (positions == null)
+			return null;
+		
+		PositionBuffer buffer = positionPort.getPositionBuffer();
+		PositionBuffer.Snapshot snapshot = (buffer == null) ? null : buffer.acquire();
+		double[][] xy;
+		
+		if (snapshot != null)
+		{
+			xy = new double[snapshot.size()][2];
+			
+			for (int i = 0; i < xy.length; i++)
+			{
+				xy[i][0] = snapshot.getX(i);
+				xy[i][1] = snapshot.getY(i);
+			}
+			
+			buffer.release(snapshot);
+		}
+		else
+		{
+			xy = new double[positions.size()][2];
+			
+			for (int i = 0; i < xy.length; i++)
+			{
+				Coordinate c = (Coordinate)positions.get(i);
+				xy[i][0] = c.getX();
+				xy[i][1] = c.getY();
+			}
+		}
+		
+		return xy;
+	}
+	
+	public synchronized ArrayList getMetrics()
+	{
+		return new ArrayList(metrics);
+	}
+}
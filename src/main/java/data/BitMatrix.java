@@ -0,0 +1,185 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic test bed
+ * 
+ * BitMatrix
+ * The values of a binary collection packed as one bitset per item, a bit
+ * being set where the item's value is greater than zero. Counts of shared
+ * and unshared variables can then be taken a word at a time with
+ * Long.bitCount().
+ * 
+ * @author Greg Ross
+ */
+
+package data;
+
+public class BitMatrix
+{
+	private long[][] rows;
+	private int numCols;
+	private int numWords;
+	
+	// True if every value greater than zero is exactly one
+	
+	private boolean bUnitValues = true;
+	
+	/**
+	* Pack the values held in a column store
+	*/
+	
+	public BitMatrix(ColumnStore store)
+	{
+		int numRows = store.getNumRows();
+		numCols = store.getNumColumns();
+		numWords = (numCols + 63) >>> 6;
+		rows = new long[numRows][numWords];
+		double val;
+		
+		for (int col = 0; col < numCols; col++)
+		{
+			int word = col >>> 6;
+			long bit = 1L << (col & 63);
+			
+			for (int row = 0; row < numRows; row++)
+			{
+				val = store.getDouble(row, col);
+				
+				if (val > 0)
+				{
+					rows[row][word] |= bit;
+					
+					if (val != 1)
+						bUnitValues = false;
+				}
+			}
+		}
+	}
+	
+	/**
+	* Return a mask with the bits of the given columns set
+	*/
+	
+	public long[] getMask(int[] cols)
+	{
+		long[] mask = new long[numWords];
+		
+		for (int i = 0; i < cols.length; i++)
+			mask[cols[i] >>> 6] |= (1L << (cols[i] & 63));
+		
+		return mask;
+	}
+	
+	/**
+	* Return the bitset of an item
+	*/
+	
+	public long[] getRow(int row)
+	{
+		return rows[row];
+	}
+	
+	/**
+	* Return the number of variables set for each item
+	*/
+	
+	public int[] getRowCounts()
+	{
+		int[] counts = new int[rows.length];
+		
+		for (int row = 0; row < rows.length; row++)
+			for (int w = 0; w < numWords; w++)
+				counts[row] += Long.bitCount(rows[row][w]);
+		
+		return counts;
+	}
+	
+	/**
+	* Return the number of items that have each variable set
+	*/
+	
+	public int[] getColumnCounts()
+	{
+		int[] counts = new int[numCols];
+		long word;
+		
+		for (int row = 0; row < rows.length; row++)
+		{
+			for (int w = 0; w < numWords; w++)
+			{
+				word = rows[row][w];
+				
+				while (word != 0)
+				{
+					counts[(w << 6) + Long.numberOfTrailingZeros(word)]++;
+					word &= (word - 1);
+				}
+			}
+		}
+		
+		return counts;
+	}
+	
+	public int getNumRows()
+	{
+		return rows.length;
+	}
+	
+	public int getNumColumns()
+	{
+		return numCols;
+	}
+	
+	public int getNumWords()
+	{
+		return numWords;
+	}
+	
+	/**
+	* Return true if every value greater than zero was exactly one, so that
+	* a set bit is the same as an integer value of one
+	*/
+	
+	public boolean hasUnitValues()
+	{
+		return bUnitValues;
+	}
+}
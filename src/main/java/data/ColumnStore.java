@@ -0,0 +1,1257 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic test bed
+ * 
+ * ColumnStore
+ * Columnar, primitive backing store for the values of a DataItemCollection.
+ * DOUBLE columns are held as double[], INTEGER as int[], DATE as long[]
+ * (milliseconds) and STRING as dictionary encoded int[] codes. Missing values
+ * are recorded in a null bitmap per column. If a value arrives that does not
+ * match the declared type of its column, that column falls back to holding
+ * boxed objects so that no information is lost.
+ * 
+ * A store can hand out views onto a subset of its rows and columns (see
+ * ColumnStoreView). Before the store changes any value in place, its views
+ * take their own copies so that they never see the change.
+ * 
+ * @author Greg Ross
+ */
+
+package data;
+
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.RandomAccess;
+
+public class ColumnStore implements Serializable
+{
+	// Versioning for serialisation
+	
+	static final long serialVersionUID = 50L;
+	
+	// Storage kind of a column whose values don't match its declared type
+	
+	public final static int OBJECT = -1;
+	
+	private final static int INITIAL_CAPACITY = 16;
+	
+	// The storage kind of each column, one of the DataItemCollection
+	// type constants or OBJECT
+	
+	private int[] kinds;
+	
+	// Per column storage, only the array matching the column's kind is non-null.
+	// intCols holds INTEGER values and STRING dictionary codes
+	
+	private double[][] doubleCols;
+	private int[][] intCols;
+	private long[][] dateCols;
+	private Object[][] objectCols;
+	
+	// DOUBLE columns held in single precision use this in place of doubleCols
+	
+	private float[][] floatCols;
+	
+	// One bit per row for each column, set where the value is missing
+	
+	private long[][] nullBits;
+	
+	// For STRING columns: code -> String and String -> code
+	
+	private ArrayList[] dictionaries;
+	private HashMap[] dictIndex;
+	
+	private int numRows = 0;
+	private int capacity;
+	
+	// While a collection is normalised to [0, 1], its numeric columns are
+	// scaled as they are read: (value - min) / range, with 0 wherever the
+	// value equals min. The arrays hold the unscaled values throughout, and
+	// each view has its own scaling, so views needn't be detached when it
+	// changes
+	
+	private boolean[] scaled = null;
+	private double[] scaleMin = null;
+	private double[] scaleRange = null;
+	
+	// For each STRING column, the position of each code's string in the
+	// sorted order of the dictionary. Built on request
+	
+	private transient int[][] ranks = null;
+	
+	// Weak references to the views onto this store
+	
+	private transient ArrayList views = null;
+	
+	/**
+	* Create an empty store with one column for each of the given types
+	*
+	* @param types The list of Integer type constants (DataItemCollection.STRING etc.)
+	*/
+	
+	public ColumnStore(ArrayList types)
+	{
+		int numCols = types.size();
+		capacity = INITIAL_CAPACITY;
+		kinds = new int[numCols];
+		doubleCols = new double[numCols][];
+		floatCols = new float[numCols][];
+		intCols = new int[numCols][];
+		dateCols = new long[numCols][];
+		objectCols = new Object[numCols][];
+		nullBits = new long[numCols][];
+		dictionaries = new ArrayList[numCols];
+		dictIndex = new HashMap[numCols];
+		
+		for (int i = 0; i < numCols; i++)
+		{
+			kinds[i] = ((Integer)types.get(i)).intValue();
+			allocColumn(i);
+		}
+	}
+	
+	/**
+	* Create a store of numRows rows from columns that have already been read,
+	* e.g. from a snapshot file. The arrays are used as they are, not copied.
+	*
+	* @param kinds The storage kind of each column
+	* @param columns For each column a double[], int[], long[] or Object[]
+	* matching its kind, of length at least max(numRows, 1)
+	* @param nullBits For each column, one bit per row set where the value is missing
+	* @param dictionaries For each STRING column, its code -> String dictionary
+	*/
+	
+	public ColumnStore(int[] kinds, Object[] columns, long[][] nullBits, ArrayList[] dictionaries, int numRows)
+	{
+		int numCols = kinds.length;
+		this.kinds = kinds;
+		this.nullBits = nullBits;
+		this.dictionaries = dictionaries;
+		this.numRows = numRows;
+		capacity = Math.max(numRows, 1);
+		doubleCols = new double[numCols][];
+		floatCols = new float[numCols][];
+		intCols = new int[numCols][];
+		dateCols = new long[numCols][];
+		objectCols = new Object[numCols][];
+		dictIndex = new HashMap[numCols];
+		
+		for (int i = 0; i < numCols; i++)
+		{
+			switch (kinds[i])
+			{
+				case DataItemCollection.DOUBLE:
+					doubleCols[i] = (double[])columns[i];
+					break;
+				case DataItemCollection.INTEGER:
+					intCols[i] = (int[])columns[i];
+					break;
+				case DataItemCollection.DATE:
+					dateCols[i] = (long[])columns[i];
+					break;
+				case DataItemCollection.STRING:
+					intCols[i] = (int[])columns[i];
+					dictIndex[i] = new HashMap();
+					
+					for (int j = 0; j < dictionaries[i].size(); j++)
+						dictIndex[i].put(dictionaries[i].get(j), new Integer(j));
+					break;
+				default:
+					objectCols[i] = (Object[])columns[i];
+			}
+		}
+	}
+	
+	/**
+	* Allocate the arrays of a column according to its kind and the current capacity
+	*/
+	
+	private void allocColumn(int col)
+	{
+		nullBits[col] = new long[(capacity + 63) >> 6];
+		
+		switch (kinds[col])
+		{
+			case DataItemCollection.DOUBLE:
+				doubleCols[col] = new double[capacity];
+				break;
+			case DataItemCollection.INTEGER:
+				intCols[col] = new int[capacity];
+				break;
+			case DataItemCollection.DATE:
+				dateCols[col] = new long[capacity];
+				break;
+			case DataItemCollection.STRING:
+				intCols[col] = new int[capacity];
+				dictionaries[col] = new ArrayList();
+				dictIndex[col] = new HashMap();
+				break;
+			default:
+				kinds[col] = OBJECT;
+				objectCols[col] = new Object[capacity];
+		}
+	}
+	
+	/**
+	* Grow the column arrays so that they can hold at least minCapacity rows
+	*/
+	
+	private void ensureCapacity(int minCapacity)
+	{
+		if (minCapacity <= capacity)
+			return;
+		
+		int newCapacity = Math.max(capacity * 2, minCapacity);
+		resize(newCapacity);
+	}
+	
+	private void resize(int newCapacity)
+	{
+		for (int i = 0; i < kinds.length; i++)
+		{
+			if (doubleCols[i] != null)
+				doubleCols[i] = copyOf(doubleCols[i], newCapacity);
+			if (floatCols[i] != null)
+				floatCols[i] = copyOf(floatCols[i], newCapacity);
+			if (intCols[i] != null)
+				intCols[i] = copyOf(intCols[i], newCapacity);
+			if (dateCols[i] != null)
+				dateCols[i] = copyOf(dateCols[i], newCapacity);
+			if (objectCols[i] != null)
+				objectCols[i] = copyOf(objectCols[i], newCapacity);
+			
+			nullBits[i] = copyOf(nullBits[i], (newCapacity + 63) >> 6);
+		}
+		capacity = newCapacity;
+	}
+	
+	/**
+	* Add a row of values to the end of the store. Values beyond the number of
+	* columns are ignored and missing trailing values are treated as null.
+	*
+	* @return The row index of the new row
+	*/
+	
+	public int appendRow(Object[] vals)
+	{
+		ensureCapacity(numRows + 1);
+		int row = numRows++;
+		
+		// The new row is beyond every view, so they needn't be detached
+		
+		for (int i = 0; i < kinds.length; i++)
+			putValue(row, i, (i < vals.length) ? vals[i] : null);
+		
+		return row;
+	}
+	
+	/**
+	* Add a block of rows to the end of the store from columns that have
+	* already been parsed. Each column is a double[], int[], long[] (dates)
+	* or String[] according to its declared type, and is copied without
+	* boxing where the column's storage matches.
+	*
+	* @param columns The values of each column, at least count long
+	* @param nulls For each column, one bit per row set where the value is missing
+	* @param count The number of rows to add
+	* @return The row index of the first new row
+	*/
+	
+	public int appendColumns(Object[] columns, long[][] nulls, int count)
+	{
+		ensureCapacity(numRows + count);
+		int first = numRows;
+		numRows += count;
+		int i, row;
+		boolean bNull;
+		
+		// The new rows are beyond every view, so they needn't be detached
+		
+		for (int col = 0; col < kinds.length; col++)
+		{
+			Object column = columns[col];
+			
+			for (i = 0, row = first; i < count; i++, row++)
+				setNull(col, row, (nulls[col][i >> 6] & (1L << i)) != 0);
+			
+			if ((kinds[col] == DataItemCollection.DOUBLE) && (column instanceof double[]))
+			{
+				if (floatCols[col] != null)
+				{
+					double[] src = (double[])column;
+					for (i = 0; i < count; i++)
+						floatCols[col][first + i] = (float)src[i];
+				}
+				else
+					System.arraycopy(column, 0, doubleCols[col], first, count);
+			}
+			else if ((kinds[col] == DataItemCollection.INTEGER) && (column instanceof int[]))
+				System.arraycopy(column, 0, intCols[col], first, count);
+			else if ((kinds[col] == DataItemCollection.DATE) && (column instanceof long[]))
+				System.arraycopy(column, 0, dateCols[col], first, count);
+			else if ((kinds[col] == DataItemCollection.STRING) && (column instanceof String[]))
+			{
+				String[] src = (String[])column;
+				for (i = 0, row = first; i < count; i++, row++)
+					if (!isNull(row, col))
+						intCols[col][row] = encode(col, src[i]);
+			}
+			else
+			{
+				// The column has been converted to other storage, so box the values
+				
+				for (i = 0, row = first; i < count; i++, row++)
+				{
+					bNull = isNull(row, col);
+					
+					if (column instanceof double[])
+						putValue(row, col, bNull ? null : new Double(((double[])column)[i]));
+					else if (column instanceof int[])
+						putValue(row, col, bNull ? null : new Integer(((int[])column)[i]));
+					else if (column instanceof long[])
+						putValue(row, col, bNull ? null : new Date(((long[])column)[i]));
+					else
+						putValue(row, col, bNull ? null : ((Object[])column)[i]);
+				}
+			}
+		}
+		
+		return first;
+	}
+	
+	/**
+	* Insert a row of values at the given index, shifting subsequent rows down
+	*/
+	
+	public void insertRow(int index, Object[] vals)
+	{
+		detachViews();
+		ensureCapacity(numRows + 1);
+		
+		for (int i = 0; i < kinds.length; i++)
+		{
+			if (doubleCols[i] != null)
+				System.arraycopy(doubleCols[i], index, doubleCols[i], index + 1, numRows - index);
+			if (floatCols[i] != null)
+				System.arraycopy(floatCols[i], index, floatCols[i], index + 1, numRows - index);
+			if (intCols[i] != null)
+				System.arraycopy(intCols[i], index, intCols[i], index + 1, numRows - index);
+			if (dateCols[i] != null)
+				System.arraycopy(dateCols[i], index, dateCols[i], index + 1, numRows - index);
+			if (objectCols[i] != null)
+				System.arraycopy(objectCols[i], index, objectCols[i], index + 1, numRows - index);
+			
+			for (int j = numRows; j > index; j--)
+				setNull(i, j, isNull(j - 1, i));
+		}
+		numRows++;
+		
+		for (int i = 0; i < kinds.length; i++)
+			putValue(index, i, (i < vals.length) ? vals[i] : null);
+	}
+	
+	/**
+	* Set the value at the given row and column. If the value does not match
+	* the column's storage kind then the column is converted to boxed storage
+	*/
+	
+	public void setValue(int row, int col, Object val)
+	{
+		detachViews();
+		
+		// A value written to a scaled column is taken to be scaled too
+		
+		if (isScaled(col) && (val instanceof Number))
+		{
+			toDoubleColumn(col);
+			val = new Double(unscale(col, ((Number)val).doubleValue()));
+		}
+		
+		putValue(row, col, val);
+	}
+	
+	private void putValue(int row, int col, Object val)
+	{
+		if (val == null)
+		{
+			setNull(col, row, true);
+			
+			if (kinds[col] == OBJECT)
+				objectCols[col][row] = null;
+			
+			return;
+		}
+		
+		setNull(col, row, false);
+		
+		switch (kinds[col])
+		{
+			case DataItemCollection.DOUBLE:
+				if (val instanceof Double)
+				{
+					if (floatCols[col] != null)
+						floatCols[col][row] = ((Double)val).floatValue();
+					else
+						doubleCols[col][row] = ((Double)val).doubleValue();
+					return;
+				}
+				break;
+			case DataItemCollection.INTEGER:
+				if (val instanceof Integer)
+				{
+					intCols[col][row] = ((Integer)val).intValue();
+					return;
+				}
+				break;
+			case DataItemCollection.DATE:
+				if (val instanceof Date)
+				{
+					dateCols[col][row] = ((Date)val).getTime();
+					return;
+				}
+				break;
+			case DataItemCollection.STRING:
+				if (val instanceof String)
+				{
+					intCols[col][row] = encode(col, (String)val);
+					return;
+				}
+				break;
+			default:
+				objectCols[col][row] = val;
+				return;
+		}
+		
+		// The value doesn't fit the primitive storage of this column
+		
+		toObjectColumn(col);
+		objectCols[col][row] = val;
+	}
+	
+	/**
+	* Return the (boxed) value at the given row and column, or null if missing
+	*/
+	
+	public Object getValue(int row, int col)
+	{
+		if (isNull(row, col))
+			return null;
+		
+		if (isScaled(col))
+			return new Double(getDouble(row, col));
+		
+		return getRawValue(row, col);
+	}
+	
+	/**
+	* As above, but ignoring any scaling of the column
+	*/
+	
+	Object getRawValue(int row, int col)
+	{
+		if (isNull(row, col))
+			return null;
+		
+		switch (kinds[col])
+		{
+			case DataItemCollection.DOUBLE:
+				if (floatCols[col] != null)
+					return new Double(floatCols[col][row]);
+				return new Double(doubleCols[col][row]);
+			case DataItemCollection.INTEGER:
+				return new Integer(intCols[col][row]);
+			case DataItemCollection.DATE:
+				return new Date(dateCols[col][row]);
+			case DataItemCollection.STRING:
+				return dictionaries[col].get(intCols[col][row]);
+			default:
+				return objectCols[col][row];
+		}
+	}
+	
+	/**
+	* Materialise a whole row as an array of boxed values
+	*/
+	
+	public Object[] getRow(int row)
+	{
+		Object[] vals = new Object[kinds.length];
+		
+		for (int i = 0; i < kinds.length; i++)
+			vals[i] = getValue(row, i);
+		
+		return vals;
+	}
+	
+	/**
+	* Return the value at the given row and column as a double. Dates are
+	* returned as milliseconds and strings as their dictionary code. Missing
+	* values are returned as NaN.
+	*/
+	
+	public double getDouble(int row, int col)
+	{
+		if (isScaled(col))
+			return scale(col, getRawDouble(row, col));
+		
+		return getRawDouble(row, col);
+	}
+	
+	double getRawDouble(int row, int col)
+	{
+		if (isNull(row, col))
+			return Double.NaN;
+		
+		switch (kinds[col])
+		{
+			case DataItemCollection.DOUBLE:
+				if (floatCols[col] != null)
+					return floatCols[col][row];
+				return doubleCols[col][row];
+			case DataItemCollection.INTEGER:
+			case DataItemCollection.STRING:
+				return intCols[col][row];
+			case DataItemCollection.DATE:
+				return dateCols[col][row];
+			default:
+				Object val = objectCols[col][row];
+				
+				if (val instanceof Number)
+					return ((Number)val).doubleValue();
+				else if (val instanceof Date)
+					return ((Date)val).getTime();
+				else
+					return Double.NaN;
+		}
+	}
+	
+	public boolean isNull(int row, int col)
+	{
+		return (nullBits[col][row >> 6] & (1L << row)) != 0;
+	}
+	
+	private void setNull(int col, int row, boolean bNull)
+	{
+		if (bNull)
+			nullBits[col][row >> 6] |= (1L << row);
+		else
+			nullBits[col][row >> 6] &= ~(1L << row);
+	}
+	
+	/**
+	* Return the dictionary code for a string, adding it to the
+	* dictionary if it hasn't been seen before
+	*/
+	
+	private int encode(int col, String s)
+	{
+		Integer code = (Integer)dictIndex[col].get(s);
+		
+		if (code == null)
+		{
+			code = new Integer(dictionaries[col].size());
+			dictionaries[col].add(s);
+			dictIndex[col].put(s, code);
+		}
+		return code.intValue();
+	}
+	
+	/**
+	* Convert a column to boxed object storage, preserving its values
+	*/
+	
+	private void toObjectColumn(int col)
+	{
+		if (kinds[col] == OBJECT)
+			return;
+		
+		Object[] objs = new Object[capacity];
+		
+		for (int i = 0; i < numRows; i++)
+			objs[i] = getRawValue(i, col);
+		
+		kinds[col] = OBJECT;
+		ranks = null;
+		doubleCols[col] = null;
+		floatCols[col] = null;
+		intCols[col] = null;
+		dateCols[col] = null;
+		dictionaries[col] = null;
+		dictIndex[col] = null;
+		objectCols[col] = objs;
+	}
+	
+	/**
+	* Convert a numeric column to double storage, preserving its values
+	*/
+	
+	public void toDoubleColumn(int col)
+	{
+		if ((kinds[col] == DataItemCollection.DOUBLE) && (floatCols[col] == null))
+			return;
+		
+		detachViews();
+		
+		double[] vals = new double[capacity];
+		
+		for (int i = 0; i < numRows; i++)
+			if (!isNull(i, col))
+				vals[i] = getRawDouble(i, col);
+		
+		kinds[col] = DataItemCollection.DOUBLE;
+		ranks = null;
+		floatCols[col] = null;
+		intCols[col] = null;
+		dateCols[col] = null;
+		objectCols[col] = null;
+		dictionaries[col] = null;
+		dictIndex[col] = null;
+		doubleCols[col] = vals;
+	}
+	
+	/**
+	* Write a double value directly into a DOUBLE column
+	*/
+	
+	public void setDouble(int row, int col, double val)
+	{
+		detachViews();
+		
+		if (isScaled(col))
+			val = unscale(col, val);
+		
+		if (floatCols[col] != null)
+			floatCols[col][row] = (float)val;
+		else
+			doubleCols[col][row] = val;
+		
+		setNull(col, row, false);
+	}
+	
+	/**
+	* Hold a DOUBLE column in single precision, halving its memory. The values
+	* are rounded to the nearest float. Other kinds of column are left as
+	* they are.
+	*/
+	
+	public void toFloatColumn(int col)
+	{
+		if ((kinds[col] != DataItemCollection.DOUBLE) || (floatCols[col] != null))
+			return;
+		
+		detachViews();
+		
+		float[] vals = new float[capacity];
+		
+		for (int i = 0; i < numRows; i++)
+			vals[i] = (float)doubleCols[col][i];
+		
+		doubleCols[col] = null;
+		floatCols[col] = vals;
+	}
+	
+	/**
+	* Return true if the column is a DOUBLE column held in single precision
+	*/
+	
+	public boolean isFloatColumn(int col)
+	{
+		return floatCols[col] != null;
+	}
+	
+	/**
+	* Return the number of bytes used by the values of the store. If bFloat
+	* is true then the size is given as if every DOUBLE column were held in
+	* single precision, otherwise as if each were held in double precision.
+	* Boxed values are not counted.
+	*/
+	
+	public long getMemoryUsage(boolean bFloat)
+	{
+		long bytes = 0;
+		
+		for (int i = 0; i < kinds.length; i++)
+		{
+			switch (kinds[i])
+			{
+				case DataItemCollection.DOUBLE:
+					bytes += (long)capacity * (bFloat ? 4 : 8);
+					break;
+				case DataItemCollection.DATE:
+					bytes += (long)capacity * 8;
+					break;
+				case OBJECT:
+					bytes += (long)capacity * 4;
+					break;
+				default:
+					bytes += (long)capacity * 4;
+			}
+			bytes += (long)nullBits[i].length * 8;
+		}
+		return bytes;
+	}
+	
+	/**
+	* Scale a numeric column to [0, 1] as it is read, given the minimum and
+	* maximum of its values. Nothing is copied; the raw accessors below go
+	* on returning the unscaled values.
+	*/
+	
+	public void setScale(int col, double min, double max)
+	{
+		if (scaled == null)
+		{
+			int numCols = getNumColumns();
+			scaled = new boolean[numCols];
+			scaleMin = new double[numCols];
+			scaleRange = new double[numCols];
+		}
+		
+		scaled[col] = true;
+		scaleMin[col] = min;
+		scaleRange[col] = max - min;
+	}
+	
+	/**
+	* Stop scaling every column
+	*/
+	
+	public void clearScales()
+	{
+		scaled = null;
+		scaleMin = null;
+		scaleRange = null;
+	}
+	
+	/**
+	* Return true if the values of the column are scaled as they are read
+	*/
+	
+	public boolean isScaled(int col)
+	{
+		return (scaled != null) && scaled[col];
+	}
+	
+	double scale(int col, double val)
+	{
+		if (val == scaleMin[col])
+			return 0;
+		
+		return (val - scaleMin[col]) / scaleRange[col];
+	}
+	
+	private double unscale(int col, double val)
+	{
+		return scaleMin[col] + (val * scaleRange[col]);
+	}
+	
+	/**
+	* Take a copy of the scaling of another store
+	*/
+	
+	void copyScales(ColumnStore other)
+	{
+		if (other.scaled != null)
+		{
+			scaled = (boolean[])other.scaled.clone();
+			scaleMin = (double[])other.scaleMin.clone();
+			scaleRange = (double[])other.scaleRange.clone();
+		}
+		else
+		{
+			scaled = null;
+			scaleMin = null;
+			scaleRange = null;
+		}
+	}
+	
+	/**
+	* As above, for the given columns of the other store
+	*/
+	
+	void copyScales(ColumnStore other, int[] cols)
+	{
+		int numCols = cols.length;
+		int col;
+		
+		scaled = null;
+		scaleMin = null;
+		scaleRange = null;
+		
+		for (int i = 0; i < numCols; i++)
+		{
+			col = cols[i];
+			
+			if (other.isScaled(col))
+			{
+				if (scaled == null)
+				{
+					scaled = new boolean[numCols];
+					scaleMin = new double[numCols];
+					scaleRange = new double[numCols];
+				}
+				scaled[i] = true;
+				scaleMin[i] = other.scaleMin[col];
+				scaleRange[i] = other.scaleRange[col];
+			}
+		}
+	}
+	
+	/**
+	* Accessors for the raw primitive arrays. The arrays may be longer than the
+	* number of rows and are replaced when the store grows, so callers should
+	* not hold onto them across additions. Scaled columns hold their unscaled
+	* values here. getDoubleColumn() returns null for a DOUBLE column held in
+	* single precision; use getFloatColumn() for those.
+	*/
+	
+	public double[] getDoubleColumn(int col)
+	{
+		return doubleCols[col];
+	}
+	
+	public float[] getFloatColumn(int col)
+	{
+		return floatCols[col];
+	}
+	
+	public int[] getIntColumn(int col)
+	{
+		return intCols[col];
+	}
+	
+	public long[] getDateColumn(int col)
+	{
+		return dateCols[col];
+	}
+	
+	public Object[] getObjectColumn(int col)
+	{
+		return objectCols[col];
+	}
+	
+	public long[] getNullBits(int col)
+	{
+		return nullBits[col];
+	}
+	
+	/**
+	* Return the storage kind of the given column
+	*/
+	
+	public int getKind(int col)
+	{
+		return kinds[col];
+	}
+	
+	public int getNumRows()
+	{
+		return numRows;
+	}
+	
+	public int getNumColumns()
+	{
+		return kinds.length;
+	}
+	
+	/**
+	* Return the dictionary (code -> String) of a STRING column, or null if
+	* the column isn't dictionary encoded
+	*/
+	
+	public ArrayList getDictionary(int col)
+	{
+		return dictionaries[col];
+	}
+	
+	/**
+	* Return the dictionary code of a string in the given column or -1 if
+	* the string doesn't occur in that column
+	*/
+	
+	public int getCode(int col, String s)
+	{
+		if (dictIndex[col] == null)
+			return -1;
+		
+		Integer code = (Integer)dictIndex[col].get(s);
+		return (code == null) ? -1 : code.intValue();
+	}
+	
+	/**
+	* Return the dictionary code of the string at the given row and column,
+	* or -1 if the value is missing or the column isn't dictionary encoded
+	*/
+	
+	public int getStringCode(int row, int col)
+	{
+		if ((kinds[col] != DataItemCollection.STRING) || isNull(row, col))
+			return -1;
+		
+		return intCols[col][row];
+	}
+	
+	/**
+	* Return, for each code of a STRING column, the position of its string
+	* in the sorted dictionary, so that strings can be put in order by
+	* comparing ints. Returns null if the column isn't dictionary encoded.
+	*/
+	
+	public synchronized int[] getSortedRanks(int col)
+	{
+		if ((kinds[col] != DataItemCollection.STRING) || (dictionaries[col] == null))
+			return null;
+		
+		if ((ranks == null) || (ranks.length != kinds.length))
+			ranks = new int[kinds.length][];
+		
+		ArrayList dict = dictionaries[col];
+		
+		// The dictionary only grows, so the ranks are rebuilt when its size changes
+		
+		if ((ranks[col] == null) || (ranks[col].length != dict.size()))
+		{
+			Object[] sorted = dict.toArray();
+			Arrays.sort(sorted);
+			int[] r = new int[sorted.length];
+			
+			for (int i = 0; i < r.length; i++)
+				r[i] = Arrays.binarySearch(sorted, dict.get(i));
+			
+			ranks[col] = r;
+		}
+		return ranks[col];
+	}
+	
+	/**
+	* Return a read/write List view of a column. Values are boxed on access.
+	*/
+	
+	public List column(int col)
+	{
+		return new ColumnView(this, col);
+	}
+	
+	/**
+	* Return a deep copy of this store
+	*/
+	
+	public ColumnStore copy()
+	{
+		ColumnStore store = new ColumnStore(new ArrayList());
+		store.copyFrom(this);
+		return store;
+	}
+	
+	/**
+	* Replace the contents of this store with a deep copy of another
+	*/
+	
+	public void copyFrom(ColumnStore other)
+	{
+		detachViews();
+		
+		if ((other instanceof ColumnStoreView) && ((ColumnStoreView)other).copyInto(this))
+			return;
+		
+		int numCols = other.kinds.length;
+		kinds = (int[])other.kinds.clone();
+		ranks = null;
+		doubleCols = new double[numCols][];
+		floatCols = new float[numCols][];
+		intCols = new int[numCols][];
+		dateCols = new long[numCols][];
+		objectCols = new Object[numCols][];
+		nullBits = new long[numCols][];
+		dictionaries = new ArrayList[numCols];
+		dictIndex = new HashMap[numCols];
+		
+		for (int i = 0; i < numCols; i++)
+		{
+			if (other.doubleCols[i] != null)
+				doubleCols[i] = (double[])other.doubleCols[i].clone();
+			if (other.floatCols[i] != null)
+				floatCols[i] = (float[])other.floatCols[i].clone();
+			if (other.intCols[i] != null)
+				intCols[i] = (int[])other.intCols[i].clone();
+			if (other.dateCols[i] != null)
+				dateCols[i] = (long[])other.dateCols[i].clone();
+			if (other.objectCols[i] != null)
+				objectCols[i] = (Object[])other.objectCols[i].clone();
+			if (other.dictionaries[i] != null)
+			{
+				dictionaries[i] = new ArrayList(other.dictionaries[i]);
+				dictIndex[i] = new HashMap(other.dictIndex[i]);
+			}
+			nullBits[i] = (long[])other.nullBits[i].clone();
+		}
+		numRows = other.numRows;
+		capacity = other.capacity;
+		copyScales(other);
+	}
+	
+	/**
+	* Replace the contents of this store with copies of the given rows and
+	* columns of another store. Dictionaries are copied whole so that string
+	* codes are unchanged. The scaling of this store is left as it is.
+	*/
+	
+	void copyFrom(ColumnStore other, int[] rows, int[] cols)
+	{
+		int numCols = cols.length;
+		int n = rows.length;
+		int i, j, col, row;
+		
+		kinds = new int[numCols];
+		ranks = null;
+		doubleCols = new double[numCols][];
+		floatCols = new float[numCols][];
+		intCols = new int[numCols][];
+		dateCols = new long[numCols][];
+		objectCols = new Object[numCols][];
+		nullBits = new long[numCols][];
+		dictionaries = new ArrayList[numCols];
+		dictIndex = new HashMap[numCols];
+		numRows = n;
+		capacity = Math.max(n, 1);
+		
+		for (i = 0; i < numCols; i++)
+		{
+			col = cols[i];
+			kinds[i] = other.kinds[col];
+			nullBits[i] = new long[(capacity + 63) >> 6];
+			
+			if (other.doubleCols[col] != null)
+			{
+				doubleCols[i] = new double[capacity];
+				for (j = 0; j < n; j++)
+					doubleCols[i][j] = other.doubleCols[col][rows[j]];
+			}
+			if (other.floatCols[col] != null)
+			{
+				floatCols[i] = new float[capacity];
+				for (j = 0; j < n; j++)
+					floatCols[i][j] = other.floatCols[col][rows[j]];
+			}
+			if (other.intCols[col] != null)
+			{
+				intCols[i] = new int[capacity];
+				for (j = 0; j < n; j++)
+					intCols[i][j] = other.intCols[col][rows[j]];
+			}
+			if (other.dateCols[col] != null)
+			{
+				dateCols[i] = new long[capacity];
+				for (j = 0; j < n; j++)
+					dateCols[i][j] = other.dateCols[col][rows[j]];
+			}
+			if (other.objectCols[col] != null)
+			{
+				objectCols[i] = new Object[capacity];
+				for (j = 0; j < n; j++)
+					objectCols[i][j] = other.objectCols[col][rows[j]];
+			}
+			if (other.dictionaries[col] != null)
+			{
+				dictionaries[i] = new ArrayList(other.dictionaries[col]);
+				dictIndex[i] = new HashMap(other.dictIndex[col]);
+			}
+			
+			for (j = 0; j < n; j++)
+			{
+				row = rows[j];
+				if (other.isNull(row, col))
+					setNull(i, j, true);
+			}
+		}
+	}
+	
+	/**
+	* Return a view onto the given rows and columns of this store. No values
+	* are copied until the view or this store is changed.
+	*
+	* @param rows The row of this store for each row of the view
+	* @param cols The column of this store for each column of the view
+	*/
+	
+	public ColumnStore view(int[] rows, int[] cols)
+	{
+		ColumnStoreView view = new ColumnStoreView(this, rows, cols);
+		view.copyScales(this, cols);
+		
+		if (views == null)
+			views = new ArrayList();
+		
+		// Forget views that have been garbage collected
+		
+		for (int i = views.size() - 1; i >= 0; i--)
+			if (((WeakReference)views.get(i)).get() == null)
+				views.remove(i);
+		
+		views.add(new WeakReference(view));
+		return view;
+	}
+	
+	/**
+	* Called before any value of the store is changed in place. Every view
+	* onto the store takes its own copy of its values.
+	*/
+	
+	private void detachViews()
+	{
+		if (views == null)
+			return;
+		
+		ArrayList oldViews = views;
+		views = null;
+		ColumnStoreView view;
+		
+		for (int i = 0; i < oldViews.size(); i++)
+		{
+			view = (ColumnStoreView)((WeakReference)oldViews.get(i)).get();
+			
+			if (view != null)
+				view.materialise(this);
+		}
+	}
+	
+	/**
+	* Release any spare capacity once loading has finished
+	*/
+	
+	public void trimToSize()
+	{
+		if (capacity > numRows)
+			resize(Math.max(numRows, 1));
+	}
+	
+	private static double[] copyOf(double[] a, int len)
+	{
+		double[] b = new double[len];
+		System.arraycopy(a, 0, b, 0, Math.min(a.length, len));
+		return b;
+	}
+	
+	private static float[] copyOf(float[] a, int len)
+	{
+		float[] b = new float[len];
+		System.arraycopy(a, 0, b, 0, Math.min(a.length, len));
+		return b;
+	}
+	
+	private static int[] copyOf(int[] a, int len)
+	{
+		int[] b = new int[len];
+		System.arraycopy(a, 0, b, 0, Math.min(a.length, len));
+		return b;
+	}
+	
+	private static long[] copyOf(long[] a, int len)
+	{
+		long[] b = new long[len];
+		System.arraycopy(a, 0, b, 0, Math.min(a.length, len));
+		return b;
+	}
+	
+	private static Object[] copyOf(Object[] a, int len)
+	{
+		Object[] b = new Object[len];
+		System.arraycopy(a, 0, b, 0, Math.min(a.length, len));
+		return b;
+	}
+	
+	/**
+	* Stores written before single precision columns existed have no floatCols
+	*/
+	
+	private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		
+		if (floatCols == null)
+			floatCols = new float[kinds.length][];
+	}
+	
+	/**
+	* List view of a single column of the store
+	*/
+	
+	private static class ColumnView extends AbstractList implements RandomAccess, Serializable
+	{
+		static final long serialVersionUID = 50L;
+		
+		private ColumnStore store;
+		private int col;
+		
+		public ColumnView(ColumnStore store, int col)
+		{
+			this.store = store;
+			this.col = col;
+		}
+		
+		public Object get(int index)
+		{
+			if (index >= store.getNumRows())
+				throw new IndexOutOfBoundsException("Index: " + index);
+			
+			return store.getValue(index, col);
+		}
+		
+		public Object set(int index, Object val)
+		{
+			Object old = get(index);
+			store.setValue(index, col, val);
+			return old;
+		}
+		
+		public int size()
+		{
+			return store.getNumRows();
+		}
+	}
+}
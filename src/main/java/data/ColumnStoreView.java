@@ -0,0 +1,458 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic test bed
+ * 
+ * ColumnStoreView
+ * A column store that reads its values from a subset of the rows and columns
+ * of another store through an index map, so that a sub-collection can be made
+ * without copying any values. The first time the view is changed, its raw
+ * arrays are asked for, or the store beneath it is about to change, the view
+ * copies its values and from then on behaves as an ordinary store.
+ * 
+ * The view keeps its own copy of the scaling of its columns, applied to
+ * the unscaled values of the base store, so scaling either store doesn't
+ * make the view copy its values.
+ * 
+ * The base store and index maps are held together in one immutable Source
+ * that is read once per call, so a call that races with the copy reads
+ * either wholly through the view or wholly from the copy.
+ * 
+ * @author Greg Ross
+ */
+
+package data;
+
+import java.util.ArrayList;
+
+class ColumnStoreView extends ColumnStore
+{
+	// Versioning for serialisation
+	
+	static final long serialVersionUID = 50L;
+	
+	/**
+	* The store beneath the view, with the row and column of the base store
+	* for each row and column of the view
+	*/
+	
+	private static final class Source
+	{
+		final ColumnStore base;
+		final int[] rows;
+		final int[] cols;
+		
+		Source(ColumnStore base, int[] rows, int[] cols)
+		{
+			this.base = base;
+			this.rows = rows;
+			this.cols = cols;
+		}
+	}
+	
+	// Null once the view has its own copy
+	
+	private transient volatile Source source;
+	
+	ColumnStoreView(ColumnStore base, int[] rows, int[] cols)
+	{
+		super(new ArrayList());
+		source = new Source(base, rows, cols);
+	}
+	
+	/**
+	* Return true if the values are still read from the base store
+	*/
+	
+	boolean isView()
+	{
+		return (source != null);
+	}
+	
+	/**
+	* Take a copy of the values from the base store, if this hasn't
+	* already been done
+	*/
+	
+	void materialise()
+	{
+		Source s = source;
+		
+		if (s != null)
+			materialise(s.base);
+	}
+	
+	/**
+	* Called by the base store before it changes. The copy is complete
+	* before the view stops reading from the base store.
+	*/
+	
+	synchronized void materialise(ColumnStore from)
+	{
+		Source s = source;
+		
+		if ((s == null) || (s.base != from))
+			return;
+		
+		// The view's scaling is kept
+		
+		copyFrom(from, s.rows, s.cols);
+		source = null;
+	}
+	
+	/**
+	* Copy the values seen through the view into another store. Returns
+	* false if the view already has its own copy.
+	*/
+	
+	boolean copyInto(ColumnStore target)
+	{
+		Source s = source;
+		
+		if (s == null)
+			return false;
+		
+		target.copyFrom(s.base, s.rows, s.cols);
+		target.copyScales(this);
+		return true;
+	}
+	
+	public ColumnStore view(int[] viewRows, int[] viewCols)
+	{
+		Source s = source;
+		
+		if (s == null)
+			return super.view(viewRows, viewCols);
+		
+		// A view of a view reads straight from the store beneath
+		
+		int[] baseRows = new int[viewRows.length];
+		int[] baseCols = new int[viewCols.length];
+		int i;
+		
+		for (i = 0; i < viewRows.length; i++)
+			baseRows[i] = s.rows[viewRows[i]];
+		
+		for (i = 0; i < viewCols.length; i++)
+			baseCols[i] = s.cols[viewCols[i]];
+		
+		// ...with this view's scaling
+		
+		ColumnStore view = s.base.view(baseRows, baseCols);
+		view.copyScales(this, viewCols);
+		return view;
+	}
+	
+	public Object getValue(int row, int col)
+	{
+		Source s = source;
+		
+		if (s != null)
+			return getValue(s, row, col);
+		else
+			return super.getValue(row, col);
+	}
+	
+	/**
+	* Read an unscaled value from the base store and scale it as this
+	* view's column is scaled
+	*/
+	
+	private Object getValue(Source s, int row, int col)
+	{
+		int baseRow = s.rows[row];
+		int baseCol = s.cols[col];
+		
+		if (isScaled(col) && !s.base.isNull(baseRow, baseCol))
+			return new Double(scale(col, s.base.getRawDouble(baseRow, baseCol)));
+		
+		return s.base.getRawValue(baseRow, baseCol);
+	}
+	
+	public Object[] getRow(int row)
+	{
+		Source s = source;
+		
+		if (s == null)
+			return super.getRow(row);
+		
+		Object[] vals = new Object[s.cols.length];
+		
+		for (int i = 0; i < s.cols.length; i++)
+			vals[i] = getValue(s, row, i);
+		
+		return vals;
+	}
+	
+	public double getDouble(int row, int col)
+	{
+		Source s = source;
+		
+		if (s == null)
+			return super.getDouble(row, col);
+		
+		double val = s.base.getRawDouble(s.rows[row], s.cols[col]);
+		
+		if (isScaled(col))
+			return scale(col, val);
+		
+		return val;
+	}
+	
+	public boolean isNull(int row, int col)
+	{
+		Source s = source;
+		
+		if (s != null)
+			return s.base.isNull(s.rows[row], s.cols[col]);
+		else
+			return super.isNull(row, col);
+	}
+	
+	public boolean isFloatColumn(int col)
+	{
+		Source s = source;
+		
+		if (s != null)
+			return s.base.isFloatColumn(s.cols[col]);
+		else
+			return super.isFloatColumn(col);
+	}
+	
+	public int getKind(int col)
+	{
+		Source s = source;
+		
+		if (s != null)
+			return s.base.getKind(s.cols[col]);
+		else
+			return super.getKind(col);
+	}
+	
+	/**
+	* A view holds only its row and column indices until it is written to
+	*/
+	
+	public long getMemoryUsage(boolean bFloat)
+	{
+		Source s = source;
+		
+		if (s != null)
+			return (long)(s.rows.length + s.cols.length) * 4;
+		else
+			return super.getMemoryUsage(bFloat);
+	}
+	
+	public int getNumRows()
+	{
+		Source s = source;
+		
+		if (s != null)
+			return s.rows.length;
+		else
+			return super.getNumRows();
+	}
+	
+	public int getNumColumns()
+	{
+		Source s = source;
+		
+		if (s != null)
+			return s.cols.length;
+		else
+			return super.getNumColumns();
+	}
+	
+	public ArrayList getDictionary(int col)
+	{
+		Source s = source;
+		
+		if (s != null)
+			return s.base.getDictionary(s.cols[col]);
+		else
+			return super.getDictionary(col);
+	}
+	
+	public int getCode(int col, String str)
+	{
+		Source s = source;
+		
+		if (s != null)
+			return s.base.getCode(s.cols[col], str);
+		else
+			return super.getCode(col, str);
+	}
+	
+	public int getStringCode(int row, int col)
+	{
+		Source s = source;
+		
+		if (s != null)
+			return s.base.getStringCode(s.rows[row], s.cols[col]);
+		else
+			return super.getStringCode(row, col);
+	}
+	
+	public int[] getSortedRanks(int col)
+	{
+		Source s = source;
+		
+		if (s != null)
+			return s.base.getSortedRanks(s.cols[col]);
+		else
+			return super.getSortedRanks(col);
+	}
+	
+	public ColumnStore copy()
+	{
+		Source s = source;
+		
+		if (s == null)
+			return super.copy();
+		
+		ColumnStore store = new ColumnStore(new ArrayList());
+		store.copyFrom(s.base, s.rows, s.cols);
+		store.copyScales(this);
+		return store;
+	}
+	
+	// Everything below changes the store or exposes its arrays, so the
+	// view first takes its own copy
+	
+	public int appendRow(Object[] vals)
+	{
+		materialise();
+		return super.appendRow(vals);
+	}
+	
+	public void insertRow(int index, Object[] vals)
+	{
+		materialise();
+		super.insertRow(index, vals);
+	}
+	
+	public void setValue(int row, int col, Object val)
+	{
+		materialise();
+		super.setValue(row, col, val);
+	}
+	
+	public void toDoubleColumn(int col)
+	{
+		materialise();
+		super.toDoubleColumn(col);
+	}
+	
+	public void setDouble(int row, int col, double val)
+	{
+		materialise();
+		super.setDouble(row, col, val);
+	}
+	
+	public void toFloatColumn(int col)
+	{
+		materialise();
+		super.toFloatColumn(col);
+	}
+	
+	public double[] getDoubleColumn(int col)
+	{
+		materialise();
+		return super.getDoubleColumn(col);
+	}
+	
+	public float[] getFloatColumn(int col)
+	{
+		materialise();
+		return super.getFloatColumn(col);
+	}
+	
+	public int[] getIntColumn(int col)
+	{
+		materialise();
+		return super.getIntColumn(col);
+	}
+	
+	public long[] getDateColumn(int col)
+	{
+		materialise();
+		return super.getDateColumn(col);
+	}
+	
+	public Object[] getObjectColumn(int col)
+	{
+		materialise();
+		return super.getObjectColumn(col);
+	}
+	
+	public long[] getNullBits(int col)
+	{
+		materialise();
+		return super.getNullBits(col);
+	}
+	
+	public void copyFrom(ColumnStore other)
+	{
+		// The old values are being replaced, so there is nothing to copy
+		
+		synchronized (this)
+		{
+			super.copyFrom(other);
+			source = null;
+		}
+	}
+	
+	public void trimToSize()
+	{
+		if (source == null)
+			super.trimToSize();
+	}
+	
+	/**
+	* Write out the view's own copy of its values rather than the base store
+	*/
+	
+	private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException
+	{
+		materialise();
+		out.defaultWriteObject();
+	}
+}
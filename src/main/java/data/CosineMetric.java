@@ -0,0 +1,103 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic test bed
+ * 
+ * CosineMetric
+ * 1 - cosine similarity of two tf-idf document vectors. The vectors are held
+ * sparsely and the length of every vector is computed once when the metric
+ * is built, so each distance only needs the inner product of the terms
+ * that the two documents share.
+ * 
+ * @author Greg Ross
+ */
+
+package data;
+
+public class CosineMetric implements DistanceMetric
+{
+	// Distance returned when only one of the two vectors is empty
+	
+	public final static double EMPTY_DIST = 5;
+	
+	private SparseVector[] vectors;
+	private double[] lengths;
+	
+	/**
+	* Build the metric for the given text collection. Items that hold dense
+	* vectors are converted to sparse ones.
+	*/
+	
+	public CosineMetric(DataItemCollection dataItems)
+	{
+		int size = dataItems.getSize();
+		vectors = new SparseVector[size];
+		lengths = new double[size];
+		DataItem item;
+		
+		for (int i = 0; i < size; i++)
+		{
+			item = dataItems.getDataItem(i);
+			
+			if (item.getSparseValues() != null)
+				vectors[i] = item.getSparseValues();
+			else
+				vectors[i] = SparseVector.fromDense(item.getTextValues());
+			
+			lengths[i] = vectors[i].length();
+		}
+	}
+	
+	public double distance(int item1, int item2)
+	{
+		double len1 = lengths[item2];
+		double len2 = lengths[item1];
+		
+		if (((len1 == 0) || (len2 == 0)) && !((len1 == 0) && (len2 == 0)))
+			return EMPTY_DIST;
+		else if ((len1 == 0) && (len2 == 0))
+			return 0;
+		
+		double innerProduct = vectors[item2].dot(vectors[item1]);
+		
+		return 1 - (innerProduct / (len1 * len2));
+	}
+}
@@ -59,6 +59,17 @@ public class DataItem implements Serializable
     private Object[] values = null;
     private double[] textValues = null;
     
+    // The non-zero tf-idf weights of a document, used in place of textValues
+    // for corpora loaded by TxtLoader
+    
+    private SparseVector sparseValues = null;
+    
+    // If the values of this item have been moved into the columnar store of a
+    // DataItemCollection, then the store and the row within it
+    
+    private ColumnStore store = null;
+    private int row = -1;
+    
     // ID of the data item
     
     private int ID;
@@ -77,7 +88,11 @@ public class DataItem implements Serializable
 	    sPath = item.getPath();
 	    int i;
 	    
-	    if (item.getTextValues() != null)
+	    if (item.getSparseValues() != null)
+	    {
+		    sparseValues = item.getSparseValues().copy();
+	    }
+	    else if (item.getTextValues() != null)
 	    {
 		    double[] newValues = new double[item.getTextValues().length];
 		    for (i = 0; i < newValues.length; i++)
@@ -133,8 +148,21 @@ public class DataItem implements Serializable
 	this.ID = ID;
     }
     
+    /**
+     * constructor: takes a sparse vector of values for text data
+     *
+     * @param sparseValues The non-zero tf-idf weights
+     */
+    public DataItem(SparseVector sparseValues, int ID)
+    {
+	this.sparseValues = sparseValues;
+	this.ID = ID;
+    }
+    
     
     public void appendDims(Object[] v){
+	if (values == null)
+	    unbind();
 	int currentLength = values.length;
 	Object[] newVals = new Object[currentLength+v.length];
 
@@ -148,26 +176,89 @@ public class DataItem implements Serializable
     
     
     public Object getValue(int i){
+	if (values == null)
+	{
+		if (store != null)
+			return store.getValue(row, i);
+		else if (sparseValues != null)
+			return new Double(sparseValues.get(i));
+		else if (textValues != null)
+			return new Double(textValues[i]);
+	}
 	return values[i];
     }
 
     public ArrayList getValueRange(int first, int last){
 	ArrayList range = new ArrayList();
 	for (int i=first; i<last; i++)
-	    range.add(values[i]);
+	    range.add(getValue(i));
 	return range;
     }
     
+    /**
+    * Hand the values of this item over to the columnar store of a
+    * DataItemCollection. After this the item no longer holds its own
+    * boxed values; they are read from the store on request.
+    */
+    
+    void bind(ColumnStore store, int row)
+    {
+	this.store = store;
+	this.row = row;
+	values = null;
+    }
+    
+    /**
+    * Take a private copy of the values back from the columnar store
+    */
+    
+    void unbind()
+    {
+	if (store != null)
+	{
+		values = store.getRow(row);
+		store = null;
+		row = -1;
+	}
+    }
+    
+    /**
+    * Return the columnar store that holds this item's values, or null
+    * if the item holds its own values
+    */
+    
+    ColumnStore getStore()
+    {
+	return store;
+    }
+    
+    int getRow()
+    {
+	return row;
+    }
+    
+    void setRow(int row)
+    {
+	this.row = row;
+    }
+    
     
     /**
-     * Returns the collection of CSV values that this DataItem contains
+     * Returns the collection of CSV values that this DataItem contains.
+     * If the values are held by a columnar store then a new array is
+     * built on each call, so prefer getValue(int) for single values.
      *
      * @return The collection of values in this DataItem
      */
     public Object[] getValues()
     {
-	if (values == null)
+	if ((values == null) && (store != null))
+	{
+		return store.getRow(row);
+	}
+	else if (values == null)
 	{
+		double[] textValues = getTextValues();
 		Object[] o = new Object[textValues.length];
 		for (int i = 0; i < textValues.length; i++)
 		{
@@ -181,18 +272,74 @@ public class DataItem implements Serializable
     }
     
     /**
-     * Returns the collection of text tf-idf values that this DataItem contains
+     * Returns the collection of text tf-idf values that this DataItem contains.
+     * If the item holds a sparse vector then a new dense array is built on
+     * each call, so changes to it are not kept and getTextValue(int) should
+     * be preferred.
      *
      * @return The collection of values in this DataItem
      */
     public double[] getTextValues()
     {
-	return textValues;
+	if (sparseValues != null)
+		return sparseValues.toDense();
+	else
+		return textValues;
     }
     
     public void setTextValues(double[] textValues)
     {
         this.textValues = textValues;
+        sparseValues = null;
+    }
+    
+    /**
+    * Return the tf-idf weight of a single term
+    */
+    
+    public double getTextValue(int term)
+    {
+	if (sparseValues != null)
+		return sparseValues.get(term);
+	else
+		return textValues[term];
+    }
+    
+    /**
+    * Return the number of terms in the tf-idf vector
+    */
+    
+    public int getNumTextValues()
+    {
+	if (sparseValues != null)
+		return sparseValues.getDimensions();
+	else
+		return textValues.length;
+    }
+    
+    /**
+    * Returns the sparse tf-idf vector of this item, or null if the item
+    * is not text or holds a dense vector
+    */
+    
+    public SparseVector getSparseValues()
+    {
+	return sparseValues;
+    }
+    
+    public void setSparseValues(SparseVector sparseValues)
+    {
+	this.sparseValues = sparseValues;
+	textValues = null;
+    }
+    
+    /**
+    * Return true if this item is a tf-idf document vector
+    */
+    
+    public boolean isText()
+    {
+	return (textValues != null) || (sparseValues != null);
     }
     
     /**
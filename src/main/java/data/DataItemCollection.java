@@ -54,11 +54,14 @@ import parent_gui.dataVolumeThresholding.DataVolumeThreshold;
 
 import java.util.Collection;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Date;
+import java.util.BitSet;
 import java.io.Serializable;
+import java.lang.ref.SoftReference;
 
 public class DataItemCollection implements Serializable
 {
@@ -69,7 +72,11 @@ public class DataItemCollection implements Serializable
 	private ArrayList types;
 	private ArrayList fields;
 	private ArrayList dataItems;
-	private ArrayList columns;
+	
+	// Columnar, primitive storage of the item values. Row i of the store
+	// holds the values of the i'th DataItem
+	
+	private ColumnStore store;
 	private ArrayList maximums;
 	private ArrayList minimums;
 	private int       size = 0;
@@ -104,10 +111,6 @@ public class DataItemCollection implements Serializable
         private double    minDist;
 	private double    unrelatedDist;
 	
-	// Used to scale ordinal values which don't match in sim metric
-	
-	private final double ORD_FACTOR    = 0.75;
-	
 	// The number of standard deviations to use when normalizing data
 	
 	protected final double STANDARD_DEVS = 2.0;
@@ -168,10 +171,9 @@ public class DataItemCollection implements Serializable
 	private ArrayList oldTypes = null;
 	private ArrayList oldMaximums = null;
 	private ArrayList oldMinimums = null;
-	private ArrayList oldColumns;
-	private double[] sumNormVals;
-	private double[] sumNormSquares;
-	private ArrayList oldDataItems = null;
+	private ColumnStore oldStore = null;
+	private double[] oldAverage = null;
+	private double[] oldSigma = null;
 	
 	// If the data are binary, then store the frequency of each variable
 	
@@ -195,6 +197,73 @@ public class DataItemCollection implements Serializable
 	
 	private double[] triangle_lower_Array;
 	
+	// Used instead of the above when the triangle is held in a mapped file
+	
+	private MappedTriangle mappedTriangle = null;
+	
+	// If this collection is a subset of a lower triangular collection, the
+	// triangle is shared with the parent and these are the parent's indices
+	// of the items
+	
+	private int[] triangleRows = null;
+	
+	// If true then numeric values and pairwise distances are held as floats
+	
+	private boolean bSinglePrecision = false;
+	
+	// The compiled distance metrics, rebuilt whenever the collection changes
+	
+	private transient volatile DistanceMetric metric = null;
+	private transient DistanceMetric subsetMetric = null;
+	private transient ArrayList subsetVars = null;
+	
+	// All pairwise distances, built on request and shared by the modules.
+	// Held softly so that once no module is using it the collector can
+	// reclaim it when memory runs short.
+	
+	private transient SoftReference distanceMatrix = null;
+	
+	// The values of a binary collection packed into bitsets
+	
+	private transient BitMatrix bitMatrix = null;
+	
+	// The sequences of sequence data, packed a few bits to a symbol
+	
+	private transient PackedSequences packedSequences = null;
+	
+	// Terms for which a zero weight has already been taken into account in the
+	// maximums and minimums, so that sparse document vectors need not visit them
+	
+	private transient BitSet zeroTerms = null;
+	
+	// Maps item IDs to their positions, built on the first lookup by ID
+	
+	private transient IDIndex idIndex = null;
+	private transient int numIndexed = 0;
+	
+	// Per-column indexes of the rows in order of value, built on request
+	
+	private transient SortedIndex[] sortedIndexes = null;
+	
+	// Once the normalisation data have been set, items added afterwards are
+	// taken into the averages and standard deviations as they arrive. runMean
+	// and runM2 hold Welford's running mean and sum of squared deviations of
+	// each column; they are seeded from average and sigma on the first append
+	// and copied out to new arrays when the statistics are next read
+	
+	private boolean bRunningStats = false;
+	private transient double[] runMean = null;
+	private transient double[] runM2 = null;
+	private transient double[] runSums = null;
+	private transient double[] runSquares = null;
+	private transient double[] runAverage = null;
+	private transient double[] runSigma = null;
+	private transient boolean bStatsChanged = false;
+	
+	// Objects that want to be told when items are appended
+	
+	private transient ArrayList changeListeners = null;
+	
 	/**
 	* Constructor
 	*/
@@ -205,7 +274,7 @@ public class DataItemCollection implements Serializable
 		fields    = new ArrayList();
 		maximums  = new ArrayList();
 		minimums  = new ArrayList();
-		columns   = new ArrayList();
+		store     = new ColumnStore(types);
 		numericDim = new ArrayList();
 		numericDimNumbers = new ArrayList();
 	}
@@ -216,29 +285,105 @@ public class DataItemCollection implements Serializable
 	*/
 	public void addItem(DataItem data)
 	{
+		append(data);
+		fireItemsAppended(getSize() - 1, 1);
+	}
+	
+	/**
+	* Append a batch of items to the end of the collection. The statistics
+	* are brought up to date item by item and the change listeners are told
+	* once, after the whole batch has been added
+	*/
+	
+	public void addItems(List items)
+	{
+		int first = getSize();
+		
+		for (int i = 0; i < items.size(); i++)
+			append((DataItem)items.get(i));
+		
+		if (items.size() > 0)
+			fireItemsAppended(first, items.size());
+	}
+	
+	/**
+	* Append a block of CSV rows that have already been parsed into columns,
+	* e.g. by the chunked CSV loader. The values are copied into the column
+	* store without being boxed, and the new items are bound to its rows.
+	*
+	* @param columns For each column a double[], int[], long[] (dates) or
+	* String[] matching its type, at least count long
+	* @param nullBits For each column, one bit per row set where the value is missing
+	* @param IDs The ID of each new item
+	* @param count The number of rows in the block
+	*/
+	
+	public void addColumns(Object[] columns, long[][] nullBits, int[] IDs, int count)
+	{
+		if (count == 0)
+			return;
+		
+		invalidateMetric();
+		
+		this.bTextCorpus = false;
+		int first = getSize();
+		int row = store.appendColumns(columns, nullBits, count);
+		DataItem item;
+		
+		for (int i = 0; i < count; i++)
+		{
+			item = new DataItem(IDs[i]);
+			item.bind(store, row + i);
+			dataItems.add(item);
+			size++;
+			indexID(item);
+		}
+		
+		updateMaxMin(columns, nullBits, count);
+		updateRunningStats(first, count);
+		fireItemsAppended(first, count);
+	}
+	
+	private void append(DataItem data)
+	{
+		invalidateMetric();
+		
 		this.bTextCorpus = false;
 		dataItems.add(data);
 		size++;
+		indexID(data);
 		
 		if (!bLowerTriangular)
-			if (data.getTextValues() == null)
+			if (!data.isText())
 			{
 				Object[] vals = data.getValues();
-				add(vals);
+				int row = add(vals);
+				
+				// The store now holds the values, so the item can drop its own copy
+				
+				if ((data.getStore() == null) && (vals.length == store.getNumColumns()))
+					data.bind(store, row);
 			}
 			else
 			{
 				this.bTextCorpus = true;
-				add(data.getTextValues());
+				addText(data);
 			}
+		
+		updateRunningStats(data);
 	}
 	
 	public void addItem(DataItem data, boolean bTextCorpus)
 	{
+		invalidateMetric();
+		
 		this.bTextCorpus = true;
 		dataItems.add(data);
 		size++;
-		add(data.getTextValues());
+		indexID(data);
+		addText(data);
+		updateRunningStats(data);
+		fireItemsAppended(getSize() - 1, 1);
 	}
 	
 	/**
@@ -248,11 +393,30 @@ public class DataItemCollection implements Serializable
 	*/
 	public void addItem(int index, DataItem data)
 	{
+		invalidateMetric();
+		
 		this.bTextCorpus = false;
 		dataItems.add(index, data);
 		size++;
+		idIndex = null;
 		Object[] vals = data.getValues();
-		add(vals);
+		store.insertRow(index, vals);
+		updateMaxMin(vals);
+		
+		// Rows after the insertion point have moved down by one
+		
+		DataItem item;
+		for (int i = index + 1; i < dataItems.size(); i++)
+		{
+			item = (DataItem)dataItems.get(i);
+			if (item.getStore() == store)
+				item.setRow(i);
+		}
+		
+		if ((data.getStore() == null) && (vals.length == store.getNumColumns()))
+			data.bind(store, index);
+		
+		updateRunningStats(data);
 	}
 	
 	/**
@@ -275,6 +439,8 @@ public class DataItemCollection implements Serializable
 	
 	public void setSequenceData(boolean bSequenceData)
 	{
+		invalidateMetric();
+		
 		this.bSequenceData = bSequenceData;
 	}
 	
@@ -312,6 +478,14 @@ public class DataItemCollection implements Serializable
 	* The following is called if the data are from a text corpus
 	*/
 	
+	private void addText(DataItem data)
+	{
+		if (data.getSparseValues() != null)
+			add(data.getSparseValues());
+		else
+			add(data.getTextValues());
+	}
+	
 	private void add(double[] vals)
 	{
 		for ( int i = 0 ; i < types.size() ; i++ )
@@ -330,49 +504,224 @@ public class DataItemCollection implements Serializable
 	}
 	
 	/**
-	* The following is called if the data are CSV
+	* The following is called if the data are from a text corpus and the
+	* document is held as a sparse vector. Only the non-zero weights are
+	* visited, plus any term whose zero weight has not been seen before.
+	*/
+	
+	private void add(SparseVector vals)
+	{
+		int[] terms = vals.getTerms();
+		float[] weights = vals.getWeights();
+		int numTerms = types.size();
+		int k;
+		
+		for (k = 0; k < terms.length; k++)
+		{
+			if (terms[k] < numTerms)
+				updateMaxMin(terms[k], weights[k]);
+		}
+		
+		if (zeroTerms == null)
+			zeroTerms = new BitSet(numTerms);
+		
+		k = 0;
+		for (int j = zeroTerms.nextClearBit(0); j < numTerms; j = zeroTerms.nextClearBit(j + 1))
+		{
+			while ((k < terms.length) && (terms[k] < j))
+				k++;
+			
+			if ((k < terms.length) && (terms[k] == j))
+				continue;
+			
+			updateMaxMin(j, 0d);
+			zeroTerms.set(j);
+		}
+	}
+	
+	private void updateMaxMin(int col, double val)
+	{
+		if (val > ((Double)maximums.get(col)).doubleValue())
+			maximums.set(col, new Double(val));
+		
+		if (val < ((Double)minimums.get(col)).doubleValue())
+			minimums.set(col, new Double(val));
+	}
+	
+	/**
+	* The following is called if the data are CSV. Returns the row of the
+	* column store that the values were added to
+	*/
+	
+	private int add(Object[] vals)
+	{
+		//add the data to columns
+		
+		int row = store.appendRow(vals);
+		updateMaxMin(vals);
+		return row;
+	}
+	
+	/**
+	* Update the maximums and minimums with a newly added row of CSV values
 	*/
 	
-	private void add(Object[] vals)
+	private void updateMaxMin(Object[] vals)
 	{
 		for ( int i = 0 ; i < types.size() ; i++ )
+			updateMaxMin(i, vals[i]);
+	}
+	
+	/**
+	* Update the maximums and minimums with a block of columns as passed to
+	* addColumns(). Only the extremes of each column are boxed.
+	*/
+	
+	private void updateMaxMin(Object[] columns, long[][] nullBits, int count)
+	{
+		int i, first;
+		
+		for (int col = 0; col < types.size(); col++)
 		{
-			//add the data to columns
+			// Find the first value that is present
 			
-			((ArrayList)columns.get(i)).add(vals[i]);
+			for (first = 0; first < count; first++)
+				if ((nullBits[col][first >> 6] & (1L << first)) == 0)
+					break;
 			
-			// also need to do some work in here to find max and mins
+			if (first == count)
+				continue;
 			
-			if ( vals[i] != null )
+			if (columns[col] instanceof double[])
+			{
+				double[] c = (double[])columns[col];
+				double max = c[first], min = c[first];
+				for (i = first + 1; i < count; i++)
+				{
+					if ((nullBits[col][i >> 6] & (1L << i)) != 0)
+						continue;
+					if (c[i] > max)
+						max = c[i];
+					if (c[i] < min)
+						min = c[i];
+				}
+				updateMaxMin(col, new Double(max));
+				updateMaxMin(col, new Double(min));
+			}
+			else if (columns[col] instanceof int[])
+			{
+				int[] c = (int[])columns[col];
+				int max = c[first], min = c[first];
+				for (i = first + 1; i < count; i++)
+				{
+					if ((nullBits[col][i >> 6] & (1L << i)) != 0)
+						continue;
+					if (c[i] > max)
+						max = c[i];
+					if (c[i] < min)
+						min = c[i];
+				}
+				updateMaxMin(col, new Integer(max));
+				updateMaxMin(col, new Integer(min));
+			}
+			else if (columns[col] instanceof long[])
 			{
-				switch(((Integer)types.get(i)).intValue())
+				long[] c = (long[])columns[col];
+				long max = c[first], min = c[first];
+				for (i = first + 1; i < count; i++)
 				{
-					case STRING: // STRING
-						break;
-					case DATE: // DATE
-						if (((Date)vals[i]).after((Date)maximums.get(i)))
-							maximums.set(i, vals[i]);
-						if (((Date)vals[i]).before((Date)minimums.get(i)))
-							minimums.set(i, vals[i]);
-						break;
-					case DOUBLE: // DOUBLE
-						if (((Double)vals[i]).compareTo((Double)maximums.get(i)) > 0 )
-							maximums.set(i, vals[i]);
-						if ( ((Double)vals[i]).compareTo((Double)minimums.get(i)) < 0 )
-							minimums.set(i, vals[i]);
-						break;
-					case INTEGER: // INTEGER
-						if (((Integer)vals[i]).compareTo((Integer)maximums.get(i)) > 0)
-							maximums.set(i, vals[i]);
-						if (((Integer)vals[i]).compareTo((Integer)minimums.get(i)) < 0)
-							minimums.set(i, vals[i]);
-						break;
-					default:
+					if ((nullBits[col][i >> 6] & (1L << i)) != 0)
+						continue;
+					if (c[i] > max)
+						max = c[i];
+					if (c[i] < min)
+						min = c[i];
 				}
+				updateMaxMin(col, new Date(max));
+				updateMaxMin(col, new Date(min));
+			}
+		}
+	}
+	
+	/**
+	* Update the maximum and minimum of one column with a CSV value
+	*/
+	
+	private void updateMaxMin(int i, Object val)
+	{
+		// also need to do some work in here to find max and mins
+		
+		if ( val != null )
+		{
+			switch(((Integer)types.get(i)).intValue())
+			{
+				case STRING: // STRING
+					break;
+				case DATE: // DATE
+					if (((Date)val).after((Date)maximums.get(i)))
+						maximums.set(i, val);
+					if (((Date)val).before((Date)minimums.get(i)))
+						minimums.set(i, val);
+					break;
+				case DOUBLE: // DOUBLE
+					if (((Double)val).compareTo((Double)maximums.get(i)) > 0 )
+						maximums.set(i, val);
+					if ( ((Double)val).compareTo((Double)minimums.get(i)) < 0 )
+						minimums.set(i, val);
+					break;
+				case INTEGER: // INTEGER
+					if (((Integer)val).compareTo((Integer)maximums.get(i)) > 0)
+						maximums.set(i, val);
+					if (((Integer)val).compareTo((Integer)minimums.get(i)) < 0)
+						minimums.set(i, val);
+					break;
+				default:
 			}
 		}
 	}
 	
+	/**
+	* Make this collection read its values through a view onto the column
+	* store of another collection. The items are bound to the rows of the view
+	*/
+	
+	private void setView(ColumnStore view, ArrayList items, boolean bMaxMin)
+	{
+		invalidateMetric();
+		
+		this.bTextCorpus = false;
+		dataItems = items;
+		size = items.size();
+		store = view;
+		idIndex = null;
+		
+		for (int i = 0; i < size; i++)
+			((DataItem)items.get(i)).bind(view, i);
+		
+		if (!bMaxMin)
+			return;
+		
+		for (int j = 0; j < types.size(); j++)
+			for (int i = 0; i < size; i++)
+				updateMaxMin(j, view.getValue(i, j));
+	}
+	
+	/**
+	* Return true if the values of every item are held by the column store
+	*/
+	
+	private boolean isFullyBound()
+	{
+		if (bLowerTriangular || bTextCorpus)
+			return false;
+		
+		for (int i = 0; i < dataItems.size(); i++)
+			if (((DataItem)dataItems.get(i)).getStore() != store)
+				return false;
+		
+		return true;
+	}
+	
 	/**
 	* Sets the types that this collection represents to be types
 	* 
@@ -380,17 +729,16 @@ public class DataItemCollection implements Serializable
 	*/
 	public void setTypes(ArrayList types)
 	{
+		invalidateMetric();
+		
 		this.types = types;
+		zeroTerms = null;
 		
 		numNumericDims=0;
 		//init maxs and mins
 		
 		for ( int i = 0 ; i < types.size() ; i++ )
 		{
-			//init the columns too
-			
-			columns.add(new ArrayList());
-			
 			switch(((Integer)types.get(i)).intValue())
 			{
 				case STRING: // STRING
@@ -420,6 +768,10 @@ public class DataItemCollection implements Serializable
 				default:
 			}
 		}
+		
+		//init the columns too
+		
+		store = new ColumnStore(types);
 	}
 	
 	
@@ -490,8 +842,12 @@ public class DataItemCollection implements Serializable
 	*/
 	public void setNormalizeData(double[] sumOfVals, double[] sumOfSquares)
 	{
+		invalidateMetric();
+		
 		this.sumOfVals    = sumOfVals;
 		this.sumOfSquares = sumOfSquares;
+		bRunningStats = true;
+		resetRunningStats();
 		
 		// calculate the sigma & average values that will be needed in 
 		// optimisation
@@ -514,491 +870,547 @@ public class DataItemCollection implements Serializable
 	
 	public void intiNormalArrays(double[] sumOfVals, double[] sumOfSquares)
 	{
+		invalidateMetric();
+		
 		average = new double[sumOfVals.length];
 		sigma   = new double[sumOfVals.length];
+		resetRunningStats();
 	}
 	
 	/**
-	* Returns the desired distance between these two objects.  Normalisation version
-	*
-	* @param item1 The first object in the distance relation
-	* @param item2 The second object
-	* @return The desired distance
+	* Take a newly added item into the running statistics. Each column is
+	* updated with Welford's method, so the cost is proportional to the
+	* number of dimensions and no earlier item needs to be visited. As in
+	* the loaders, missing and string values count as zero.
 	*/
-	public double getDesiredDist(int item1, int item2)
+	
+	private synchronized void updateRunningStats(DataItem data)
 	{
-		double ans;
+		if (!isRunningStats())
+			return;
 		
-		if (!bLowerTriangular)
+		int dims = average.length;
+		int n = getSize();
+		
+		if (startRunningStats(!data.isText(), n - 1))
+			return;
+		
+		double val;
+		double delta;
+		
+		for (int j = 0; j < dims; j++)
 		{
-			if (bTextCorpus || (((DataItem)dataItems.get(0)).getTextValues() != null)) // DataItem consists only of doubles
-				ans = getDoubleValueDistance(item1, item2);
-			else if (bSequenceData)
-			{
-				// The data are genetic sequences, calculate the hamming distance
-				
-				ans = getHammingDistance(item1, item2);
-			}
-			else // Data Item consists of objects not primitives
-			{
-				if (bBinary)
-					ans = getJaccardDistance(item1, item2);
-				else
-					ans = getDistance(item1, item2);
-			}
+			val = getStatsValue(data, j);
+			delta = val - runMean[j];
+			runMean[j] += delta / (double)n;
+			runM2[j] += delta * (val - runMean[j]);
+			runSums[j] += val;
+			runSquares[j] += val * val;
 		}
-		else
-			ans = getLowerTriangleDistance(item1, item2);
 		
-		return ans;
+		bStatsChanged = true;
 	}
 	
 	/**
-	* Same as the above except we specify which attributes to included in the distance calc
+	* As above, for a block of rows just appended to the column store
 	*/
 	
-	public double getDesiredDist(int item1, int item2, ArrayList springVar)
+	private synchronized void updateRunningStats(int first, int count)
 	{
-		double ans;
+		if (!isRunningStats())
+			return;
 		
-		if (!bLowerTriangular)
+		if (startRunningStats(true, first))
+			return;
+		
+		int dims = Math.min(average.length, types.size());
+		double val;
+		double delta;
+		int i, n;
+		
+		for (int j = 0; j < dims; j++)
 		{
-			if (springVar == null)
-			{
-				if (bTextCorpus || (((DataItem)dataItems.get(0)).getTextValues() != null)) // DataItem consists only of doubles
-					ans = getDoubleValueDistance(item1, item2);
-				else if (bSequenceData)
-				{
-					// The data are genetic sequences, calculate the hamming distance
-					
-					ans = getHammingDistance(item1, item2);
-				}
-				else // Data Item consists of objects not primitives
-				{
-					if (bBinary)
-						ans = getJaccardDistance(item1, item2);
-					else
-						ans = getDistance(item1, item2);
-				}
-				return ans;
-			}
-			else
+			boolean bString = (((Integer)types.get(j)).intValue() == STRING);
+			
+			for (i = first, n = first + 1; i < first + count; i++, n++)
 			{
-				if (bTextCorpus || (((DataItem)dataItems.get(0)).getTextValues() != null)) // DataItem consists only of doubles
-					ans = getDoubleValueDistance(item1, item2);
-				else // Data Item consists of objects not primitives
-				{
-					if (bBinary)
-						ans = getJaccardDistance(item1, item2, springVar);
-					else
-						ans = getDistance(item1, item2, springVar);
-				}
-					
-				return ans;
+				val = (bString || store.isNull(i, j)) ? 0d : store.getDouble(i, j);
+				delta = val - runMean[j];
+				runMean[j] += delta / (double)n;
+				runM2[j] += delta * (val - runMean[j]);
+				runSums[j] += val;
+				runSquares[j] += val * val;
 			}
 		}
-		else
-			ans = getLowerTriangleDistance(item1, item2);
 		
-		return ans;
+		bStatsChanged = true;
+	}
+	
+	private boolean isRunningStats()
+	{
+		return bRunningStats && !bLowerTriangular && !bNormalised && (average != null)
+			&& (sigma != null) && (sumOfVals != null) && (sumOfSquares != null);
 	}
 	
 	/**
-	* Return the Hamming distance between the two given sequences
+	* Seed the running values from the items that were already in the
+	* collection, unless they have been replaced since. Returns true if the
+	* values were computed from the column store, in which case they already
+	* take in the newly added items.
+	*
+	* @param bInStore True if the new items are held by the column store
+	* @param prior The number of items in the collection before the new ones
 	*/
 	
-	private double getHammingDistance(int item1, int item2)
+	private boolean startRunningStats(boolean bInStore, int prior)
 	{
-		String sItem1 = ((DataItem)dataItems.get(item1)).getValues()[0].toString();
-		String sItem2 = ((DataItem)dataItems.get(item2)).getValues()[0].toString();
-		StringBuffer sb1 = new StringBuffer(sItem1);
-		StringBuffer sb2 = new StringBuffer(sItem2);
-		
-		int score = 0;
-		char ch1, ch2;
-		
-		// Only compare if the sequences are of the same length
+		int dims = average.length;
+		int n = getSize();
 		
-		if (sb1.length() == sb2.length())
+		if ((runMean == null) || (runMean.length != dims)
+			|| ((average != runAverage) && (runAverage != null))
+			|| ((sigma != runSigma) && (runSigma != null)))
 		{
-			for (int i = 0; i < sb1.length(); i++)
+			runMean = new double[dims];
+			runM2 = new double[dims];
+			runSums = new double[dims];
+			runSquares = new double[dims];
+			runAverage = average;
+			runSigma = sigma;
+			bStatsChanged = true;
+			
+			// The sums of squares kept by the loaders lose the variance of columns
+			// whose spread is small next to their mean, so if the values are in
+			// the column store then take two passes over it instead. The store
+			// already holds the new item.
+			
+			if (bInStore && (store.getNumRows() == n) && (dims == types.size()))
+			{
+				seedRunningStats();
+				return true;
+			}
+			
+			for (int j = 0; j < dims; j++)
 			{
-				ch1 = sb1.charAt(i);
-				ch2 = sb2.charAt(i);
+				runMean[j] = average[j];
+				
+				if (!Double.isNaN(sigma[j]))
+					runM2[j] = sigma[j] * sigma[j] * (double)prior;
 				
-				if (ch1 != ch2)
-					score++;
+				if (j < sumOfVals.length)
+					runSums[j] = sumOfVals[j];
+				
+				if (j < sumOfSquares.length)
+					runSquares[j] = sumOfSquares[j];
 			}
 		}
 		
-		return (double)score / (double)sb1.length();
+		return false;
 	}
 	
 	/**
-	* Return 1 - Jaccard similarity coefficient of two items
+	* Compute the running values of the numeric columns from the column store
 	*/
 	
-	private double getJaccardDistance(int item1, int item2)
+	private void seedRunningStats()
 	{
-		Object[] item1Vals = ((DataItem)dataItems.get(item1)).getValues();
-		Object[] item2Vals = ((DataItem)dataItems.get(item2)).getValues();
-		double val1 = 0, val2 = 0;
-		int A = 0, B = 0, C = 0;
+		int n = store.getNumRows();
+		int type;
+		double val;
+		double delta;
 		
-		for ( int i = 0 ; i < item2Vals.length ; i++ )
+		for (int j = 0; j < runMean.length; j++)
 		{
-			if (item2Vals[i] instanceof Double)
-			{
-				val1 = ((Double)item2Vals[i]).doubleValue();
-				val2 = ((Double)item1Vals[i]).doubleValue();
-			}
-			else
+			type = ((Integer)types.get(j)).intValue();
+			
+			if ((type == STRING) || (n == 0))
+				continue;
+			
+			for (int i = 0; i < n; i++)
 			{
-				val1 = ((Integer)item2Vals[i]).intValue();
-				val2 = ((Integer)item1Vals[i]).intValue();
+				if (!store.isNull(i, j))
+				{
+					val = store.getDouble(i, j);
+					runSums[j] += val;
+					runSquares[j] += val * val;
+				}
 			}
 			
-			if ((val1 > 0) && (val2 > 0))
-				A++;
-			
-			if ((val1 > 0) && (val2 == 0))
-				B++;
+			runMean[j] = runSums[j] / (double)n;
 			
-			if ((val2 > 0) && (val1 == 0))
-				C++;
+			for (int i = 0; i < n; i++)
+			{
+				val = store.isNull(i, j) ? 0d : store.getDouble(i, j);
+				delta = val - runMean[j];
+				runM2[j] += delta * delta;
+			}
 		}
-		
-		double denominator = ((double)(A + B + C));
-		
-		if ((denominator == 0) || (A == 0))
-			return 5;
-		else
-			return 1 - ((double)A / denominator);
 	}
 	
 	/**
-	* Same as the above but using only the variables identified by the ArrayList
+	* Return the value of a column of an item as it counts towards the statistics
 	*/
 	
-	private double getJaccardDistance(int item1, int item2, ArrayList springVar)
+	private double getStatsValue(DataItem data, int col)
 	{
-		Object[] item1Vals = ((DataItem)dataItems.get(item1)).getValues();
-		Object[] item2Vals = ((DataItem)dataItems.get(item2)).getValues();
-		double val1 = 0, val2 = 0;
-		int A = 0, B = 0, C = 0;
+		if (data.isText())
+			return (col < data.getNumTextValues()) ? data.getTextValue(col) : 0d;
 		
-		for ( int i = 0 ; i < item2Vals.length ; i++ )
-		{
-			if (springVar.contains(new Integer(i)))
-			{
-				if (item2Vals[i] instanceof Double)
-				{
-					val1 = ((Double)item2Vals[i]).doubleValue();
-					val2 = ((Double)item1Vals[i]).doubleValue();
-				}
-				else
-				{
-					val1 = ((Integer)item2Vals[i]).intValue();
-					val2 = ((Integer)item1Vals[i]).intValue();
-				}
-				
-				if ((val1 > 0) && (val2 > 0))
-					A++;
-				
-				if ((val1 > 0) && (val2 == 0))
-					B++;
-				
-				if ((val2 > 0) && (val1 == 0))
-					C++;
-			}
-		}
+		if (col >= types.size())
+			return 0d;
 		
-		double denominator = ((double)(A + B + C));
+		Object val = data.getValue(col);
 		
-		if ((denominator == 0.0) || (A == 0))
-			return 1;
-		else
-			return (1 - ((double)A / denominator));
+		if (val == null)
+			return 0d;
+		
+		switch (((Integer)types.get(col)).intValue())
+		{
+			case DATE:
+				return (double)((Date)val).getTime();
+			case INTEGER:
+				return (double)((Integer)val).intValue();
+			case DOUBLE:
+				return ((Double)val).doubleValue();
+			default:
+				return 0d;
+		}
 	}
 	
 	/**
-	* Return the Euclidean distance between two items
+	* If items have been added since the statistics were last read, copy
+	* the running values out to new arrays. The old arrays are left as they
+	* were since they may be shared with collections made from this one.
 	*/
 	
-	private double getDistance(int item1, int item2)
+	private synchronized void publishRunningStats()
 	{
-		double val1, val2 = 0.0;
-		double sumDiff = 0.0;
-		double ordDiff = 1.0;
-		int cols = 0;
+		if (!bStatsChanged)
+			return;
+		
+		bStatsChanged = false;
+		
+		if ((average != runAverage) || (sigma != runSigma))
+			return;
+		
+		int n = getSize();
+		double[] newSigma = new double[runM2.length];
 		
-		val1 = 0.0; val2 = 0.0;
+		for (int j = 0; j < newSigma.length; j++)
+			newSigma[j] = Math.sqrt(Math.max(runM2[j], 0d) / (double)n);
 		
-		Object[] item1Vals = ((DataItem)dataItems.get(item1)).getValues();
-		Object[] item2Vals = ((DataItem)dataItems.get(item2)).getValues();
+		average = (double[])runMean.clone();
+		sigma = newSigma;
+		sumOfVals = (double[])runSums.clone();
+		sumOfSquares = (double[])runSquares.clone();
+		runAverage = average;
+		runSigma = sigma;
+	}
+	
+	private synchronized void resetRunningStats()
+	{
+		runMean = null;
+		runM2 = null;
+		runSums = null;
+		runSquares = null;
+		runAverage = null;
+		runSigma = null;
+		bStatsChanged = false;
+	}
+	
+	/**
+	* Register an object to be told whenever items are appended to this collection
+	*/
+	
+	public synchronized void addDataChangedListener(DataChangedListener listener)
+	{
+		if (changeListeners == null)
+			changeListeners = new ArrayList();
 		
-		//iterate thro' values while calcing distance between vars
+		if (!changeListeners.contains(listener))
+			changeListeners.add(listener);
+	}
+	
+	public synchronized void removeDataChangedListener(DataChangedListener listener)
+	{
+		if (changeListeners != null)
+			changeListeners.remove(listener);
+	}
+	
+	/**
+	* Tell the change listeners that items have been appended
+	*/
+	
+	private void fireItemsAppended(int first, int count)
+	{
+		Object[] listeners;
 		
-		for ( int i = 0 ; i < item2Vals.length ; i++ )
+		synchronized (this)
 		{
-			if (item2Vals[i] instanceof Date && item1Vals[i] instanceof Date)
-			{
-				val1 = (double)((Date)item2Vals[i]).getTime();
-				val2 = (double)((Date)item1Vals[i]).getTime();
-				
-				if ((sigma[i] != 0) && (!Double.isNaN(sigma[i])))
-				{
-					val1 = (val1 - average[i]) / (STANDARD_DEVS * sigma[i]);
-					val2 = (val2 - average[i]) / (STANDARD_DEVS * sigma[i]);
-				}
-				sumDiff += ( (val1 - val2) * (val1 - val2) );
-				cols++;
-			}
-			else if (item2Vals[i] instanceof String && item1Vals[i] instanceof String)
-			{
-				if (((String)item2Vals[i]).compareTo((String)item1Vals[i]) == 0)
-					ordDiff *= ORD_FACTOR;
-				
-				cols++;
-			}
-			else if (item2Vals[i] instanceof Integer && item1Vals[i] instanceof Integer)
-			{
-				val1 = (double)((Integer)item2Vals[i]).intValue();
-				val2 = (double)((Integer)item1Vals[i]).intValue();
-				
-				if ((sigma[i] != 0) && (!Double.isNaN(sigma[i])))
-				{
-					val1 = (val1 - average[i]) / (STANDARD_DEVS * sigma[i]);
-					val2 = (val2 - average[i]) / (STANDARD_DEVS * sigma[i]);
-				}
-				sumDiff += ( (val1 - val2) * (val1 - val2) );
-				cols++;
-			}
-			else if (item2Vals[i] instanceof Double && item1Vals[i] instanceof Double)
-			{
-				val1 = ((Double)item2Vals[i]).doubleValue();
-				val2 = ((Double)item1Vals[i]).doubleValue();
-				
-				if ((sigma[i] != 0) && (!Double.isNaN(sigma[i])))
-				{
-					val1 = (val1 - average[i]) / (STANDARD_DEVS * sigma[i]);
-					val2 = (val2 - average[i]) / (STANDARD_DEVS * sigma[i]);
-				}
-				
-				// sum of square of diffs
-				
-				sumDiff += ( (val1 - val2) * (val1 - val2) );
-				cols++;
-			}
+			if ((changeListeners == null) || (changeListeners.size() == 0))
+				return;
+			
+			listeners = changeListeners.toArray();
 		}
 		
-		sumDiff = Math.sqrt(sumDiff);
-		sumDiff *= ordDiff;
-		
-		//scale by the number of valid column item2Vals that existed
+		for (int i = 0; i < listeners.length; i++)
+			((DataChangedListener)listeners[i]).itemsAppended(this, first, count);
+	}
+	
+	/**
+	* Returns the desired distance between these two objects.  Normalisation version
+	*
+	* @param item1 The first object in the distance relation
+	* @param item2 The second object
+	* @return The desired distance
+	*/
+	public double getDesiredDist(int item1, int item2)
+	{
+		return getMetric().distance(item1, item2);
+	}
+	
+	/**
+	* Same as the above except we specify which attributes to included in the distance calc
+	*/
+	
+	public double getDesiredDist(int item1, int item2, ArrayList springVar)
+	{
+		return getMetric(springVar).distance(item1, item2);
+	}
+	
+	/**
+	* Return the distance metric for this collection. The metric is built on
+	* first use and kept until the collection changes, so modules that make
+	* many distance calculations should fetch it once and call it directly.
+	*/
+	
+	public DistanceMetric getMetric()
+	{
+		DistanceMetric m = metric;
 		
-		sumDiff *= (double)item2Vals.length / (double)cols;
-		return sumDiff;
-		//return Math.exp(1.4 * sumDiff); // Monotonic Gaussian transformation to test NMDS function recovery
+		if (m == null)
+		{
+			m = compileMetric(null);
+			metric = m;
+		}
+		return m;
 	}
 	
 	/**
-	* Same as the above but using only the variables that are specified by the ArrayList
+	* Return the distance metric that uses only the variables in springVar.
+	* If springVar is null then all variables are used.
 	*/
 	
-	private double getDistance(int item1, int item2, ArrayList springVar)
+	public synchronized DistanceMetric getMetric(ArrayList springVar)
 	{
-		double val1, val2 = 0.0;
-		double sumDiff = 0.0;
-		double ordDiff = 1.0;
-		int cols = 0;
+		if (springVar == null)
+			return getMetric();
 		
-		val1 = 0.0; val2 = 0.0;
+		if ((subsetMetric == null) || !springVar.equals(subsetVars))
+		{
+			subsetMetric = compileMetric(springVar);
+			subsetVars = new ArrayList(springVar);
+		}
+		return subsetMetric;
+	}
+	
+	/**
+	* Discard the compiled distance metrics. This is called whenever the items
+	* or normalisation data change and should also be called by modules that
+	* modify the values of items in place.
+	*/
+	
+	public synchronized void invalidateMetric()
+	{
+		metric = null;
+		subsetMetric = null;
+		subsetVars = null;
+		distanceMatrix = null;
+		bitMatrix = null;
+		packedSequences = null;
+		sortedIndexes = null;
+	}
+	
+	/**
+	* Return the values packed as one bitset per item, with a bit set
+	* where the value is greater than zero. Only meaningful for binary data.
+	*/
+	
+	public synchronized BitMatrix getBitMatrix()
+	{
+		if (bitMatrix == null)
+			bitMatrix = new BitMatrix(store);
 		
-		Object[] item1Vals = ((DataItem)dataItems.get(item1)).getValues();
-		Object[] item2Vals = ((DataItem)dataItems.get(item2)).getValues();
+		return bitMatrix;
+	}
+	
+	/**
+	* Return the sequences of the first column, each encoded once into a
+	* packed array. Only meaningful for sequence data.
+	*/
+	
+	public synchronized PackedSequences getPackedSequences()
+	{
+		if (packedSequences == null)
+			packedSequences = new PackedSequences(store);
 		
-		//iterate thro' values while calcing distance between vars
+		return packedSequences;
+	}
+	
+	/**
+	* Return the matrix of all pairwise distances between the items. The
+	* matrix is computed in parallel on first request and then shared by
+	* every module that asks for it until the collection changes.
+	*/
+	
+	public DistanceMatrix getDistanceMatrix()
+	{
+		return getDistanceMatrix(bSinglePrecision);
+	}
+	
+	/**
+	* As above, but if bFloat is true and the matrix has to be built then
+	* it stores the distances as floats to halve its memory
+	*/
+	
+	public synchronized DistanceMatrix getDistanceMatrix(boolean bFloat)
+	{
+		DistanceMatrix matrix = getCachedDistanceMatrix();
 		
-		for ( int i = 0 ; i < item2Vals.length ; i++ )
+		if ((matrix == null) || (matrix.isFloat() && !bFloat))
 		{
-			if (springVar.contains(new Integer(i)))
+			if (bLowerTriangular)
 			{
-				if (item2Vals[i] instanceof Date && item1Vals[i] instanceof Date)
-				{
-					val1 = (double)((Date)item2Vals[i]).getTime();
-					val2 = (double)((Date)item1Vals[i]).getTime();
-					
-					if ((sigma[i] != 0) && (!Double.isNaN(sigma[i])))
-					{
-						val1 = (val1 - average[i]) / (STANDARD_DEVS * sigma[i]);
-						val2 = (val2 - average[i]) / (STANDARD_DEVS * sigma[i]);
-					}
-					sumDiff += ( (val1 - val2) * (val1 - val2) );
-					cols++;
-				}
-				else if (item2Vals[i] instanceof String && item1Vals[i] instanceof String)
-				{
-					if (((String)item2Vals[i]).compareTo((String)item1Vals[i]) == 0)
-						ordDiff *= ORD_FACTOR;
-					
-					cols++;
-				}
-				else if (item2Vals[i] instanceof Integer && item1Vals[i] instanceof Integer)
-				{
-					val1 = (double)((Integer)item2Vals[i]).intValue();
-					val2 = (double)((Integer)item1Vals[i]).intValue();
-					
-					if ((sigma[i] != 0) && (!Double.isNaN(sigma[i])))
-					{
-						val1 = (val1 - average[i]) / (STANDARD_DEVS * sigma[i]);
-						val2 = (val2 - average[i]) / (STANDARD_DEVS * sigma[i]);
-					}
-					sumDiff += ( (val1 - val2) * (val1 - val2) );
-					cols++;
-				}
-				else if (item2Vals[i] instanceof Double && item1Vals[i] instanceof Double)
-				{
-					val1 = ((Double)item2Vals[i]).doubleValue();
-					val2 = ((Double)item1Vals[i]).doubleValue();
-					
-					if ((sigma[i] != 0) && (!Double.isNaN(sigma[i])))
-					{
-						val1 = (val1 - average[i]) / (STANDARD_DEVS * sigma[i]);
-						val2 = (val2 - average[i]) / (STANDARD_DEVS * sigma[i]);
-					}
-					
-					// sum of square of diffs
-					
-					sumDiff += ( (val1 - val2) * (val1 - val2) );
-					cols++;
-				}
+				packTriangle();
+				
+				if (mappedTriangle != null)
+					matrix = new DistanceMatrix(mappedTriangle, getSize());
+				else
+					matrix = new DistanceMatrix(triangle_lower_Array, getSize());
 			}
+			else
+				matrix = new DistanceMatrix(getMetric(), getSize(), bFloat);
+			
+			distanceMatrix = new SoftReference(matrix);
 		}
-		
-		sumDiff = Math.sqrt(sumDiff);
-		sumDiff *= ordDiff;
-		
-		//scale by the number of valid column item2Vals that existed
-		
-		sumDiff *= (double)item2Vals.length / (double)cols;
-		return sumDiff;
+		return matrix;
 	}
 	
-	private double getDoubleValueDistance(int item1, int item2)
+	/**
+	* Return the shared distance matrix if it has been built and not yet
+	* reclaimed, otherwise null
+	*/
+	
+	private DistanceMatrix getCachedDistanceMatrix()
 	{
-		// ********** Euclidean distance ***************
-		
-		/*double val1, val2 = 0.0;
-		double sumDiff = 0.0;
-		double ordDiff = 1.0;
+		if (distanceMatrix == null)
+			return null;
 		
-		val1 = 0.0; val2 = 0.0;
-		
-		double[] item1Vals = ((DataItem)dataItems.get(item1)).getTextValues();
-		double[] item2Vals = ((DataItem)dataItems.get(item2)).getTextValues();
-		
-		//iterate thro' values while calcing distance between vars
-		
-		for ( int i = 0 ; i < item2Vals.length ; i++ )
+		return (DistanceMatrix)distanceMatrix.get();
+	}
+	
+	/**
+	* Return the index of the rows of a column in ascending order of value,
+	* for finding the items that fall within a range of values without
+	* visiting each of them. The index is built on the first request and
+	* kept until the collection changes.
+	*/
+	
+	public synchronized SortedIndex getSortedIndex(int col)
+	{
+		if ((sortedIndexes == null) || (col >= sortedIndexes.length))
 		{
-			val1 = item2Vals[i];
-			val2 = item1Vals[i];
+			SortedIndex[] indexes = new SortedIndex[Math.max(col + 1, getFields().size())];
 			
-			// sum of square of diffs
+			if (sortedIndexes != null)
+				System.arraycopy(sortedIndexes, 0, indexes, 0, sortedIndexes.length);
 			
-			sumDiff += ( (val1 - val2) * (val1 - val2) );
+			sortedIndexes = indexes;
 		}
 		
-		if (sumDiff > 0)
-			sumDiff = Math.sqrt(sumDiff);
+		if (sortedIndexes[col] == null)
+			sortedIndexes[col] = new SortedIndex(this, col);
 		
-		return sumDiff;*/
+		return sortedIndexes[col];
+	}
+	
+	/**
+	* Drop the shared distance matrix so that its memory can be reclaimed
+	* as soon as the modules that asked for it let go of it
+	*/
+	
+	public synchronized void releaseDistanceMatrix()
+	{
+		distanceMatrix = null;
+	}
+	
+	/**
+	* Choose the distance metric appropriate to the data and build it
+	*/
+	
+	private DistanceMetric compileMetric(ArrayList springVar)
+	{
+		if (bLowerTriangular)
+			if (mappedTriangle != null)
+				return new TriangleMetric(mappedTriangle, triangleRows);
+			else
+				return new TriangleMetric(triangle_lower_Array, triangleRows);
 		
-		// ********** Cosine similarity ***************
+		// DataItem consists only of doubles
 		
-		double[] item1Vals = ((DataItem)dataItems.get(item1)).getTextValues();
-		double[] item2Vals = ((DataItem)dataItems.get(item2)).getTextValues();
-		double innerProduct = 0;
-		double len1 = 0, len2 = 0;
-		double val1 = 0, val2 = 0;
+		if (bTextCorpus || ((dataItems.size() > 0) && ((DataItem)dataItems.get(0)).isText()))
+			return new CosineMetric(this);
 		
-		for ( int i = 0 ; i < item2Vals.length ; i++ )
-		{
-			val1 = item2Vals[i];
-			val2 = item1Vals[i];
-			
-			innerProduct += (val1 * val2);
-			len1 += (val1 * val1);
-			len2 += (val2 * val2);
-		}
+		// The data are genetic sequences, calculate the hamming distance
 		
-		len1 = Math.sqrt(len1);
-		len2 = Math.sqrt(len2);
+		if (bSequenceData && (springVar == null))
+			return new HammingMetric(this);
 		
-		if (((len1 == 0) || (len2 == 0)) && !((len1 == 0) && (len2 == 0)))
-		{
-			return 5;
-		}
-		else if ((len1 == 0) && (len2 == 0))
-			return 0;
-		else
-		{
-			double s = (innerProduct / (len1 * len2));
-			
-			return (1 - s);
-		}
+		// Data Item consists of objects not primitives
 		
-		// ********** Jaccard Similarity Coefficient ***************
+		int[] active = getActiveColumns(springVar);
 		
-		/*double[] item1Vals = ((DataItem)dataItems.get(item1)).getTextValues();
-		double[] item2Vals = ((DataItem)dataItems.get(item2)).getTextValues();
-		double val1 = 0, val2 = 0;
-		int A = 0, B = 0, C = 0;
+		if (bBinary)
+			return new JaccardMetric(this, active, (springVar == null) ? 5 : 1);
+		
+		// If every selected column is numeric and complete then the values can
+		// be z-scored up front
 		
-		for ( int i = 0 ; i < item2Vals.length ; i++ )
+		for (int i = 0; i < active.length; i++)
 		{
-			val1 = item2Vals[i];
-			val2 = item1Vals[i];
+			int kind = store.getKind(active[i]);
 			
-			if ((val1 > 0) && (val2 > 0))
-				A++;
+			if ((kind != DOUBLE) && (kind != INTEGER) && (kind != DATE))
+				return new MixedMetric(this, active);
 			
-			if ((val1 > 0) && (val2 == 0))
-				B++;
-			
-			if ((val2 > 0) && (val1 == 0))
-				C++;
+			for (int j = 0; j < store.getNumRows(); j++)
+				if (store.isNull(j, active[i]))
+					return new MixedMetric(this, active);
 		}
 		
-		if ((A == 0) || ((A + B + C) == 0))
-			return 5;
-		else
-			return (1 - ((double)A / ((double)(A + B + C))));*/
-		
-		// ********** Simple Matching Coefficient ***************
+		if (active.length == 0)
+			return new MixedMetric(this, active);
 		
-		/*double[] item1Vals = ((DataItem)dataItems.get(item1)).getTextValues();
-		double[] item2Vals = ((DataItem)dataItems.get(item2)).getTextValues();
-		double val1 = 0, val2 = 0;
-		int A = 0, B = 0, C = 0, D = 0;
+		return new EuclideanMetric(this, active);
+	}
+	
+	/**
+	* Return the indices of the columns to use in distance calculations
+	*/
+	
+	private int[] getActiveColumns(ArrayList springVar)
+	{
+		int numCols = store.getNumColumns();
+		int count = 0;
+		int[] active = new int[numCols];
 		
-		for ( int i = 0 ; i < item2Vals.length ; i++ )
-		{
-			val1 = item2Vals[i];
-			val2 = item1Vals[i];
-			
-			if ((val1 > 0) && (val2 > 0))
-				A += (val1 + val2);
-			else if ((val1 > 0) && (val2 == 0))
-				B += val1;
-			else if ((val2 > 0) && (val1 == 0))
-				C += val2;
-			else if ((val1 == 0) && (val2 == 0))
-				D++;
-		}
+		for (int i = 0; i < numCols; i++)
+			if ((springVar == null) || springVar.contains(new Integer(i)))
+				active[count++] = i;
 		
-		return (1 - ((double)(A + D) / ((double)(A + B + C + D))));*/
+		int[] result = new int[count];
+		System.arraycopy(active, 0, result, 0, count);
+		return result;
 	}
 	
 	/**
@@ -1012,7 +1424,30 @@ public class DataItemCollection implements Serializable
 	}
 	
 	public void setDataItems(ArrayList d){
+		invalidateMetric();
+		
 		dataItems=d;
+		idIndex = null;
+		
+		// Rebuild the column store so that its rows match the new items
+		
+		if (!bLowerTriangular && !bTextCorpus)
+		{
+			ColumnStore newStore = new ColumnStore(types);
+			DataItem item;
+			Object[] vals;
+			
+			for (int i = 0; i < dataItems.size(); i++)
+			{
+				item = (DataItem)dataItems.get(i);
+				vals = item.getValues();
+				int row = newStore.appendRow(vals);
+				
+				if ((item.getStore() == null || item.getStore() == store) && (vals.length == newStore.getNumColumns()))
+					item.bind(newStore, row);
+			}
+			store = newStore;
+		}
 	}
 	
 	/**
@@ -1032,27 +1467,66 @@ public class DataItemCollection implements Serializable
 	
 	public DataItem getDataItemByID(int ID)
 	{
-		DataItem item = null;
+		int index = getIndexOfID(ID);
+		
+		if (index < 0)
+			return null;
+		else
+			return (DataItem)dataItems.get(index);
+	}
+	
+	/**
+	* Returns the position in the collection of the item with the given ID,
+	* or -1 if there is no such item
+	*/
+	
+	public synchronized int getIndexOfID(int ID)
+	{
+		// Rebuild the index if the item list has been changed directly
 		
-		for (int i = 0; i < getSize(); i++)
+		if ((idIndex == null) || (numIndexed != dataItems.size()))
+			buildIDIndex();
+		
+		int index = idIndex.get(ID);
+		
+		if ((index >= 0) && (((DataItem)dataItems.get(index)).getID() != ID))
 		{
-			item = (DataItem)dataItems.get(i);
-			if (item.getID() == ID)
-				return item;
+			buildIDIndex();
+			index = idIndex.get(ID);
 		}
 		
-		return null;
+		return (index < getSize()) ? index : -1;
+	}
+	
+	/**
+	* Add a newly appended item to the ID index, if it has been built
+	*/
+	
+	private synchronized void indexID(DataItem data)
+	{
+		if ((idIndex != null) && (numIndexed == dataItems.size() - 1))
+		{
+			idIndex.put(data.getID(), numIndexed);
+			numIndexed++;
+		}
+	}
+	
+	private void buildIDIndex()
+	{
+		idIndex = new IDIndex(dataItems);
+		numIndexed = dataItems.size();
 	}
 	
 	/**
 	* Returns the data from a specified "column".  This allows the data  
 	* to be accessed from a different direction, instead of just in rows
-	* by getting data items
+	* by getting data items. The returned list is a view onto the column
+	* store, values are boxed as they are accessed.
 	*
 	* @param colNum The required column number
-	* @return The ArrayList of data from that column
+	* @return The List of data from that column
 	*/
-	public ArrayList getColumn(int colNum)
+	public List getColumn(int colNum)
 	{
 		if (bTextCorpus)
 		{
@@ -1060,16 +1534,130 @@ public class DataItemCollection implements Serializable
 			
 			for (int i = 0; i < getSize(); i++)
 			{
-				cTemp.add(new Double(((DataItem)dataItems.get(i)).getTextValues()[colNum]));
+				cTemp.add(new Double(((DataItem)dataItems.get(i)).getTextValue(colNum)));
 			}
 			return cTemp;
 		}
 		else
-			return (ArrayList)columns.get(colNum);
+			return store.column(colNum);
+	}
+	
+	/**
+	* Returns the columnar store holding the values of this collection, so that
+	* performance critical code can read the primitive arrays directly
+	*/
+	
+	public ColumnStore getColumnStore()
+	{
+		return store;
+	}
+	
+	/**
+	* Return the dictionary (code -> String) of a string attribute, or null
+	* if the attribute isn't held as dictionary codes
+	*/
+	
+	public ArrayList getDictionary(int col)
+	{
+		if (bTextCorpus || bLowerTriangular || (col >= store.getNumColumns()))
+			return null;
+		
+		return store.getDictionary(col);
+	}
+	
+	/**
+	* Return the dictionary code of a string attribute of an item, or -1 if
+	* the value is missing or the attribute isn't dictionary encoded
+	*/
+	
+	public int getStringCode(int index, int col)
+	{
+		if (bTextCorpus || bLowerTriangular || (col >= store.getNumColumns())
+			|| (index >= store.getNumRows()))
+			return -1;
+		
+		return store.getStringCode(index, col);
+	}
+	
+	/**
+	* Return, for each dictionary code of a string attribute, the position of
+	* its string in sorted order, or null if the attribute isn't dictionary
+	* encoded. Comparing ranks orders items as String.compareTo() would.
+	*/
+	
+	public int[] getStringRanks(int col)
+	{
+		if (bTextCorpus || bLowerTriangular || (col >= store.getNumColumns()))
+			return null;
+		
+		return store.getSortedRanks(col);
+	}
+	
+	/**
+	* Replace the items of this collection with one item per row of the given
+	* column store. This is used when the columns have been read directly, e.g.
+	* from a snapshot, so the maxima and minima are not recalculated and should
+	* be set by the caller.
+	*
+	* @param store The store holding the values, one column per type
+	* @param IDs The ID of the item for each row of the store
+	*/
+	
+	public void setColumnStore(ColumnStore store, int[] IDs)
+	{
+		invalidateMetric();
+		
+		this.bTextCorpus = false;
+		this.store = store;
+		size = store.getNumRows();
+		dataItems = new ArrayList(size);
+		idIndex = null;
+		DataItem item;
+		
+		for (int i = 0; i < size; i++)
+		{
+			item = new DataItem(IDs[i]);
+			item.bind(store, i);
+			dataItems.add(item);
+		}
+		
+		applyPrecision();
+	}
+	
+	/**
+	* The following return the column store, types, maximums and minimums
+	* as they were before the data were normalised to [0, 1]
+	*/
+	
+	public ColumnStore getOriginalColumnStore()
+	{
+		return (bNormalised && (oldStore != null)) ? oldStore : store;
 	}
 	
-	public void setColumns(ArrayList c){
-		columns = c;
+	public ArrayList getOriginalTypes()
+	{
+		return bNormalised ? oldTypes : types;
+	}
+	
+	public ArrayList getOriginalMaximums()
+	{
+		return bNormalised ? oldMaximums : maximums;
+	}
+	
+	public ArrayList getOriginalMinimums()
+	{
+		return bNormalised ? oldMinimums : minimums;
+	}
+	
+	/**
+	* Release the spare capacity of the item list and column store once
+	* the collection has been fully loaded
+	*/
+	
+	public void trimToSize()
+	{
+		dataItems.trimToSize();
+		store.trimToSize();
 	}
 	
 	
@@ -1165,21 +1753,29 @@ public class DataItemCollection implements Serializable
 	
 	public double[] sigma()
 	{
+		publishRunningStats();
+		
 		return sigma;
 	}
 	
 	public void setSigma(double[] sigma)
 	{
+		invalidateMetric();
+		
 		this.sigma = sigma;
 	}
 	
 	public double[] average()
 	{
+		publishRunningStats();
+		
 		return average;
 	}
 	
 	public void setAverage(double[] average)
 	{
+		invalidateMetric();
+		
 		this.average = average;
 	}
 	
@@ -1217,7 +1813,7 @@ public class DataItemCollection implements Serializable
 	
 	public int getDimensionalityClass()
 	{
-		dimensionality = DataVolumeThreshold.getDimensionalityClass(columns.size());
+		dimensionality = DataVolumeThreshold.getDimensionalityClass(types.size());
 		return dimensionality;
 	}
 	
@@ -1227,21 +1823,29 @@ public class DataItemCollection implements Serializable
 	
 	public double[] getSumOfVals()
 	{
+		publishRunningStats();
+		
 		return sumOfVals;
 	}
 	
 	public double[] getSumOfSquares()
 	{
+		publishRunningStats();
+		
 		return sumOfSquares;
 	}
 	
 	public double[] getAverage()
 	{
+		publishRunningStats();
+		
 		return average;
 	}
 	
 	public double[] getSigma()
 	{
+		publishRunningStats();
+		
 		return sigma;
 	}
 	
@@ -1310,6 +1914,8 @@ public class DataItemCollection implements Serializable
 	
 	public void determineSequenceData()
 	{
+		invalidateMetric();
+		
 		// If there is only one column and the first value for that column
 		// consists of a string then we can assume (for now) that the
 		// data are sequences
@@ -1330,6 +1936,8 @@ public class DataItemCollection implements Serializable
 	
 	public void determineBinary()
 	{
+		invalidateMetric();
+		
 		if (!bTextCorpus)
 		{
 			ArrayList aTemp = new ArrayList(); 
@@ -1402,6 +2010,8 @@ public class DataItemCollection implements Serializable
 	
 	public void setBinary(boolean b)
 	{
+		invalidateMetric();
+		
 		bBinary = b;
 	}
 	
@@ -1418,7 +2028,6 @@ public class DataItemCollection implements Serializable
 	ArrayList fields    = new ArrayList();
         ArrayList maxima  = new ArrayList();
         ArrayList minima  = new ArrayList();
-        ArrayList columns   = new ArrayList();
 	ArrayList numericDim = new ArrayList();
 	ArrayList numericDimNumbers = new ArrayList();	
 	double[] sigma;
@@ -1433,7 +2042,6 @@ public class DataItemCollection implements Serializable
 		fields.add(this.fields.get(i));
 		maxima.add(this.maximums.get(i));
 		minima.add(this.minimums.get(i));
-		columns.add(this.columns.get(i));
 		numericDim.add(this.numericDim.get(i));
 		numericDimNumbers.add(new Integer(((Integer)this.numericDimNumbers.get(i)).intValue()-skipped));
 	    }else{
@@ -1442,6 +2050,7 @@ public class DataItemCollection implements Serializable
 	}
 	average = new double[actives];
 	sigma  = new double[actives];
+	publishRunningStats();
 	actives=0;
 	for (int i=0; i<active.size(); i++){
 	    if (((Boolean)active.get(i)).booleanValue()){
@@ -1458,13 +2067,44 @@ public class DataItemCollection implements Serializable
         newCollection.setIndexPath(getIndexPath());
 	newCollection.setMaxima(maxima);
 	newCollection.setMinima(minima);
-	newCollection.setColumns(columns);
 	newCollection.setNumericDims(numericDim);
 	newCollection.setNumericDimNumbers(numericDimNumbers);
 
+	int[] cols = new int[fields.size()];
+	actives=0;
+	for (int i=0; i<active.size(); i++)
+	    if (((Boolean)active.get(i)).booleanValue())
+		cols[actives++] = i;
+
+	DataItem thisItem, newItem; Object[] vals;
+	if (isFullyBound()) {
+	    // read the active columns through a view onto this collection's
+	    // store, with new items so that this collection's stay bound to it
+	    int[] rows = new int[size];
+	    ArrayList items = new ArrayList(size);
+	    for (int i = 0; i < size; i++) {
+		thisItem = getDataItem(i);
+		newItem = new DataItem(thisItem.getID());
+		newItem.setPath(thisItem.getPath());
+		items.add(newItem);
+		rows[i] = i;
+	    }
+	    newCollection.setView(store.view(rows, cols), items, false);
+	    newCollection.setSinglePrecision(bSinglePrecision);
+	    return newCollection;
+	}
+
+	// otherwise copy the values of the active columns only, into new items
 	for (int i = 0; i < this.dataItems.size(); i++)  {
-	    newCollection.addItem(getDataItem(i));
+	    thisItem = getDataItem(i);
+	    vals = new Object[cols.length];
+	    for (int j=0; j<cols.length; j++)
+		vals[j]=thisItem.getValue(cols[j]);
+	    newItem = new DataItem(vals, thisItem.getID());
+	    newItem.setPath(thisItem.getPath());
+	    newCollection.addItem(newItem);
         }
+	newCollection.setSinglePrecision(bSinglePrecision);
 
 	return newCollection;
     }
@@ -1476,6 +2116,49 @@ public class DataItemCollection implements Serializable
 	*/
 	
 	public DataItemCollection createNewCollection(int[] IDs)
+	{
+		return createNewCollection(IDs, true);
+	}
+	
+	/**
+	* Return a collection of the items loaded so far that doesn't change as
+	* further items are added to this one, so that it can be passed on while
+	* a file is still loading. Appending rows never changes the rows beneath
+	* a view, so the values are read through a view onto this collection's
+	* column store, and the statistics are copied rather than rescanned.
+	*/
+	
+	public DataItemCollection snapshot()
+	{
+		publishRunningStats();
+		
+		int[] IDs = new int[size];
+		for (int i = 0; i < size; i++)
+			IDs[i] = i;
+		
+		DataItemCollection newCollection = createNewCollection(IDs, false);
+		if (maximums != null)
+		{
+			newCollection.setMaxima(new ArrayList(maximums));
+			newCollection.setMinima(new ArrayList(minimums));
+		}
+		
+		if (sumOfVals != null)
+		{
+			newCollection.setSumOfVals((double[])sumOfVals.clone());
+			newCollection.setSumOfSquares((double[])sumOfSquares.clone());
+		}
+		
+		if (average() != null)
+		{
+			newCollection.setAverage((double[])average.clone());
+			newCollection.setSigma((double[])sigma.clone());
+		}
+		
+		return newCollection;
+	}
+	
+	private DataItemCollection createNewCollection(int[] IDs, boolean bMaxMin)
 	{
 		DataItemCollection newCollection = new DataItemCollection();
 		newCollection.setTypes(new ArrayList(types));
@@ -1489,36 +2172,73 @@ public class DataItemCollection implements Serializable
 		newCollection.setSumOfVals(sumOfVals);
 		newCollection.setSumOfSquares(sumOfSquares);
 		newCollection.setLowerTriangular(bLowerTriangular);
-		int i, j, count = 0;
-		
-		for (i = 0; i < IDs.length; i++)
-		{
-			if (IDs[i] >= 0)
-				if (bLowerTriangular)
-					newCollection.addItem(new DataItem(getDataItem(IDs[i]).getID()));
-				else
-					newCollection.addItem(new DataItem(getDataItem(IDs[i])));
-		}
+		int i, count = 0;
+		DataItem item, newItem;
 		
-		if (bLowerTriangular)
+		if (isFullyBound())
 		{
-			// Create a new triangular matrix.
+			// The new collection reads the selected rows of this collection's
+			// column store through a view rather than copying them. Whichever
+			// of the two stores is changed first takes a copy.
+			
+			int[] rows = new int[IDs.length];
+			ArrayList items = new ArrayList(IDs.length);
+			
+			for (i = 0; i < IDs.length; i++)
+			{
+				if (IDs[i] >= 0)
+				{
+					item = getDataItem(IDs[i]);
+					newItem = new DataItem(item.getID());
+					newItem.setPath(item.getPath());
+					items.add(newItem);
+					rows[count++] = IDs[i];
+				}
+			}
+			
+			int[] rowMap = new int[count];
+			System.arraycopy(rows, 0, rowMap, 0, count);
 			
-			int len = (((IDs.length * IDs.length) - IDs.length) / 2) + IDs.length; // Include the diagonal.
-			double[] newMatrix = new double[len];
-			int newCount = 0;
+			int[] cols = new int[types.size()];
+			for (i = 0; i < cols.length; i++)
+				cols[i] = i;
 			
+			newCollection.setView(store.view(rowMap, cols), items, bMaxMin);
+		}
+		else
+		{
 			for (i = 0; i < IDs.length; i++)
 			{
-				newCount++;
-				for (j = 0; j < IDs.length - (IDs.length - newCount); j++)
+				if (IDs[i] >= 0)
 				{
-					newMatrix[count] = getLowerTriangleDistance(IDs[i], IDs[j]);
-					count++;
+					item = getDataItem(IDs[i]);
+					
+					if (bLowerTriangular)
+						newCollection.addItem(new DataItem(item.getID()));
+					else if (item.getSparseValues() != null)
+					{
+						// Sparse vectors are copied on write, so they can be shared
+						
+						newItem = new DataItem(item.getSparseValues(), item.getID());
+						newItem.setPath(item.getPath());
+						newCollection.addItem(newItem);
+					}
+					else
+						newCollection.addItem(new DataItem(item));
 				}
 			}
+		}
+		
+		if (bLowerTriangular)
+		{
+			// Share the triangular matrix rather than building a new one
 			
-			newCollection.setLowerTriangleData(newMatrix);
+			int[] rows = new int[IDs.length];
+			
+			for (i = 0; i < IDs.length; i++)
+				rows[i] = (triangleRows == null) ? IDs[i] : triangleRows[IDs[i]];
+			
+			newCollection.setLowerTriangleView(triangle_lower_Array, mappedTriangle, rows);
 		}
 		
 		if (rowLabels != null)
@@ -1537,6 +2257,7 @@ public class DataItemCollection implements Serializable
 		newCollection.setVariableFrequencies();
 		
 		newCollection.setSequenceData(bSequenceData);
+		newCollection.setSinglePrecision(bSinglePrecision);
 		
 		return newCollection;
 	}
@@ -1577,6 +2298,7 @@ public class DataItemCollection implements Serializable
 
 	average = new double[actives];
 	sigma  = new double[actives];
+	publishRunningStats();
 	actives=0;
 	for (int i=0; i<active.size(); i++){
 	    if (((Boolean)active.get(i)).booleanValue()){
@@ -1594,6 +2316,27 @@ public class DataItemCollection implements Serializable
 	newCollection.setNumericDims(numericDim);
 	newCollection.setNumericDimNumbers(numericDimNumbers);
 
+	if (isFullyBound()){
+	    // read the selected rows and columns through a view of this store
+	    int[] rows = new int[IDs.length];
+	    int count = 0;
+	    ArrayList items = new ArrayList(IDs.length);
+	    for (int i = 0; i < IDs.length; i++) {
+		if (IDs[i] > 0){
+		    items.add(new DataItem(getDataItem(IDs[i]).getID()));
+		    rows[count++] = IDs[i];
+		}
+	    }
+	    int[] rowMap = new int[count];
+	    System.arraycopy(rows, 0, rowMap, 0, count);
+	    int[] cols = new int[whichInclude.size()];
+	    for (int j=0; j<cols.length; j++)
+		cols[j] = ((Integer)whichInclude.get(j)).intValue();
+	    newCollection.setView(store.view(rowMap, cols), items, true);
+	    newCollection.setSinglePrecision(bSinglePrecision);
+	    return newCollection;
+	}
+
 	DataItem thisItem; Object[] vals;
         for (int i = 0; i < IDs.length; i++) {
             if (IDs[i] > 0){
@@ -1604,6 +2347,7 @@ public class DataItemCollection implements Serializable
 		newCollection.addItem(new DataItem(vals, thisItem.getID()));
 	    }
 	}
+	newCollection.setSinglePrecision(bSinglePrecision);
 
 	return newCollection;
 
@@ -1646,6 +2390,8 @@ public class DataItemCollection implements Serializable
 	
 	public void setNormalised(boolean bNorm)
 	{
+		invalidateMetric();
+		
 		if (allDoublesOrIntegers() && !bTextCorpus)
 		{
 			if (bNorm)
@@ -1674,7 +2420,10 @@ public class DataItemCollection implements Serializable
 	}
 	
 	/**
-	* Normalise the data to the interval [0, 1]
+	* Normalise the data to the interval [0, 1]. The values themselves are
+	* left as they are and the column store scales each column as it is read,
+	* so switching normalisation on and off costs time in proportion to the
+	* number of columns, not the number of items.
 	*/
 	
 	private void normalise_01()
@@ -1682,36 +2431,11 @@ public class DataItemCollection implements Serializable
 		int i;
 		double max;
 		double min;
+		double range;
+		double[] newAverage = new double[types.size()];
+		double[] newSigma = new double[types.size()];
 		
-		// Set the stats arrays
-		
-		sumNormVals = new double[types.size()];
-		sumNormSquares = new double[types.size()];
-		average = new double[sumNormVals.length];
-		sigma   = new double[sumNormSquares.length];
-		
-		// Take a copy of the original data set for de-normalising
-		
-		oldDataItems = new ArrayList(dataItems.size());
-		for (i = 0; i < oldDataItems.size(); i++)
-		{
-			oldDataItems.add(new DataItem((DataItem)dataItems.get(i)));
-			dataItems.add(new DataItem((DataItem)oldDataItems.get(i)));
-		}
-		
-		oldColumns = new ArrayList(columns.size());
-		ArrayList values, newValues;
-		
-		for (i = 0; i < columns.size(); i++)
-		{
-			values = (ArrayList)columns.get(i);
-			newValues = new ArrayList(values.size());
-			for (int j = 0; j < dataItems.size(); j++)
-			{
-				newValues.add(values.get(j));
-			}
-			oldColumns.add(newValues);
-		}
+		publishRunningStats();
 		
 		for (i = 0; i < types.size(); i++)
 		{
@@ -1730,63 +2454,42 @@ public class DataItemCollection implements Serializable
 				max = (double)((Integer)maximums.get(i)).intValue();
 				min = (double)((Integer)minimums.get(i)).intValue();
 			}
-			normaliseCol(i, min, max);
+			store.setScale(i, min, max);
+			
+			// The scaling is linear, so the average and standard deviation
+			// follow from those of the unscaled values
+			
+			range = max - min;
+			
+			if ((average != null) && (sigma != null) && (i < average.length) && (range != 0))
+			{
+				newAverage[i] = (average[i] - min) / range;
+				newSigma[i] = sigma[i] / range;
+			}
 		}
 		
-		// calculate the sigma & average values that will be needed in 
-		// optimisation
+		oldAverage = average;
+		oldSigma = sigma;
+		average = newAverage;
+		sigma = newSigma;
 		
-		for (i = 0 ; i < sumNormVals.length ; i++ )
+		// Items that still hold their own values are updated in place
+		
+		DataItem item;
+		for (i = 0; i < dataItems.size(); i++)
 		{
-			average[i] = sumNormVals[i]/getSize();
-			sigma[i] = Math.sqrt((sumNormSquares[i] - ((double)getSize() * average[i] * average[i]))/(double)getSize());
+			item = (DataItem)dataItems.get(i);
+			if (item.getStore() == null)
+			{
+				for (int j = 0; j < types.size(); j++)
+					item.getValues()[j] = store.getValue(i, j);
+			}
 		}
 		
 		setAllTypesToDouble();
 		setAllMaxAndMinNorm();
 	}
 	
-	/**
-	* If we're normalising to [0, 1] and this collection does not represent a text corpus
-	* then the folooing method is called to normalise a column
-	*/
-	
-	private void normaliseCol(int col, double min, double max)
-	{
-		int i;
-		double absVal;
-		double val;
-		ArrayList values = (ArrayList)columns.get(col);
-		
-		// All the values should be in the interval [0, 1] thus if the minimum is
-		// below 0, then the absolute value should be added onto every value in the column.
-		// Or, if the min value is greater than 1 then subtract the difference from each value.
-		// This will make the minimum actually 0
-		
-		absVal = 0 - min;
-		
-		for (i = 0; i < dataItems.size(); i++)
-		{
-			val = 0;
-			
-			if (values.get(i) instanceof Double)
-				val = ((Double)values.get(i)).doubleValue();
-			else if (values.get(i) != null)
-				val = (double)((Integer)values.get(i)).intValue();
-			
-			if (val == min)
-				val = 0;
-			else
-				val = (val + absVal) / (max + absVal);
-			
-			sumNormVals[col] += val;
-			sumNormVals[col] += (val * val);
-			
-			values.set(i, new Double(val));
-			((DataItem)dataItems.get(i)).getValues()[col] = new Double(val);
-		}
-	}
-	
 	/**
 	* If we're normalising the data to [0, 1] then all types should be converted to double
 	*/
@@ -1819,8 +2522,8 @@ public class DataItemCollection implements Serializable
 	}
 	
 	/**
-	* If the data have been normalised to the [0, 1] interval, use the
-	* minimums and maximums arrays to denormalise it
+	* If the data have been normalised to the [0, 1] interval, stop scaling
+	* the columns and restore the statistics of the unscaled values
 	*/
 	
 	private void deNormalise_01()
@@ -1829,32 +2532,46 @@ public class DataItemCollection implements Serializable
 		
 		maximums = oldMaximums;
 		minimums = oldMinimums;
-		columns = oldColumns;
 		int i;
 		
 		types = new ArrayList(oldTypes);
 		
-		//Restore values
+		// Collections that were normalised and saved before the columns were
+		// scaled on read hold a copy of the original values instead
 		
-		for (i = 0; i < oldDataItems.size(); i++)
+		if (oldStore != null)
 		{
-			dataItems.add(oldDataItems.get(i));
+			store.copyFrom(oldStore);
+			oldStore = null;
 		}
+		else
+			store.clearScales();
 		
-		ArrayList values;
-		for (int j = 0; j < types.size(); j++)
+		DataItem item;
+		for (i = 0; i < dataItems.size(); i++)
 		{
-			values = (ArrayList)oldColumns.get(j);
-			for (i = 0; i < dataItems.size(); i++)
+			item = (DataItem)dataItems.get(i);
+			if (item.getStore() == null)
 			{
-				((DataItem)dataItems.get(i)).getValues()[j] = values.get(i);
+				for (int j = 0; j < types.size(); j++)
+					item.getValues()[j] = store.getValue(i, j);
 			}
 		}
 		
 		// Restore the stats arrays
 		
-		intiNormalArrays(sumOfVals, sumOfSquares);
-		setNormalizeData(sumOfVals, sumOfSquares);
+		if (oldAverage != null)
+		{
+			average = oldAverage;
+			sigma = oldSigma;
+			oldAverage = null;
+			oldSigma = null;
+		}
+		else
+		{
+			intiNormalArrays(sumOfVals, sumOfSquares);
+			setNormalizeData(sumOfVals, sumOfSquares);
+		}
 	}
 	
 	/**
@@ -1865,7 +2582,27 @@ public class DataItemCollection implements Serializable
 	{
 		int val, i, j;
 		
-		if ((bBinary) && (!transposed))
+		// Count from the bitsets, which is only the same as the loops below
+		// if every value that is set is exactly one
+		
+		BitMatrix bits = null;
+		if (bBinary)
+			bits = getBitMatrix();
+		
+		if ((bits != null) && bits.hasUnitValues())
+		{
+			if (!transposed)
+			{
+				binaryFreq = bits.getColumnCounts();
+				binaryNumVars = bits.getRowCounts();
+			}
+			else
+			{
+				binaryFreq = bits.getRowCounts();
+				binaryNumVars = bits.getColumnCounts();
+			}
+		}
+		else if ((bBinary) && (!transposed))
 		{
 			binaryFreq = new int[types.size()];
 			binaryNumVars = new int[dataItems.size()];
@@ -1876,10 +2613,10 @@ public class DataItemCollection implements Serializable
 				dataItem = (DataItem)dataItems.get(i);
 				for (j = 0; j < types.size(); j++)
 				{
-					if (dataItem.getValues()[j] instanceof Double)
-						val = (int)((Double)dataItem.getValues()[j]).doubleValue();
+					if (dataItem.getValue(j) instanceof Double)
+						val = (int)((Double)dataItem.getValue(j)).doubleValue();
 					else
-						val = ((Integer)dataItem.getValues()[j]).intValue();
+						val = ((Integer)dataItem.getValue(j)).intValue();
 					
 					if (val > 0)
 					{
@@ -1903,10 +2640,10 @@ public class DataItemCollection implements Serializable
 				{
 					dataItem = (DataItem)dataItems.get(j);
 					
-					if (dataItem.getValues()[i] instanceof Double)
-						val = (int)((Double)dataItem.getValues()[i]).doubleValue();
+					if (dataItem.getValue(i) instanceof Double)
+						val = (int)((Double)dataItem.getValue(i)).doubleValue();
 					else
-						val = ((Integer)dataItem.getValues()[i]).intValue();
+						val = ((Integer)dataItem.getValue(i)).intValue();
 					
 					if (val > 0)
 					{
@@ -2015,12 +2752,226 @@ public class DataItemCollection implements Serializable
 	
 	public void setLowerTriangular(boolean bLowerTriangular)
 	{
+		invalidateMetric();
+		
 		this.bLowerTriangular = bLowerTriangular;
 	}
 	
+	/**
+	* Hold the numeric columns and the distance matrix in single precision
+	* (or back in double precision), halving the memory they need. Values
+	* rounded to float are not restored when switching back, so the data
+	* must be read again for full precision, as DataSource does.
+	*/
+	
+	public void setSinglePrecision(boolean bSinglePrecision)
+	{
+		invalidateMetric();
+		
+		this.bSinglePrecision = bSinglePrecision;
+		applyPrecision();
+	}
+	
+	public boolean isSinglePrecision()
+	{
+		return bSinglePrecision;
+	}
+	
+	/**
+	* Convert the DOUBLE columns of the store to the chosen precision
+	*/
+	
+	private void applyPrecision()
+	{
+		if ((store == null) || bTextCorpus || bLowerTriangular)
+			return;
+		
+		for (int i = 0; i < store.getNumColumns(); i++)
+		{
+			if (store.getKind(i) != DOUBLE)
+				continue;
+			
+			// Checked first so that views of a store already converted aren't copied
+			
+			if (bSinglePrecision)
+			{
+				if (!store.isFloatColumn(i))
+					store.toFloatColumn(i);
+			}
+			else if (store.isFloatColumn(i))
+				store.toDoubleColumn(i);
+		}
+	}
+	
+	/**
+	* Return an estimate, in bytes, of the memory used by the values of the
+	* collection and its distance matrix, if built. If bFloat is true then
+	* the estimate is for single precision, otherwise for double precision,
+	* so that the two can be compared whichever is in use. Tf-idf vectors
+	* are always held as floats.
+	*/
+	
+	public long getMemoryUsage(boolean bFloat)
+	{
+		long bytes = 0;
+		DataItem item;
+		
+		if (bLowerTriangular)
+			bytes += DistanceMatrix.getPackedLength(getSize()) * (bFloat ? 4 : 8);
+		else if (bTextCorpus)
+		{
+			for (int i = 0; i < getSize(); i++)
+			{
+				item = (DataItem)dataItems.get(i);
+				
+				if (item.getSparseValues() != null)
+					bytes += (long)item.getSparseValues().getNumEntries() * 8;
+				else if (item.getTextValues() != null)
+					bytes += (long)item.getTextValues().length * 8;
+			}
+		}
+		else if (store != null)
+			bytes += store.getMemoryUsage(bFloat);
+		
+		if ((getCachedDistanceMatrix() != null) && !bLowerTriangular)
+			bytes += DistanceMatrix.getPackedLength(getSize()) * (bFloat ? 4 : 8);
+		
+		return bytes;
+	}
+	
 	public void setLowerTriangleData(double[] data)
 	{
+		invalidateMetric();
+		
+		releaseMappedTriangle();
+		triangle_lower_Array = data;
+		triangleRows = null;
+	}
+	
+	/**
+	* Use a lower triangular matrix held in a memory mapped file, for
+	* matrices that are too large for the heap
+	*/
+	
+	public void setLowerTriangleData(MappedTriangle data)
+	{
+		invalidateMetric();
+		
+		if (data != null)
+			data.retain();
+		
+		releaseMappedTriangle();
+		triangle_lower_Array = null;
+		mappedTriangle = data;
+		triangleRows = null;
+	}
+	
+	/**
+	* Let go of the lower triangular matrix once the collection is no longer
+	* needed. A mapped triangle's file is deleted when no collection holds it.
+	*/
+	
+	public void releaseLowerTriangle()
+	{
+		setLowerTriangleData((double[])null);
+	}
+	
+	/**
+	* A mapped triangle that is read in with the collection is held by it
+	*/
+	
+	private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		
+		if (mappedTriangle != null)
+			mappedTriangle.retain();
+	}
+	
+	private void releaseMappedTriangle()
+	{
+		if (mappedTriangle != null)
+		{
+			mappedTriangle.release();
+			mappedTriangle = null;
+		}
+	}
+	
+	/**
+	* Copy len values of the lower triangular matrix, in lower-packed storage
+	* mode, starting from the given position, into a buffer. Unlike
+	* getLowerTriangleData(), a matrix held in a mapped file is not copied
+	* onto the heap as a whole.
+	*/
+	
+	public void getLowerTriangleData(long start, double[] buffer, int len)
+	{
+		packTriangle();
+		
+		if (mappedTriangle != null)
+		{
+			for (int i = 0; i < len; i++)
+				buffer[i] = mappedTriangle.get(start + i);
+		}
+		else
+			System.arraycopy(triangle_lower_Array, (int)start, buffer, 0, len);
+	}
+	
+	/**
+	* Return the lower triangular matrix in lower-packed storage mode (the
+	* diagonal included). If the matrix is held in a mapped file then it is
+	* copied onto the heap.
+	*/
+	
+	public double[] getLowerTriangleData()
+	{
+		packTriangle();
+		
+		if (mappedTriangle != null)
+			return mappedTriangle.toArray((int)DistanceMatrix.getPackedLength(getSize()));
+		else
+			return triangle_lower_Array;
+	}
+	
+	/**
+	* Share the lower triangular matrix of a parent collection, where rows
+	* gives the parent's index of each item of this collection
+	*/
+	
+	void setLowerTriangleView(double[] data, MappedTriangle mapped, int[] rows)
+	{
+		invalidateMetric();
+		
+		if (mapped != null)
+			mapped.retain();
+		
+		releaseMappedTriangle();
 		triangle_lower_Array = data;
+		mappedTriangle = mapped;
+		triangleRows = rows;
+	}
+	
+	/**
+	* If the triangle is shared with a parent collection, build a packed
+	* triangle of just the distances between the items of this collection
+	*/
+	
+	private synchronized void packTriangle()
+	{
+		if (triangleRows == null)
+			return;
+		
+		int n = triangleRows.length;
+		double[] newMatrix = new double[((n * n) - n) / 2 + n];
+		int i, j, count = 0;
+		
+		for (i = 0; i < n; i++)
+			for (j = 0; j <= i; j++)
+				newMatrix[count++] = getLowerTriangleDistance(i, j);
+		
+		triangle_lower_Array = newMatrix;
+		releaseMappedTriangle();
+		triangleRows = null;
 	}
 	
 	/**
@@ -2033,6 +2984,15 @@ public class DataItemCollection implements Serializable
 		// Treating item1 and item2 as row and column indices, get the index
 		// of the matrices corresponding 1-d array.
 		
+		if (triangleRows != null)
+		{
+			item1 = triangleRows[item1];
+			item2 = triangleRows[item2];
+		}
+		
+		if (mappedTriangle != null)
+			return mappedTriangle.get(item1, item2);
+		
 		int index = getLowerTriangularIndex(item1, item2);
 		return triangle_lower_Array[index];
 	}
@@ -0,0 +1,315 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic test bed
+ * 
+ * DistanceMatrix
+ * All pairwise high-dimensional distances of a collection, held as a packed
+ * lower triangular matrix (diagonal included) in the same layout used by
+ * DataItemCollection.setLowerTriangleData(). Values can be held as doubles
+ * or, to halve the memory, as floats. The matrix is computed in square tiles
+ * of rows and columns spread over a fork/join pool so that every core is used
+ * and each tile's items stay in cache while it is being filled. A matrix can
+ * also read its values from a MappedTriangle that is too large for the heap.
+ * 
+ * @author Greg Ross
+ */
+
+package data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class DistanceMatrix implements Serializable
+{
+	// Versioning for serialisation
+	
+	static final long serialVersionUID = 50L;
+	
+	// Number of items along each side of a tile
+	
+	private final static int TILE_SIZE = 64;
+	
+	// Number of tiles below which a task is computed rather than split
+	
+	private final static int TILES_PER_TASK = 4;
+	
+	private int size;
+	
+	// Only one of the following is non-null
+	
+	private double[] dValues = null;
+	private float[] fValues = null;
+	private MappedTriangle mValues = null;
+	
+	/**
+	* Compute the matrix for size items using the given metric
+	*
+	* @param metric The distance metric of the collection
+	* @param size The number of items
+	* @param bFloat If true then store the distances as floats
+	*/
+	
+	public DistanceMatrix(DistanceMetric metric, int size, boolean bFloat)
+	{
+		this.size = size;
+		long len = getPackedLength(size);
+		
+		if (len > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Too many items for a packed distance matrix: " + size);
+		
+		if (bFloat)
+			fValues = new float[(int)len];
+		else
+			dValues = new double[(int)len];
+		
+		int numTileRows = (size + TILE_SIZE - 1) / TILE_SIZE;
+		int numTiles = (numTileRows * (numTileRows + 1)) / 2;
+		
+		ForkJoinPool.commonPool().invoke(new TileTask(metric, 0, numTiles));
+	}
+	
+	/**
+	* Wrap an existing packed lower triangular matrix without copying it
+	*/
+	
+	public DistanceMatrix(double[] packed, int size)
+	{
+		this.size = size;
+		dValues = packed;
+	}
+	
+	/**
+	* Wrap a memory mapped triangle without copying it
+	*/
+	
+	public DistanceMatrix(MappedTriangle mapped, int size)
+	{
+		this.size = size;
+		mValues = mapped;
+	}
+	
+	/**
+	* Build a matrix from a list of rows, where row i is an ArrayList of the
+	* i + 1 Double distances from item i to items 0..i
+	*/
+	
+	public static DistanceMatrix fromRows(ArrayList rows)
+	{
+		int n = rows.size();
+		double[] packed = new double[(int)getPackedLength(n)];
+		int index = 0;
+		ArrayList row;
+		
+		for (int i = 0; i < n; i++)
+		{
+			row = (ArrayList)rows.get(i);
+			
+			for (int j = 0; j <= i; j++)
+				packed[index++] = ((Double)row.get(j)).doubleValue();
+		}
+		
+		return new DistanceMatrix(packed, n);
+	}
+	
+	/**
+	* Return the distance between items i and j
+	*/
+	
+	public double get(int i, int j)
+	{
+		if (mValues != null)
+			return mValues.get(i, j);
+		
+		int index = getIndex(i, j);
+		
+		if (dValues != null)
+			return dValues[index];
+		else
+			return fValues[index];
+	}
+	
+	/**
+	* Return the number of items
+	*/
+	
+	public int getSize()
+	{
+		return size;
+	}
+	
+	public boolean isFloat()
+	{
+		return (fValues != null) || ((mValues != null) && mValues.isFloat());
+	}
+	
+	/**
+	* Return the packed values as doubles. If the matrix holds doubles then
+	* the backing array itself is returned, otherwise a converted copy.
+	*/
+	
+	public double[] getLowerTriangleData()
+	{
+		if (dValues != null)
+			return dValues;
+		
+		if (mValues != null)
+			return mValues.toArray((int)getPackedLength(size));
+		
+		double[] d = new double[fValues.length];
+		
+		for (int i = 0; i < d.length; i++)
+			d[i] = fValues[i];
+		
+		return d;
+	}
+	
+	/**
+	* Return the position of element (i, j) in the packed array
+	*/
+	
+	public static int getIndex(int i, int j)
+	{
+		if (i < j)
+		{
+			int t = i;
+			i = j;
+			j = t;
+		}
+		
+		return (int)((((long)i * (long)(i + 1)) / 2) + j);
+	}
+	
+	/**
+	* Return the length of the packed array for n items
+	*/
+	
+	public static long getPackedLength(int n)
+	{
+		return ((long)n * (long)(n + 1)) / 2;
+	}
+	
+	/**
+	* Fill a single tile of the matrix. Tile (ti, tj), with tj <= ti, covers
+	* rows [ti * TILE_SIZE, (ti + 1) * TILE_SIZE) and the equivalent columns.
+	*/
+	
+	private void computeTile(DistanceMetric metric, int ti, int tj)
+	{
+		int rowStart = ti * TILE_SIZE;
+		int rowEnd = Math.min(size, rowStart + TILE_SIZE);
+		int colStart = tj * TILE_SIZE;
+		int colEnd = Math.min(size, colStart + TILE_SIZE);
+		int index, j, jEnd;
+		
+		for (int i = rowStart; i < rowEnd; i++)
+		{
+			index = getIndex(i, colStart);
+			jEnd = Math.min(colEnd, i + 1);
+			
+			for (j = colStart; j < jEnd; j++, index++)
+			{
+				double d = (i == j) ? 0 : metric.distance(i, j);
+				
+				if (dValues != null)
+					dValues[index] = d;
+				else
+					fValues[index] = (float)d;
+			}
+		}
+	}
+	
+	/**
+	* Fork/join task that fills a contiguous range of tiles. Tiles are
+	* numbered row by row through the lower triangle of tiles.
+	*/
+	
+	private class TileTask extends RecursiveAction
+	{
+		static final long serialVersionUID = 50L;
+		
+		private DistanceMetric metric;
+		private int first;
+		private int last;
+		
+		public TileTask(DistanceMetric metric, int first, int last)
+		{
+			this.metric = metric;
+			this.first = first;
+			this.last = last;
+		}
+		
+		protected void compute()
+		{
+			if ((last - first) > TILES_PER_TASK)
+			{
+				int mid = (first + last) >>> 1;
+				invokeAll(new TileTask(metric, first, mid), new TileTask(metric, mid, last));
+				return;
+			}
+			
+			// Find the tile row of the first tile, then walk along
+			
+			int ti = (int)((Math.sqrt(8.0 * first + 1) - 1) / 2);
+			
+			while (((ti * (ti + 1)) / 2) > first)
+				ti--;
+			
+			while ((((ti + 1) * (ti + 2)) / 2) <= first)
+				ti++;
+			
+			int tj = first - ((ti * (ti + 1)) / 2);
+			
+			for (int t = first; t < last; t++)
+			{
+				computeTile(metric, ti, tj);
+				
+				if (++tj > ti)
+				{
+					ti++;
+					tj = 0;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,147 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic test bed
+ * 
+ * EuclideanMetric
+ * Euclidean distance for collections whose (selected) variables are all
+ * numeric and have no missing values. Each value is z-scored once when the
+ * metric is built and held in a contiguous row-major array, so the distance
+ * itself is a single tight loop over two slices of that array. Collections
+ * held in single precision keep the array as floats.
+ * 
+ * @author Greg Ross
+ */
+
+package data;
+
+public class EuclideanMetric implements DistanceMetric
+{
+	// Row-major, z-scored values of the selected columns
+	
+	private double[] rows;
+	private int numActive;
+	
+	// Used in place of rows when the collection is held in single precision
+	
+	private float[] floatRows = null;
+	
+	// Scale factor for the number of variables that contributed
+	
+	private double colScale;
+	
+	/**
+	* Build the metric for the given collection
+	*
+	* @param dataItems The collection
+	* @param active The indices of the columns to include
+	*/
+	
+	public EuclideanMetric(DataItemCollection dataItems, int[] active)
+	{
+		ColumnStore store = dataItems.getColumnStore();
+		int size = store.getNumRows();
+		numActive = active.length;
+		boolean bFloat = dataItems.isSinglePrecision();
+		
+		if (bFloat)
+			floatRows = new float[size * numActive];
+		else
+			rows = new double[size * numActive];
+		
+		colScale = (double)store.getNumColumns() / (double)numActive;
+		
+		double[] average = dataItems.getAverage();
+		double[] sigma = dataItems.getSigma();
+		
+		for (int c = 0; c < numActive; c++)
+		{
+			int col = active[c];
+			// Columns normalised to [0, 1] are compared as they are, without z-scoring
+			
+			boolean bScale = (sigma != null) && (sigma[col] != 0) && (!Double.isNaN(sigma[col])) && !store.isScaled(col);
+			double denom = bScale ? (dataItems.stdDevs() * sigma[col]) : 1.0;
+			double val;
+			
+			for (int i = 0; i < size; i++)
+			{
+				val = store.getDouble(i, col);
+				
+				if (bScale)
+					val = (val - average[col]) / denom;
+				
+				if (bFloat)
+					floatRows[(i * numActive) + c] = (float)val;
+				else
+					rows[(i * numActive) + c] = val;
+			}
+		}
+	}
+	
+	public double distance(int item1, int item2)
+	{
+		int off1 = item1 * numActive;
+		int off2 = item2 * numActive;
+		double sumDiff = 0.0;
+		double diff;
+		
+		if (floatRows != null)
+		{
+			// Accumulate in double precision even though the values are floats
+			
+			for (int i = 0; i < numActive; i++)
+			{
+				diff = (double)floatRows[off2 + i] - (double)floatRows[off1 + i];
+				sumDiff += diff * diff;
+			}
+			
+			return Math.sqrt(sumDiff) * colScale;
+		}
+		
+		for (int i = 0; i < numActive; i++)
+		{
+			diff = rows[off2 + i] - rows[off1 + i];
+			sumDiff += diff * diff;
+		}
+		
+		return Math.sqrt(sumDiff) * colScale;
+	}
+}
@@ -0,0 +1,256 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic test bed
+ * 
+ * IDIndex
+ * Maps the IDs of the items of a DataItemCollection to their positions in
+ * the collection without boxing. When the IDs are compact, as they are for
+ * loaded files, the positions are held in an array indexed by ID, otherwise
+ * in an open addressing hash table. Where an ID occurs more than once its
+ * first position is kept.
+ * 
+ * @author Greg Ross
+ */
+
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+class IDIndex
+{
+	// Marks an unused entry
+	
+	private final static int EMPTY = -1;
+	
+	// The IDs are held in an array while the range of IDs is no more than
+	// this many times the number of items
+	
+	private final static int DENSE_FACTOR = 2;
+	
+	// Dense storage: positions[ID - minID]
+	
+	private int[] positions = null;
+	private int minID;
+	
+	// Hash storage
+	
+	private int[] keys = null;
+	private int[] values = null;
+	private int mask;
+	
+	private int count = 0;
+	
+	/**
+	* Build the index for the given list of items
+	*/
+	
+	IDIndex(ArrayList items)
+	{
+		int n = items.size();
+		int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE, ID, i;
+		
+		for (i = 0; i < n; i++)
+		{
+			ID = ((DataItem)items.get(i)).getID();
+			min = Math.min(min, ID);
+			max = Math.max(max, ID);
+		}
+		
+		if ((n > 0) && (((long)max - min) < (long)DENSE_FACTOR * n + 16))
+		{
+			minID = min;
+			positions = new int[(max - min) + 16];
+			Arrays.fill(positions, EMPTY);
+		}
+		else
+			initHash(n);
+		
+		for (i = 0; i < n; i++)
+			put(((DataItem)items.get(i)).getID(), i);
+	}
+	
+	/**
+	* Return the number of IDs in the index
+	*/
+	
+	int size()
+	{
+		return count;
+	}
+	
+	/**
+	* Return the position of the item with the given ID or -1
+	*/
+	
+	int get(int ID)
+	{
+		if (positions != null)
+		{
+			long offset = (long)ID - minID;
+			
+			if ((offset < 0) || (offset >= positions.length))
+				return EMPTY;
+			
+			return positions[(int)offset];
+		}
+		
+		int slot = hash(ID) & mask;
+		
+		while (values[slot] != EMPTY)
+		{
+			if (keys[slot] == ID)
+				return values[slot];
+			
+			slot = (slot + 1) & mask;
+		}
+		return EMPTY;
+	}
+	
+	/**
+	* Record the position of an item, unless its ID is already present
+	*/
+	
+	void put(int ID, int position)
+	{
+		if (positions != null)
+		{
+			long offset = (long)ID - minID;
+			
+			if ((offset >= 0) && (offset < positions.length))
+			{
+				if (positions[(int)offset] == EMPTY)
+				{
+					positions[(int)offset] = position;
+					count++;
+				}
+				return;
+			}
+			
+			// Grow the array while the IDs stay compact, otherwise hash them
+			
+			long min = Math.min(minID, ID);
+			long max = Math.max((long)minID + positions.length - 1, ID);
+			
+			if ((max - min) < (long)DENSE_FACTOR * (count + 1) + 16)
+				growDense((int)min, (int)(max - min) * 2 + 16);
+			else
+				toHash();
+			
+			put(ID, position);
+			return;
+		}
+		
+		if ((count + 1) * 2 > keys.length)
+			rehash(keys.length * 2);
+		
+		int slot = hash(ID) & mask;
+		
+		while (values[slot] != EMPTY)
+		{
+			if (keys[slot] == ID)
+				return;
+			
+			slot = (slot + 1) & mask;
+		}
+		
+		keys[slot] = ID;
+		values[slot] = position;
+		count++;
+	}
+	
+	private void growDense(int newMin, int length)
+	{
+		int[] newPositions = new int[length];
+		Arrays.fill(newPositions, EMPTY);
+		System.arraycopy(positions, 0, newPositions, minID - newMin, positions.length);
+		positions = newPositions;
+		minID = newMin;
+	}
+	
+	private void toHash()
+	{
+		int[] oldPositions = positions;
+		int oldMin = minID;
+		positions = null;
+		count = 0;
+		initHash(oldPositions.length);
+		
+		for (int i = 0; i < oldPositions.length; i++)
+			if (oldPositions[i] != EMPTY)
+				put(oldMin + i, oldPositions[i]);
+	}
+	
+	private void initHash(int n)
+	{
+		int capacity = 16;
+		while (capacity < n * 2)
+			capacity <<= 1;
+		
+		keys = new int[capacity];
+		values = new int[capacity];
+		Arrays.fill(values, EMPTY);
+		mask = capacity - 1;
+	}
+	
+	private void rehash(int capacity)
+	{
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		count = 0;
+		initHash(capacity / 2);
+		
+		for (int i = 0; i < oldKeys.length; i++)
+			if (oldValues[i] != EMPTY)
+				put(oldKeys[i], oldValues[i]);
+	}
+	
+	/**
+	* Spread the bits of an ID so that runs of IDs don't cluster
+	*/
+	
+	private static int hash(int ID)
+	{
+		int h = ID * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,114 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic test bed
+ * 
+ * JaccardMetric
+ * 1 - Jaccard similarity coefficient for binary data. A counts the variables
+ * present in both items, B and C those present in only one of them. The
+ * counts are taken from the packed bitsets of the collection, so that A is
+ * the number of bits in the AND of two items and A + B + C the number in
+ * their OR.
+ * 
+ * @author Greg Ross
+ */
+
+package data;
+
+public class JaccardMetric implements DistanceMetric
+{
+	private BitMatrix bits;
+	
+	// Mask of the variables to include, null if all are included
+	
+	private long[] mask = null;
+	
+	// Distance returned when the items have no variables in common
+	
+	private double noOverlapDist;
+	
+	/**
+	* Build the metric for the given binary collection
+	*
+	* @param dataItems The collection
+	* @param active The indices of the variables to include
+	* @param noOverlapDist Distance returned when A == 0
+	*/
+	
+	public JaccardMetric(DataItemCollection dataItems, int[] active, double noOverlapDist)
+	{
+		this.noOverlapDist = noOverlapDist;
+		bits = dataItems.getBitMatrix();
+		
+		if (active.length < bits.getNumColumns())
+			mask = bits.getMask(active);
+	}
+	
+	public double distance(int item1, int item2)
+	{
+		long[] row1 = bits.getRow(item2);
+		long[] row2 = bits.getRow(item1);
+		long word1, word2;
+		int A = 0, union = 0;
+		
+		for (int w = 0; w < row1.length; w++)
+		{
+			word1 = row1[w];
+			word2 = row2[w];
+			
+			if (mask != null)
+			{
+				word1 &= mask[w];
+				word2 &= mask[w];
+			}
+			
+			A += Long.bitCount(word1 & word2);
+			union += Long.bitCount(word1 | word2);
+		}
+		
+		double denominator = ((double)union);
+		
+		if ((denominator == 0) || (A == 0))
+			return noOverlapDist;
+		else
+			return 1 - ((double)A / denominator);
+	}
+}
@@ -0,0 +1,313 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic test bed
+ * 
+ * MappedTriangle
+ * A lower triangular matrix in lower-packed storage mode (the diagonal
+ * included) whose values are held in a memory mapped temporary file rather
+ * than on the heap, so that matrices larger than the heap can be used. The
+ * values are stored as doubles or, to halve the size of the file, as floats.
+ * The file is mapped in chunks as it grows. The collections that hold the
+ * triangle are counted, and the file is deleted once the last lets it go.
+ * 
+ * @author Greg Ross
+ */
+
+package data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+public class MappedTriangle implements Serializable
+{
+	// Versioning for serialisation
+	
+	static final long serialVersionUID = 50L;
+	
+	// The number of values in each mapped chunk of the file
+	
+	private final static int CHUNK_SHIFT = 26;
+	private final static long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+	private final static int CHUNK_MASK = (int)CHUNK_SIZE - 1;
+	
+	private boolean bFloat;
+	
+	// The number of values the file currently has room for
+	
+	private transient long length;
+	
+	private transient File tempFile;
+	private transient RandomAccessFile file;
+	private transient FileChannel channel;
+	private transient ArrayList chunks;
+	
+	// The number of collections holding the triangle
+	
+	private transient int holders = 0;
+	
+	/**
+	* Create a triangle backed by a new temporary file
+	*
+	* @param length The number of values to make room for initially
+	* @param bFloat If true then store the values as floats
+	*/
+	
+	public MappedTriangle(long length, boolean bFloat) throws IOException
+	{
+		this.bFloat = bFloat;
+		open();
+		ensureLength(length);
+	}
+	
+	private void open() throws IOException
+	{
+		tempFile = File.createTempFile("triangle", ".tmp");
+		tempFile.deleteOnExit();
+		file = new RandomAccessFile(tempFile, "rw");
+		channel = file.getChannel();
+		chunks = new ArrayList();
+		length = 0;
+	}
+	
+	/**
+	* Make sure that there is room for at least newLength values
+	*/
+	
+	public void ensureLength(long newLength) throws IOException
+	{
+		if (newLength <= length)
+			return;
+		
+		int width = bFloat ? 4 : 8;
+		
+		// Remap the last chunk if it was only partly mapped, then add chunks
+		
+		int first = (int)(length >> CHUNK_SHIFT);
+		int last = (int)((newLength - 1) >> CHUNK_SHIFT);
+		
+		for (int i = first; i <= last; i++)
+		{
+			long start = (long)i << CHUNK_SHIFT;
+			long size = (i < last) ? CHUNK_SIZE : newLength - start;
+			
+			MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_WRITE, start * width, size * width);
+			chunk.order(ByteOrder.nativeOrder());
+			
+			if (i < chunks.size())
+				chunks.set(i, chunk);
+			else
+				chunks.add(chunk);
+		}
+		length = newLength;
+	}
+	
+	/**
+	* Called by a collection when it takes the triangle
+	*/
+	
+	synchronized void retain()
+	{
+		holders++;
+	}
+	
+	/**
+	* Called by a collection when it lets go of the triangle. The triangle
+	* is closed once no collection holds it.
+	*/
+	
+	synchronized void release()
+	{
+		if (--holders <= 0)
+			close();
+	}
+	
+	/**
+	* Unmap the triangle and delete its temporary file. The triangle can't
+	* be used afterwards.
+	*/
+	
+	public synchronized void close()
+	{
+		if (file == null)
+			return;
+		
+		chunks = null;
+		length = 0;
+		
+		try
+		{
+			file.close();
+		}
+		catch (IOException e)
+		{
+			// The file is still deleted on exit
+		}
+		
+		file = null;
+		channel = null;
+		tempFile.delete();
+	}
+	
+	/**
+	* Return the number of values the triangle has room for
+	*/
+	
+	public long getLength()
+	{
+		return length;
+	}
+	
+	public boolean isFloat()
+	{
+		return bFloat;
+	}
+	
+	/**
+	* Set the value at the given position of the packed triangle
+	*/
+	
+	public void set(long index, double val)
+	{
+		MappedByteBuffer chunk = (MappedByteBuffer)chunks.get((int)(index >> CHUNK_SHIFT));
+		int offset = (int)index & CHUNK_MASK;
+		
+		if (bFloat)
+			chunk.putFloat(offset << 2, (float)val);
+		else
+			chunk.putDouble(offset << 3, val);
+	}
+	
+	/**
+	* Return the value at the given position of the packed triangle
+	*/
+	
+	public double get(long index)
+	{
+		MappedByteBuffer chunk = (MappedByteBuffer)chunks.get((int)(index >> CHUNK_SHIFT));
+		int offset = (int)index & CHUNK_MASK;
+		
+		if (bFloat)
+			return chunk.getFloat(offset << 2);
+		else
+			return chunk.getDouble(offset << 3);
+	}
+	
+	/**
+	* Return the distance between items i and j
+	*/
+	
+	public double get(int i, int j)
+	{
+		return get(getIndex(i, j));
+	}
+	
+	/**
+	* Return the position of element (i, j) in the packed triangle
+	*/
+	
+	public static long getIndex(int i, int j)
+	{
+		if (i < j)
+		{
+			int t = i;
+			i = j;
+			j = t;
+		}
+		
+		return (((long)i * (i + 1)) >> 1) + j;
+	}
+	
+	/**
+	* Copy the first n values into a new array on the heap
+	*/
+	
+	public double[] toArray(int n)
+	{
+		double[] values = new double[n];
+		
+		for (int i = 0; i < n; i++)
+			values[i] = get((long)i);
+		
+		return values;
+	}
+	
+	/**
+	* Write the values themselves, as the temporary file won't outlive
+	* the application
+	*/
+	
+	private void writeObject(java.io.ObjectOutputStream out) throws IOException
+	{
+		out.defaultWriteObject();
+		out.writeLong(length);
+		
+		for (long i = 0; i < length; i++)
+		{
+			if (bFloat)
+				out.writeFloat((float)get(i));
+			else
+				out.writeDouble(get(i));
+		}
+	}
+	
+	private void readObject(java.io.ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		long n = in.readLong();
+		open();
+		ensureLength(n);
+		
+		for (long i = 0; i < n; i++)
+		{
+			if (bFloat)
+				set(i, in.readFloat());
+			else
+				set(i, in.readDouble());
+		}
+	}
+}
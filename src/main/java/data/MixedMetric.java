@@ -0,0 +1,197 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic test bed
+ * 
+ * MixedMetric
+ * Distance for CSV data of mixed types. Numeric and date variables contribute
+ * to a z-scored Euclidean distance while matching string variables scale
+ * the result down by ORD_FACTOR. Missing values are ignored and the result
+ * is scaled up by the proportion of variables that were compared.
+ * 
+ * @author Greg Ross
+ */
+
+package data;
+
+import java.util.Date;
+
+public class MixedMetric implements DistanceMetric
+{
+	// Used to scale ordinal values which don't match in sim metric
+	
+	public final static double ORD_FACTOR = 0.75;
+	
+	// Kind given to DOUBLE, INTEGER and DATE columns, which are all read as
+	// doubles. Values are read a row at a time rather than as whole columns,
+	// so that a store that is a view onto another isn't made to copy itself.
+	
+	private final static int NUMERIC = -2;
+	
+	private ColumnStore store;
+	private int[] active;
+	private int[] kinds;
+	
+	// Per selected column z-scoring parameters
+	
+	private boolean[] bScale;
+	private double[] average;
+	private double[] denom;
+	
+	private int numCols;
+	
+	/**
+	* Build the metric for the given collection
+	*
+	* @param dataItems The collection
+	* @param active The indices of the columns to include
+	*/
+	
+	public MixedMetric(DataItemCollection dataItems, int[] active)
+	{
+		this.active = active;
+		store = dataItems.getColumnStore();
+		numCols = store.getNumColumns();
+		kinds = new int[active.length];
+		bScale = new boolean[active.length];
+		average = new double[active.length];
+		denom = new double[active.length];
+		
+		double[] avg = dataItems.getAverage();
+		double[] sigma = dataItems.getSigma();
+		
+		for (int c = 0; c < active.length; c++)
+		{
+			int col = active[c];
+			kinds[c] = store.getKind(col);
+			
+			if ((kinds[c] == DataItemCollection.DOUBLE) || (kinds[c] == DataItemCollection.INTEGER) ||
+				(kinds[c] == DataItemCollection.DATE))
+				kinds[c] = NUMERIC;
+			
+			// Columns normalised to [0, 1] are compared as they are, without z-scoring
+			
+			bScale[c] = (sigma != null) && (sigma[col] != 0) && (!Double.isNaN(sigma[col])) && !store.isScaled(col);
+			
+			if (bScale[c])
+			{
+				average[c] = avg[col];
+				denom[c] = dataItems.stdDevs() * sigma[col];
+			}
+		}
+	}
+	
+	public double distance(int item1, int item2)
+	{
+		double val1 = 0.0, val2 = 0.0;
+		double sumDiff = 0.0;
+		double ordDiff = 1.0;
+		int cols = 0;
+		int col;
+		
+		for (int c = 0; c < active.length; c++)
+		{
+			col = active[c];
+			
+			// Missing values don't contribute to the distance
+			
+			if (store.isNull(item1, col) || store.isNull(item2, col))
+				continue;
+			
+			switch (kinds[c])
+			{
+				case DataItemCollection.STRING:
+					if (store.getStringCode(item2, col) == store.getStringCode(item1, col))
+						ordDiff *= ORD_FACTOR;
+					
+					cols++;
+					continue;
+				case NUMERIC:
+					val1 = store.getDouble(item2, col);
+					val2 = store.getDouble(item1, col);
+					break;
+				default:
+					
+					// Boxed column - values of differing types aren't compared
+					
+					Object o1 = store.getValue(item2, col);
+					Object o2 = store.getValue(item1, col);
+					
+					if (o1 instanceof String && o2 instanceof String)
+					{
+						if (((String)o1).compareTo((String)o2) == 0)
+							ordDiff *= ORD_FACTOR;
+						
+						cols++;
+						continue;
+					}
+					else if ((o1 instanceof Date && o2 instanceof Date) ||
+						(o1 instanceof Integer && o2 instanceof Integer) ||
+						(o1 instanceof Double && o2 instanceof Double))
+					{
+						val1 = store.getDouble(item2, col);
+						val2 = store.getDouble(item1, col);
+					}
+					else
+						continue;
+			}
+			
+			if (bScale[c])
+			{
+				val1 = (val1 - average[c]) / denom[c];
+				val2 = (val2 - average[c]) / denom[c];
+			}
+			
+			// sum of square of diffs
+			
+			sumDiff += ( (val1 - val2) * (val1 - val2) );
+			cols++;
+		}
+		
+		sumDiff = Math.sqrt(sumDiff);
+		sumDiff *= ordDiff;
+		
+		//scale by the number of valid column values that existed
+		
+		sumDiff *= (double)numCols / (double)cols;
+		return sumDiff;
+	}
+}
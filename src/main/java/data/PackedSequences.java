@@ -0,0 +1,188 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic test bed
+ * 
+ * PackedSequences
+ * The genetic sequences of a collection, each encoded once into a long[]
+ * with a fixed number of bits per symbol. If only A, C, G and T occur then
+ * two bits are used, otherwise the distinct symbols that occur are numbered
+ * and given as many bits as they need. Symbols never straddle a word, so the
+ * number of differing positions in a word is found by XOR-ing the two words,
+ * folding each symbol's bits onto its lowest bit and counting those bits.
+ * 
+ * @author Greg Ross
+ */
+
+package data;
+
+import java.util.HashMap;
+import java.util.Iterator;
+
+public class PackedSequences
+{
+	private final static String NUCLEOTIDES = "ACGT";
+	
+	private long[][] sequences;
+	private int[] lengths;
+	
+	// Number of bits per symbol and symbols per word
+	
+	private int bitsPerSymbol;
+	private int symbolsPerWord;
+	
+	// The lowest bit of every symbol slot in a word
+	
+	private long lowBits;
+	
+	/**
+	* Encode the sequences held in the first column of a column store
+	*/
+	
+	public PackedSequences(ColumnStore store)
+	{
+		int numRows = store.getNumRows();
+		String[] text = new String[numRows];
+		lengths = new int[numRows];
+		int i, j;
+		
+		// Number every symbol, A, C, G and T first
+		
+		HashMap codes = new HashMap();
+		for (i = 0; i < NUCLEOTIDES.length(); i++)
+			codes.put(new Character(NUCLEOTIDES.charAt(i)), new Integer(i));
+		
+		for (i = 0; i < numRows; i++)
+		{
+			text[i] = store.getValue(i, 0).toString();
+			lengths[i] = text[i].length();
+			
+			for (j = 0; j < lengths[i]; j++)
+			{
+				Character c = new Character(text[i].charAt(j));
+				if (!codes.containsKey(c))
+					codes.put(c, new Integer(codes.size()));
+			}
+		}
+		
+		bitsPerSymbol = 2;
+		while ((1 << bitsPerSymbol) < codes.size())
+			bitsPerSymbol++;
+		
+		symbolsPerWord = 64 / bitsPerSymbol;
+		
+		for (i = 0; i < symbolsPerWord; i++)
+			lowBits |= (1L << (i * bitsPerSymbol));
+		
+		// Look up codes through an array rather than the map while packing
+		
+		int[] charCodes = new int[Character.MAX_VALUE + 1];
+		Iterator it = codes.keySet().iterator();
+		while (it.hasNext())
+		{
+			Character c = (Character)it.next();
+			charCodes[c.charValue()] = ((Integer)codes.get(c)).intValue();
+		}
+		
+		sequences = new long[numRows][];
+		
+		for (i = 0; i < numRows; i++)
+		{
+			long[] words = new long[(lengths[i] + symbolsPerWord - 1) / symbolsPerWord];
+			
+			for (j = 0; j < lengths[i]; j++)
+			{
+				words[j / symbolsPerWord] |= ((long)charCodes[text[i].charAt(j)])
+					<< ((j % symbolsPerWord) * bitsPerSymbol);
+			}
+			
+			sequences[i] = words;
+		}
+	}
+	
+	/**
+	* Return the number of positions at which two sequences differ, or 0 if
+	* they are of different lengths
+	*/
+	
+	public int countDifferences(int item1, int item2)
+	{
+		if (lengths[item1] != lengths[item2])
+			return 0;
+		
+		long[] seq1 = sequences[item1];
+		long[] seq2 = sequences[item2];
+		long diff, folded;
+		int count = 0;
+		
+		for (int w = 0; w < seq1.length; w++)
+		{
+			diff = seq1[w] ^ seq2[w];
+			folded = diff;
+			
+			for (int s = 1; s < bitsPerSymbol; s++)
+				folded |= (diff >>> s);
+			
+			count += Long.bitCount(folded & lowBits);
+		}
+		
+		return count;
+	}
+	
+	/**
+	* Return the length of a sequence
+	*/
+	
+	public int getLength(int item)
+	{
+		return lengths[item];
+	}
+	
+	/**
+	* Return the number of bits used for each symbol, 2 if the sequences
+	* only contain A, C, G and T
+	*/
+	
+	public int getBitsPerSymbol()
+	{
+		return bitsPerSymbol;
+	}
+}
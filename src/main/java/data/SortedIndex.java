@@ -0,0 +1,274 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic test bed
+ * 
+ * SortedIndex
+ * A secondary index of a single column of a DataItemCollection: the rows
+ * that have a value, ordered by that value. A range query is then two binary
+ * searches and the rows between them. Strings are ordered alphabetically,
+ * dates by time, and missing values are left out. The index is built on
+ * request by DataItemCollection.getSortedIndex() and is discarded whenever
+ * the collection changes.
+ * 
+ * @author Greg Ross
+ */
+
+package data;
+
+public class SortedIndex
+{
+	// The rows in ascending order of value, and the value of each
+	
+	private int[] rows;
+	private double[] values;
+	
+	/**
+	* Build the index of a column of the given collection
+	*/
+	
+	SortedIndex(DataItemCollection dataItems, int col)
+	{
+		int size = dataItems.getSize();
+		double[] keys = new double[size];
+		int[] order = new int[size];
+		int n = 0;
+		double val;
+		
+		if (dataItems.isTextCorpus())
+		{
+			for (int i = 0; i < size; i++)
+			{
+				keys[n] = dataItems.getDataItem(i).getTextValue(col);
+				order[n++] = i;
+			}
+		}
+		else
+		{
+			ColumnStore store = dataItems.getColumnStore();
+			int[] ranks = null;
+			
+			if (store.getKind(col) == DataItemCollection.STRING)
+				ranks = store.getSortedRanks(col);
+			
+			for (int i = 0; i < size; i++)
+			{
+				if (store.isNull(i, col))
+					continue;
+				
+				if (ranks != null)
+					val = ranks[store.getStringCode(i, col)];
+				else
+					val = store.getDouble(i, col);
+				
+				if (Double.isNaN(val))
+					continue;
+				
+				keys[n] = val;
+				order[n++] = i;
+			}
+		}
+		
+		rows = new int[n];
+		values = new double[n];
+		System.arraycopy(order, 0, rows, 0, n);
+		System.arraycopy(keys, 0, values, 0, n);
+		sort();
+	}
+	
+	/**
+	* Order the rows by their values with a bottom-up merge sort, which is
+	* stable so that rows with equal values stay in row order
+	*/
+	
+	private void sort()
+	{
+		int n = rows.length;
+		int[] srcRows = rows, dstRows = new int[n];
+		double[] srcVals = values, dstVals = new double[n];
+		int[] tmpRows;
+		double[] tmpVals;
+		
+		for (int width = 1; width < n; width *= 2)
+		{
+			for (int lo = 0; lo < n; lo += 2 * width)
+			{
+				int mid = Math.min(lo + width, n);
+				int hi = Math.min(lo + 2 * width, n);
+				int i = lo, j = mid, k = lo;
+				
+				while ((i < mid) && (j < hi))
+				{
+					if (srcVals[j] < srcVals[i])
+					{
+						dstVals[k] = srcVals[j];
+						dstRows[k++] = srcRows[j++];
+					}
+					else
+					{
+						dstVals[k] = srcVals[i];
+						dstRows[k++] = srcRows[i++];
+					}
+				}
+				
+				while (i < mid)
+				{
+					dstVals[k] = srcVals[i];
+					dstRows[k++] = srcRows[i++];
+				}
+				
+				while (j < hi)
+				{
+					dstVals[k] = srcVals[j];
+					dstRows[k++] = srcRows[j++];
+				}
+			}
+			
+			tmpRows = srcRows;
+			srcRows = dstRows;
+			dstRows = tmpRows;
+			tmpVals = srcVals;
+			srcVals = dstVals;
+			dstVals = tmpVals;
+		}
+		
+		rows = srcRows;
+		values = srcVals;
+	}
+	
+	/**
+	* Return the number of rows that have a value
+	*/
+	
+	public int size()
+	{
+		return rows.length;
+	}
+	
+	/**
+	* Return the row at a position in the sorted order
+	*/
+	
+	public int getRow(int pos)
+	{
+		return rows[pos];
+	}
+	
+	/**
+	* Return the value at a position in the sorted order. For strings this
+	* is the alphabetical rank of the string.
+	*/
+	
+	public double getValue(int pos)
+	{
+		return values[pos];
+	}
+	
+	/**
+	* Return the first position whose value is not less than val, or size()
+	*/
+	
+	public int lowerBound(double val)
+	{
+		int lo = 0, hi = values.length, mid;
+		
+		while (lo < hi)
+		{
+			mid = (lo + hi) >>> 1;
+			
+			if (values[mid] < val)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+	
+	/**
+	* Return the first position whose value is greater than val, or size()
+	*/
+	
+	public int upperBound(double val)
+	{
+		int lo = 0, hi = values.length, mid;
+		
+		while (lo < hi)
+		{
+			mid = (lo + hi) >>> 1;
+			
+			if (values[mid] <= val)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+	
+	/**
+	* Return the rows whose values lie within [min, max], in order of value
+	*/
+	
+	public int[] getRows(double min, double max)
+	{
+		int first = lowerBound(min);
+		int last = upperBound(max);
+		
+		if (last <= first)
+			return new int[0];
+		
+		int[] range = new int[last - first];
+		System.arraycopy(rows, first, range, 0, range.length);
+		return range;
+	}
+	
+	/**
+	* Mark the rows whose values lie within [min, max] in the given array,
+	* which is indexed by row
+	*/
+	
+	public void markRows(double min, double max, boolean[] marks)
+	{
+		int last = upperBound(max);
+		
+		for (int i = lowerBound(min); i < last; i++)
+			marks[rows[i]] = true;
+	}
+}
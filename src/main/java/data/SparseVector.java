@@ -0,0 +1,294 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic test bed
+ * 
+ * SparseVector
+ * A tf-idf document vector that only holds its non-zero entries. The term
+ * indices are kept in ascending order alongside their weights so that two
+ * vectors can be multiplied by walking both at once.
+ * 
+ * @author Greg Ross
+ */
+
+package data;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+public class SparseVector implements Serializable
+{
+	static final long serialVersionUID = 50L;
+	
+	// Indices of the non-zero terms, in ascending order
+	
+	private int[] terms;
+	
+	// The weight of each of the non-zero terms
+	
+	private float[] weights;
+	
+	// The length of the equivalent dense vector
+	
+	private int dimensions;
+	
+	/**
+	* Create a vector from arrays of term indices and weights. The indices
+	* must be in ascending order and the arrays are not copied.
+	*/
+	
+	public SparseVector(int[] terms, float[] weights, int dimensions)
+	{
+		this.terms = terms;
+		this.weights = weights;
+		this.dimensions = dimensions;
+	}
+	
+	/**
+	* Create a sparse vector holding the non-zero entries of a dense vector
+	*/
+	
+	public static SparseVector fromDense(double[] values)
+	{
+		int count = 0;
+		int i;
+		
+		for (i = 0; i < values.length; i++)
+			if (values[i] != 0)
+				count++;
+		
+		int[] terms = new int[count];
+		float[] weights = new float[count];
+		count = 0;
+		
+		for (i = 0; i < values.length; i++)
+		{
+			if (values[i] != 0)
+			{
+				terms[count] = i;
+				weights[count] = (float)values[i];
+				count++;
+			}
+		}
+		
+		return new SparseVector(terms, weights, values.length);
+	}
+	
+	/**
+	* Return a deep copy of this vector
+	*/
+	
+	public SparseVector copy()
+	{
+		return new SparseVector((int[])terms.clone(), (float[])weights.clone(), dimensions);
+	}
+	
+	/**
+	* Return the equivalent dense vector
+	*/
+	
+	public double[] toDense()
+	{
+		double[] values = new double[dimensions];
+		
+		for (int i = 0; i < terms.length; i++)
+			values[terms[i]] = weights[i];
+		
+		return values;
+	}
+	
+	/**
+	* Return the weight of the given term, zero if it is not present
+	*/
+	
+	public double get(int term)
+	{
+		int pos = find(term);
+		
+		if (pos < 0)
+			return 0;
+		else
+			return weights[pos];
+	}
+	
+	/**
+	* Change the weight of a term that is already present in the vector.
+	* Returns false if the term has no entry.
+	*/
+	
+	public boolean setExisting(int term, double weight)
+	{
+		int pos = find(term);
+		
+		if (pos < 0)
+			return false;
+		
+		weights[pos] = (float)weight;
+		return true;
+	}
+	
+	/**
+	* Return a new vector without the given dimension, the indices of the
+	* terms after it are shifted down by one
+	*/
+	
+	public SparseVector removeDimension(int term)
+	{
+		int pos = find(term);
+		int count = (pos < 0) ? terms.length : terms.length - 1;
+		int[] newTerms = new int[count];
+		float[] newWeights = new float[count];
+		int k = 0;
+		
+		for (int i = 0; i < terms.length; i++)
+		{
+			if (terms[i] != term)
+			{
+				newTerms[k] = (terms[i] > term) ? terms[i] - 1 : terms[i];
+				newWeights[k] = weights[i];
+				k++;
+			}
+		}
+		
+		return new SparseVector(newTerms, newWeights, dimensions - 1);
+	}
+	
+	/**
+	* Return a new vector with one extra dimension on the end, holding the
+	* given weight
+	*/
+	
+	public SparseVector appendDimension(double weight)
+	{
+		int count = (weight == 0) ? terms.length : terms.length + 1;
+		int[] newTerms = new int[count];
+		float[] newWeights = new float[count];
+		
+		System.arraycopy(terms, 0, newTerms, 0, terms.length);
+		System.arraycopy(weights, 0, newWeights, 0, weights.length);
+		
+		if (weight != 0)
+		{
+			newTerms[terms.length] = dimensions;
+			newWeights[terms.length] = (float)weight;
+		}
+		
+		return new SparseVector(newTerms, newWeights, dimensions + 1);
+	}
+	
+	/**
+	* Return the inner product of this vector and another. Only the terms
+	* that are present in both vectors are visited.
+	*/
+	
+	public double dot(SparseVector other)
+	{
+		int[] terms2 = other.terms;
+		float[] weights2 = other.weights;
+		int i = 0;
+		int j = 0;
+		double product = 0;
+		
+		while ((i < terms.length) && (j < terms2.length))
+		{
+			if (terms[i] < terms2[j])
+				i++;
+			else if (terms[i] > terms2[j])
+				j++;
+			else
+			{
+				product += ((double)weights[i] * weights2[j]);
+				i++;
+				j++;
+			}
+		}
+		
+		return product;
+	}
+	
+	/**
+	* Return the Euclidean length of the vector
+	*/
+	
+	public double length()
+	{
+		double len = 0;
+		
+		for (int i = 0; i < weights.length; i++)
+			len += ((double)weights[i] * weights[i]);
+		
+		return Math.sqrt(len);
+	}
+	
+	/**
+	* Return the position of a term in the arrays, or a negative number
+	* if the term has no entry
+	*/
+	
+	private int find(int term)
+	{
+		return Arrays.binarySearch(terms, term);
+	}
+	
+	public int getDimensions()
+	{
+		return dimensions;
+	}
+	
+	/**
+	* Return the number of non-zero entries
+	*/
+	
+	public int getNumEntries()
+	{
+		return terms.length;
+	}
+	
+	public int[] getTerms()
+	{
+		return terms;
+	}
+	
+	public float[] getWeights()
+	{
+		return weights;
+	}
+}
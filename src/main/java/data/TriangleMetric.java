@@ -0,0 +1,98 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic test bed
+ * 
+ * TriangleMetric
+ * Looks distances up from a lower triangular matrix held in lower-packed
+ * storage mode (the diagonal included), either in an array or a MappedTriangle.
+ * 
+ * @author Greg Ross
+ */
+
+package data;
+
+public class TriangleMetric implements DistanceMetric
+{
+	private double[] triangle;
+	
+	// Used instead of triangle when the matrix is held in a mapped file
+	
+	private MappedTriangle mapped = null;
+	
+	// If not null, the row of the triangle for each item
+	
+	private int[] rows;
+	
+	public TriangleMetric(double[] triangle)
+	{
+		this(triangle, null);
+	}
+	
+	public TriangleMetric(double[] triangle, int[] rows)
+	{
+		this.triangle = triangle;
+		this.rows = rows;
+	}
+	
+	public TriangleMetric(MappedTriangle mapped, int[] rows)
+	{
+		this.mapped = mapped;
+		this.rows = rows;
+	}
+	
+	public double distance(int item1, int item2)
+	{
+		if (rows != null)
+		{
+			item1 = rows[item1];
+			item2 = rows[item2];
+		}
+		
+		if (mapped != null)
+			return mapped.get(item1, item2);
+		
+		if (item1 > item2)
+			return triangle[(item2 + 1) + (((item1 + 1) * item1) / 2) - 1];
+		else
+			return triangle[(item1 + 1) + (((item2 + 1) * item2) / 2) - 1];
+	}
+}
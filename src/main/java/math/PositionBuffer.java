@@ -0,0 +1,232 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic test bed
+ * 
+ * PositionBuffer
+ * 
+ * Double buffered store of low-D positions passed from a layout module to
+ * the views that it feeds. The layout writes its coordinates into the back
+ * buffer and flips it to the front in one step, whilst views read the
+ * front buffer as a consistent snapshot held in primitive arrays. A buffer
+ * that a view is still reading is never written to; the layout takes a
+ * fresh one instead.
+ *
+ * @author Greg Ross
+ */
+
+package math;
+
+import java.util.ArrayList;
+
+public class PositionBuffer
+{
+	// The most recently published positions
+	
+	private Snapshot front = null;
+	
+	// The buffer that the next positions are written into
+	
+	private Snapshot back = null;
+	
+	// Incremented each time that positions are published
+	
+	private long version = 0;
+	
+	/**
+	* Copy a list of Coordinate objects into the back buffer and make it
+	* the front buffer. Only the active dimensions are copied.
+	*
+	* @param positions The list of Coordinate objects to publish
+	*/
+	
+	public void publish(ArrayList positions)
+	{
+		int size = positions.size();
+		int dims = Coordinate.activeDimensions;
+		Snapshot buffer;
+		
+		synchronized (this)
+		{
+			buffer = back;
+			back = null;
+		}
+		
+		if ((buffer == null) || (buffer.x.length < size) || 
+			((dims > 2) && (buffer.z == null)) || ((dims > 3) && (buffer.w == null)))
+			buffer = new Snapshot(size, dims);
+		
+		for (int i = 0; i < size; i++)
+		{
+			Coordinate c = (Coordinate)positions.get(i);
+			buffer.x[i] = c.x;
+			buffer.y[i] = c.y;
+			
+			if (dims > 2)
+				buffer.z[i] = c.z;
+			
+			if (dims > 3)
+				buffer.w[i] = c.w;
+		}
+		
+		synchronized (this)
+		{
+			buffer.size = size;
+			buffer.dims = dims;
+			buffer.version = ++version;
+			
+			// The old front buffer may be reused unless a view is still
+			// reading it
+			
+			if ((front != null) && (front.readers == 0))
+				back = front;
+			
+			front = buffer;
+		}
+	}
+	
+	/**
+	* Return the front buffer, or null if nothing has been published. The
+	* buffer is not written to until it is given back with release()
+	*/
+	
+	public synchronized Snapshot acquire()
+	{
+		if (front != null)
+			front.readers++;
+		
+		return front;
+	}
+	
+	/**
+	* Give back a buffer obtained from acquire()
+	*/
+	
+	public synchronized void release(Snapshot snapshot)
+	{
+		if (snapshot == null)
+			return;
+		
+		snapshot.readers--;
+		
+		// If the layout has moved on and has no spare buffer then let it
+		// have this one
+		
+		if ((snapshot.readers == 0) && (snapshot != front) && (back == null))
+			back = snapshot;
+	}
+	
+	/**
+	* Return the version of the front buffer. This increases each time
+	* that positions are published
+	*/
+	
+	public synchronized long getVersion()
+	{
+		return version;
+	}
+	
+	/**
+	* One set of positions. The arrays may be longer than the number of
+	* positions, and z and w are zero unless that many dimensions were
+	* active when the positions were published.
+	*/
+	
+	public static class Snapshot
+	{
+		double[] x;
+		double[] y;
+		double[] z;
+		double[] w;
+		int size;
+		int dims;
+		long version;
+		int readers = 0;
+		
+		Snapshot(int capacity, int dims)
+		{
+			this.dims = dims;
+			x = new double[capacity];
+			y = new double[capacity];
+			
+			if (dims > 2)
+				z = new double[capacity];
+			
+			if (dims > 3)
+				w = new double[capacity];
+		}
+		
+		public int size()
+		{
+			return size;
+		}
+		
+		public int getDimensions()
+		{
+			return dims;
+		}
+		
+		public long getVersion()
+		{
+			return version;
+		}
+		
+		public double getX(int i)
+		{
+			return x[i];
+		}
+		
+		public double getY(int i)
+		{
+			return y[i];
+		}
+		
+		public double getZ(int i)
+		{
+			return (dims > 2) ? z[i] : 0.0;
+		}
+		
+		public double getW(int i)
+		{
+			return (dims > 3) ? w[i] : 0.0;
+		}
+	}
+}
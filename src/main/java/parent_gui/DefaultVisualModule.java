@@ -241,4 +241,44 @@ public class DefaultVisualModule extends VisualModule
 				return false;
 		}
 	}
+	
+	/**
+	* Return the key under which the outputs of this module are memoised
+	* for the given inputs and parameters, or null if caching is switched
+	* off. The inputs are hashed by content, so this costs time in
+	* proportion to their size.
+	*/
+	
+	protected ResultCache.Key getCacheKey(Object[] inputs, Object[] params)
+	{
+		if (!ResultCache.isEnabled())
+			return null;
+		
+		return ResultCache.fingerprint(new Object[] {getClass().getName(), inputs, params});
+	}
+	
+	/**
+	* Return the outputs memoised under the key, one list per output port,
+	* or null if there are none. The lists are shared with the cache, so
+	* must not be altered, and the data in them should be copied before
+	* being sent on.
+	*/
+	
+	protected ArrayList[] getCachedOutputs(ResultCache.Key key)
+	{
+		if (key == null)
+			return null;
+		
+		return ResultCache.getInstance().get(key);
+	}
+	
+	/**
+	* Memoise the outputs of this module under the key
+	*/
+	
+	protected void cacheOutputs(ResultCache.Key key, ArrayList[] outputs)
+	{
+		if (key != null)
+			ResultCache.getInstance().put(key, outputs);
+	}
 }
@@ -0,0 +1,378 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic testbed
+ *
+ * GraphScheduler
+ *
+ * Runs the work of modules on a shared pool of threads, in the order implied
+ * by the links between them. A task scheduled for a module does not start
+ * until the finite tasks of the modules upstream of it have finished, so a
+ * stage that is triggered whilst its inputs are still being produced waits
+ * for them. Open-ended tasks, such as layouts that iterate until they are
+ * stopped, are only waited for once they have been cancelled and are
+ * winding down, as they are when they fire a convergence trigger. Tasks of
+ * modules on independent branches run at the same time.
+ *
+ * Cancelling a task also cancels the tasks downstream that are waiting
+ * for it. A running task finds out that it has been cancelled through
+ * isCancelled(), which long running modules check on each iteration.
+ *
+ *  @author Greg Ross
+ */
+ 
+package parent_gui;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class GraphScheduler
+{
+	private static final GraphScheduler instance = new GraphScheduler();
+	
+	// The task being run by the current thread, if any
+	
+	private static final ThreadLocal current = new ThreadLocal();
+	
+	// One thread per processor is kept alive. Beyond that, threads are
+	// added as tasks become ready, since a module may iterate until it
+	// is stopped by the user
+	
+	private final ThreadPoolExecutor executor;
+	
+	// The latest task of each module that has not yet finished
+	
+	private final HashMap tasks = new HashMap();
+	
+	private GraphScheduler()
+	{
+		executor = new ThreadPoolExecutor(Runtime.getRuntime().availableProcessors(), Integer.MAX_VALUE,
+			60L, TimeUnit.SECONDS, new SynchronousQueue(), new ThreadFactory()
+		{
+			public Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(r, "HIVE module");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+	
+	public static GraphScheduler getInstance()
+	{
+		return instance;
+	}
+	
+	/**
+	* Return the task that the calling thread is running, or null if the
+	* thread is not running a scheduled task
+	*/
+	
+	public static Task currentTask()
+	{
+		return (Task)current.get();
+	}
+	
+	/**
+	* Schedule work for a module that finishes by itself
+	*/
+	
+	public Task schedule(VisualModule mod, Runnable work)
+	{
+		return schedule(mod, work, true);
+	}
+	
+	/**
+	* Schedule work for a module. Any earlier task of the module is
+	* cancelled. The work starts once every finite task of the modules
+	* upstream of this one has finished, as well as every open-ended one
+	* that has been cancelled.
+	*
+	* @param mod The module the work belongs to
+	* @param work The work to run
+	* @param bFinite False if the work runs until it is stopped
+	* @return The task, through which the work can be cancelled
+	*/
+	
+	public synchronized Task schedule(VisualModule mod, Runnable work, boolean bFinite)
+	{
+		Task previous = (Task)tasks.get(mod);
+		if (previous != null)
+			cancel(previous);
+		
+		Task task = new Task(mod, work, bFinite);
+		tasks.put(mod, task);
+		
+		Iterator iter = getUpstream(mod).iterator();
+		while (iter.hasNext())
+		{
+			Task dep = (Task)tasks.get(iter.next());
+			if ((dep != null) && !dep.bDone && (dep.bFinite || dep.bCancelled))
+			{
+				dep.dependents.add(task);
+				task.waiting++;
+			}
+		}
+		
+		if (task.waiting == 0)
+			dispatch(task);
+		
+		return task;
+	}
+	
+	/**
+	* Run work that belongs to no module, such as animating a control
+	* panel, on the shared threads. Nothing waits for it.
+	*/
+	
+	public void execute(Runnable work)
+	{
+		executor.execute(work);
+	}
+	
+	/**
+	* Cancel the task of a module, and the tasks waiting for it
+	*/
+	
+	public synchronized void cancel(VisualModule mod)
+	{
+		Task task = (Task)tasks.get(mod);
+		if (task != null)
+			cancel(task);
+	}
+	
+	/**
+	* Cancel every task, e.g. when the modules are being replaced
+	*/
+	
+	public synchronized void cancelAll()
+	{
+		Iterator iter = new ArrayList(tasks.values()).iterator();
+		while (iter.hasNext())
+			cancel((Task)iter.next());
+	}
+	
+	/**
+	* Return the number of tasks that are waiting or running
+	*/
+	
+	public synchronized int getActiveCount()
+	{
+		return tasks.size();
+	}
+	
+	synchronized void cancel(Task task)
+	{
+		if (task.bCancelled)
+			return;
+		
+		task.bCancelled = true;
+		
+		for (int i = 0; i < task.dependents.size(); i++)
+			cancel((Task)task.dependents.get(i));
+		
+		// A task that has not started is finished now, so that the tasks
+		// it was waiting for have nothing to release
+		
+		if (!task.bStarted)
+			finished(task);
+	}
+	
+	private void dispatch(Task task)
+	{
+		task.bStarted = true;
+		executor.execute(task);
+	}
+	
+	private synchronized void finished(Task task)
+	{
+		if (task.bDone)
+			return;
+		
+		task.bDone = true;
+		
+		if (tasks.get(task.module) == task)
+			tasks.remove(task.module);
+		
+		for (int i = 0; i < task.dependents.size(); i++)
+		{
+			Task dependent = (Task)task.dependents.get(i);
+			dependent.waiting--;
+			
+			if ((dependent.waiting == 0) && !dependent.bStarted && !dependent.bDone)
+				dispatch(dependent);
+		}
+		
+		task.dependents.clear();
+		notifyAll();
+	}
+	
+	/**
+	* Return every module that feeds data or triggers into a module,
+	* directly or through other modules. Selection links are left out
+	* since they carry feedback in both directions.
+	*/
+	
+	public static Set getUpstream(VisualModule mod)
+	{
+		HashSet upstream = new HashSet();
+		LinkedList stack = new LinkedList();
+		stack.add(mod);
+		
+		while (!stack.isEmpty())
+		{
+			VisualModule m = (VisualModule)stack.removeLast();
+			Iterator iter = getInputs(m).iterator();
+			while (iter.hasNext())
+			{
+				VisualModule from = (VisualModule)iter.next();
+				if ((from != mod) && upstream.add(from))
+					stack.add(from);
+			}
+		}
+		
+		return upstream;
+	}
+	
+	/**
+	* Return the modules linked directly to the input ports of a module
+	*/
+	
+	public static Set getInputs(VisualModule mod)
+	{
+		HashSet inputs = new HashSet();
+		if (mod.getPorts() == null)
+			return inputs;
+		
+		Iterator iter = mod.getPorts().values().iterator();
+		while (iter.hasNext())
+		{
+			ModulePort port = (ModulePort)iter.next();
+			if (!port.getKey().startsWith("i") || (port.getObservedPorts() == null))
+				continue;
+			
+			for (int i = 0; i < port.getObservedPorts().size(); i++)
+			{
+				ModulePort from = (ModulePort)port.getObservedPorts().get(i);
+				if (from.getKey().startsWith("o") && (from.getPortMode() != ScriptModel.SELECTION_PORT))
+					inputs.add(from.getVisualModule());
+			}
+		}
+		
+		return inputs;
+	}
+	
+	/**
+	* The scheduled work of one module
+	*/
+	
+	public class Task implements Runnable
+	{
+		private VisualModule module;
+		private Runnable work;
+		private boolean bFinite;
+		
+		// The number of upstream tasks still to finish, and the tasks
+		// waiting for this one
+		
+		private int waiting = 0;
+		private ArrayList dependents = new ArrayList();
+		
+		private volatile boolean bCancelled = false;
+		private boolean bStarted = false;
+		private boolean bDone = false;
+		
+		Task(VisualModule module, Runnable work, boolean bFinite)
+		{
+			this.module = module;
+			this.work = work;
+			this.bFinite = bFinite;
+		}
+		
+		public VisualModule getModule()
+		{
+			return module;
+		}
+		
+		public boolean isCancelled()
+		{
+			return bCancelled;
+		}
+		
+		public void cancel()
+		{
+			GraphScheduler.this.cancel(this);
+		}
+		
+		/**
+		* Block until the task has finished, or has been cancelled
+		* before it started. Must not be called by the task itself.
+		*/
+		
+		public void waitFor() throws InterruptedException
+		{
+			synchronized (GraphScheduler.this)
+			{
+				while (!bDone)
+					GraphScheduler.this.wait();
+			}
+		}
+		
+		public void run()
+		{
+			current.set(this);
+			try
+			{
+				if (!bCancelled)
+					work.run();
+			}
+			catch (RuntimeException e)
+			{
+				e.printStackTrace();
+			}
+			finally
+			{
+				current.set(null);
+				finished(this);
+			}
+		}
+	}
+}
@@ -102,6 +102,9 @@ public class Mdi extends JFrame implements ActionListener, FileHistory.IFileHist
 	JMenu 		settingMenu;
 	JMenuItem	settingMenu_dataCategories;
 	JMenuItem	settingMenu_ExcelPath;
+	JCheckBoxMenuItem settingMenu_AsyncPorts;
+	JCheckBoxMenuItem settingMenu_CacheOutputs;
+	JCheckBoxMenuItem settingMenu_CacheSpill;
 	
 	// View menu
 	
@@ -356,6 +359,32 @@ public class Mdi extends JFrame implements ActionListener, FileHistory.IFileHist
 		settingMenu_ExcelPath.getAccessibleContext().setAccessibleDescription("Set path of MS Excel executable");
 		settingMenu_ExcelPath.addActionListener(this);
 		settingMenu.add(settingMenu_ExcelPath);
+		
+		// Menu item for letting modules send data without waiting for the
+		// modules they feed
+		
+		settingMenu.addSeparator();
+		settingMenu_AsyncPorts = new JCheckBoxMenuItem("Asynchronous links");
+		settingMenu_AsyncPorts.getAccessibleContext().setAccessibleDescription("Deliver data along links asynchronously");
+		settingMenu_AsyncPorts.setState(ModulePort.isAsynchronous());
+		settingMenu_AsyncPorts.addActionListener(this);
+		settingMenu.add(settingMenu_AsyncPorts);
+		
+		// Menu items for memoising the outputs of modules so that unchanged
+		// stages are not recomputed when a pipeline is re-run
+		
+		settingMenu_CacheOutputs = new JCheckBoxMenuItem("Cache module outputs");
+		settingMenu_CacheOutputs.getAccessibleContext().setAccessibleDescription("Re-use the outputs of modules whose inputs and settings are unchanged");
+		settingMenu_CacheOutputs.setState(ResultCache.isEnabled());
+		settingMenu_CacheOutputs.addActionListener(this);
+		settingMenu.add(settingMenu_CacheOutputs);
+		
+		settingMenu_CacheSpill = new JCheckBoxMenuItem("Spill cache to disk");
+		settingMenu_CacheSpill.getAccessibleContext().setAccessibleDescription("Keep cached outputs that don't fit in memory in temporary files");
+		settingMenu_CacheSpill.setState(ResultCache.getInstance().getSpillDirectory() != null);
+		settingMenu_CacheSpill.setEnabled(ResultCache.isEnabled());
+		settingMenu_CacheSpill.addActionListener(this);
+		settingMenu.add(settingMenu_CacheSpill);
 	}
 	
 	private void createViewMenu()
@@ -520,6 +549,22 @@ public class Mdi extends JFrame implements ActionListener, FileHistory.IFileHist
 			
 			ExcelPathDialog excel = new ExcelPathDialog();
 		}
+		else if ((JMenuItem)e.getSource() == settingMenu_AsyncPorts)
+		{
+			ModulePort.setAsynchronous(settingMenu_AsyncPorts.getState());
+		}
+		else if ((JMenuItem)e.getSource() == settingMenu_CacheOutputs)
+		{
+			ResultCache.setEnabled(settingMenu_CacheOutputs.getState());
+			settingMenu_CacheSpill.setEnabled(settingMenu_CacheOutputs.getState());
+		}
+		else if ((JMenuItem)e.getSource() == settingMenu_CacheSpill)
+		{
+			if (settingMenu_CacheSpill.getState())
+				ResultCache.getInstance().setSpillDirectory(new File(System.getProperty("java.io.tmpdir"), "hive-cache"));
+			else
+				ResultCache.getInstance().setSpillDirectory(null);
+		}
 		else if ((JMenuItem)e.getSource() == viewMenu_DrawingPane)
 		{
 			if (!viewMenu_DrawingPane.getState())
@@ -781,6 +826,10 @@ public class Mdi extends JFrame implements ActionListener, FileHistory.IFileHist
 	
 	private void removeAllModules()
 	{
+		// Stop any module that is still running or waiting to run
+		
+		GraphScheduler.getInstance().cancelAll();
+		
 		Set set = modules.keySet();
 		Iterator iter = set.iterator();
 		
@@ -51,6 +51,8 @@
 package parent_gui;
 
 import data.*;
+import math.Coordinate;
+import math.PositionBuffer;
 
 import java.awt.geom.*;
 import java.awt.Point;
@@ -124,6 +126,11 @@ public class ModulePort extends Observable implements Observer, java.io.Serializ
 	
 	private Collection selectionData;
 	
+	// Primitive copy of the positions that an output port sends, kept up
+	// to date by layout modules that support it
+	
+	private transient volatile PositionBuffer positionBuffer = null;
+	
 	// Determine whether the port is highlighted because it is compatible
 	// with the currently selected port
 	
@@ -134,6 +141,16 @@ public class ModulePort extends Observable implements Observer, java.io.Serializ
 	
 	private boolean hybridTrigger = false;
 	
+	// Determine whether data arriving at input ports is handed to their
+	// modules on the sender's thread or queued for delivery on another
+	
+	private static boolean bAsynchronous = false;
+	
+	// Messages waiting to be delivered to this input port when delivery
+	// is asynchronous
+	
+	private transient PortMailbox mailbox = null;
+	
 	public 	ModulePort(VisualModule visMod, int portMode, int num)
 	{
 		this.visMod = visMod;
@@ -397,9 +414,90 @@ public class ModulePort extends Observable implements Observer, java.io.Serializ
 	
 	public void update(Observable o, Object arg)
 	{
-		// Notfy the parent VisualModule that something has changed
+		// Notfy the parent VisualModule that something has changed.
+		// Asynchronous delivery leaves the event dispatch thread
+		// delivering directly, unless earlier messages are still waiting,
+		// so that interactive updates happen on the thread Swing expects
+		
+		boolean bPositions = (arg instanceof Positions);
+		ArrayList data = bPositions ? ((Positions)arg).data : (ArrayList)arg;
+		
+		if (bAsynchronous && mode.equals("i"))
+		{
+			PortMailbox box = getMailbox();
+			if (!javax.swing.SwingUtilities.isEventDispatchThread() || box.isBusy())
+			{
+				box.post((ModulePort)o, data, bPositions);
+				return;
+			}
+		}
+		
+		deliver((ModulePort)o, data);
+	}
+	
+	/**
+	* Hand data that arrived from another port to the parent module
+	*/
+	
+	void deliver(ModulePort fromPort, ArrayList data)
+	{
+		visMod.update(fromPort, this, data);
+	}
+	
+	/**
+	* Hand positions that waited in the mailbox to the parent module. The
+	* layout has carried on moving its Coordinates since they were sent, so
+	* the module is given a copy of the latest positions that the sender
+	* published to its position buffer instead
+	*/
+	
+	void deliverPositions(ModulePort fromPort, ArrayList data)
+	{
+		PositionBuffer buffer = fromPort.getPositionBuffer();
+		PositionBuffer.Snapshot snapshot = (buffer == null) ? null : buffer.acquire();
+		
+		if ((snapshot != null) && (data.size() > 1) && (data.get(1) instanceof ArrayList) && 
+			(snapshot.size() == ((ArrayList)data.get(1)).size()))
+		{
+			ArrayList positions = new ArrayList(snapshot.size());
+			
+			for (int i = 0; i < snapshot.size(); i++)
+				positions.add(new Coordinate(snapshot.getX(i), snapshot.getY(i), 
+					snapshot.getZ(i), snapshot.getW(i)));
+			
+			data = new ArrayList(data);
+			data.set(1, positions);
+		}
+		
+		if (snapshot != null)
+			buffer.release(snapshot);
+		
+		deliver(fromPort, data);
+	}
+	
+	private synchronized PortMailbox getMailbox()
+	{
+		if (mailbox == null)
+			mailbox = new PortMailbox(this);
 		
-		visMod.update((ModulePort)o, this, (ArrayList)arg);
+		return mailbox;
+	}
+	
+	/**
+	* Accessor methods for the delivery mode of all input ports. When
+	* asynchronous, a module sending data no longer waits for the modules
+	* downstream to process it, and positions that arrive faster than a
+	* module can use them are coalesced so that only the latest is seen
+	*/
+	
+	public static void setAsynchronous(boolean bAsync)
+	{
+		bAsynchronous = bAsync;
+	}
+	
+	public static boolean isAsynchronous()
+	{
+		return bAsynchronous;
 	}
 	
 	/**
@@ -455,11 +553,29 @@ public class ModulePort extends Observable implements Observer, java.io.Serializ
 	*/
 	
 	public void sendData(ArrayList data)
+	{
+		send(data, false);
+	}
+	
+	/**
+	* Send the latest positions of a layout. When delivery is asynchronous,
+	* positions from this port that are still waiting to be delivered are
+	* replaced by these rather than queued behind them.
+	*/
+	
+	public void sendPositions(ArrayList data)
+	{
+		send(data, true);
+	}
+	
+	private void send(ArrayList data, boolean bPositions)
 	{
 		csvData = null;
 		arrayData = null;
 		transferData = null;
 		
+		publishPositions(data);
+		
 		if (data != null)
 		{
 			if (data.get(0) instanceof DataItemCollection)
@@ -474,7 +590,45 @@ public class ModulePort extends Observable implements Observer, java.io.Serializ
 		
 		transferData = data;
 		setChanged();
-		notifyObservers(data);
+		
+		if (bPositions && (data != null))
+			notifyObservers(new Positions(data));
+		else
+			notifyObservers(data);
+	}
+
+	
+	/**
+	* If the data hold a list of positions, copy them into the port's
+	* position buffer, which is created on the first send. Views read the
+	* copy, so a layout that carries on moving its Coordinates after
+	* sending them, or whose data are delivered later on another thread,
+	* is never seen half way through an iteration.
+	*/
+	
+	private void publishPositions(ArrayList data)
+	{
+		// Once the layout is no longer sending positions, don't let views
+		// carry on reading the last ones
+		
+		if (data == null)
+		{
+			positionBuffer = null;
+			return;
+		}
+		
+		if ((data.size() > 1) && (data.get(1) instanceof ArrayList))
+		{
+			ArrayList positions = (ArrayList)data.get(1);
+			
+			if ((positions.size() > 0) && (positions.get(0) instanceof Coordinate))
+			{
+				if (positionBuffer == null)
+					positionBuffer = new PositionBuffer();
+				
+				positionBuffer.publish(positions);
+			}
+		}
 	}
 	
 	/**
@@ -486,6 +640,22 @@ public class ModulePort extends Observable implements Observer, java.io.Serializ
 		return transferData;
 	}
 	
+	/**
+	* Accessor methods for the position buffer of an output port. Views
+	* fed by the port may read positions from the buffer instead of the
+	* list of Coordinates that is sent
+	*/
+	
+	public void setPositionBuffer(PositionBuffer positionBuffer)
+	{
+		this.positionBuffer = positionBuffer;
+	}
+	
+	public PositionBuffer getPositionBuffer()
+	{
+		return positionBuffer;
+	}
+	
 	/**
 	* Return the DataItemCollection held by this port (if it holds one)
 	*/
@@ -544,4 +714,18 @@ public class ModulePort extends Observable implements Observer, java.io.Serializ
 				((ModulePort)observedPorts.get(i)).addObserver(this);
 		}
 	}
+	
+	/**
+	* Marks the data passed to observing ports by sendPositions()
+	*/
+	
+	private static class Positions
+	{
+		ArrayList data;
+		
+		Positions(ArrayList data)
+		{
+			this.data = data;
+		}
+	}
 }
@@ -0,0 +1,294 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic testbed
+ *
+ * PortMailbox
+ *
+ * A bounded queue of messages waiting to be delivered to an input port
+ * when ports deliver asynchronously. Messages are handed to the port's
+ * visual module on a shared pool of daemon threads, one message at a time
+ * and in the order they were posted. Messages posted on the event dispatch
+ * thread are still delivered on it. Positions sent with sendPositions()
+ * replace positions from the same sender that are still waiting, so a slow
+ * consumer only ever sees the latest layout, and are delivered as a copy
+ * that the layout does not go on to change.
+ *
+ *  @author Greg Ross
+ */
+ 
+package parent_gui;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.swing.SwingUtilities;
+
+class PortMailbox implements Runnable
+{
+	// The number of waiting messages after which a worker thread that
+	// posts a message that cannot be coalesced must wait for the consumer
+	
+	static final int CAPACITY = 32;
+	
+	// Threads shared by the mailboxes of all ports. Only one thread
+	// serves a given mailbox at a time
+	
+	private static final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory()
+	{
+		public Thread newThread(Runnable r)
+		{
+			return new DeliveryThread(r);
+		}
+	});
+	
+	// The port whose module receives the messages
+	
+	private ModulePort port;
+	
+	// Waiting messages
+	
+	private LinkedList queue = new LinkedList();
+	
+	// True whilst a thread is delivering messages from this mailbox
+	
+	private boolean bRunning = false;
+	
+	public PortMailbox(ModulePort port)
+	{
+		this.port = port;
+	}
+	
+	/**
+	* Queue a message for delivery. If the message holds positions and
+	* the last waiting message from the same sender also holds positions
+	* then that message takes the new data instead of queueing another.
+	*
+	* @param from The port that sent the data
+	* @param data The data sent, or null if the link is being removed
+	* @param bPositions True if the data were sent by sendPositions()
+	*/
+	
+	public synchronized void post(ModulePort from, ArrayList data, boolean bPositions)
+	{
+		boolean bEventThread = SwingUtilities.isEventDispatchThread();
+		
+		if (bPositions && coalesce(from, data, bPositions, bEventThread))
+			return;
+		
+		// Apply back-pressure to the threads of producing modules, but never
+		// hold up the event dispatch thread or a delivery thread, since the
+		// latter may be serving the very module that this one feeds. Once
+		// the mailbox is full, their messages replace the last one waiting
+		// from the same sender instead, so the queue can only grow beyond
+		// its capacity by one message per sender.
+		
+		if (bEventThread || (Thread.currentThread() instanceof DeliveryThread))
+		{
+			if ((queue.size() >= CAPACITY) && coalesce(from, data, bPositions, bEventThread))
+				return;
+		}
+		else
+		{
+			while (queue.size() >= CAPACITY && bRunning)
+			{
+				try
+				{
+					wait();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+		
+		queue.add(new Message(from, data, bPositions, bEventThread));
+		
+		if (!bRunning)
+		{
+			bRunning = true;
+			executor.execute(this);
+		}
+	}
+	
+	/**
+	* Give the data to the last waiting message from the same sender, if
+	* that message was posted on the same kind of thread and, when positions
+	* are being posted, also holds positions. Messages that remove a link
+	* are never replaced, nor do they replace others.
+	*/
+	
+	private boolean coalesce(ModulePort from, ArrayList data, boolean bPositions, boolean bEventThread)
+	{
+		if (data == null)
+			return false;
+		
+		ListIterator iter = queue.listIterator(queue.size());
+		while (iter.hasPrevious())
+		{
+			Message m = (Message)iter.previous();
+			if (m.from == from)
+			{
+				if ((m.data == null) || (m.bEventThread != bEventThread) || (bPositions && !m.bPositions))
+					return false;
+				
+				m.data = data;
+				m.bPositions = bPositions;
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	* Return true if there are messages waiting or being delivered
+	*/
+	
+	public synchronized boolean isBusy()
+	{
+		return bRunning;
+	}
+	
+	/**
+	* Deliver waiting messages until the mailbox is empty
+	*/
+	
+	public void run()
+	{
+		while (true)
+		{
+			Message m;
+			synchronized (this)
+			{
+				if (queue.isEmpty())
+				{
+					bRunning = false;
+					notifyAll();
+					return;
+				}
+				m = (Message)queue.removeFirst();
+				notifyAll();
+			}
+			
+			try
+			{
+				if (m.bEventThread)
+					deliverOnEventThread(m);
+				else
+					deliver(m);
+			}
+			catch (RuntimeException e)
+			{
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	* Hand a message to the port. Positions are handed over as a copy of
+	* the sender's latest published positions, since the layout will have
+	* moved on since they were posted
+	*/
+	
+	private void deliver(Message m)
+	{
+		if (m.bPositions)
+			port.deliverPositions(m.from, m.data);
+		else
+			port.deliver(m.from, m.data);
+	}
+	
+	/**
+	* Deliver a message that was posted on the event dispatch thread back on
+	* that thread, waiting for it so that messages still arrive one at a time
+	* and in order
+	*/
+	
+	private void deliverOnEventThread(final Message m)
+	{
+		try
+		{
+			SwingUtilities.invokeAndWait(new Runnable()
+			{
+				public void run()
+				{
+					deliver(m);
+				}
+			});
+		}
+		catch (InvocationTargetException e)
+		{
+			e.getCause().printStackTrace();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private static class DeliveryThread extends Thread
+	{
+		DeliveryThread(Runnable r)
+		{
+			super(r, "HIVE port delivery");
+			setDaemon(true);
+		}
+	}
+	
+	private static class Message
+	{
+		ModulePort from;
+		ArrayList data;
+		boolean bPositions;
+		boolean bEventThread;
+		
+		Message(ModulePort from, ArrayList data, boolean bPositions, boolean bEventThread)
+		{
+			this.from = from;
+			this.data = data;
+			this.bPositions = bPositions;
+			this.bEventThread = bEventThread;
+		}
+	}
+}
@@ -0,0 +1,572 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is HIVE .
+ *
+ * The Initial Developer of the Original Code is
+ * Greg Ross.
+ * Portions created by the Initial Developer are Copyright (C) 2000-2004
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s): Greg Ross <gr@dcs.gla.ac.uk>
+ 		   Matthew Chalmers <matthew@dcs.gla.ac.uk>
+ *                 Alistair Morrison <morrisaj@dcs.gla.ac.uk>
+ *		   Andrew Didsbury
+ *           		
+ *	
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+/**
+ * Algorithmic testbed
+ *
+ * ResultCache
+ *
+ * Memoises the outputs of modules so that re-running a pipeline in which
+ * only a downstream parameter has changed does not recompute the stages
+ * above it. Outputs are keyed by a fingerprint of the content of the
+ * module's inputs and of its parameters, and are held in memory in least
+ * recently used order. Each result also records a cheaper summary of the
+ * shape of the inputs, their sizes and item IDs, which is compared on
+ * lookup so that inputs whose fingerprints collide are not confused. When a spill directory is set, results that fall
+ * out of memory are serialised there and read back on demand.
+ *
+ * Caching is off unless switched on by the user.
+ *
+ *  @author Greg Ross
+ */
+ 
+package parent_gui;
+
+import data.DataItem;
+import data.DataItemCollection;
+import data.DistanceMetric;
+import data.SparseVector;
+import math.Coordinate;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ResultCache
+{
+	private static final ResultCache instance = new ResultCache();
+	
+	// Whether modules should memoise their outputs
+	
+	private static boolean bEnabled = false;
+	
+	// The number of results held in memory
+	
+	public static final int DEFAULT_CAPACITY = 16;
+	private int capacity = DEFAULT_CAPACITY;
+	
+	// The results in memory, least recently used first, keyed by the
+	// fingerprint
+	
+	private final LinkedHashMap entries = new LinkedHashMap(16, 0.75f, true);
+	
+	// Results written to disk, keyed as above. The shape is written
+	// to the file ahead of the outputs
+	
+	private File spillDir = null;
+	private final HashMap spilled = new HashMap();
+	
+	private ResultCache()
+	{
+	}
+	
+	public static ResultCache getInstance()
+	{
+		return instance;
+	}
+	
+	/**
+	* Accessor methods for switching caching on and off
+	*/
+	
+	public static void setEnabled(boolean bEnabled)
+	{
+		ResultCache.bEnabled = bEnabled;
+		
+		if (!bEnabled)
+			instance.clear();
+	}
+	
+	public static boolean isEnabled()
+	{
+		return bEnabled;
+	}
+	
+	/**
+	* Set the number of results held in memory. Results beyond this are
+	* spilled to disk, if a spill directory is set, or else discarded.
+	*/
+	
+	public synchronized void setCapacity(int capacity)
+	{
+		this.capacity = Math.max(1, capacity);
+		trim();
+	}
+	
+	public synchronized int getCapacity()
+	{
+		return capacity;
+	}
+	
+	/**
+	* Set the directory that results evicted from memory are written to,
+	* or null to discard them
+	*/
+	
+	public synchronized void setSpillDirectory(File spillDir)
+	{
+		if (spillDir != null)
+			spillDir.mkdirs();
+		
+		if ((this.spillDir != null) && !this.spillDir.equals(spillDir))
+			deleteSpilled();
+		
+		this.spillDir = spillDir;
+	}
+	
+	public synchronized File getSpillDirectory()
+	{
+		return spillDir;
+	}
+	
+	/**
+	* Return the outputs stored under the key, or null if there are none
+	* or they were stored for inputs of a different shape
+	*
+	* @param key The key of the module's inputs and parameters
+	* @return One list of data per output port
+	*/
+	
+	public synchronized ArrayList[] get(Key key)
+	{
+		Entry entry = (Entry)entries.get(key.id);
+		
+		if ((entry == null) && spilled.containsKey(key.id))
+		{
+			entry = readSpilled(key.id);
+			
+			if (entry != null)
+			{
+				entries.put(key.id, entry);
+				trim();
+			}
+		}
+		
+		if ((entry == null) || (entry.shape != key.shape))
+			return null;
+		
+		return entry.outputs;
+	}
+	
+	/**
+	* Store the outputs of a module under the key
+	*
+	* @param key The key of the module's inputs and parameters
+	* @param outputs One list of data per output port
+	*/
+	
+	public synchronized void put(Key key, ArrayList[] outputs)
+	{
+		removeSpilled(key.id);
+		entries.put(key.id, new Entry(key.shape, outputs));
+		trim();
+	}
+	
+	/**
+	* Discard all results, in memory and on disk
+	*/
+	
+	public synchronized void clear()
+	{
+		entries.clear();
+		deleteSpilled();
+	}
+	
+	/**
+	* Return the number of results held in memory
+	*/
+	
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+	
+	/**
+	* Evict the least recently used results until the capacity is met
+	*/
+	
+	private void trim()
+	{
+		Iterator iter = entries.entrySet().iterator();
+		
+		while (entries.size() > capacity)
+		{
+			Map.Entry entry = (Map.Entry)iter.next();
+			iter.remove();
+			
+			if (spillDir != null)
+				spill((String)entry.getKey(), (Entry)entry.getValue());
+		}
+	}
+	
+	private void spill(String key, Entry entry)
+	{
+		File file = new File(spillDir, key + ".cache");
+		
+		try
+		{
+			ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			try
+			{
+				out.writeLong(entry.shape);
+				out.writeObject(entry.outputs);
+			}
+			finally
+			{
+				out.close();
+			}
+			
+			file.deleteOnExit();
+			spilled.put(key, file);
+		}
+		catch (IOException e)
+		{
+			// The outputs hold something that can't be serialised, or the
+			// disk is full. Either way the result is simply lost
+			
+			file.delete();
+		}
+	}
+	
+	private Entry readSpilled(String key)
+	{
+		File file = (File)spilled.remove(key);
+		
+		try
+		{
+			ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try
+			{
+				long shape = in.readLong();
+				return new Entry(shape, (ArrayList[])in.readObject());
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch (Exception e)
+		{
+			return null;
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+	
+	private void removeSpilled(String key)
+	{
+		File file = (File)spilled.remove(key);
+		
+		if (file != null)
+			file.delete();
+	}
+	
+	private void deleteSpilled()
+	{
+		Iterator iter = spilled.values().iterator();
+		while (iter.hasNext())
+			((File)iter.next()).delete();
+		
+		spilled.clear();
+	}
+	
+	/**
+	* Return the key of the given objects. Data collections, lists,
+	* arrays, coordinates, strings and numbers are hashed by content.
+	* Anything else is hashed by identity, so it never matches a different
+	* instance.
+	*
+	* @param parts The inputs and parameters of a module
+	* @return The key, whose fingerprint is suitable for a file name
+	*/
+	
+	public static Key fingerprint(Object[] parts)
+	{
+		long h = hash(0xcbf29ce484222325L, parts);
+		
+		// Final avalanche so that similar inputs give unrelated keys
+		
+		h ^= (h >>> 33);
+		h *= 0xff51afd7ed558ccdL;
+		h ^= (h >>> 33);
+		
+		String s = Long.toHexString(h);
+		while (s.length() < 16)
+			s = "0" + s;
+		
+		return new Key(s, shape(0x84222325cbf29ce4L, parts));
+	}
+	
+	private static long mix(long h, long v)
+	{
+		return (h ^ v) * 0x100000001b3L;
+	}
+	
+	private static long mix(long h, double d)
+	{
+		return mix(h, Double.doubleToLongBits(d));
+	}
+	
+	private static long hash(long h, Object o)
+	{
+		int i;
+		
+		if (o == null)
+			return mix(h, 0x9e3779b97f4a7c15L);
+		
+		if ((o instanceof String) || (o instanceof Integer) || (o instanceof Long) ||
+			(o instanceof Boolean) || (o instanceof Character))
+		{
+			h = mix(h, o.getClass().getName().hashCode());
+			return mix(h, o.hashCode());
+		}
+		else if (o instanceof Number)
+		{
+			h = mix(h, o.getClass().getName().hashCode());
+			return mix(h, ((Number)o).doubleValue());
+		}
+		else if (o instanceof DataItemCollection)
+			return hash(h, (DataItemCollection)o);
+		else if (o instanceof DataItem)
+			return hash(h, (DataItem)o, -1);
+		else if (o instanceof Coordinate)
+		{
+			Coordinate c = (Coordinate)o;
+			h = mix(h, c.getX());
+			h = mix(h, c.getY());
+			h = mix(h, c.getZ());
+			return mix(h, c.getW());
+		}
+		else if (o instanceof List)
+		{
+			List list = (List)o;
+			h = mix(h, list.size());
+			for (i = 0; i < list.size(); i++)
+				h = hash(h, list.get(i));
+			return h;
+		}
+		else if (o instanceof Object[])
+		{
+			Object[] a = (Object[])o;
+			h = mix(h, a.length);
+			for (i = 0; i < a.length; i++)
+				h = hash(h, a[i]);
+			return h;
+		}
+		else if (o instanceof int[])
+		{
+			int[] a = (int[])o;
+			h = mix(h, a.length);
+			for (i = 0; i < a.length; i++)
+				h = mix(h, a[i]);
+			return h;
+		}
+		else if (o instanceof double[])
+		{
+			double[] a = (double[])o;
+			h = mix(h, a.length);
+			for (i = 0; i < a.length; i++)
+				h = mix(h, a[i]);
+			return h;
+		}
+		else
+			return mix(h, System.identityHashCode(o) ^ ((long)o.getClass().getName().hashCode() << 32));
+	}
+	
+	/**
+	* Summarise the sizes of the given objects and the IDs of the data
+	* items in them, without reading any values. Mixed differently from
+	* the fingerprint, so that inputs which collide in one are
+	* unlikely to collide in the other.
+	*/
+	
+	private static long shape(long h, Object o)
+	{
+		int i;
+		
+		if (o == null)
+			return step(h, 0);
+		
+		if ((o instanceof String) || (o instanceof Number) || (o instanceof Boolean) ||
+			(o instanceof Character))
+			return step(h, o.hashCode());
+		else if (o instanceof DataItemCollection)
+		{
+			DataItemCollection data = (DataItemCollection)o;
+			h = step(h, data.getSize());
+			h = step(h, data.getFields() == null ? 0 : data.getFields().size());
+			for (i = 0; i < data.getSize(); i++)
+				h = step(h, data.getDataItem(i).getID());
+			return h;
+		}
+		else if (o instanceof DataItem)
+			return step(h, ((DataItem)o).getID());
+		else if (o instanceof List)
+		{
+			List list = (List)o;
+			h = step(h, list.size());
+			for (i = 0; i < list.size(); i++)
+				h = shape(h, list.get(i));
+			return h;
+		}
+		else if (o instanceof Object[])
+		{
+			Object[] a = (Object[])o;
+			h = step(h, a.length);
+			for (i = 0; i < a.length; i++)
+				h = shape(h, a[i]);
+			return h;
+		}
+		else if (o instanceof int[])
+			return step(h, ((int[])o).length);
+		else if (o instanceof double[])
+			return step(h, ((double[])o).length);
+		else
+			return step(h, o.getClass().getName().hashCode());
+	}
+	
+	private static long step(long h, long v)
+	{
+		return (h + v) * 0x9e3779b97f4a7c15L + 0x632be59bd9b4e019L;
+	}
+	
+	private static long hash(long h, DataItemCollection data)
+	{
+		h = mix(h, data.getSize());
+		h = hash(h, data.getFields());
+		h = hash(h, data.getTypes());
+		h = mix(h, data.getNormalised() ? 1 : 0);
+		
+		int numFields = data.getFields() == null ? 0 : data.getFields().size();
+		
+		if (data.getLowerTriangular())
+			numFields = 0;
+		
+		for (int i = 0; i < data.getSize(); i++)
+			h = hash(h, data.getDataItem(i), numFields);
+		
+		// The items of a triangular matrix hold only their IDs, so hash the
+		// distances themselves, read through the metric so that a mapped
+		// triangle isn't copied onto the heap
+		
+		if (data.getLowerTriangular())
+		{
+			DistanceMetric metric = data.getMetric();
+			
+			for (int i = 0; i < data.getSize(); i++)
+				for (int j = 0; j < i; j++)
+					h = mix(h, metric.distance(i, j));
+		}
+		
+		return h;
+	}
+	
+	private static long hash(long h, DataItem item, int numFields)
+	{
+		int i;
+		h = mix(h, item.getID());
+		
+		if (item.getSparseValues() != null)
+		{
+			SparseVector v = item.getSparseValues();
+			h = mix(h, v.getDimensions());
+			int[] terms = v.getTerms();
+			float[] weights = v.getWeights();
+			for (i = 0; i < v.getNumEntries(); i++)
+			{
+				h = mix(h, terms[i]);
+				h = mix(h, Float.floatToIntBits(weights[i]));
+			}
+		}
+		else if (item.isText())
+		{
+			h = hash(h, item.getTextValues());
+		}
+		else if (numFields >= 0)
+		{
+			for (i = 0; i < numFields; i++)
+				h = hash(h, item.getValue(i));
+		}
+		else
+			h = hash(h, item.getValues());
+		
+		return h;
+	}
+	
+	/**
+	* Identifies the result of a module: the fingerprint of its inputs and
+	* parameters, and the shape that is checked when the result is read
+	*/
+	
+	public static class Key
+	{
+		private final String id;
+		private final long shape;
+		
+		Key(String id, long shape)
+		{
+			this.id = id;
+			this.shape = shape;
+		}
+		
+		public String toString()
+		{
+			return id;
+		}
+	}
+	
+	private static class Entry
+	{
+		private final long shape;
+		private final ArrayList[] outputs;
+		
+		Entry(long shape, ArrayList[] outputs)
+		{
+			this.shape = shape;
+			this.outputs = outputs;
+		}
+	}
+}
@@ -172,8 +172,10 @@ public class SelectionHandler implements java.io.Serializable
 	    Collection d = obj.getDeselection();
 	 
    
+	    // retainAll calls contains() on c for every ID, so make sure that is quick
+	    
 	    if (c != null)
-		selectedIndices.retainAll(c);
+		selectedIndices.retainAll((c instanceof Set) ? c : new HashSet(c));
 	    if (d != null)
 		deselection.addAll(d);
 	}
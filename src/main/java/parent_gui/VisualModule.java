@@ -198,7 +198,7 @@ public class VisualModule extends JPanel implements KeyListener, FocusListener
 		numOutPorts = 0;
 		this.mdiForm = mdiForm;
 		this.drawPane = drawPane;
-		parent = drawPane.getParentForm();
+		parent = (drawPane != null) ? drawPane.getParentForm() : null;
 		init();
 	}
 	
@@ -212,9 +212,14 @@ public class VisualModule extends JPanel implements KeyListener, FocusListener
 	
 	private void init()
 	{
-		visModListener = new VisualModuleMouseListener(this, mdiForm);
-		addMouseListener(visModListener);
-		addMouseMotionListener(visModListener);
+		// Modules run by a batch workflow have no canvas to be dragged on
+		
+		if (drawPane != null)
+		{
+			visModListener = new VisualModuleMouseListener(this, mdiForm);
+			addMouseListener(visModListener);
+			addMouseMotionListener(visModListener);
+		}
 		addKeyListener(this);
 		addFocusListener(this);
 		
@@ -238,7 +243,7 @@ public class VisualModule extends JPanel implements KeyListener, FocusListener
 	{
 		// Add a label showing the title of the module, e.g. Filter 1
 		
-		String modTitle = mdiForm.getDraggedModuleName() + " " 
+		String modTitle = (mdiForm == null) ? "" : mdiForm.getDraggedModuleName() + " " 
 			+ mdiForm.getNumInstances(mdiForm.getDraggedModuleName());
 		
 		JPanel lblPanel = new JPanel();
@@ -401,7 +406,7 @@ public class VisualModule extends JPanel implements KeyListener, FocusListener
 		// default, should be made invisible. This method is called from
 		// Mdi.clearAllModules()
 		
-		if (parent.getLinkMode() == true)
+		if ((parent != null) && parent.getLinkMode())
 		{
 			if (!bControlsHidden)
 			{
@@ -45,7 +45,9 @@
  *
  * This dialog allows the user to enter the values for
  * data cardinality and dimensionality that determine the
- * categorical L (low), M (moderate) and H (high) states
+ * categorical L (low), M (moderate) and H (high) states.
+ * It also lists the data sources currently loaded with the
+ * precision they are held in and the memory they use
  *
  *
  *  @author Greg Ross
@@ -53,12 +55,16 @@
 package parent_gui.dataVolumeThresholding;
 
 import parent_gui.*;
+import alg.DataSource;
+import alg.TextSource;
+import data.DataItemCollection;
 
 import java.awt.event.*;
 import java.awt.*;
 import javax.swing.*;
 import javax.swing.event.*;
 import java.util.Properties;
+import java.util.Iterator;
 import java.lang.Exception;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
@@ -196,6 +202,10 @@ public class DataStatesForm extends JDialog implements DocumentListener
 	      
 	      addDimensionalityBox();
 	      
+	      // Show the memory used by the loaded data
+	      
+	      addMemoryBox();
+	      
 	      setFonts();
 	      
 	      pack();
@@ -348,6 +358,67 @@ public class DataStatesForm extends JDialog implements DocumentListener
 		jpThreshold.add(jpHolder);
 	}
 	
+	/**
+	* List each data source module with the size of its data, whether
+	* it is held in single or double precision, and the memory that it
+	* uses compared with the memory it would use at the other precision
+	*/
+	
+	private void addMemoryBox()
+	{
+		JPanel jpMemory = new JPanel();
+		jpMemory.setLayout(new GridLayout(0, 1));
+		
+		Iterator iter = mdiForm.getModules().values().iterator();
+		Object mod;
+		DataItemCollection dataItems;
+		String name;
+		
+		while (iter.hasNext())
+		{
+			mod = iter.next();
+			
+			if (mod instanceof DataSource)
+			{
+				dataItems = ((DataSource)mod).getCSVData();
+				name = ((DataSource)mod).getName();
+			}
+			else if (mod instanceof TextSource)
+			{
+				dataItems = ((TextSource)mod).getTxtData();
+				name = ((TextSource)mod).getName();
+			}
+			else
+				continue;
+			
+			if (dataItems == null)
+				continue;
+			
+			boolean bFloat = dataItems.isSinglePrecision();
+			
+			jpMemory.add(new JLabel(name + ": N = " + dataItems.getSize() + ", D = " +
+				dataItems.getFields().size() + ", " + (bFloat ? "single" : "double") +
+				" precision, " + toMegabytes(dataItems.getMemoryUsage(bFloat)) + " MB (" +
+				toMegabytes(dataItems.getMemoryUsage(!bFloat)) + " MB in " +
+				(bFloat ? "double" : "single") + ")"));
+		}
+		
+		if (jpMemory.getComponentCount() == 0)
+			jpMemory.add(new JLabel("No data loaded"));
+		
+		JPanel jpHolder = new JPanel();
+		jpHolder.setBorder(BorderFactory.createTitledBorder("Memory used by data"));
+		jpHolder.setLayout(new BorderLayout());
+		jpHolder.add(jpMemory, BorderLayout.CENTER);
+		
+		jpThreshold.add(jpHolder);
+	}
+	
+	private static String toMegabytes(long bytes)
+	{
+		return Double.toString(Math.round(bytes / 10485.76d) / 100.0d);
+	}
+	
 	/**
 	* Use ValidTextFieldDocument as the PlainDocument for
 	* the text controls to ensure that only numerical info can
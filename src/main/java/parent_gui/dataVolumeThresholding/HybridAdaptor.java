@@ -56,7 +56,6 @@ import parent_gui.*;
 import data.*;
 
 import java.util.ArrayList;
-import java.lang.Thread;
 
 public class HybridAdaptor extends DefaultVisualModule implements Runnable, java.io.Serializable
 {	
@@ -79,9 +78,9 @@ public class HybridAdaptor extends DefaultVisualModule implements Runnable, java
 	
 	protected HybridGenerator hybridGenerator;
 	
-	// Thread in which the algorithm generation process will run
+	// Scheduled task in which the algorithm generation process will run
 	
-	private static Thread thread;
+	private transient GraphScheduler.Task task;
 	
 	// The ports that trigger the hybrid generation
 	
@@ -150,8 +149,7 @@ public class HybridAdaptor extends DefaultVisualModule implements Runnable, java
 				
 				feedbackForm = FeedbackForm.getInstance("HIVE", mdiForm);
 				
-				thread = new Thread(this);
-				thread.start();
+				task = GraphScheduler.getInstance().schedule(this, this);
 				
 				// Now show the feedback form
 				
@@ -183,7 +181,7 @@ public class HybridAdaptor extends DefaultVisualModule implements Runnable, java
 		feedbackForm.hide();
 		feedbackForm.dispose();
 		
-		thread = null;
+		task = null;
 	}
 	
 	/**